@@ -29,6 +29,7 @@ package org.opencms.workplace.tools.cache;
 
 import com.alkacon.simapi.Simapi;
 
+import org.opencms.cache.CmsVfsNameBasedDiskCache;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsProject;
 import org.opencms.file.CmsResource;
@@ -228,6 +229,7 @@ public class CmsImageCacheHelper {
             if (!oName.startsWith("/")) {
                 oName = "/" + oName;
             }
+            oName = CmsVfsNameBasedDiskCache.removeSubFolder(oName);
             String imgName = oName;
             CmsResource res = null;
             boolean found = false;
@@ -52,6 +52,8 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 import java.util.ArrayList;
@@ -220,13 +222,37 @@ public class CmsUploadBean extends CmsJspBean {
         return listener;
     }
 
+    /**
+     * Creates a resource with the content of an uploaded file item.<p>
+     * 
+     * The content is streamed from the file item, so large binary files are never held in memory completely.<p>
+     * 
+     * @param resname the name of the resource to create
+     * @param type the type of the resource to create
+     * @param fileItem the uploaded file item
+     * @param properties the properties of the new resource
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws IOException if reading the uploaded file fails
+     */
+    private void createResource(String resname, int type, FileItem fileItem, List<CmsProperty> properties)
+    throws CmsException, IOException {
+
+        InputStream content = fileItem.getInputStream();
+        try {
+            getCmsObject().createResource(resname, type, content, fileItem.getSize(), properties);
+        } finally {
+            content.close();
+        }
+    }
+
     /**
      * Creates the resources.<p>
      * @param listener the listener
      * 
-     * @throws UnsupportedEncodingException 
+     * @throws IOException if reading an uploaded file fails
      */
-    private void createResources(CmsUploadListener listener) throws CmsException, UnsupportedEncodingException {
+    private void createResources(CmsUploadListener listener) throws CmsException, IOException {
 
         // get the target folder
         String targetFolder = getTargetFolder();
@@ -236,29 +262,29 @@ public class CmsUploadBean extends CmsJspBean {
         // iterate over the list of files to upload and create each single resource
         for (FileItem fileItem : m_multiPartFileItems) {
             if ((fileItem != null) && (!fileItem.isFormField())) {
-                // read the content of the file
-                byte[] content = fileItem.get();
-                fileItem.delete();
-
                 // determine the new resource name
                 String fileName = m_parameterMap.get(fileItem.getFieldName()
                     + I_CmsUploadConstants.UPLOAD_FILENAME_ENCODED_SUFFIX)[0];
                 fileName = URLDecoder.decode(fileName, "UTF-8");
 
-                if (filesToUnzip.contains(CmsResource.getName(fileName.replace('\\', '/')))) {
-                    // import the zip
-                    CmsImportFolder importZip = new CmsImportFolder();
-                    try {
-                        importZip.importZip(content, targetFolder, getCmsObject(), false);
-                    } finally {
-                        // get the created resource names
-                        m_resourcesCreated.addAll(importZip.getCreatedResourceNames());
+                try {
+                    if (filesToUnzip.contains(CmsResource.getName(fileName.replace('\\', '/')))) {
+                        // import the zip
+                        CmsImportFolder importZip = new CmsImportFolder();
+                        try {
+                            importZip.importZip(fileItem.get(), targetFolder, getCmsObject(), false);
+                        } finally {
+                            // get the created resource names
+                            m_resourcesCreated.addAll(importZip.getCreatedResourceNames());
+                        }
+                    } else {
+                        // create the resource, the content is read from the uploaded file item
+                        String newResname = createSingleResource(fileName, targetFolder, fileItem);
+                        // add the name of the created resource to the list of successful created resources
+                        m_resourcesCreated.add(newResname);
                     }
-                } else {
-                    // create the resource
-                    String newResname = createSingleResource(fileName, targetFolder, content);
-                    // add the name of the created resource to the list of successful created resources
-                    m_resourcesCreated.add(newResname);
+                } finally {
+                    fileItem.delete();
                 }
 
                 if (listener.isCanceled()) {
@@ -272,16 +298,17 @@ public class CmsUploadBean extends CmsJspBean {
      * Creates a single resource and returns the site path of the new resource.<p>
      * 
      * @param newResname the name of the resource to create
-     * @param content the content of the resource to create
+     * @param fileItem the uploaded file item to read the content of the resource from
      * 
      * @return the new resource site path
      * 
      * @throws CmsException if something goes wrong
      * @throws CmsLoaderException if something goes wrong
      * @throws CmsDbSqlException if something goes wrong
+     * @throws IOException if reading the uploaded file fails
      */
-    private String createSingleResource(String fileName, String targetFolder, byte[] content)
-    throws CmsException, CmsLoaderException, CmsDbSqlException {
+    private String createSingleResource(String fileName, String targetFolder, FileItem fileItem)
+    throws CmsException, CmsLoaderException, CmsDbSqlException, IOException {
 
         String newResname = getNewResourceName(getCmsObject(), fileName, targetFolder);
         int resTypeId = OpenCms.getResourceManager().getDefaultTypeForName(newResname).getTypeId();
@@ -321,10 +348,10 @@ public class CmsUploadBean extends CmsJspBean {
             // if the resource does not exist, create it
             try {
                 // create the resource
-                getCmsObject().createResource(newResname, resTypeId, content, properties);
+                createResource(newResname, resTypeId, fileItem, properties);
             } catch (CmsSecurityException e) {
                 // in case of not enough permissions, try to create a plain text file
-                getCmsObject().createResource(newResname, plainId, content, properties);
+                createResource(newResname, plainId, fileItem, properties);
             } catch (CmsDbSqlException sqlExc) {
                 // SQL error, probably the file is too large for the database settings, delete file
                 getCmsObject().lockResource(newResname);
@@ -340,10 +367,10 @@ public class CmsUploadBean extends CmsJspBean {
             CmsFile file = getCmsObject().readFile(res);
             byte[] contents = file.getContents();
             try {
-                getCmsObject().replaceResource(newResname, resTypeId, content, null);
+                replaceResource(newResname, resTypeId, fileItem);
             } catch (CmsSecurityException e) {
                 // in case of not enough permissions, try to create a plain text file
-                getCmsObject().replaceResource(newResname, plainId, content, null);
+                replaceResource(newResname, plainId, fileItem);
             } catch (CmsDbSqlException sqlExc) {
                 // SQL error, probably the file is too large for the database settings, restore content
                 file.setContents(contents);
@@ -562,4 +589,26 @@ public class CmsUploadBean extends CmsJspBean {
         getRequest().getSession().removeAttribute(SESSION_ATTRIBUTE_LISTENER_ID);
         m_listeners.remove(listenerId);
     }
+
+    /**
+     * Replaces the content of a resource with the content of an uploaded file item.<p>
+     * 
+     * The content is streamed from the file item, so large binary files are never held in memory completely.<p>
+     * 
+     * @param resname the name of the resource to replace
+     * @param type the new type of the resource
+     * @param fileItem the uploaded file item
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws IOException if reading the uploaded file fails
+     */
+    private void replaceResource(String resname, int type, FileItem fileItem) throws CmsException, IOException {
+
+        InputStream content = fileItem.getInputStream();
+        try {
+            getCmsObject().replaceResource(resname, type, content, fileItem.getSize(), null);
+        } finally {
+            content.close();
+        }
+    }
 }
@@ -0,0 +1,548 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+import org.opencms.main.CmsLog;
+import org.opencms.monitor.CmsStripedCounter;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * An in-memory index of the files in a RFS disk cache repository, which keeps the repository within a size budget.<p>
+ * 
+ * The disk caches report every lookup and every written file to this index. If the size of all files grows 
+ * beyond the budget, the least recently used (or, with {@link #POLICY_LFU}, the least frequently used) files are 
+ * deleted in a batch, so that the repository shrinks to {@link #EVICTION_LOW_WATER_MARK} percent of the budget.
+ * The eviction runs in a background thread, so the requests writing to the cache never wait for it.<p>
+ * 
+ * The files already in the repository are indexed by the same background thread after {@link #initialize()},
+ * while the cache is already in use. Files deleted by other means, for example by the age based cleanup jobs, 
+ * are removed from the index when they would be evicted. Since these are the least recently used files anyway,
+ * this happens with the next eviction.<p>
+ * 
+ * An unbounded index does not keep track of the files and only counts the lookups and the written bytes.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsDiskCacheIndex {
+
+    /**
+     * An indexed file, with its size and usage.<p>
+     */
+    private static final class CacheEntry {
+
+        /** The number of lookups, only approximate since concurrent updates may get lost. */
+        volatile int m_hits;
+
+        /** The time of the last lookup. */
+        volatile long m_lastAccess;
+
+        /** The size of the file. */
+        final long m_size;
+
+        /**
+         * Creates a new entry.<p>
+         * 
+         * @param size the size of the file
+         * @param lastAccess the time of the last lookup
+         */
+        CacheEntry(long size, long lastAccess) {
+
+            m_size = size;
+            m_lastAccess = lastAccess;
+        }
+    }
+
+    /** The percentage of the size budget the repository is reduced to on eviction. */
+    public static final int EVICTION_LOW_WATER_MARK = 90;
+
+    /** Eviction policy that deletes the least frequently used files first. */
+    public static final String POLICY_LFU = "lfu";
+
+    /** Eviction policy that deletes the least recently used files first. */
+    public static final String POLICY_LRU = "lru";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsDiskCacheIndex.class);
+
+    /** The indexed files, by their path relative to the repository. */
+    private final ConcurrentHashMap<String, CacheEntry> m_entries;
+
+    /** Indicates if an eviction has been scheduled and not yet finished. */
+    private final AtomicBoolean m_evictionPending;
+
+    /** The eviction counter. */
+    private final CmsStripedCounter m_evictions;
+
+    /** The single background thread that indexes the repository and evicts files. */
+    private final ThreadPoolExecutor m_executor;
+
+    /** The hit counter. */
+    private final CmsStripedCounter m_hits;
+
+    /** Indicates if the least frequently used files are evicted first. */
+    private final boolean m_lfu;
+
+    /** The maximum size of all files in bytes, <code>-1</code> for an unbounded repository. */
+    private final long m_maxSize;
+
+    /** The miss counter. */
+    private final CmsStripedCounter m_misses;
+
+    /** The repository folder. */
+    private final File m_repository;
+
+    /** The absolute path of the repository folder, including a trailing separator. */
+    private final String m_repositoryPath;
+
+    /** The size of all indexed files in bytes. */
+    private final AtomicLong m_size;
+
+    /** The written bytes counter. */
+    private final CmsStripedCounter m_writtenBytes;
+
+    /**
+     * Creates a new disk cache index.<p>
+     * 
+     * @param repositoryPath the path of the repository folder in the RFS
+     * @param maxSize the maximum size of all files in bytes, if <code>&lt;= 0</code> the repository is not bounded
+     * @param policy the eviction policy, {@link #POLICY_LRU} or {@link #POLICY_LFU}
+     */
+    public CmsDiskCacheIndex(String repositoryPath, long maxSize, String policy) {
+
+        m_repository = new File(repositoryPath).getAbsoluteFile();
+        m_repositoryPath = m_repository.getPath() + File.separatorChar;
+        m_maxSize = (maxSize > 0) ? maxSize : -1;
+        m_lfu = POLICY_LFU.equalsIgnoreCase(policy);
+        m_entries = new ConcurrentHashMap<String, CacheEntry>();
+        m_size = new AtomicLong();
+        m_evictionPending = new AtomicBoolean();
+        m_hits = new CmsStripedCounter();
+        m_misses = new CmsStripedCounter();
+        m_writtenBytes = new CmsStripedCounter();
+        m_evictions = new CmsStripedCounter();
+        m_executor = new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+
+                /**
+                 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+                 */
+                public Thread newThread(Runnable runnable) {
+
+                    Thread thread = new Thread(runnable, "OpenCms: Disk cache index " + m_repositoryPath);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    /**
+     * Returns a snapshot of the counters of this index.<p>
+     * 
+     * @return a snapshot of the counters of this index
+     */
+    public CmsDiskCacheStatistics getStatistics() {
+
+        return new CmsDiskCacheStatistics(
+            isBounded() ? m_entries.size() : -1,
+            isBounded() ? m_size.get() : -1,
+            m_maxSize,
+            m_hits.get(),
+            m_misses.get(),
+            m_writtenBytes.get(),
+            m_evictions.get());
+    }
+
+    /**
+     * Starts indexing the files already in the repository in the background.<p>
+     * 
+     * The index can be used while the files are indexed. For an unbounded repository, nothing is done.<p>
+     */
+    public void initialize() {
+
+        if (!isBounded()) {
+            return;
+        }
+        execute(new Runnable() {
+
+            /**
+             * @see java.lang.Runnable#run()
+             */
+            public void run() {
+
+                long[] indexed = new long[2];
+                indexFolder(m_repository, indexed);
+                if (LOG.isInfoEnabled()) {
+                    LOG.info(Messages.get().getBundle().key(
+                        Messages.LOG_DISK_CACHE_INDEXED_3,
+                        new Long(indexed[0]),
+                        new Long(indexed[1]),
+                        m_repositoryPath));
+                }
+                if (m_size.get() > m_maxSize) {
+                    evict();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns if the size of the repository is bounded.<p>
+     * 
+     * @return <code>true</code> if the size of the repository is bounded
+     */
+    public boolean isBounded() {
+
+        return m_maxSize > 0;
+    }
+
+    /**
+     * Records a successful lookup of the given file.<p>
+     * 
+     * @param file the file that was found in the cache
+     */
+    public void recordHit(File file) {
+
+        m_hits.increment();
+        if (!isBounded()) {
+            return;
+        }
+        String key = getKey(file);
+        CacheEntry entry = m_entries.get(key);
+        long now = System.currentTimeMillis();
+        if (entry == null) {
+            // the repository has not been indexed completely yet 
+            addEntry(key, new CacheEntry(file.length(), now));
+            return;
+        }
+        if ((now - entry.m_lastAccess) > 1000) {
+            // avoid writing to the shared entry on every lookup
+            entry.m_lastAccess = now;
+        }
+        entry.m_hits++;
+    }
+
+    /**
+     * Records a failed lookup.<p>
+     */
+    public void recordMiss() {
+
+        m_misses.increment();
+    }
+
+    /**
+     * Records that the given file has been written to the cache.<p>
+     * 
+     * If the repository has grown beyond its size budget, an eviction is scheduled.<p>
+     * 
+     * @param file the file that was written
+     */
+    public void recordWrite(File file) {
+
+        long length = file.length();
+        m_writtenBytes.add(length);
+        if (!isBounded()) {
+            return;
+        }
+        CacheEntry previous = m_entries.put(getKey(file), new CacheEntry(length, System.currentTimeMillis()));
+        long size = m_size.addAndGet(length - ((previous != null) ? previous.m_size : 0));
+        if (size > m_maxSize) {
+            scheduleEviction();
+        }
+    }
+
+    /**
+     * Removes the given file from the index, after it has been deleted.<p>
+     * 
+     * @param file the file that has been deleted
+     */
+    public void remove(File file) {
+
+        if (!isBounded()) {
+            return;
+        }
+        CacheEntry entry = m_entries.remove(getKey(file));
+        if (entry != null) {
+            m_size.addAndGet(-entry.m_size);
+        }
+    }
+
+    /**
+     * Stops the background thread.<p>
+     */
+    public void shutdown() {
+
+        m_executor.shutdownNow();
+    }
+
+    /**
+     * Evicts files until the repository is reduced to the low water mark.<p>
+     * 
+     * Must only be called by the background thread.<p>
+     */
+    protected void evict() {
+
+        long evicted = 0;
+        long evictedBytes = 0;
+        // repeat in case files have been added while the eviction was running
+        while (m_size.get() > m_maxSize) {
+            long[] batch = evictBatch();
+            if (batch[0] == 0) {
+                break;
+            }
+            evicted += batch[0];
+            evictedBytes += batch[1];
+        }
+        if ((evicted > 0) && LOG.isInfoEnabled()) {
+            LOG.info(Messages.get().getBundle().key(
+                Messages.LOG_DISK_CACHE_EVICTED_4,
+                new Object[] {new Long(evicted), new Long(evictedBytes), m_repositoryPath, getStatistics()}));
+        }
+    }
+
+    /**
+     * Adds an entry for a file to the index, unless the file is already indexed.<p>
+     * 
+     * @param key the path of the file relative to the repository
+     * @param entry the entry to add
+     */
+    private void addEntry(String key, CacheEntry entry) {
+
+        if (m_entries.putIfAbsent(key, entry) == null) {
+            if (m_size.addAndGet(entry.m_size) > m_maxSize) {
+                scheduleEviction();
+            }
+        }
+    }
+
+    /**
+     * Evicts one batch of files, so that the repository is reduced to the low water mark.<p>
+     * 
+     * @return the number of evicted files and their size in bytes
+     */
+    private long[] evictBatch() {
+
+        // take a snapshot of the eviction order and the sizes
+        int count = 0;
+        long[] orders = new long[m_entries.size() + 16];
+        long[] sizes = new long[orders.length];
+        for (CacheEntry entry : m_entries.values()) {
+            if (count == orders.length) {
+                orders = copyOf(orders, count * 2);
+                sizes = copyOf(sizes, count * 2);
+            }
+            orders[count] = getEvictionOrder(entry);
+            sizes[count] = entry.m_size;
+            count++;
+        }
+        long toFree = m_size.get() - ((m_maxSize * EVICTION_LOW_WATER_MARK) / 100);
+        if ((toFree <= 0) || (count == 0)) {
+            return new long[] {0, 0};
+        }
+        // find the smallest order value, so that all entries up to this value free enough space
+        long[] sorted = copyOf(orders, count);
+        Arrays.sort(sorted);
+        long threshold = sorted[count - 1];
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long freed = 0;
+            for (int i = 0; i < count; i++) {
+                if (orders[i] <= sorted[mid]) {
+                    freed += sizes[i];
+                }
+            }
+            if (freed >= toFree) {
+                threshold = sorted[mid];
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        // now evict the entries, entries used since the snapshot have a higher order value and are kept
+        long evicted = 0;
+        long evictedBytes = 0;
+        Iterator<Map.Entry<String, CacheEntry>> i = m_entries.entrySet().iterator();
+        while (i.hasNext()) {
+            Map.Entry<String, CacheEntry> mapEntry = i.next();
+            CacheEntry entry = mapEntry.getValue();
+            if ((getEvictionOrder(entry) <= threshold) && m_entries.remove(mapEntry.getKey(), entry)) {
+                m_size.addAndGet(-entry.m_size);
+                // the file may already have been deleted by a cleanup job
+                new File(m_repositoryPath + mapEntry.getKey()).delete();
+                m_evictions.increment();
+                evicted++;
+                evictedBytes += entry.m_size;
+            }
+        }
+        return new long[] {evicted, evictedBytes};
+    }
+
+    /**
+     * Returns a copy of the given array with the given length.<p>
+     * 
+     * @param array the array to copy
+     * @param length the length of the copy
+     * 
+     * @return the copy
+     */
+    private long[] copyOf(long[] array, int length) {
+
+        long[] result = new long[length];
+        System.arraycopy(array, 0, result, 0, Math.min(length, array.length));
+        return result;
+    }
+
+    /**
+     * Schedules the given task for the background thread.<p>
+     * 
+     * @param task the task to schedule
+     * 
+     * @return <code>false</code> if the background thread has been stopped
+     */
+    private boolean execute(Runnable task) {
+
+        try {
+            m_executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            // the index has been shut down
+            return false;
+        }
+    }
+
+    /**
+     * Returns the value that determines the eviction order of the given entry, lower values are evicted first.<p>
+     * 
+     * @param entry the entry
+     * 
+     * @return the eviction order of the entry
+     */
+    private long getEvictionOrder(CacheEntry entry) {
+
+        if (!m_lfu) {
+            return entry.m_lastAccess;
+        }
+        // the number of lookups first, entries with the same number are ordered by the last access in seconds
+        long hits = Math.min(entry.m_hits, 0x7FFFFF);
+        return (hits << 40) | ((entry.m_lastAccess / 1000) & 0xFFFFFFFFFFL);
+    }
+
+    /**
+     * Returns the path of the given file relative to the repository, used as key in the index.<p>
+     * 
+     * @param file the file
+     * 
+     * @return the path of the file relative to the repository
+     */
+    private String getKey(File file) {
+
+        String path = file.getAbsolutePath();
+        if (path.startsWith(m_repositoryPath)) {
+            return path.substring(m_repositoryPath.length());
+        }
+        return path;
+    }
+
+    /**
+     * Adds all files in the given folder and its sub folders to the index.<p>
+     * 
+     * @param folder the folder to index
+     * @param indexed the number of indexed files and their size in bytes, updated by this method 
+     */
+    private void indexFolder(File folder, long[] indexed) {
+
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (int i = 0; i < files.length; i++) {
+            if (Thread.currentThread().isInterrupted()) {
+                // the index has been shut down
+                return;
+            }
+            File file = files[i];
+            if (file.isDirectory()) {
+                indexFolder(file, indexed);
+            } else if (!file.getName().startsWith("~")) {
+                // files starting with "~" are temporary files still being written
+                long length = file.length();
+                addEntry(getKey(file), new CacheEntry(length, file.lastModified()));
+                indexed[0]++;
+                indexed[1] += length;
+            }
+        }
+    }
+
+    /**
+     * Schedules an eviction in the background thread, unless an eviction is already pending.<p>
+     */
+    private void scheduleEviction() {
+
+        if (m_evictionPending.compareAndSet(false, true)) {
+            boolean scheduled = execute(new Runnable() {
+
+                /**
+                 * @see java.lang.Runnable#run()
+                 */
+                public void run() {
+
+                    try {
+                        evict();
+                    } finally {
+                        m_evictionPending.set(false);
+                    }
+                }
+            });
+            if (!scheduled) {
+                m_evictionPending.set(false);
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+/**
+ * Immutable snapshot of the counters of a {@link CmsDiskCacheIndex}.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsDiskCacheStatistics {
+
+    /** The number of files at the time the snapshot was taken. */
+    private final int m_entries;
+
+    /** The number of files evicted because the cache was full. */
+    private final long m_evictions;
+
+    /** The number of successful lookups. */
+    private final long m_hits;
+
+    /** The maximum size of all files in bytes. */
+    private final long m_maxSize;
+
+    /** The number of failed lookups. */
+    private final long m_misses;
+
+    /** The size of all files in bytes at the time the snapshot was taken. */
+    private final long m_size;
+
+    /** The number of bytes written to the cache. */
+    private final long m_writtenBytes;
+
+    /**
+     * Creates a new statistics snapshot.<p>
+     * 
+     * @param entries the number of files at the time the snapshot was taken
+     * @param size the size of all files in bytes at the time the snapshot was taken
+     * @param maxSize the maximum size of all files in bytes, or <code>-1</code> if the cache is unbounded
+     * @param hits the number of successful lookups
+     * @param misses the number of failed lookups
+     * @param writtenBytes the number of bytes written to the cache
+     * @param evictions the number of files evicted because the cache was full
+     */
+    public CmsDiskCacheStatistics(
+        int entries,
+        long size,
+        long maxSize,
+        long hits,
+        long misses,
+        long writtenBytes,
+        long evictions) {
+
+        m_entries = entries;
+        m_size = size;
+        m_maxSize = maxSize;
+        m_hits = hits;
+        m_misses = misses;
+        m_writtenBytes = writtenBytes;
+        m_evictions = evictions;
+    }
+
+    /**
+     * Returns the number of files at the time the snapshot was taken.<p>
+     * 
+     * For an unbounded cache, the files are not indexed, so <code>-1</code> is returned.<p>
+     *
+     * @return the number of files
+     */
+    public int getEntries() {
+
+        return m_entries;
+    }
+
+    /**
+     * Returns the number of files evicted because the cache was full.<p>
+     *
+     * @return the number of evicted files
+     */
+    public long getEvictions() {
+
+        return m_evictions;
+    }
+
+    /**
+     * Returns the percentage of successful lookups, or <code>0</code> if there were no lookups yet.<p>
+     * 
+     * @return the percentage of successful lookups
+     */
+    public int getHitRatio() {
+
+        long lookups = m_hits + m_misses;
+        if (lookups == 0) {
+            return 0;
+        }
+        return (int)((m_hits * 100) / lookups);
+    }
+
+    /**
+     * Returns the number of successful lookups.<p>
+     *
+     * @return the number of successful lookups
+     */
+    public long getHits() {
+
+        return m_hits;
+    }
+
+    /**
+     * Returns the maximum size of all files in bytes.<p>
+     *
+     * @return the maximum size of all files in bytes, or <code>-1</code> if the cache is unbounded
+     */
+    public long getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * Returns the number of failed lookups.<p>
+     *
+     * @return the number of failed lookups
+     */
+    public long getMisses() {
+
+        return m_misses;
+    }
+
+    /**
+     * Returns the size of all files in bytes at the time the snapshot was taken.<p>
+     * 
+     * For an unbounded cache, the files are not indexed, so <code>-1</code> is returned.<p>
+     *
+     * @return the size of all files in bytes
+     */
+    public long getSize() {
+
+        return m_size;
+    }
+
+    /**
+     * Returns the number of bytes written to the cache.<p>
+     *
+     * @return the number of bytes written to the cache
+     */
+    public long getWrittenBytes() {
+
+        return m_writtenBytes;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(128);
+        result.append("files: ").append(m_entries);
+        result.append(" size: ").append(m_size).append('/').append(m_maxSize);
+        result.append(" hits: ").append(m_hits);
+        result.append(" misses: ").append(m_misses);
+        result.append(" ratio: ").append(getHitRatio()).append('%');
+        result.append(" written: ").append(m_writtenBytes);
+        result.append(" evictions: ").append(m_evictions);
+        return result.toString();
+    }
+}
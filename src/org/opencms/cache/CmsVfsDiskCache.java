@@ -60,7 +60,9 @@ public class CmsVfsDiskCache {
     /**
      * Saves the given file content to a RFS file of the given name (full path).<p> 
      * 
-     * If the required parent folders do not exists, they are also created.<p>
+     * If the required parent folders do not exists, they are also created.
+     * The content is written to a temporary file first, which then replaces the file of the given name, 
+     * so a concurrent reader never sees a partially written file.<p>
      * 
      * @param rfsName the RFS name of the file to save the content in
      * @param content the content of the file to save
@@ -77,10 +79,26 @@ public class CmsVfsDiskCache {
             // create parent folders
             p.mkdirs();
         }
-        // write file contents
-        FileOutputStream fs = new FileOutputStream(f);
-        fs.write(content);
-        fs.close();
+        File tmp = File.createTempFile("~" + f.getName() + ".", null, p);
+        try {
+            // write file contents
+            FileOutputStream fs = new FileOutputStream(tmp);
+            try {
+                fs.write(content);
+            } finally {
+                fs.close();
+            }
+            if (!tmp.renameTo(f)) {
+                // some file systems can not replace an existing file by renaming
+                f.delete();
+                if (!tmp.renameTo(f)) {
+                    throw new IOException(Messages.get().getBundle().key(Messages.ERR_SAVE_CACHE_FILE_1, rfsName));
+                }
+            }
+        } finally {
+            // only required if the temporary file was not renamed
+            tmp.delete();
+        }
         return f;
     }
 
@@ -46,10 +46,20 @@ import java.io.IOException;
  * project will have a new hash code compared to the online project. If the resource is identical in the online and 
  * the offline project, the generated hash codes will be the same.<p>
  * 
+ * The cache files are distributed over 256 sub folders of the repository, selected by a hash code of the 
+ * resource root path, so that no single folder contains too many files. All versions of a resource are stored 
+ * in the same sub folder. Optionally the cache is bounded by a maximum size, see {@link CmsDiskCacheIndex}.<p>
+ * 
  * @since 6.2.0
  */
 public class CmsVfsNameBasedDiskCache {
 
+    /** The length of the names of the sub folders. */
+    private static final int SUB_FOLDER_LENGTH = 2;
+
+    /** The index of the cache files. */
+    private CmsDiskCacheIndex m_index;
+
     /** The name of the cache base repository folder in the RFS. */
     private String m_rfsRepository;
 
@@ -61,8 +71,46 @@ public class CmsVfsNameBasedDiskCache {
      */
     public CmsVfsNameBasedDiskCache(String basepath, String foldername) {
 
+        this(basepath, foldername, -1, CmsDiskCacheIndex.POLICY_LRU);
+    }
+
+    /**
+     * Creates a new disk cache bounded by the given maximum size.<p>
+     * 
+     * @param basepath the base path for the cache in the RFS
+     * @param foldername the folder name for this cache, to be used a sub-folder for the base folder
+     * @param maxSize the maximum size of the cache in bytes, if <code>&lt;= 0</code> the cache is not bounded
+     * @param policy the eviction policy, {@link CmsDiskCacheIndex#POLICY_LRU} or {@link CmsDiskCacheIndex#POLICY_LFU}
+     */
+    public CmsVfsNameBasedDiskCache(String basepath, String foldername, long maxSize, String policy) {
+
         // normalize the given folder name 
         m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
+        m_index = new CmsDiskCacheIndex(m_rfsRepository, maxSize, policy);
+        m_index.initialize();
+    }
+
+    /**
+     * Removes the sub folder selected by the resource root path from the given path of a cache file.<p>
+     * 
+     * Paths of cache files that were created before the sub folders were introduced are returned unchanged.<p>
+     * 
+     * @param path the path of the cache file relative to the repository, starting with a slash
+     * 
+     * @return the path of the cache file without the sub folder
+     */
+    public static String removeSubFolder(String path) {
+
+        int end = SUB_FOLDER_LENGTH + 1;
+        if ((path.length() <= end) || (path.charAt(0) != '/') || (path.charAt(end) != '/')) {
+            return path;
+        }
+        for (int i = 1; i < end; i++) {
+            if (Character.digit(path.charAt(i), 16) < 0) {
+                return path;
+            }
+        }
+        return path.substring(end);
     }
 
     /**
@@ -76,13 +124,8 @@ public class CmsVfsNameBasedDiskCache {
     public byte[] getCacheContent(String rfsName) {
 
         try {
-            File f = new File(rfsName);
-            if (f.exists()) {
-                long age = f.lastModified();
-                if ((System.currentTimeMillis() - age) > 3600000) {
-                    // file has not been touched for 1 hour, touch the file with the current date
-                    f.setLastModified(System.currentTimeMillis());
-                }
+            File f = getCacheFile(rfsName);
+            if (f != null) {
                 return CmsFileUtil.readFile(f);
             }
         } catch (IOException e) {
@@ -91,6 +134,33 @@ public class CmsVfsNameBasedDiskCache {
         return null;
     }
 
+    /**
+     * Returns the requested file in the disk cache, or <code>null</code> if the
+     * file is not found in the cache.<p>
+     * 
+     * Use this instead of {@link #getCacheContent(String)} to send the cached content 
+     * to a client without reading it into memory.<p>
+     * 
+     * @param rfsName the file RFS name to look up in the cache 
+     * 
+     * @return the requested file in the disk cache, or <code>null</code> 
+     */
+    public File getCacheFile(String rfsName) {
+
+        File f = new File(rfsName);
+        if (!f.isFile()) {
+            m_index.recordMiss();
+            return null;
+        }
+        m_index.recordHit(f);
+        long age = f.lastModified();
+        if ((System.currentTimeMillis() - age) > 3600000) {
+            // file has not been touched for 1 hour, touch the file with the current date
+            f.setLastModified(System.currentTimeMillis());
+        }
+        return f;
+    }
+
     /**
      * Returns the RFS name to use for caching the given VFS resource with parameters in the disk cache.<p>  
      * 
@@ -101,8 +171,11 @@ public class CmsVfsNameBasedDiskCache {
      */
     public String getCacheName(CmsResource resource, String parameters) {
 
-        // calculate the base cache path for the resource        
-        String rfsName = m_rfsRepository + resource.getRootPath();
+        // calculate the base cache path for the resource, including the sub folder selected by the root path
+        String rootPath = resource.getRootPath();
+        int hash = rootPath.hashCode();
+        String shard = Integer.toHexString((((hash >>> 8) ^ hash) & 0xFF) | 0x100).substring(1);
+        String rfsName = m_rfsRepository + shard + rootPath;
         String extension = CmsFileUtil.getExtension(rfsName);
 
         // create a StringBuffer for the result
@@ -133,6 +206,16 @@ public class CmsVfsNameBasedDiskCache {
         return buf.toString();
     }
 
+    /**
+     * Returns a snapshot of the size, hit and miss counters of this cache.<p>
+     * 
+     * @return a snapshot of the size, hit and miss counters of this cache
+     */
+    public CmsDiskCacheStatistics getStatistics() {
+
+        return m_index.getStatistics();
+    }
+
     /**
      * Returns the absolute path of the cache repository in the RFS.<p>
      * 
@@ -149,10 +232,22 @@ public class CmsVfsNameBasedDiskCache {
      * @param rfsName the RFS name of the file to save the content in
      * @param content the content of the file to save
      * 
+     * @return a reference to the File that was saved
+     * 
      * @throws IOException in case of disk access errors
      */
-    public void saveCacheFile(String rfsName, byte[] content) throws IOException {
+    public File saveCacheFile(String rfsName, byte[] content) throws IOException {
+
+        File f = CmsVfsDiskCache.saveFile(rfsName, content);
+        m_index.recordWrite(f);
+        return f;
+    }
+
+    /**
+     * Stops the background thread that indexes the cache files and evicts them.<p>
+     */
+    public void shutdown() {
 
-        CmsVfsDiskCache.saveFile(rfsName, content);
+        m_index.shutdown();
     }
 }
\ No newline at end of file
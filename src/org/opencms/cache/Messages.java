@@ -36,10 +36,19 @@ import org.opencms.i18n.I_CmsMessageBundle;
  * @since 6.0.0
  */
 public final class Messages extends A_CmsMessageBundle {
-    
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_SAVE_CACHE_FILE_1 = "ERR_SAVE_CACHE_FILE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CACHE_COSTS_TOO_HIGH_2 = "LOG_CACHE_COSTS_TOO_HIGH_2";    
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DISK_CACHE_EVICTED_4 = "LOG_DISK_CACHE_EVICTED_4";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DISK_CACHE_INDEXED_3 = "LOG_DISK_CACHE_INDEXED_3";
+
     /** Name of the used resource bundle. */
     private static final String BUNDLE_NAME = "org.opencms.cache.messages";
 
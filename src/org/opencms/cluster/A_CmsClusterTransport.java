@@ -0,0 +1,99 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+
+import java.io.IOException;
+
+/**
+ * Abstract base class for cluster transports.<p>
+ * 
+ * Stores the configuration parameters and the id of the local node.<p>
+ * 
+ * @since 8.0.4
+ */
+public abstract class A_CmsClusterTransport implements I_CmsClusterTransport {
+
+    /** The configuration parameters. */
+    private CmsParameterConfiguration m_configuration;
+
+    /** The id of the local node. */
+    private String m_nodeId;
+
+    /**
+     * Default constructor.<p>
+     */
+    protected A_CmsClusterTransport() {
+
+        m_configuration = new CmsParameterConfiguration();
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
+     */
+    public void addConfigurationParameter(String paramName, String paramValue) {
+
+        m_configuration.add(paramName, paramValue);
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#getConfiguration()
+     */
+    public CmsParameterConfiguration getConfiguration() {
+
+        return m_configuration;
+    }
+
+    /**
+     * Returns the id of the local node.<p>
+     * 
+     * @return the id of the local node
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#initConfiguration()
+     */
+    public void initConfiguration() {
+
+        // noop
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#initialize(java.lang.String)
+     */
+    public void initialize(String nodeId) throws IOException {
+
+        m_nodeId = nodeId;
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.configuration.I_CmsConfigurationParameterHandler;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsEventManager;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Distributes OpenCms events between the nodes of a cluster.<p>
+ * 
+ * Events fired by the local {@link CmsEventManager} with one of the configured event types 
+ * are collected and sent in batches to all other nodes using the configured {@link I_CmsClusterTransport}. 
+ * Identical events collected for the same batch are sent only once. Events received from other nodes 
+ * are fired by the local event manager, with the id of the sending node in the event data 
+ * (key {@link I_CmsEventListener#KEY_CLUSTER_NODE}). Received events are never sent again.<p>
+ * 
+ * Only event data values supported by {@link CmsClusterEventCodec} are transmitted, 
+ * so listeners of distributed events must not rely on database contexts or reports in the event data.<p>
+ * 
+ * The following parameters are supported:<ul>
+ * <li><code>node</code>: the unique id of this node, a random id is used by default</li>
+ * <li><code>interval</code>: the interval in milliseconds for sending and receiving events, default is 1000</li>
+ * <li><code>events</code>: a comma separated list of event types to distribute, by default the publish and 
+ * the cache clearing events are distributed</li>
+ * </ul><p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsClusterEventBus implements I_CmsConfigurationParameterHandler {
+
+    /**
+     * An encoded event, used to detect identical events in a batch.<p>
+     */
+    private static final class EncodedEvent {
+
+        /** The encoded event. */
+        final byte[] m_data;
+
+        /** The cached hash code. */
+        private final int m_hashCode;
+
+        /**
+         * Creates a new encoded event.<p>
+         * 
+         * @param data the encoded event
+         */
+        EncodedEvent(byte[] data) {
+
+            m_data = data;
+            m_hashCode = Arrays.hashCode(data);
+        }
+
+        /**
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+
+            return (obj instanceof EncodedEvent) && Arrays.equals(m_data, ((EncodedEvent)obj).m_data);
+        }
+
+        /**
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+
+            return m_hashCode;
+        }
+    }
+
+    /** The default interval for sending and receiving events in milliseconds. */
+    public static final int DEFAULT_INTERVAL = 1000;
+
+    /** The event types distributed by default. */
+    public static final int[] DEFAULT_EVENTS = {
+        I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+        I_CmsEventListener.EVENT_CLEAR_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_PRINCIPAL_CACHES,
+        I_CmsEventListener.EVENT_FLEX_PURGE_JSP_REPOSITORY,
+        I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR,
+        I_CmsEventListener.EVENT_CLEAR_OFFLINE_CACHES,
+        I_CmsEventListener.EVENT_CLEAR_ONLINE_CACHES};
+
+    /** The name of the events parameter. */
+    public static final String PARAM_EVENTS = "events";
+
+    /** The name of the interval parameter. */
+    public static final String PARAM_INTERVAL = "interval";
+
+    /** The name of the node parameter. */
+    public static final String PARAM_NODE = "node";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsClusterEventBus.class);
+
+    /** The configuration parameters. */
+    private CmsParameterConfiguration m_configuration;
+
+    /** The local event manager. */
+    private CmsEventManager m_eventManager;
+
+    /** The distributed event types. */
+    private Set<Integer> m_eventTypes;
+
+    /** The interval for sending and receiving events in milliseconds. */
+    private long m_interval;
+
+    /** The id of this node. */
+    private String m_nodeId;
+
+    /** The events collected for the next batch. */
+    private Set<EncodedEvent> m_pending;
+
+    /** The thread sending and receiving events. */
+    private volatile Thread m_thread;
+
+    /** The transport. */
+    private I_CmsClusterTransport m_transport;
+
+    /**
+     * Default constructor.<p>
+     */
+    public CmsClusterEventBus() {
+
+        m_configuration = new CmsParameterConfiguration();
+        m_pending = new LinkedHashSet<EncodedEvent>();
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
+     */
+    public void addConfigurationParameter(String paramName, String paramValue) {
+
+        m_configuration.add(paramName, paramValue);
+    }
+
+    /**
+     * Sends all collected events to the other nodes.<p>
+     * 
+     * This is called periodically by the bus thread, and on shutdown.<p>
+     * 
+     * @throws IOException if the events could not be sent
+     */
+    public void flush() throws IOException {
+
+        List<byte[]> events;
+        synchronized (m_pending) {
+            if (m_pending.isEmpty()) {
+                return;
+            }
+            events = new ArrayList<byte[]>(m_pending.size());
+            for (EncodedEvent event : m_pending) {
+                events.add(event.m_data);
+            }
+            m_pending.clear();
+        }
+        m_transport.publish(CmsClusterEventCodec.encodeMessage(m_nodeId, events));
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_CLUSTER_SENT_2, new Integer(events.size()), m_nodeId));
+        }
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#getConfiguration()
+     */
+    public CmsParameterConfiguration getConfiguration() {
+
+        return m_configuration;
+    }
+
+    /**
+     * Returns the id of this node.<p>
+     * 
+     * @return the id of this node
+     */
+    public String getNodeId() {
+
+        return m_nodeId;
+    }
+
+    /**
+     * Returns the transport.<p>
+     * 
+     * @return the transport
+     */
+    public I_CmsClusterTransport getTransport() {
+
+        return m_transport;
+    }
+
+    /**
+     * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#initConfiguration()
+     */
+    public void initConfiguration() {
+
+        m_nodeId = m_configuration.getString(PARAM_NODE, null);
+        if (CmsStringUtil.isEmptyOrWhitespaceOnly(m_nodeId)) {
+            m_nodeId = new CmsUUID().toString();
+        }
+        m_interval = m_configuration.getInteger(PARAM_INTERVAL, DEFAULT_INTERVAL);
+        m_eventTypes = new HashSet<Integer>();
+        String events = m_configuration.getString(PARAM_EVENTS, null);
+        if (events == null) {
+            for (int i = 0; i < DEFAULT_EVENTS.length; i++) {
+                m_eventTypes.add(new Integer(DEFAULT_EVENTS[i]));
+            }
+        } else {
+            Iterator<String> it = CmsStringUtil.splitAsList(events, ',', true).iterator();
+            while (it.hasNext()) {
+                m_eventTypes.add(Integer.valueOf(it.next()));
+            }
+        }
+    }
+
+    /**
+     * Initializes the transport and starts the thread sending and receiving events.<p>
+     * 
+     * @param eventManager the local event manager
+     * 
+     * @throws IOException if the transport could not be initialized
+     */
+    public void initialize(CmsEventManager eventManager) throws IOException {
+
+        initialize(eventManager, true);
+    }
+
+    /**
+     * Initializes the transport and optionally starts the thread sending and receiving events.<p>
+     * 
+     * If no thread is started, events must be sent and received by calling 
+     * {@link #flush()} and {@link #poll()}.<p>
+     * 
+     * @param eventManager the local event manager
+     * @param startThread if <code>true</code>, the thread sending and receiving events is started
+     * 
+     * @throws IOException if the transport could not be initialized
+     */
+    public void initialize(CmsEventManager eventManager, boolean startThread) throws IOException {
+
+        if (m_eventTypes == null) {
+            initConfiguration();
+        }
+        m_eventManager = eventManager;
+        m_transport.initialize(m_nodeId);
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_CLUSTER_NODE_2,
+                m_nodeId,
+                m_transport.getClass().getName()));
+        }
+        if (startThread) {
+            m_thread = new Thread(new Runnable() {
+
+                public void run() {
+
+                    runLoop();
+                }
+            }, "OpenCms: Cluster event bus");
+            m_thread.setDaemon(true);
+            m_thread.start();
+        }
+    }
+
+    /**
+     * Receives the events sent by other nodes and fires them with the local event manager.<p>
+     * 
+     * This is called periodically by the bus thread.<p>
+     * 
+     * @return the number of received events
+     * 
+     * @throws IOException if the events could not be received
+     */
+    public int poll() throws IOException {
+
+        int count = 0;
+        for (byte[] message : m_transport.receive()) {
+            List<CmsEvent> events;
+            try {
+                events = CmsClusterEventCodec.decodeMessage(message);
+            } catch (IOException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_CLUSTER_INVALID_MESSAGE_0), e);
+                continue;
+            }
+            for (CmsEvent event : events) {
+                if (m_nodeId.equals(event.getData().get(I_CmsEventListener.KEY_CLUSTER_NODE))) {
+                    // never fire events sent by this node again
+                    continue;
+                }
+                count++;
+                try {
+                    m_eventManager.fireEvent(event);
+                } catch (RuntimeException e) {
+                    LOG.error(Messages.get().getBundle().key(Messages.ERR_CLUSTER_FIRE_EVENT_1, event), e);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the given event to be sent to the other nodes, 
+     * if the event type is distributed and the event was fired on this node.<p>
+     * 
+     * @param event the event
+     */
+    public void send(CmsEvent event) {
+
+        if ((m_eventTypes == null) || !m_eventTypes.contains(event.getTypeInteger())) {
+            return;
+        }
+        if ((event.getData() != null) && event.getData().containsKey(I_CmsEventListener.KEY_CLUSTER_NODE)) {
+            // the event was received from another node
+            return;
+        }
+        EncodedEvent encoded = new EncodedEvent(CmsClusterEventCodec.encodeEvent(event));
+        synchronized (m_pending) {
+            m_pending.add(encoded);
+        }
+    }
+
+    /**
+     * Sets the transport.<p>
+     * 
+     * @param transport the transport to set
+     */
+    public void setTransport(I_CmsClusterTransport transport) {
+
+        m_transport = transport;
+    }
+
+    /**
+     * Stops the bus thread, sends all pending events and shuts down the transport.<p>
+     */
+    public void shutDown() {
+
+        Thread thread = m_thread;
+        m_thread = null;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(m_interval);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+        try {
+            flush();
+        } catch (IOException e) {
+            LOG.error(Messages.get().getBundle().key(Messages.ERR_CLUSTER_SEND_1, m_nodeId), e);
+        }
+        m_transport.shutDown();
+    }
+
+    /**
+     * Sends and receives events until the bus is shut down.<p>
+     */
+    protected void runLoop() {
+
+        Thread current = Thread.currentThread();
+        while (m_thread == current) {
+            try {
+                Thread.sleep(m_interval);
+            } catch (InterruptedException e) {
+                // shut down
+                return;
+            }
+            try {
+                flush();
+            } catch (Throwable t) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_CLUSTER_SEND_1, m_nodeId), t);
+            }
+            try {
+                poll();
+            } catch (Throwable t) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_CLUSTER_RECEIVE_1, m_nodeId), t);
+            }
+        }
+    }
+}
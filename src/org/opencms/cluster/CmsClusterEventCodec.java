@@ -0,0 +1,439 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsUUID;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Encodes and decodes batches of {@link CmsEvent} objects exchanged between cluster nodes.<p>
+ * 
+ * The encoding is a compact binary format written with {@link DataOutputStream}. 
+ * Only event data values which can be reconstructed on another node are encoded, 
+ * these are <code>null</code>, Strings, Integers, Longs, Booleans, {@link CmsUUID}s, 
+ * {@link CmsResource}s (without content) and collections of these values. 
+ * All other values, like reports or database contexts, are dropped.<p>
+ * 
+ * @since 8.0.4
+ */
+public final class CmsClusterEventCodec {
+
+    /** The magic number at the beginning of each message. */
+    private static final int MAGIC = 0x434D5345;
+
+    /** Value tag for a boolean. */
+    private static final byte TAG_BOOLEAN = 'Z';
+
+    /** Value tag for a collection. */
+    private static final byte TAG_COLLECTION = 'C';
+
+    /** Value tag for an integer. */
+    private static final byte TAG_INTEGER = 'I';
+
+    /** Value tag for a long. */
+    private static final byte TAG_LONG = 'L';
+
+    /** Value tag for <code>null</code>. */
+    private static final byte TAG_NULL = 'N';
+
+    /** Value tag for a resource. */
+    private static final byte TAG_RESOURCE = 'R';
+
+    /** Value tag for a string. */
+    private static final byte TAG_STRING = 'S';
+
+    /** Value tag for an uuid. */
+    private static final byte TAG_UUID = 'U';
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsClusterEventCodec.class);
+
+    /** The version of the message format. */
+    private static final byte VERSION = 1;
+
+    /**
+     * Hides the public constructor.<p>
+     */
+    private CmsClusterEventCodec() {
+
+        // hide the constructor
+    }
+
+    /**
+     * Decodes a message created by {@link #encodeMessage(String, List)}.<p>
+     * 
+     * The id of the sending node is stored in the data of each event 
+     * with the key {@link I_CmsEventListener#KEY_CLUSTER_NODE}.<p>
+     * 
+     * @param message the message to decode
+     * 
+     * @return the decoded events
+     * 
+     * @throws IOException if the message is invalid
+     */
+    public static List<CmsEvent> decodeMessage(byte[] message) throws IOException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+        if ((in.readInt() != MAGIC) || (in.readByte() != VERSION)) {
+            throw new IOException(Messages.get().getBundle().key(Messages.ERR_CLUSTER_INVALID_MESSAGE_0));
+        }
+        String node = in.readUTF();
+        int count = in.readInt();
+        List<CmsEvent> result = new ArrayList<CmsEvent>(count);
+        for (int i = 0; i < count; i++) {
+            int type = in.readInt();
+            int size = in.readInt();
+            Map<String, Object> data = new HashMap<String, Object>(size + 1);
+            for (int j = 0; j < size; j++) {
+                String key = in.readUTF();
+                data.put(key, readValue(in));
+            }
+            data.put(I_CmsEventListener.KEY_CLUSTER_NODE, node);
+            result.add(new CmsEvent(type, data));
+        }
+        return result;
+    }
+
+    /**
+     * Encodes a single event.<p>
+     * 
+     * The result is used as part of a message, and to detect identical events.<p>
+     * 
+     * @param event the event to encode
+     * 
+     * @return the encoded event
+     */
+    public static byte[] encodeEvent(CmsEvent event) {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(event.getType());
+            Map<String, Object> data = event.getData();
+            if (data == null) {
+                out.writeInt(0);
+            } else {
+                List<String> keys = new ArrayList<String>(data.size());
+                for (Map.Entry<String, Object> entry : data.entrySet()) {
+                    if (isSupported(entry.getValue())) {
+                        keys.add(entry.getKey());
+                    } else if (LOG.isDebugEnabled()) {
+                        LOG.debug(Messages.get().getBundle().key(
+                            Messages.LOG_CLUSTER_UNSUPPORTED_VALUE_2,
+                            entry.getKey(),
+                            event));
+                    }
+                }
+                // sort the keys so that identical events are encoded identically
+                Collections.sort(keys);
+                out.writeInt(keys.size());
+                for (String key : keys) {
+                    out.writeUTF(key);
+                    writeValue(out, data.get(key));
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // can not happen for a byte array output stream
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Creates a message from the given encoded events.<p>
+     * 
+     * @param node the id of the sending node
+     * @param events the events encoded with {@link #encodeEvent(CmsEvent)}
+     * 
+     * @return the message
+     */
+    public static byte[] encodeMessage(String node, List<byte[]> events) {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(node);
+            out.writeInt(events.size());
+            for (byte[] event : events) {
+                out.write(event);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // can not happen for a byte array output stream
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Checks if the given event data value can be encoded.<p>
+     * 
+     * @param value the value to check
+     * 
+     * @return <code>true</code> if the given event data value can be encoded
+     */
+    private static boolean isSupported(Object value) {
+
+        if ((value == null)
+            || (value instanceof String)
+            || (value instanceof Integer)
+            || (value instanceof Long)
+            || (value instanceof Boolean)
+            || (value instanceof CmsUUID)
+            || (value instanceof CmsResource)) {
+            return true;
+        }
+        if (value instanceof Collection<?>) {
+            Iterator<?> it = ((Collection<?>)value).iterator();
+            while (it.hasNext()) {
+                if (!isSupported(it.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reads a resource.<p>
+     * 
+     * @param in the input to read from
+     * 
+     * @return the resource
+     * 
+     * @throws IOException if something goes wrong
+     */
+    private static CmsResource readResource(DataInputStream in) throws IOException {
+
+        CmsUUID structureId = readUUID(in);
+        CmsUUID resourceId = readUUID(in);
+        String rootPath = in.readUTF();
+        int type = in.readInt();
+        boolean isFolder = in.readBoolean();
+        int flags = in.readInt();
+        CmsUUID projectId = readUUID(in);
+        CmsResourceState state = CmsResourceState.valueOf(in.readInt());
+        long dateCreated = in.readLong();
+        CmsUUID userCreated = readUUID(in);
+        long dateLastModified = in.readLong();
+        CmsUUID userLastModified = readUUID(in);
+        long dateReleased = in.readLong();
+        long dateExpired = in.readLong();
+        int linkCount = in.readInt();
+        int size = in.readInt();
+        long dateContent = in.readLong();
+        int version = in.readInt();
+        return new CmsResource(
+            structureId,
+            resourceId,
+            rootPath,
+            type,
+            isFolder,
+            flags,
+            projectId,
+            state,
+            dateCreated,
+            userCreated,
+            dateLastModified,
+            userLastModified,
+            dateReleased,
+            dateExpired,
+            linkCount,
+            size,
+            dateContent,
+            version);
+    }
+
+    /**
+     * Reads an uuid.<p>
+     * 
+     * @param in the input to read from
+     * 
+     * @return the uuid, may be <code>null</code>
+     * 
+     * @throws IOException if something goes wrong
+     */
+    private static CmsUUID readUUID(DataInputStream in) throws IOException {
+
+        if (!in.readBoolean()) {
+            return null;
+        }
+        byte[] data = new byte[16];
+        in.readFully(data);
+        return new CmsUUID(data);
+    }
+
+    /**
+     * Reads an event data value.<p>
+     * 
+     * @param in the input to read from
+     * 
+     * @return the value
+     * 
+     * @throws IOException if something goes wrong
+     */
+    private static Object readValue(DataInputStream in) throws IOException {
+
+        byte tag = in.readByte();
+        switch (tag) {
+            case TAG_NULL:
+                return null;
+            case TAG_STRING:
+                return in.readUTF();
+            case TAG_INTEGER:
+                return new Integer(in.readInt());
+            case TAG_LONG:
+                return new Long(in.readLong());
+            case TAG_BOOLEAN:
+                return Boolean.valueOf(in.readBoolean());
+            case TAG_UUID:
+                return readUUID(in);
+            case TAG_RESOURCE:
+                return readResource(in);
+            case TAG_COLLECTION:
+                int size = in.readInt();
+                List<Object> list = new ArrayList<Object>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            default:
+                throw new IOException(Messages.get().getBundle().key(Messages.ERR_CLUSTER_INVALID_MESSAGE_0));
+        }
+    }
+
+    /**
+     * Writes a resource, without its content.<p>
+     * 
+     * @param out the output to write to
+     * @param resource the resource to write
+     * 
+     * @throws IOException if something goes wrong
+     */
+    private static void writeResource(DataOutputStream out, CmsResource resource) throws IOException {
+
+        writeUUID(out, resource.getStructureId());
+        writeUUID(out, resource.getResourceId());
+        out.writeUTF(resource.getRootPath());
+        out.writeInt(resource.getTypeId());
+        out.writeBoolean(resource.isFolder());
+        out.writeInt(resource.getFlags());
+        writeUUID(out, resource.getProjectLastModified());
+        out.writeInt(resource.getState().getState());
+        out.writeLong(resource.getDateCreated());
+        writeUUID(out, resource.getUserCreated());
+        out.writeLong(resource.getDateLastModified());
+        writeUUID(out, resource.getUserLastModified());
+        out.writeLong(resource.getDateReleased());
+        out.writeLong(resource.getDateExpired());
+        out.writeInt(resource.getSiblingCount());
+        out.writeInt(resource.getLength());
+        out.writeLong(resource.getDateContent());
+        out.writeInt(resource.getVersion());
+    }
+
+    /**
+     * Writes an uuid.<p>
+     * 
+     * @param out the output to write to
+     * @param uuid the uuid to write, may be <code>null</code>
+     * 
+     * @throws IOException if something goes wrong
+     */
+    private static void writeUUID(DataOutputStream out, CmsUUID uuid) throws IOException {
+
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.write(uuid.toByteArray());
+        }
+    }
+
+    /**
+     * Writes an event data value.<p>
+     * 
+     * @param out the output to write to
+     * @param value the value to write, must be supported
+     * 
+     * @throws IOException if something goes wrong
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+
+        if (value == null) {
+            out.writeByte(TAG_NULL);
+        } else if (value instanceof String) {
+            out.writeByte(TAG_STRING);
+            out.writeUTF((String)value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TAG_INTEGER);
+            out.writeInt(((Integer)value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(TAG_LONG);
+            out.writeLong(((Long)value).longValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeBoolean(((Boolean)value).booleanValue());
+        } else if (value instanceof CmsUUID) {
+            out.writeByte(TAG_UUID);
+            writeUUID(out, (CmsUUID)value);
+        } else if (value instanceof CmsResource) {
+            out.writeByte(TAG_RESOURCE);
+            writeResource(out, (CmsResource)value);
+        } else {
+            Collection<?> collection = (Collection<?>)value;
+            out.writeByte(TAG_COLLECTION);
+            out.writeInt(collection.size());
+            for (Object element : collection) {
+                writeValue(out, element);
+            }
+        }
+    }
+}
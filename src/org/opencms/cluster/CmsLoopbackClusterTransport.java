@@ -0,0 +1,122 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Cluster transport that connects all nodes running in the same JVM.<p>
+ * 
+ * Nodes using the same value for the <code>channel</code> parameter form a cluster. 
+ * This transport is intended for tests and for running several OpenCms instances 
+ * in a single application server.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsLoopbackClusterTransport extends A_CmsClusterTransport {
+
+    /** The default channel name. */
+    public static final String DEFAULT_CHANNEL = "default";
+
+    /** The name of the channel parameter. */
+    public static final String PARAM_CHANNEL = "channel";
+
+    /** The members of all channels, by channel name. */
+    private static final Map<String, Map<String, Queue<byte[]>>> CHANNELS = new ConcurrentHashMap<String, Map<String, Queue<byte[]>>>();
+
+    /** The members of the channel this transport is connected to. */
+    private Map<String, Queue<byte[]>> m_channel;
+
+    /** The inbox of this transport. */
+    private Queue<byte[]> m_inbox;
+
+    /**
+     * @see org.opencms.cluster.A_CmsClusterTransport#initialize(java.lang.String)
+     */
+    @Override
+    public void initialize(String nodeId) throws IOException {
+
+        super.initialize(nodeId);
+        String name = getConfiguration().getString(PARAM_CHANNEL, DEFAULT_CHANNEL);
+        synchronized (CHANNELS) {
+            m_channel = CHANNELS.get(name);
+            if (m_channel == null) {
+                m_channel = new ConcurrentHashMap<String, Queue<byte[]>>();
+                CHANNELS.put(name, m_channel);
+            }
+        }
+        m_inbox = new ConcurrentLinkedQueue<byte[]>();
+        m_channel.put(nodeId, m_inbox);
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#publish(byte[])
+     */
+    public void publish(byte[] message) {
+
+        Iterator<Map.Entry<String, Queue<byte[]>>> it = m_channel.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Queue<byte[]>> entry = it.next();
+            if (!entry.getKey().equals(getNodeId())) {
+                entry.getValue().add(message);
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#receive()
+     */
+    public List<byte[]> receive() {
+
+        List<byte[]> result = new ArrayList<byte[]>();
+        byte[] message = m_inbox.poll();
+        while (message != null) {
+            result.add(message);
+            message = m_inbox.poll();
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#shutDown()
+     */
+    public void shutDown() {
+
+        if (m_channel != null) {
+            m_channel.remove(getNodeId());
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.main.CmsLog;
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Cluster transport that exchanges messages as files in a directory shared by all nodes,
+ * for example a network file system mount.<p>
+ * 
+ * Each message is written to a temporary file which is then renamed, so other nodes 
+ * never read partially written messages. The file names start with the time stamp 
+ * of the message, followed by the node id and a sequence number, so that the 
+ * messages are read in the order they were published. Message files older than 
+ * the configured maximum age are deleted by the receiving nodes.<p>
+ * 
+ * The following parameters are supported:<ul>
+ * <li><code>directory</code>: the shared directory, required</li>
+ * <li><code>maxage</code>: the maximum age of message files in milliseconds, default is 10 minutes</li>
+ * </ul><p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsSharedDirectoryClusterTransport extends A_CmsClusterTransport {
+
+    /** The default maximum age of message files in milliseconds. */
+    public static final int DEFAULT_MAX_AGE = 10 * 60 * 1000;
+
+    /** The name of the directory parameter. */
+    public static final String PARAM_DIRECTORY = "directory";
+
+    /** The name of the maximum age parameter. */
+    public static final String PARAM_MAX_AGE = "maxage";
+
+    /** The file name suffix for messages. */
+    private static final String SUFFIX_MESSAGE = ".evt";
+
+    /** The file name suffix for messages which are being written. */
+    private static final String SUFFIX_TEMP = ".tmp";
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsSharedDirectoryClusterTransport.class);
+
+    /** The shared directory. */
+    private File m_directory;
+
+    /** The maximum age of message files in milliseconds. */
+    private long m_maxAge;
+
+    /** The file name part for the local node. */
+    private String m_nodeName;
+
+    /** The names of the message files which have already been read, or were written by this node. */
+    private Set<String> m_seen;
+
+    /** The sequence number for messages written by this node. */
+    private AtomicLong m_sequence;
+
+    /**
+     * @see org.opencms.cluster.A_CmsClusterTransport#initialize(java.lang.String)
+     */
+    @Override
+    public void initialize(String nodeId) throws IOException {
+
+        super.initialize(nodeId);
+        String directory = getConfiguration().getString(PARAM_DIRECTORY, null);
+        if (directory == null) {
+            throw new IOException(Messages.get().getBundle().key(
+                Messages.ERR_CLUSTER_MISSING_PARAM_1,
+                PARAM_DIRECTORY));
+        }
+        m_directory = new File(directory);
+        if (!m_directory.isDirectory() && !m_directory.mkdirs()) {
+            throw new IOException(Messages.get().getBundle().key(
+                Messages.ERR_CLUSTER_DIRECTORY_1,
+                m_directory.getAbsolutePath()));
+        }
+        m_maxAge = getConfiguration().getInteger(PARAM_MAX_AGE, DEFAULT_MAX_AGE);
+        m_nodeName = nodeId.replaceAll("[^A-Za-z0-9_]", "_");
+        m_sequence = new AtomicLong();
+        // messages published before this node was started are ignored
+        m_seen = new HashSet<String>(Arrays.asList(listMessages()));
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#publish(byte[])
+     */
+    public void publish(byte[] message) throws IOException {
+
+        StringBuffer name = new StringBuffer(48);
+        String time = String.valueOf(System.currentTimeMillis());
+        for (int i = time.length(); i < 15; i++) {
+            name.append('0');
+        }
+        name.append(time).append('-').append(m_nodeName).append('-').append(m_sequence.incrementAndGet());
+        File temp = new File(m_directory, name + SUFFIX_TEMP);
+        File file = new File(m_directory, name + SUFFIX_MESSAGE);
+        OutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(message);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException(Messages.get().getBundle().key(
+                Messages.ERR_CLUSTER_WRITE_MESSAGE_1,
+                file.getAbsolutePath()));
+        }
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#receive()
+     */
+    public synchronized List<byte[]> receive() throws IOException {
+
+        String[] names = listMessages();
+        Arrays.sort(names);
+        List<byte[]> result = new ArrayList<byte[]>();
+        String ownPart = "-" + m_nodeName + "-";
+        long maxTime = System.currentTimeMillis() - m_maxAge;
+        Set<String> seen = new HashSet<String>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            File file = new File(m_directory, name);
+            if (getTime(name) < maxTime) {
+                // expired message, delete it
+                file.delete();
+                continue;
+            }
+            seen.add(name);
+            if (m_seen.contains(name) || (name.indexOf(ownPart) > 0)) {
+                continue;
+            }
+            try {
+                result.add(CmsFileUtil.readFile(file));
+            } catch (IOException e) {
+                // the file may have been deleted by another node in the meantime
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_CLUSTER_READ_MESSAGE_1, file.getAbsolutePath()), e);
+            }
+        }
+        // only remember the files which still exist
+        m_seen = seen;
+        return result;
+    }
+
+    /**
+     * @see org.opencms.cluster.I_CmsClusterTransport#shutDown()
+     */
+    public void shutDown() {
+
+        // noop
+    }
+
+    /**
+     * Returns the time stamp of a message file.<p>
+     * 
+     * @param name the name of the message file
+     * 
+     * @return the time stamp of the message file
+     */
+    private long getTime(String name) {
+
+        int pos = name.indexOf('-');
+        try {
+            return Long.parseLong(name.substring(0, pos));
+        } catch (RuntimeException e) {
+            // not a valid message file name, keep it
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Returns the names of all message files in the shared directory.<p>
+     * 
+     * @return the names of all message files in the shared directory
+     */
+    private String[] listMessages() {
+
+        String[] names = m_directory.list(new FilenameFilter() {
+
+            public boolean accept(File dir, String name) {
+
+                return name.endsWith(SUFFIX_MESSAGE);
+            }
+        });
+        return names == null ? new String[0] : names;
+    }
+}
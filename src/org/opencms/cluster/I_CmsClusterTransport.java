@@ -0,0 +1,81 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.configuration.I_CmsConfigurationParameterHandler;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Transports messages between the nodes of an OpenCms cluster.<p>
+ * 
+ * A transport delivers each published message to all other nodes of the cluster, 
+ * messages published by a node must not be returned to that node by {@link #receive()}. 
+ * Implementations are configured with <code>&lt;param&gt;</code> nodes 
+ * in the <code>&lt;cluster&gt;/&lt;transport&gt;</code> node of <code>opencms-system.xml</code>.<p>
+ * 
+ * @since 8.0.4
+ * 
+ * @see CmsClusterEventBus
+ */
+public interface I_CmsClusterTransport extends I_CmsConfigurationParameterHandler {
+
+    /**
+     * Initializes this transport.<p>
+     * 
+     * @param nodeId the unique id of this cluster node
+     * 
+     * @throws IOException if the transport can not be initialized
+     */
+    void initialize(String nodeId) throws IOException;
+
+    /**
+     * Publishes a message to all other nodes of the cluster.<p>
+     * 
+     * @param message the message to publish
+     * 
+     * @throws IOException if the message could not be published
+     */
+    void publish(byte[] message) throws IOException;
+
+    /**
+     * Returns the messages published by other nodes since the last call of this method.<p>
+     * 
+     * @return the received messages in the order they were published, may be empty
+     * 
+     * @throws IOException if the messages could not be received
+     */
+    List<byte[]> receive() throws IOException;
+
+    /**
+     * Shuts down this transport and releases all resources.<p>
+     */
+    void shutDown();
+}
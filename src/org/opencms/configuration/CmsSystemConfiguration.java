@@ -27,6 +27,8 @@
 
 package org.opencms.configuration;
 
+import org.opencms.cluster.CmsClusterEventBus;
+import org.opencms.cluster.I_CmsClusterTransport;
 import org.opencms.db.CmsCacheSettings;
 import org.opencms.db.CmsDefaultUsers;
 import org.opencms.db.CmsLoginManager;
@@ -84,6 +86,9 @@ import org.dom4j.Element;
  */
 public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
 
+    /** The attribute name for the number of asynchronous event threads. */
+    public static final String A_ASYNCTHREADS = "asyncthreads";
+
     /** The attribute name for the deleted node. */
     public static final String A_DELETED = "deleted";
 
@@ -93,6 +98,12 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The "exclusive" attribute. */
     public static final String A_EXCLUSIVE = "exclusive";
 
+    /** The "maxrevalidations" attribute. */
+    public static final String A_MAXREVALIDATIONS = "maxrevalidations";
+
+    /** The "maxstaleness" attribute. */
+    public static final String A_MAXSTALENESS = "maxstaleness";
+
     /** The "maxvisited" attribute. */
     public static final String A_MAXVISITED = "maxvisited";
 
@@ -111,9 +122,18 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The "poolname" attribute. */
     public static final String A_POOLNAME = "poolname";
 
+    /** The "queuesize" attribute. */
+    public static final String A_QUEUESIZE = "queuesize";
+
     /** The "server" attribute. */
     public static final String A_SERVER = "server";
 
+    /** The "stale" attribute. */
+    public static final String A_STALE = "stale";
+
+    /** The "timeout" attribute. */
+    public static final String A_TIMEOUT = "timeout";
+
     /** The name of the DTD for this configuration. */
     public static final String CONFIGURATION_DTD_NAME = "opencms-system.dtd";
 
@@ -141,15 +161,27 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the browser-based node. */
     public static final String N_BROWSER_BASED = "browser-based";
 
+    /** The node name for the cacheengine node. */
+    public static final String N_CACHEENGINE = "cacheengine";
+
+    /** The node name for the cacheinvalidation node. */
+    public static final String N_CACHEINVALIDATION = "cacheinvalidation";
+
     /** The node name for the cache-enabled node. */
     public static final String N_CACHE_ENABLED = "cache-enabled";
 
+    /** The node name for the cache-offheap node. */
+    public static final String N_CACHE_OFFHEAP = "cache-offheap";
+
     /** The node name for the cache-offline node. */
     public static final String N_CACHE_OFFLINE = "cache-offline";
 
     /** The node name for a job class. */
     public static final String N_CLASS = "class";
 
+    /** The node name for the cluster node. */
+    public static final String N_CLUSTER = "cluster";
+
     /** The configuration node name. */
     public static final String N_CONFIGURATION = "configuration";
 
@@ -327,6 +359,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the "publishhistory" section. */
     public static final String N_PUBLISHMANAGER = "publishmanager";
 
+    /** The node name for the maximum number of publish jobs running at the same time. */
+    public static final String N_QUEUEMAXJOBS = "queue-maxjobs";
+
     /** The node name for the "publishhistory" section. */
     public static final String N_QUEUEPERSISTANCE = "queue-persistance";
 
@@ -390,6 +425,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** Shared folder node name. */
     public static final String N_SHARED_FOLDER = "shared-folder";
 
+    /** The node name for the flex cache single flight node. */
+    public static final String N_SINGLEFLIGHT = "singleflight";
+
     /** The sitemap node name. */
     public static final String N_SITEMAP = "sitemap";
 
@@ -447,6 +485,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The size of the memory monitor's cache for users. */
     public static final String N_SIZE_USERS = "size-users";
 
+    /** The node name for the flex cache stale while revalidate node. */
+    public static final String N_STALE_WHILE_REVALIDATE = "stale-while-revalidate";
+
     /** The subscriptionmanager node name. */
     public static final String N_SUBSCRIPTIONMANAGER = "subscriptionmanager";
 
@@ -462,6 +503,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The node name for the time zone configuration. */
     public static final String N_TIMEZONE = "timezone";
 
+    /** The node name for the cluster transport node. */
+    public static final String N_TRANSPORT = "transport";
+
     /** The node name for the user-admin node. */
     public static final String N_USER_ADMIN = "user-admin";
 
@@ -504,6 +548,9 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
     /** The settings of the memory monitor. */
     private CmsCacheSettings m_cacheSettings;
 
+    /** The configured cluster event bus. */
+    private CmsClusterEventBus m_clusterEventBus;
+
     /** The configured OpenCms default users and groups. */
     private CmsDefaultUsers m_cmsDefaultUsers;
 
@@ -608,6 +655,20 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
      */
     public void addEventManager(String clazz) {
 
+        addEventManager(clazz, null, null);
+    }
+
+    /**
+     * Adds the event manager class with the given asynchronous event delivery settings.<p>
+     * 
+     * @param clazz the class name of event manager class  to instantiate and add
+     * @param asyncThreads the number of threads delivering asynchronous events, 
+     *      if <code>null</code> the default is used
+     * @param queueSize the maximum number of queued asynchronous events per listener, 
+     *      if <code>null</code> the default is used
+     */
+    public void addEventManager(String clazz, String asyncThreads, String queueSize) {
+
         try {
             m_eventManager = (CmsEventManager)Class.forName(clazz).newInstance();
             if (CmsLog.INIT.isInfoEnabled()) {
@@ -619,6 +680,21 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             LOG.error(Messages.get().getBundle().key(Messages.INIT_EVENTMANAGER_CLASS_INVALID_1, clazz), t);
             return;
         }
+        int threads = CmsEventManager.DEFAULT_ASYNC_THREADS;
+        if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(asyncThreads)) {
+            threads = Integer.parseInt(asyncThreads.trim());
+        }
+        int size = CmsEventManager.DEFAULT_ASYNC_QUEUE_SIZE;
+        if (CmsStringUtil.isNotEmptyOrWhitespaceOnly(queueSize)) {
+            size = Integer.parseInt(queueSize.trim());
+        }
+        m_eventManager.setAsyncDispatch(threads, size);
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_EVENT_DISPATCH_2,
+                new Integer(threads),
+                new Integer(size)));
+        }
     }
 
     /**
@@ -851,8 +927,25 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallParam("*/" + I_CmsXmlConfiguration.N_PARAM, 1);
 
         // add event classes
-        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, "addEventManager", 1);
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, "addEventManager", 3);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, 0, A_CLASS);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, 1, A_ASYNCTHREADS);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_EVENTMANAGER, 2, A_QUEUESIZE);
+
+        // add cluster event bus rules
+        digester.addObjectCreate("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTER, CmsClusterEventBus.class);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTER,
+            I_CmsConfigurationParameterHandler.INIT_CONFIGURATION_METHOD);
+        digester.addObjectCreate(
+            "*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTER + "/" + N_TRANSPORT,
+            A_CLASS,
+            CmsConfigurationException.class);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTER + "/" + N_TRANSPORT,
+            I_CmsConfigurationParameterHandler.INIT_CONFIGURATION_METHOD);
+        digester.addSetNext("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTER + "/" + N_TRANSPORT, "setTransport");
+        digester.addSetNext("*/" + N_SYSTEM + "/" + N_EVENTS + "/" + N_CLUSTER, "setClusterEventBus");
 
         // add resource init classes
         digester.addCallMethod(
@@ -981,6 +1074,25 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_AVGCACHEBYTES, 3);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_MAXENTRYBYTES, 4);
         digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_MAXKEYS, 5);
+        // add flexcache off-heap storage
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_CACHE_OFFHEAP, "setCacheOffHeap", 0);
+        // add flexcache single flight rendering
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_SINGLEFLIGHT, "setSingleFlight", 2);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_SINGLEFLIGHT, 0, A_TIMEOUT);
+        digester.addCallParam("*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_SINGLEFLIGHT, 1, A_STALE);
+        // add flexcache stale while revalidate
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_STALE_WHILE_REVALIDATE,
+            "setStaleWhileRevalidate",
+            2);
+        digester.addCallParam(
+            "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_STALE_WHILE_REVALIDATE,
+            0,
+            A_MAXSTALENESS);
+        digester.addCallParam(
+            "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_STALE_WHILE_REVALIDATE,
+            1,
+            A_MAXREVALIDATIONS);
         // add flexcache device selector
         digester.addCallMethod(
             "*/" + N_SYSTEM + "/" + N_FLEXCACHE + "/" + N_DEVICESELECTOR,
@@ -1006,6 +1118,11 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         // cache rules
         digester.addObjectCreate("*/" + N_SYSTEM + "/" + N_RESULTCACHE, CmsCacheSettings.class);
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_KEYGENERATOR, "setCacheKeyGenerator", 0);
+        digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_CACHEENGINE, "setCacheEngine", 0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_CACHEINVALIDATION,
+            "setCacheInvalidation",
+            0);
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_SIZE_USERS, "setUserCacheSize", 0);
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_SIZE_GROUPS, "setGroupCacheSize", 0);
         digester.addCallMethod("*/" + N_SYSTEM + "/" + N_RESULTCACHE + "/" + N_SIZE_ORGUNITS, "setOrgUnitCacheSize", 0);
@@ -1082,6 +1199,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
             "*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER + "/" + N_QUEUESHUTDOWNTIME,
             "setPublishQueueShutdowntime",
             0);
+        digester.addCallMethod(
+            "*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER + "/" + N_QUEUEMAXJOBS,
+            "setPublishQueueMaxConcurrentJobs",
+            0);
         digester.addSetNext("*/" + N_SYSTEM + "/" + N_PUBLISHMANAGER, "setPublishManager");
 
         // add rule for session storage provider
@@ -1223,6 +1344,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         Element eventsElement = systemElement.addElement(N_EVENTS);
         Element eventManagerElement = eventsElement.addElement(N_EVENTMANAGER);
         eventManagerElement.addAttribute(A_CLASS, m_eventManager.getClass().getName());
+        eventManagerElement.addAttribute(A_ASYNCTHREADS, String.valueOf(m_eventManager.getAsyncThreads()));
+        eventManagerElement.addAttribute(A_QUEUESIZE, String.valueOf(m_eventManager.getAsyncQueueSize()));
+        if (m_clusterEventBus != null) {
+            Element clusterElement = eventsElement.addElement(N_CLUSTER);
+            I_CmsClusterTransport transport = m_clusterEventBus.getTransport();
+            Element transportElement = clusterElement.addElement(N_TRANSPORT);
+            transportElement.addAttribute(A_CLASS, transport.getClass().getName());
+            transport.getConfiguration().appendToXml(transportElement);
+            m_clusterEventBus.getConfiguration().appendToXml(clusterElement);
+        }
 
         // version history
         Element historyElement = systemElement.addElement(N_VERSIONHISTORY);
@@ -1413,6 +1544,25 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         flexcacheElement.addElement(N_MAXENTRYBYTES).addText(
             String.valueOf(m_cmsFlexCacheConfiguration.getMaxEntryBytes()));
         flexcacheElement.addElement(N_MAXKEYS).addText(String.valueOf(m_cmsFlexCacheConfiguration.getMaxKeys()));
+        if (m_cmsFlexCacheConfiguration.isCacheOffHeap()) {
+            flexcacheElement.addElement(N_CACHE_OFFHEAP).addText(Boolean.TRUE.toString());
+        }
+        if (m_cmsFlexCacheConfiguration.getSingleFlightTimeout() > 0) {
+            Element singleFlightElement = flexcacheElement.addElement(N_SINGLEFLIGHT);
+            singleFlightElement.addAttribute(
+                A_TIMEOUT,
+                String.valueOf(m_cmsFlexCacheConfiguration.getSingleFlightTimeout()));
+            singleFlightElement.addAttribute(
+                A_STALE,
+                String.valueOf(m_cmsFlexCacheConfiguration.isSingleFlightStale()));
+        }
+        if (m_cmsFlexCacheConfiguration.getMaxStaleness() > 0) {
+            Element staleElement = flexcacheElement.addElement(N_STALE_WHILE_REVALIDATE);
+            staleElement.addAttribute(A_MAXSTALENESS, String.valueOf(m_cmsFlexCacheConfiguration.getMaxStaleness()));
+            staleElement.addAttribute(
+                A_MAXREVALIDATIONS,
+                String.valueOf(m_cmsFlexCacheConfiguration.getMaxRevalidations()));
+        }
         if (m_cmsFlexCacheConfiguration.getDeviceSelectorConfiguration() != null) {
             Element flexcacheDeviceSelectorElement = flexcacheElement.addElement(N_DEVICESELECTOR);
             flexcacheDeviceSelectorElement.addAttribute(
@@ -1458,6 +1608,12 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         }
         cacheElement.addElement(N_SIZE_ACLS).setText(Integer.toString(m_cacheSettings.getAclCacheSize()));
         cacheElement.addElement(N_SIZE_PERMISSIONS).setText(Integer.toString(m_cacheSettings.getPermissionCacheSize()));
+        if (m_cacheSettings.getCacheEngine() != null) {
+            cacheElement.addElement(N_CACHEENGINE).setText(m_cacheSettings.getCacheEngine());
+        }
+        if (m_cacheSettings.getCacheInvalidation() != null) {
+            cacheElement.addElement(N_CACHEINVALIDATION).setText(m_cacheSettings.getCacheInvalidation());
+        }
 
         // content notification settings
         if ((m_notificationTime != null) || (m_notificationProject != null)) {
@@ -1485,6 +1641,10 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
                 String.valueOf(m_publishManager.isPublishQueuePersistanceEnabled()));
             pubHistElement.addElement(N_QUEUESHUTDOWNTIME).setText(
                 String.valueOf(m_publishManager.getPublishQueueShutdowntime()));
+            int maxJobs = m_publishManager.getPublishQueueMaxConcurrentJobs();
+            if (maxJobs != CmsPublishManager.DEFAULT_QUEUE_MAXCONCURRENTJOBS) {
+                pubHistElement.addElement(N_QUEUEMAXJOBS).setText(String.valueOf(maxJobs));
+            }
         }
 
         // session storage provider
@@ -1609,6 +1769,16 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         return m_cacheSettings;
     }
 
+    /**
+     * Returns the configured cluster event bus.<p>
+     *
+     * @return the configured cluster event bus, or <code>null</code> if no cluster is configured
+     */
+    public CmsClusterEventBus getClusterEventBus() {
+
+        return m_clusterEventBus;
+    }
+
     /**
      * Returns the default users.<p>
      *
@@ -2010,6 +2180,21 @@ public class CmsSystemConfiguration extends A_CmsXmlConfiguration {
         m_cacheSettings = settings;
     }
 
+    /**
+     * Sets the cluster event bus.<p>
+     *
+     * @param clusterEventBus the cluster event bus to set
+     */
+    public void setClusterEventBus(CmsClusterEventBus clusterEventBus) {
+
+        m_clusterEventBus = clusterEventBus;
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_CLUSTER_TRANSPORT_1,
+                clusterEventBus.getTransport().getClass().getName()));
+        }
+    }
+
     /**
      * Sets the CmsDefaultUsers.<p>
      * 
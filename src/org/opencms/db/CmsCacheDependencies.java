@@ -0,0 +1,172 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsUUID;
+
+import java.util.Collection;
+
+/**
+ * Creates the dependency tags used to invalidate single entries of the memory monitor caches.<p>
+ * 
+ * A cache entry is registered with the tags of everything its value was computed from, 
+ * and a change invalidates all entries registered with the tags of the changed data, see
+ * {@link org.opencms.monitor.CmsMemoryMonitor#addCacheDependencies(org.opencms.monitor.CmsMemoryMonitor.CacheType, String, Collection)}
+ * and {@link org.opencms.monitor.CmsMemoryMonitor#invalidateCache(Collection, org.opencms.monitor.CmsMemoryMonitor.CacheType[])}.<p>
+ * 
+ * There are four kinds of tags:<ul>
+ * <li>a path tag for the resource with a given root path,</li>
+ * <li>a resource tag for the resource id, which is shared by all siblings,</li>
+ * <li>a tree tag for the contents of the folder with a given root path, including all sub folders,</li>
+ * <li>a principal tag for a user or group id.</li></ul>
+ * 
+ * Folder paths are used with and without trailing slash, so the trailing slash is ignored for all tags.<p>
+ * 
+ * @since 8.0.4
+ */
+public final class CmsCacheDependencies {
+
+    /** The prefix for path tags. */
+    private static final String PREFIX_PATH = "p:";
+
+    /** The prefix for principal tags. */
+    private static final String PREFIX_PRINCIPAL = "u:";
+
+    /** The prefix for resource tags. */
+    private static final String PREFIX_RESOURCE = "r:";
+
+    /** The prefix for tree tags. */
+    private static final String PREFIX_TREE = "t:";
+
+    /**
+     * Private constructor for static utility class.<p>
+     */
+    private CmsCacheDependencies() {
+
+        // do nothing 
+    }
+
+    /**
+     * Adds the path tags for the given root path and all its parent folders to the given collection.<p>
+     * 
+     * Use this for cache entries which depend on inherited data, like ACLs, permissions or searched properties.<p>
+     * 
+     * @param dependencies the collection to add the tags to
+     * @param rootPath the root path of a resource
+     */
+    public static void addParentPathTags(Collection<String> dependencies, String rootPath) {
+
+        String path = normalize(rootPath);
+        while (path != null) {
+            dependencies.add(PREFIX_PATH + path);
+            path = normalize(CmsResource.getParentFolder(path));
+        }
+    }
+
+    /**
+     * Adds the tree tags for the given root path and all its parent folders to the given collection.<p>
+     * 
+     * Use this to invalidate the cached lists of resources which might contain the resource with the given path.<p>
+     * 
+     * @param dependencies the collection to add the tags to
+     * @param rootPath the root path of a changed resource
+     */
+    public static void addParentTreeTags(Collection<String> dependencies, String rootPath) {
+
+        String path = normalize(rootPath);
+        while (path != null) {
+            dependencies.add(PREFIX_TREE + path);
+            path = normalize(CmsResource.getParentFolder(path));
+        }
+    }
+
+    /**
+     * Returns the path tag for the given root path.<p>
+     * 
+     * @param rootPath the root path of a resource
+     * 
+     * @return the path tag
+     */
+    public static String getPathTag(String rootPath) {
+
+        return PREFIX_PATH + normalize(rootPath);
+    }
+
+    /**
+     * Returns the principal tag for the given user or group id.<p>
+     * 
+     * @param principalId the id of a user or group
+     * 
+     * @return the principal tag
+     */
+    public static String getPrincipalTag(CmsUUID principalId) {
+
+        return PREFIX_PRINCIPAL + principalId;
+    }
+
+    /**
+     * Returns the resource tag for the given resource id.<p>
+     * 
+     * @param resourceId the resource id, shared by all siblings
+     * 
+     * @return the resource tag
+     */
+    public static String getResourceTag(CmsUUID resourceId) {
+
+        return PREFIX_RESOURCE + resourceId;
+    }
+
+    /**
+     * Returns the tree tag for the given folder.<p>
+     * 
+     * @param folderPath the root path of a folder
+     * 
+     * @return the tree tag
+     */
+    public static String getTreeTag(String folderPath) {
+
+        return PREFIX_TREE + normalize(folderPath);
+    }
+
+    /**
+     * Removes the trailing slash from the given path, unless it is the root folder.<p>
+     * 
+     * @param path the path to normalize, may be <code>null</code>
+     * 
+     * @return the normalized path
+     */
+    private static String normalize(String path) {
+
+        if ((path != null) && (path.length() > 1) && (path.charAt(path.length() - 1) == '/')) {
+            return path.substring(0, path.length() - 1);
+        }
+        return path;
+    }
+}
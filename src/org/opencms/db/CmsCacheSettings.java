@@ -34,9 +34,21 @@ package org.opencms.db;
  */
 public class CmsCacheSettings {
 
+    /** Invalidation mode constant: flush the affected caches completely on every change. */
+    public static final String CACHE_INVALIDATION_FULL = "full";
+
+    /** Invalidation mode constant: only remove the cache entries depending on a change. */
+    public static final String CACHE_INVALIDATION_KEYS = "keys";
+
     /** The size of the memory monitor's cache for ACLs. */
     private int m_aclCacheSize;
 
+    /** The name of the class used to create the memory monitor's caches. */
+    private String m_cacheEngine;
+
+    /** The configured cache invalidation mode. */
+    private String m_cacheInvalidation;
+
     /** The name of the class to generate cache keys. */
     private String m_cacheKeyGenerator;
 
@@ -94,6 +106,32 @@ public class CmsCacheSettings {
         return m_aclCacheSize;
     }
 
+    /**
+     * Returns the name of the class used to create the memory monitor's caches.<p>
+     *
+     * Might be <code>null</code> if configuration entry is missing.<p>
+     *
+     * @return the name of the class used to create the memory monitor's caches
+     */
+    public String getCacheEngine() {
+
+        return m_cacheEngine;
+    }
+
+    /**
+     * Returns the configured cache invalidation mode.<p>
+     *
+     * Might be <code>null</code> if configuration entry is missing.<p>
+     *
+     * @return the configured cache invalidation mode
+     * 
+     * @see #isKeyInvalidation()
+     */
+    public String getCacheInvalidation() {
+
+        return m_cacheInvalidation;
+    }
+
     /**
      * Returns the name of the class to generate cache keys.<p>
      *
@@ -284,6 +322,17 @@ public class CmsCacheSettings {
         return m_userGroupsCacheSize;
     }
 
+    /**
+     * Returns <code>true</code> if only the cache entries depending on a change should be invalidated,
+     * and <code>false</code> if the affected caches should be flushed completely.<p>
+     * 
+     * @return <code>true</code> if only the cache entries depending on a change should be invalidated
+     */
+    public boolean isKeyInvalidation() {
+
+        return !CACHE_INVALIDATION_FULL.equalsIgnoreCase(m_cacheInvalidation);
+    }
+
     /**
      * Sets the size of the memory monitor's cache for ACLs.<p>
      *
@@ -294,6 +343,27 @@ public class CmsCacheSettings {
         m_aclCacheSize = getIntValue(size, 1024);
     }
 
+    /**
+     * Sets the name of the class used to create the memory monitor's caches.<p>
+     *
+     * @param classname the name of the class used to create the memory monitor's caches
+     */
+    public void setCacheEngine(String classname) {
+
+        m_cacheEngine = classname;
+    }
+
+    /**
+     * Sets the cache invalidation mode, either {@link #CACHE_INVALIDATION_KEYS} 
+     * or {@link #CACHE_INVALIDATION_FULL}.<p>
+     *
+     * @param mode the cache invalidation mode
+     */
+    public void setCacheInvalidation(String mode) {
+
+        m_cacheInvalidation = (mode != null) ? mode.trim() : null;
+    }
+
     /**
      * Sets the name of the class to generate cache keys.<p>
      *
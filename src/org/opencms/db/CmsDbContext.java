@@ -39,8 +39,10 @@ import org.opencms.report.I_CmsReport;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsUUID;
 
+import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Wraps context information to access the OpenCms database.<p> 
@@ -49,12 +51,22 @@ import java.util.Map;
  */
 public class CmsDbContext {
 
+    /** Request context attribute that holds the number of connections taken from the pools for the request. */
+    public static final String ATTRIBUTE_CONNECTION_CHECKOUTS = CmsDbContext.class.getName()
+        + ".ATTRIBUTE_CONNECTION_CHECKOUTS";
+
     /** Context attributes. */
     protected Map<String, Object> m_attributes;
 
+    /** The number of connections taken from the pools with this context, also by other threads. */
+    protected final AtomicInteger m_connectionCheckouts = new AtomicInteger();
+
     /** The current Flex request context info (if available). */
     protected CmsFlexRequestContextInfo m_flexRequestContextInfo;
 
+    /** The connections pinned to this context, or <code>null</code> if connections are not pinned. */
+    protected CmsDbPinnedConnections m_pinnedConnections;
+
     /** The id of the project for the context. */
     protected CmsUUID m_projectId;
 
@@ -86,9 +98,22 @@ public class CmsDbContext {
 
     /**
      * Clears this database context.<p>
+     * 
+     * Pinned connections are returned to their pools, and the number of connections 
+     * taken from the pools is added to the {@link #ATTRIBUTE_CONNECTION_CHECKOUTS} 
+     * attribute of the request context.<p>
      */
     public void clear() {
 
+        releaseConnections();
+        int connectionCheckouts = m_connectionCheckouts.getAndSet(0);
+        if ((m_requestContext != null) && (connectionCheckouts > 0)) {
+            Integer checkouts = (Integer)m_requestContext.getAttribute(ATTRIBUTE_CONNECTION_CHECKOUTS);
+            if (checkouts != null) {
+                connectionCheckouts += checkouts.intValue();
+            }
+            m_requestContext.setAttribute(ATTRIBUTE_CONNECTION_CHECKOUTS, new Integer(connectionCheckouts));
+        }
         m_requestContext = null;
         m_flexRequestContextInfo = null;
     }
@@ -128,6 +153,16 @@ public class CmsDbContext {
         return m_attributes.get(key);
     }
 
+    /**
+     * Returns the number of connections taken from the pools with this context.<p>
+     * 
+     * @return the number of connections taken from the pools
+     */
+    public int getConnectionCheckouts() {
+
+        return m_connectionCheckouts.get();
+    }
+
     /**
      * Returns the current Flex request context info.<p>
      * 
@@ -162,6 +197,24 @@ public class CmsDbContext {
         return null;
     }
 
+    /**
+     * Returns the connection pinned to this context for the given pool.<p>
+     * 
+     * A pinned connection is only returned to the thread that pinned it,
+     * closing it has no effect.<p>
+     * 
+     * @param poolUrl the url of the pool
+     * 
+     * @return the pinned connection, or <code>null</code> if there is none
+     */
+    public Connection getPinnedConnection(String poolUrl) {
+
+        if (m_pinnedConnections == null) {
+            return null;
+        }
+        return m_pinnedConnections.get(poolUrl);
+    }
+
     /**
      * Returns the project id of the context.<p>
      *
@@ -216,6 +269,62 @@ public class CmsDbContext {
         return true;
     }
 
+    /**
+     * Notifies this context that a connection was taken from a pool.<p>
+     */
+    public void incrementConnectionCheckouts() {
+
+        m_connectionCheckouts.incrementAndGet();
+    }
+
+    /**
+     * Checks if this context pins the connections taken from the pools.<p>
+     * 
+     * @return <code>true</code> if this context pins the connections taken from the pools
+     * 
+     * @see #pinConnections()
+     */
+    public boolean isPinningConnections() {
+
+        return m_pinnedConnections != null;
+    }
+
+    /**
+     * Pins the given connection to this context, if this context pins connections.<p>
+     * 
+     * The returned connection must be used instead of the given connection,
+     * it is returned to its pool when this context is cleared.<p>
+     * 
+     * @param poolUrl the url of the pool the connection was taken from
+     * @param connection the connection to pin
+     * 
+     * @return the connection to use
+     */
+    public Connection pinConnection(String poolUrl, Connection connection) {
+
+        if ((m_pinnedConnections == null) || !m_pinnedConnections.isOwner()) {
+            return connection;
+        }
+        return m_pinnedConnections.pin(poolUrl, connection);
+    }
+
+    /**
+     * Pins the connections taken from the pools to this context.<p>
+     * 
+     * After calling this method, the first connection taken from a pool with this context is 
+     * used for all further database operations of the current thread with this context, 
+     * until the context is cleared or {@link #releaseConnections()} is called.<p>
+     * 
+     * This saves the pool checkouts of long running operations like a publish, 
+     * but the context must always be cleared in a <code>finally</code> block.<p>
+     */
+    public void pinConnections() {
+
+        if (m_pinnedConnections == null) {
+            m_pinnedConnections = new CmsDbPinnedConnections(this);
+        }
+    }
+
     /**
      * Processes the current database context.<p>
      * 
@@ -228,6 +337,17 @@ public class CmsDbContext {
         }
     }
 
+    /**
+     * Returns the connections pinned to this context to their pools, and stops pinning connections.<p>
+     */
+    public void releaseConnections() {
+
+        if (m_pinnedConnections != null) {
+            m_pinnedConnections.release();
+            m_pinnedConnections = null;
+        }
+    }
+
     /**
      * Removes the given attribute from the DB context.<p> 
      * 
@@ -32,16 +32,31 @@ import org.opencms.file.CmsRequestContext;
 /**
  * A default implementation of {@link I_CmsDbContextFactory}.<p>
  * 
+ * If the property {@link #PROPERTY_PIN_CONNECTIONS} is set to <code>true</code>, 
+ * all created database contexts pin their connections.<p>
+ * 
  * @since 6.0.0
+ * 
+ * @see CmsDbContext#pinConnections()
  */
 public class CmsDbContextFactory implements I_CmsDbContextFactory {
 
+    /** The name of the property that controls if the created database contexts pin their connections. */
+    public static final String PROPERTY_PIN_CONNECTIONS = "db.connections.pinned";
+
+    /** Indicates if the created database contexts pin their connections. */
+    private boolean m_pinConnections;
+
     /**
      * @see org.opencms.db.I_CmsDbContextFactory#getDbContext()
      */
     public CmsDbContext getDbContext() {
 
-        return new CmsDbContext();
+        CmsDbContext dbc = new CmsDbContext();
+        if (m_pinConnections) {
+            dbc.pinConnections();
+        }
+        return dbc;
     }
 
     /**
@@ -49,7 +64,11 @@ public class CmsDbContextFactory implements I_CmsDbContextFactory {
      */
     public CmsDbContext getDbContext(CmsRequestContext context) {
 
-        return new CmsDbContext(context);
+        CmsDbContext dbc = new CmsDbContext(context);
+        if (m_pinConnections) {
+            dbc.pinConnections();
+        }
+        return dbc;
     }
 
     /**
@@ -57,6 +76,8 @@ public class CmsDbContextFactory implements I_CmsDbContextFactory {
      */
     public void initialize(CmsDriverManager driverManager) {
 
-        // noop
+        if ((driverManager != null) && (driverManager.getPropertyConfiguration() != null)) {
+            m_pinConnections = driverManager.getPropertyConfiguration().getBoolean(PROPERTY_PIN_CONNECTIONS, false);
+        }
     }
 }
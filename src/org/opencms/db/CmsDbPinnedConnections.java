@@ -0,0 +1,224 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.main.CmsLog;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * The JDBC connections pinned to a database context.<p>
+ * 
+ * While a database context pins its connections, every pool is asked only once for a connection,
+ * and the drivers get the same connection for all statements they execute with this context.
+ * Closing the connection in the driver has no effect, the connections are returned to the pool 
+ * when the context is cleared.<p>
+ * 
+ * If a context is garbage collected without being cleared, its connections are closed 
+ * the next time a connection is pinned, and a warning is written to the log.<p>
+ * 
+ * @since 8.0.4
+ * 
+ * @see CmsDbContext#pinConnections()
+ */
+final class CmsDbPinnedConnections extends WeakReference<CmsDbContext> {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsDbPinnedConnections.class);
+
+    /** The pinned connections of the contexts that have not been cleared yet. */
+    private static final Set<CmsDbPinnedConnections> OPEN = Collections.synchronizedSet(
+        new HashSet<CmsDbPinnedConnections>());
+
+    /** The queue of garbage collected contexts. */
+    private static final ReferenceQueue<CmsDbContext> QUEUE = new ReferenceQueue<CmsDbContext>();
+
+    /** The pinned connections, by pool url. */
+    private final Map<String, Connection> m_connections;
+
+    /** The thread that pinned the connections. */
+    private final Thread m_owner;
+
+    /** The name of the thread that pinned the connections, for the leak warning. */
+    private final String m_ownerName;
+
+    /** The connections handed out to the drivers, by pool url. */
+    private final Map<String, Connection> m_proxies;
+
+    /**
+     * Creates the pinned connections for the given database context.<p>
+     * 
+     * @param dbc the database context
+     */
+    CmsDbPinnedConnections(CmsDbContext dbc) {
+
+        super(dbc, QUEUE);
+        m_connections = new HashMap<String, Connection>(4);
+        m_proxies = new HashMap<String, Connection>(4);
+        m_owner = Thread.currentThread();
+        m_ownerName = m_owner.getName();
+    }
+
+    /**
+     * Closes the connections of all contexts that were garbage collected without being cleared.<p>
+     */
+    static void closeLeakedConnections() {
+
+        CmsDbPinnedConnections leaked = (CmsDbPinnedConnections)QUEUE.poll();
+        while (leaked != null) {
+            if (leaked.hasConnections()) {
+                LOG.warn(Messages.get().getBundle().key(
+                    Messages.LOG_DB_CONNECTION_LEAK_2,
+                    new Integer(leaked.m_connections.size()),
+                    leaked.m_ownerName));
+            }
+            leaked.release();
+            leaked = (CmsDbPinnedConnections)QUEUE.poll();
+        }
+    }
+
+    /**
+     * Returns the pinned connection for the given pool.<p>
+     * 
+     * Connections are only shared with the thread that pinned them, 
+     * other threads using the same context get their own connections.<p>
+     * 
+     * @param poolUrl the pool url
+     * 
+     * @return the pinned connection, or <code>null</code> if there is none for the current thread
+     */
+    Connection get(String poolUrl) {
+
+        if (Thread.currentThread() != m_owner) {
+            return null;
+        }
+        return m_proxies.get(poolUrl);
+    }
+
+    /**
+     * Checks if connections are pinned.<p>
+     * 
+     * @return <code>true</code> if connections are pinned
+     */
+    boolean hasConnections() {
+
+        return !m_connections.isEmpty();
+    }
+
+    /**
+     * Checks if the current thread is the thread that pinned the connections.<p>
+     * 
+     * @return <code>true</code> if the current thread pinned the connections
+     */
+    boolean isOwner() {
+
+        return Thread.currentThread() == m_owner;
+    }
+
+    /**
+     * Pins the given connection.<p>
+     * 
+     * @param poolUrl the url of the pool the connection was taken from
+     * @param connection the connection to pin
+     * 
+     * @return the connection to hand out to the drivers, which is not closed by the drivers
+     */
+    Connection pin(String poolUrl, final Connection connection) {
+
+        if (m_connections.isEmpty()) {
+            closeLeakedConnections();
+            OPEN.add(this);
+        }
+        Connection proxy = (Connection)Proxy.newProxyInstance(
+            CmsDbPinnedConnections.class.getClassLoader(),
+            new Class[] {Connection.class},
+            new InvocationHandler() {
+
+                /**
+                 * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+                 */
+                public Object invoke(Object obj, Method method, Object[] args) throws Throwable {
+
+                    if ("close".equals(method.getName()) && (method.getParameterTypes().length == 0)) {
+                        // the connection is returned to the pool when the context is cleared
+                        return null;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                }
+            });
+        m_connections.put(poolUrl, connection);
+        m_proxies.put(poolUrl, proxy);
+        return proxy;
+    }
+
+    /**
+     * Returns all pinned connections to their pools.<p>
+     */
+    void release() {
+
+        Iterator<Connection> it = m_connections.values().iterator();
+        while (it.hasNext()) {
+            Connection connection = it.next();
+            try {
+                if (!connection.isClosed()) {
+                    if (!connection.getAutoCommit()) {
+                        // never leave an open transaction behind
+                        connection.rollback();
+                        connection.setAutoCommit(true);
+                    }
+                    connection.close();
+                }
+            } catch (SQLException e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        m_connections.clear();
+        m_proxies.clear();
+        OPEN.remove(this);
+    }
+}
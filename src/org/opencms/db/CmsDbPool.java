@@ -33,7 +33,10 @@ import org.opencms.util.CmsStringUtil;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.dbcp.ConnectionFactory;
 import org.apache.commons.dbcp.DriverManagerConnectionFactory;
@@ -78,6 +81,9 @@ public final class CmsDbPool {
     /** Key for statement pooling. */
     public static final String KEY_DATABASE_STATEMENTS = KEY_DATABASE + "statements";
 
+    /** Key for using the OpenCms statement cache instead of the DBCP statement pool. */
+    public static final String KEY_CACHE = "cache";
+
     /** Key for the entity manager pool size. */
     public static final String KEY_ENTITY_MANAGER_POOL_SIZE = "entityMangerPoolSize";
 
@@ -153,6 +159,10 @@ public final class CmsDbPool {
     /** The prefix used for opencms JDBC pools. */
     public static final String OPENCMS_URL_PREFIX = "opencms:";
 
+    /** The statement caches of the pools, by pool url. */
+    private static final Map<String, CmsDbStatementCache> STATEMENT_CACHES = Collections.synchronizedMap(
+        new HashMap<String, CmsDbStatementCache>());
+
     /**
      * Default constructor.<p>
      * 
@@ -235,6 +245,8 @@ public final class CmsDbPool {
         int maxActiveStmts = config.getInteger(KEY_DATABASE_STATEMENTS + '.' + key + '.' + KEY_MAX_ACTIVE, 25);
         int maxWaitStmts = config.getInteger(KEY_DATABASE_STATEMENTS + '.' + key + '.' + KEY_MAX_WAIT, 250);
         int maxIdleStmts = config.getInteger(KEY_DATABASE_STATEMENTS + '.' + key + '.' + KEY_MAX_IDLE, 15);
+        boolean cachingStmts = poolingStmts
+            && config.getBoolean(KEY_DATABASE_STATEMENTS + '.' + key + '.' + KEY_CACHE, true);
         String whenStmtsExhaustedActionValue = config.get(KEY_DATABASE_STATEMENTS
             + '.'
             + key
@@ -298,7 +310,12 @@ public final class CmsDbPool {
 
         // Set up statement pool, if desired
         GenericKeyedObjectPoolFactory statementFactory = null;
-        if (poolingStmts) {
+        if (cachingStmts) {
+            // every physical connection caches its least recently used statements, without pool synchronization
+            CmsDbStatementCache statementCache = new CmsDbStatementCache(poolUrl, connectionFactory, maxIdleStmts);
+            STATEMENT_CACHES.put(poolUrl, statementCache);
+            connectionFactory = statementCache;
+        } else if (poolingStmts) {
             statementFactory = new GenericKeyedObjectPoolFactory(
                 null,
                 maxActiveStmts,
@@ -349,6 +366,21 @@ public final class CmsDbPool {
         return driver;
     }
 
+    /**
+     * Returns the statement cache of the given pool.<p>
+     * 
+     * @param dbPoolUrl the url of the pool, with or without the {@link #DBCP_JDBC_URL_PREFIX}
+     * 
+     * @return the statement cache of the pool, or <code>null</code> if the pool does not cache statements
+     */
+    public static CmsDbStatementCache getStatementCache(String dbPoolUrl) {
+
+        if (dbPoolUrl.startsWith(DBCP_JDBC_URL_PREFIX)) {
+            dbPoolUrl = dbPoolUrl.substring(DBCP_JDBC_URL_PREFIX.length());
+        }
+        return STATEMENT_CACHES.get(dbPoolUrl);
+    }
+
     /**
      * Returns the database pool name for a given configuration key.<p>
      * 
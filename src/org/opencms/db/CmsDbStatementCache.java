@@ -0,0 +1,402 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.main.CmsLog;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.dbcp.ConnectionFactory;
+import org.apache.commons.logging.Log;
+
+/**
+ * A cache for the prepared statements of the connections of a database pool.<p>
+ * 
+ * The cache wraps the factory that creates the physical connections of the pool.
+ * Each physical connection keeps its own least recently used prepared statements, keyed by their SQL.
+ * Since the SQL manager resolves the project dependent tables of a query before preparing it,
+ * the key includes the query key and the online / offline mode of the query.<p>
+ * 
+ * Closing a prepared statement returns it to the cache of its connection, closing the connection
+ * closes all its cached statements. The parameters, warnings and pending batch of a returned statement 
+ * are cleared. Statements whose settings have been changed, for example the fetch size of a streaming
+ * query, are closed instead of being cached, so the settings never leak into a later use.
+ * The cache works for all database drivers, since it only relies on the JDBC interfaces.<p>
+ * 
+ * @since 8.0.4
+ * 
+ * @see CmsDbPool#getStatementCache(String)
+ */
+public final class CmsDbStatementCache implements ConnectionFactory {
+
+    /**
+     * Keeps the cached statements of a physical connection.<p>
+     */
+    private final class CachingConnection implements InvocationHandler {
+
+        /** Indicates if the connection was closed. */
+        private boolean m_closed;
+
+        /** The physical connection. */
+        private final Connection m_connection;
+
+        /** The cached statements that are currently not in use, by SQL. */
+        private final Map<String, PreparedStatement> m_statements;
+
+        /**
+         * Creates a new caching connection.<p>
+         * 
+         * @param connection the physical connection
+         */
+        CachingConnection(Connection connection) {
+
+            m_connection = connection;
+            m_statements = new LinkedHashMap<String, PreparedStatement>(m_maxSize, 0.75f, true) {
+
+                /** The serial version id. */
+                private static final long serialVersionUID = 2744853547262930434L;
+
+                /**
+                 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+                 */
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+
+                    if (size() <= m_maxSize) {
+                        return false;
+                    }
+                    m_evictions.incrementAndGet();
+                    closeStatement(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String name = method.getName();
+            if ("prepareStatement".equals(name) && (args.length == 1)) {
+                return getStatement((String)args[0]);
+            }
+            if ("close".equals(name) && (args == null)) {
+                closeStatements();
+            }
+            try {
+                return method.invoke(m_connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        /**
+         * Closes all cached statements of this connection.<p>
+         */
+        synchronized void closeStatements() {
+
+            m_closed = true;
+            Iterator<PreparedStatement> it = m_statements.values().iterator();
+            while (it.hasNext()) {
+                closeStatement(it.next());
+            }
+            m_statements.clear();
+        }
+
+        /**
+         * Returns a prepared statement for the given SQL, from the cache if possible.<p>
+         * 
+         * @param sql the SQL
+         * 
+         * @return the prepared statement
+         * 
+         * @throws SQLException if the statement could not be prepared
+         */
+        synchronized PreparedStatement getStatement(String sql) throws SQLException {
+
+            // cached statements are removed while in use, so nested queries with the same SQL get their own statement
+            PreparedStatement statement = m_statements.remove(sql);
+            if (statement != null) {
+                m_hits.incrementAndGet();
+            } else {
+                m_misses.incrementAndGet();
+                statement = m_connection.prepareStatement(sql);
+            }
+            return (PreparedStatement)Proxy.newProxyInstance(
+                CmsDbStatementCache.class.getClassLoader(),
+                new Class[] {PreparedStatement.class},
+                new CachedStatement(this, sql, statement));
+        }
+
+        /**
+         * Returns a statement that is no longer in use to the cache.<p>
+         * 
+         * @param sql the SQL of the statement
+         * @param statement the statement
+         * 
+         * @return <code>true</code> if the statement was cached, <code>false</code> if it has to be closed
+         */
+        synchronized boolean releaseStatement(String sql, PreparedStatement statement) {
+
+            if (m_closed || m_statements.containsKey(sql)) {
+                return false;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearWarnings();
+                // a batch aborted by an error still contains its pending rows
+                statement.clearBatch();
+            } catch (SQLException e) {
+                LOG.debug(e.getLocalizedMessage(), e);
+                return false;
+            }
+            m_statements.put(sql, statement);
+            return true;
+        }
+    }
+
+    /**
+     * A prepared statement handed out by the cache.<p>
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        /** Indicates if this statement was closed. */
+        private boolean m_closed;
+
+        /** Indicates if a setting of this statement was changed, so it must not be cached. */
+        private boolean m_modified;
+
+        /** The connection this statement was prepared for. */
+        private final CachingConnection m_connection;
+
+        /** The SQL of this statement. */
+        private final String m_sql;
+
+        /** The physical statement. */
+        private final PreparedStatement m_statement;
+
+        /**
+         * Creates a new cached statement.<p>
+         * 
+         * @param connection the connection this statement was prepared for
+         * @param sql the SQL of this statement
+         * @param statement the physical statement
+         */
+        CachedStatement(CachingConnection connection, String sql, PreparedStatement statement) {
+
+            m_connection = connection;
+            m_sql = sql;
+            m_statement = statement;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+
+            String name = method.getName();
+            if ("close".equals(name) && (args == null)) {
+                if (!m_closed) {
+                    m_closed = true;
+                    if (m_modified || !m_connection.releaseStatement(m_sql, m_statement)) {
+                        closeStatement(m_statement);
+                    }
+                }
+                return null;
+            }
+            if ("isClosed".equals(name) && (args == null)) {
+                return Boolean.valueOf(m_closed);
+            }
+            if (m_closed && !"toString".equals(name)) {
+                // the physical statement may already be used by someone else
+                throw new SQLException(Messages.get().getBundle().key(Messages.ERR_STATEMENT_CLOSED_1, m_sql));
+            }
+            if (STATEMENT_SETTINGS.contains(name)) {
+                m_modified = true;
+            }
+            try {
+                return method.invoke(m_statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
+    /** The log object for this class. */
+    static final Log LOG = CmsLog.getLog(CmsDbStatementCache.class);
+
+    /** The names of the methods that change settings of a statement, which are not reset when it is cached. */
+    static final Set<String> STATEMENT_SETTINGS = new HashSet<String>(Arrays.asList(new String[] {
+        "setCursorName",
+        "setEscapeProcessing",
+        "setFetchDirection",
+        "setFetchSize",
+        "setMaxFieldSize",
+        "setMaxRows",
+        "setPoolable",
+        "setQueryTimeout"}));
+
+    /** The factory for the physical connections. */
+    private final ConnectionFactory m_connectionFactory;
+
+    /** The number of statements closed because the cache of their connection was full. */
+    private final AtomicLong m_evictions;
+
+    /** The number of statements taken from the cache. */
+    private final AtomicLong m_hits;
+
+    /** The maximum number of cached statements per connection. */
+    private final int m_maxSize;
+
+    /** The number of statements that had to be prepared. */
+    private final AtomicLong m_misses;
+
+    /** The url of the pool. */
+    private final String m_poolUrl;
+
+    /**
+     * Creates a new statement cache.<p>
+     * 
+     * @param poolUrl the url of the pool
+     * @param connectionFactory the factory for the physical connections
+     * @param maxSize the maximum number of cached statements per connection
+     */
+    public CmsDbStatementCache(String poolUrl, ConnectionFactory connectionFactory, int maxSize) {
+
+        m_poolUrl = poolUrl;
+        m_connectionFactory = connectionFactory;
+        m_maxSize = maxSize;
+        m_evictions = new AtomicLong();
+        m_hits = new AtomicLong();
+        m_misses = new AtomicLong();
+    }
+
+    /**
+     * Closes the given statement, ignoring all errors.<p>
+     * 
+     * @param statement the statement to close
+     */
+    static void closeStatement(PreparedStatement statement) {
+
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            LOG.debug(e.getLocalizedMessage(), e);
+        }
+    }
+
+    /**
+     * @see org.apache.commons.dbcp.ConnectionFactory#createConnection()
+     */
+    public Connection createConnection() throws SQLException {
+
+        return (Connection)Proxy.newProxyInstance(
+            CmsDbStatementCache.class.getClassLoader(),
+            new Class[] {Connection.class},
+            new CachingConnection(m_connectionFactory.createConnection()));
+    }
+
+    /**
+     * Returns the number of statements closed because the cache of their connection was full.<p>
+     * 
+     * @return the number of evicted statements
+     */
+    public long getEvictions() {
+
+        return m_evictions.get();
+    }
+
+    /**
+     * Returns the number of statements taken from the cache.<p>
+     * 
+     * @return the number of cache hits
+     */
+    public long getHits() {
+
+        return m_hits.get();
+    }
+
+    /**
+     * Returns the maximum number of cached statements per connection.<p>
+     * 
+     * @return the maximum number of cached statements per connection
+     */
+    public int getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * Returns the number of statements that had to be prepared.<p>
+     * 
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+
+        return m_misses.get();
+    }
+
+    /**
+     * Returns the url of the pool.<p>
+     * 
+     * @return the url of the pool
+     */
+    public String getPoolUrl() {
+
+        return m_poolUrl;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append(m_poolUrl);
+        result.append(": hits=").append(getHits());
+        result.append(", misses=").append(getMisses());
+        result.append(", evictions=").append(getEvictions());
+        return result.toString();
+    }
+}
@@ -110,6 +110,9 @@ import org.opencms.util.CmsUUID;
 import org.opencms.util.PrintfFormat;
 import org.opencms.workplace.commons.CmsProgressThread;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -228,6 +231,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** DBC attribute key needed to fix publishing behavior involving siblings. */
     public static final String KEY_CHANGED_AND_DELETED = "changedAndDeleted";
 
+    /** DBC attribute key for the resource ids whose resource version was already increased during publishing. */
+    public static final String KEY_RESOURCE_OPERATIONS = "resourceOperations";
+
     /** The vfs path of the loast and found folder. */
     public static final String LOST_AND_FOUND_FOLDER = "/system/lost-found";
 
@@ -324,6 +330,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /** The class used for cache key generation. */
     private I_CmsCacheKey m_keyGenerator;
 
+    /** The last publish tag handed out to a publish job. */
+    private int m_lastPublishTag;
+
     /** The lock manager. */
     private CmsLockManager m_lockManager;
 
@@ -947,7 +956,17 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 report = (I_CmsReport)event.getData().get(I_CmsEventListener.KEY_REPORT);
                 dbc = (CmsDbContext)event.getData().get(I_CmsEventListener.KEY_DBCONTEXT);
                 m_monitor.clearCache();
-                writeExportPoints(dbc, report, publishHistoryId);
+                if (dbc == null) {
+                    // the event was received from another cluster node
+                    dbc = new CmsDbContext();
+                    try {
+                        writeExportPoints(dbc, report, publishHistoryId);
+                    } finally {
+                        dbc.clear();
+                    }
+                } else {
+                    writeExportPoints(dbc, report, publishHistoryId);
+                }
                 break;
 
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
@@ -1016,7 +1035,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlCaches(dbc, destination);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -2188,7 +2207,15 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
         } finally {
             // clear the driver manager cache
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            if (m_monitor.isDependencyTracking()) {
+                invalidateResourceCaches(
+                    dbc,
+                    resource,
+                    CmsMemoryMonitor.CacheType.PROPERTY,
+                    CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            } else {
+                m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            }
 
             // fire an event that all properties of a resource have been deleted
             OpenCms.fireCmsEvent(new CmsEvent(
@@ -3329,15 +3356,19 @@ public final class CmsDriverManager implements I_CmsEventListener {
             List<CmsResource> publishFiles = publishList.getFileList();
             int size = publishFiles.size();
 
-            // Improved: first calculate closure of all siblings, then filter and add them
-            Set<CmsResource> siblingsClosure = new HashSet<CmsResource>(publishFiles);
+            // first collect the siblings not already in the publish list, then filter and add them
+            Set<CmsResource> siblings = new HashSet<CmsResource>();
             for (int i = 0; i < size; i++) {
                 CmsResource currentFile = publishFiles.get(i);
                 if (currentFile.getSiblingCount() > 1) {
-                    siblingsClosure.addAll(readSiblings(dbc, currentFile, CmsResourceFilter.ALL_MODIFIED));
+                    for (CmsResource sibling : readSiblings(dbc, currentFile, CmsResourceFilter.ALL_MODIFIED)) {
+                        if (!publishList.containsResource(sibling)) {
+                            siblings.add(sibling);
+                        }
+                    }
                 }
             }
-            publishList.addAll(filterSiblings(dbc, publishList, siblingsClosure), true);
+            publishList.addAll(filterSiblings(dbc, publishList, siblings), true);
         }
         publishList.initialize();
     }
@@ -4081,13 +4112,19 @@ public final class CmsDriverManager implements I_CmsEventListener {
     /**
      * Returns the next publish tag for the published historical resources.<p>
      *
+     * Since several publish jobs may run at the same time, the publish tag is never 
+     * lower than the last tag handed out, even if the history of the previous job 
+     * has not been written yet.<p>
+     *
      * @param dbc the current database context
      * 
      * @return the next available publish tag
      */
-    public int getNextPublishTag(CmsDbContext dbc) {
+    public synchronized int getNextPublishTag(CmsDbContext dbc) {
 
-        return getHistoryDriver(dbc).readNextPublishTag(dbc);
+        int publishTag = Math.max(getHistoryDriver(dbc).readNextPublishTag(dbc), m_lastPublishTag + 1);
+        m_lastPublishTag = publishTag;
+        return publishTag;
     }
 
     /**
@@ -4882,7 +4919,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         while (i.hasNext()) {
             userDriver.writeAccessControlEntry(dbc, dbc.currentProject(), i.next());
         }
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlCaches(dbc, resource);
     }
 
     /**
@@ -5213,7 +5250,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
     public void lockResource(CmsDbContext dbc, CmsResource resource, CmsLockType type) throws CmsException {
 
         // update the resource cache
-        m_monitor.clearResourceCache();
+        clearResourceCaches(dbc, resource, false);
 
         CmsProject project = dbc.currentProject();
 
@@ -5226,7 +5263,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         // we must also clear the permission cache
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.PERMISSION);
+        clearPermissionCache(dbc, resource);
 
         // fire resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -6225,7 +6262,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
             // cache the sub resources
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResourceList(cacheKey, resourceList);
+                cacheResourceList(dbc, cacheKey, resource.getRootPath(), resourceList);
             }
         }
 
@@ -6233,6 +6270,36 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return updateContextDates(dbc, resourceList, filter);
     }
 
+    /**
+     * Reads the binary content of a file resource as a stream.<p>
+     * 
+     * Other than {@link #readFile(CmsDbContext, CmsResource)}, this does not keep the whole content 
+     * in memory, unless the resource is a historical version. The returned stream 
+     * must be closed by the caller.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the file resource to read the content for
+     * 
+     * @return the content of the file as a stream
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsResource resource) throws CmsException {
+
+        if (resource.isFolder()) {
+            throw new CmsVfsResourceNotFoundException(Messages.get().container(
+                Messages.ERR_ACCESS_FOLDER_AS_FILE_1,
+                dbc.removeSiteRoot(resource.getRootPath())));
+        }
+        if (resource instanceof I_CmsHistoryResource) {
+            return new ByteArrayInputStream(getHistoryDriver(dbc).readContent(
+                dbc,
+                resource.getResourceId(),
+                ((I_CmsHistoryResource)resource).getPublishTag()));
+        }
+        return getVfsDriver(dbc).readContentStream(dbc, dbc.currentProject().getUuid(), resource.getResourceId());
+    }
+
     /**
      * Returns the default file for the given folder.<p>
      * 
@@ -6832,7 +6899,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
             currentResource = getVfsDriver(dbc).readFolder(dbc, projectId, cp);
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResource(cacheKey, currentResource);
+                cacheResource(cacheKey, currentResource);
             }
         }
 
@@ -6858,7 +6925,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
                 currentResource = getVfsDriver(dbc).readFolder(dbc, projectId, cp);
                 if (dbc.getProjectId().isNullUUID()) {
-                    m_monitor.cacheResource(cacheKey, currentResource);
+                    cacheResource(cacheKey, currentResource);
                 }
             }
 
@@ -6885,7 +6952,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             if ((currentResource == null) || !dbc.getProjectId().isNullUUID()) {
                 currentResource = getVfsDriver(dbc).readResource(dbc, projectId, cp, filter.includeDeleted());
                 if (dbc.getProjectId().isNullUUID()) {
-                    m_monitor.cacheResource(cacheKey, currentResource);
+                    cacheResource(cacheKey, currentResource);
                 }
             }
 
@@ -7087,10 +7154,11 @@ public final class CmsDriverManager implements I_CmsEventListener {
                 boolean cont;
                 properties = new ArrayList<CmsProperty>();
                 List<CmsProperty> parentProperties = null;
+                CmsResource currentResource = resource;
 
                 do {
                     try {
-                        parentProperties = readPropertyObjects(dbc, resource, false);
+                        parentProperties = readPropertyObjects(dbc, currentResource, false);
 
                         // make sure properties from lower folders "overwrite" properties from upper folders
                         parentProperties.removeAll(properties);
@@ -7099,7 +7167,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                         properties.clear();
                         properties.addAll(parentProperties);
 
-                        cont = resource.getRootPath().length() > 1;
+                        cont = currentResource.getRootPath().length() > 1;
                     } catch (CmsSecurityException se) {
                         // a security exception (probably no read permission) we return the current result                      
                         cont = false;
@@ -7107,9 +7175,9 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     if (cont) {
                         // no permission check on parent folder is required since we must have "read" 
                         // permissions to read the child resource anyway
-                        resource = readResource(
+                        currentResource = readResource(
                             dbc,
-                            CmsResource.getParentFolder(resource.getRootPath()),
+                            CmsResource.getParentFolder(currentResource.getRootPath()),
                             CmsResourceFilter.ALL);
                     }
                 } while (cont);
@@ -7124,7 +7192,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             CmsProperty.setFrozen(properties);
             if (dbc.getProjectId().isNullUUID()) {
                 // store the result in the cache if needed
-                m_monitor.cachePropertyList(cacheKey, properties);
+                cachePropertyList(cacheKey, resource, search, properties);
             }
         }
 
@@ -7356,7 +7424,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
             // store the result in the resourceList cache
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResourceList(cacheKey, resourceList);
+                cacheResourceList(dbc, cacheKey, parent.getRootPath(), resourceList);
             }
         }
         // we must always apply the result filter and update the context dates
@@ -7439,7 +7507,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             resourceList = filterPermissions(dbc, resourceList, filter);
             // store the result in the resourceList cache
             if (dbc.getProjectId().isNullUUID()) {
-                m_monitor.cacheResourceList(cacheKey, resourceList);
+                cacheResourceList(dbc, cacheKey, folder.getRootPath(), resourceList);
             }
         }
         // we must always apply the result filter and update the context dates
@@ -7760,7 +7828,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         setDateLastModified(dbc, resource, resource.getDateLastModified());
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlCaches(dbc, resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -8000,46 +8068,89 @@ public final class CmsDriverManager implements I_CmsEventListener {
         // replace the existing with the new file content
         getVfsDriver(dbc).replaceResource(dbc, resource, content, type);
 
-        if ((properties != null) && !properties.isEmpty()) {
-            // write the properties
-            getVfsDriver(dbc).writePropertyObjects(dbc, dbc.currentProject(), resource, properties);
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
-        }
-
-        // update the resource state
-        if (resource.getState().isUnchanged()) {
-            resource.setState(CmsResource.STATE_CHANGED);
-        }
-        resource.setUserLastModified(dbc.currentUser().getId());
-
-        // log it
-        log(dbc, new CmsLogEntry(
-            dbc,
-            resource.getStructureId(),
-            CmsLogEntryType.RESOURCE_CONTENT_MODIFIED,
-            new String[] {resource.getRootPath()}), false);
-
-        setDateLastModified(dbc, resource, System.currentTimeMillis());
-
-        getVfsDriver(dbc).writeResourceState(dbc, dbc.currentProject(), resource, UPDATE_RESOURCE, false);
-
-        deleteRelationsWithSiblings(dbc, resource);
+        updateReplacedResource(dbc, resource, properties);
+    }
 
-        // clear the cache
-        m_monitor.clearResourceCache();
+    /**
+     * Replaces the content, type and properties of a resource, reading the new content from a stream.<p>
+     * 
+     * The content is streamed into the content tables by the VFS driver, its size and checksum are 
+     * computed while reading. If the length is not known in advance, the content is spooled to a 
+     * temporary file first. The stream is not closed by this method.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the name of the resource to apply this operation to
+     * @param type the new type of the resource
+     * @param content the stream to read the new content of the resource from
+     * @param length the length of the new content, or <code>-1</code> if not known
+     * @param properties the new properties of the resource
+     * 
+     * @throws CmsException if something goes wrong
+     * 
+     * @see CmsObject#replaceResource(String, int, InputStream, long, List)
+     * @see I_CmsResourceType#replaceResource(CmsObject, CmsSecurityManager, CmsResource, int, InputStream, long, List)
+     */
+    public void replaceResource(
+        CmsDbContext dbc,
+        CmsResource resource,
+        int type,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException {
 
-        if ((properties != null) && !properties.isEmpty()) {
-            // resource and properties were modified
-            OpenCms.fireCmsEvent(new CmsEvent(
-                I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
-                Collections.<String, Object> singletonMap(I_CmsEventListener.KEY_RESOURCE, resource)));
-        } else {
-            // only the resource was modified
-            Map<String, Object> data = new HashMap<String, Object>(2);
-            data.put(I_CmsEventListener.KEY_RESOURCE, resource);
-            data.put(I_CmsEventListener.KEY_CHANGE, new Integer(CHANGED_RESOURCE | CHANGED_CONTENT));
-            OpenCms.fireCmsEvent(new CmsEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, data));
+        CmsStreamedContent streamedContent;
+        try {
+            // the checksum is only used for the debug log
+            streamedContent = new CmsStreamedContent(resource.getRootPath(), content, length, LOG.isDebugEnabled());
+        } catch (IOException e) {
+            throw new CmsVfsException(Messages.get().container(
+                Messages.ERR_SPOOL_CONTENT_1,
+                dbc.removeSiteRoot(resource.getRootPath())), e);
+        }
+        try {
+            if (streamedContent.getLength() > Integer.MAX_VALUE) {
+                throw new CmsVfsException(Messages.get().container(
+                    Messages.ERR_CONTENT_TOO_LARGE_2,
+                    dbc.removeSiteRoot(resource.getRootPath()),
+                    new Long(streamedContent.getLength())));
+            }
+            try {
+                // replace the existing with the new file content
+                getVfsDriver(dbc).replaceResource(
+                    dbc,
+                    resource,
+                    streamedContent,
+                    (int)streamedContent.getLength(),
+                    type);
+            } catch (CmsDataAccessException e) {
+                if (streamedContent.isIncomplete()) {
+                    // the stream ended before the announced length was reached, nothing has been written
+                    throw new CmsVfsException(Messages.get().container(
+                        Messages.ERR_CONTENT_LENGTH_MISMATCH_3,
+                        dbc.removeSiteRoot(resource.getRootPath()),
+                        new Long(streamedContent.getLength()),
+                        new Long(streamedContent.getCount())), e);
+                }
+                throw e;
+            }
+        } finally {
+            try {
+                streamedContent.close();
+            } catch (IOException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+            }
         }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(
+                Messages.LOG_CONTENT_STREAMED_4,
+                new Object[] {
+                    resource.getRootPath(),
+                    new Long(streamedContent.getCount()),
+                    Long.toHexString(streamedContent.getChecksum()),
+                    Boolean.valueOf(streamedContent.isSpooled())}));
+        }
+
+        updateReplacedResource(dbc, resource, properties);
     }
 
     /**
@@ -8731,13 +8842,13 @@ public final class CmsDriverManager implements I_CmsEventListener {
     throws CmsException {
 
         // update the resource cache
-        m_monitor.clearResourceCache();
+        clearResourceCaches(dbc, resource, false);
 
         // now update lock status
         m_lockManager.removeResource(dbc, resource, force, removeSystemLock);
 
         // we must also clear the permission cache
-        m_monitor.flushCache(CmsMemoryMonitor.CacheType.PERMISSION);
+        clearPermissionCache(dbc, resource);
 
         // fire resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9081,7 +9192,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         setDateLastModified(dbc, resource, resource.getDateLastModified());
 
         // clear the cache
-        m_monitor.clearAccessControlListCache();
+        clearAccessControlCaches(dbc, resource);
 
         // fire a resource modification event
         Map<String, Object> data = new HashMap<String, Object>(2);
@@ -9259,7 +9370,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         deleteRelationsWithSiblings(dbc, resource);
 
         // update the cache
-        m_monitor.clearResourceCache();
+        clearResourceCaches(dbc, resource, false);
 
         Map<String, Object> data = new HashMap<String, Object>(2);
         data.put(I_CmsEventListener.KEY_RESOURCE, resource);
@@ -9430,8 +9541,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         } finally {
             // update the driver manager cache
-            m_monitor.clearResourceCache();
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            clearResourceCaches(dbc, resource, true);
 
             // fire an event that a property of a resource has been modified
             Map<String, Object> data = new HashMap<String, Object>();
@@ -9511,8 +9621,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
         } finally {
             // update the driver manager cache
-            m_monitor.clearResourceCache();
-            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            clearResourceCaches(dbc, resource, true);
 
             // fire an event that the properties of a resource have been modified
             OpenCms.fireCmsEvent(new CmsEvent(
@@ -9579,7 +9688,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
         }
 
         // update the cache
-        m_monitor.clearResourceCache();
+        clearResourceCaches(dbc, resource, false);
         Map<String, Object> data = new HashMap<String, Object>(2);
         data.put(I_CmsEventListener.KEY_RESOURCE, resource);
         data.put(I_CmsEventListener.KEY_CHANGE, new Integer(CHANGED_RESOURCE));
@@ -9959,16 +10068,84 @@ public final class CmsDriverManager implements I_CmsEventListener {
         publishList.addAll(filterResources(dbc, publishList, fileList), true);
     }
 
+    /**
+     * Caches the given property list together with its dependencies.<p>
+     * 
+     * @param cacheKey the cache key
+     * @param resource the resource the properties were read for
+     * @param search <code>true</code> if the properties were searched on the parent folders
+     * @param properties the property list to cache
+     */
+    private void cachePropertyList(String cacheKey, CmsResource resource, boolean search, List<CmsProperty> properties) {
+
+        if (m_monitor.isDependencyTracking()) {
+            List<String> dependencies = new ArrayList<String>();
+            if (search) {
+                CmsCacheDependencies.addParentPathTags(dependencies, resource.getRootPath());
+            } else {
+                dependencies.add(CmsCacheDependencies.getPathTag(resource.getRootPath()));
+            }
+            dependencies.add(CmsCacheDependencies.getResourceTag(resource.getResourceId()));
+            m_monitor.addCacheDependencies(CmsMemoryMonitor.CacheType.PROPERTY_LIST, cacheKey, dependencies);
+        }
+        m_monitor.cachePropertyList(cacheKey, properties);
+    }
+
+    /**
+     * Caches the given resource together with its dependencies.<p>
+     * 
+     * @param cacheKey the cache key
+     * @param resource the resource to cache
+     */
+    private void cacheResource(String cacheKey, CmsResource resource) {
+
+        if (m_monitor.isDependencyTracking()) {
+            List<String> dependencies = new ArrayList<String>(2);
+            dependencies.add(CmsCacheDependencies.getPathTag(resource.getRootPath()));
+            dependencies.add(CmsCacheDependencies.getResourceTag(resource.getResourceId()));
+            m_monitor.addCacheDependencies(CmsMemoryMonitor.CacheType.RESOURCE, cacheKey, dependencies);
+        }
+        m_monitor.cacheResource(cacheKey, resource);
+    }
+
+    /**
+     * Caches the given list of resources read from a folder together with its dependencies.<p>
+     * 
+     * The list depends on the contents of the folder, on the permissions inherited from 
+     * the parent folders and on the current user.<p>
+     * 
+     * @param dbc the current database context
+     * @param cacheKey the cache key
+     * @param folderPath the root path of the folder the resources were read from
+     * @param resourceList the list of resources to cache
+     */
+    private void cacheResourceList(CmsDbContext dbc, String cacheKey, String folderPath, List<CmsResource> resourceList) {
+
+        if (m_monitor.isDependencyTracking()) {
+            List<String> dependencies = new ArrayList<String>();
+            dependencies.add(CmsCacheDependencies.getTreeTag(folderPath));
+            CmsCacheDependencies.addParentPathTags(dependencies, folderPath);
+            dependencies.add(CmsCacheDependencies.getPrincipalTag(dbc.currentUser().getId()));
+            m_monitor.addCacheDependencies(CmsMemoryMonitor.CacheType.RESOURCE_LIST, cacheKey, dependencies);
+        }
+        m_monitor.cacheResourceList(cacheKey, resourceList);
+    }
+
     /**
      * Checks the parent of a resource during publishing.<p> 
      * 
      * @param dbc the current database context
-     * @param deletedFolders a list of deleted folders
+     * @param publishList the unfinished publish list
+     * @param parents the parent folders already read during this check, by root path
      * @param res a resource to check the parent for
      * 
      * @return <code>true</code> if the parent resource will be deleted during publishing
      */
-    private boolean checkDeletedParentFolder(CmsDbContext dbc, List<CmsResource> deletedFolders, CmsResource res) {
+    private boolean checkDeletedParentFolder(
+        CmsDbContext dbc,
+        CmsPublishList publishList,
+        Map<String, CmsResource> parents,
+        CmsResource res) {
 
         String parentPath = CmsResource.getParentFolder(res.getRootPath());
 
@@ -9977,10 +10154,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
             return false;
         }
 
-        CmsResource parent;
-        try {
-            parent = readResource(dbc, parentPath, CmsResourceFilter.ALL);
-        } catch (Exception e) {
+        CmsResource parent = readParentForPublishing(dbc, parents, parentPath);
+        if (parent == null) {
             // failure: if we cannot read the parent, we should not publish the resource
             return false;
         }
@@ -9990,15 +10165,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
             return false;
         }
 
-        for (int j = 0; j < deletedFolders.size(); j++) {
-            if ((deletedFolders.get(j)).getStructureId().equals(parent.getStructureId())) {
-                // parent is deleted, and it will get published
-                return true;
-            }
-        }
-
-        // parent is new, but it will not get published
-        return false;
+        // if the parent is deleted it must get published, too
+        return publishList.containsResource(parent);
     }
 
     /**
@@ -10047,12 +10215,19 @@ public final class CmsDriverManager implements I_CmsEventListener {
      * Checks the parent of a resource during publishing.<p> 
      * 
      * @param dbc the current database context
-     * @param folderList a list of folders
+     * @param publishList the unfinished publish list, may be <code>null</code>
+     * @param folderIds the structure ids of the folders that get published and are not yet in the publish list
+     * @param parents the parent folders already read during this check, by root path
      * @param res a resource to check the parent for
      * 
      * @return true if the resource should be published
      */
-    private boolean checkParentResource(CmsDbContext dbc, List<CmsResource> folderList, CmsResource res) {
+    private boolean checkParentResource(
+        CmsDbContext dbc,
+        CmsPublishList publishList,
+        Set<CmsUUID> folderIds,
+        Map<String, CmsResource> parents,
+        CmsResource res) {
 
         String parentPath = CmsResource.getParentFolder(res.getRootPath());
 
@@ -10061,10 +10236,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
             return true;
         }
 
-        CmsResource parent;
-        try {
-            parent = readResource(dbc, parentPath, CmsResourceFilter.ALL);
-        } catch (Exception e) {
+        CmsResource parent = readParentForPublishing(dbc, parents, parentPath);
+        if (parent == null) {
             // failure: if we cannot read the parent, we should not publish the resource
             return false;
         }
@@ -10074,15 +10247,78 @@ public final class CmsDriverManager implements I_CmsEventListener {
             return true;
         }
 
-        for (int j = 0; j < folderList.size(); j++) {
-            if (folderList.get(j).getStructureId().equals(parent.getStructureId())) {
-                // parent is new, but it will get published
-                return true;
-            }
+        // if the parent is new it must get published, too
+        return folderIds.contains(parent.getStructureId())
+            || ((publishList != null) && publishList.containsResource(parent));
+    }
+
+    /**
+     * Clears the caches depending on the access control entries of the given resource.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the resource whose access control entries have changed
+     */
+    private void clearAccessControlCaches(CmsDbContext dbc, CmsResource resource) {
+
+        if (m_monitor.isDependencyTracking()) {
+            invalidateResourceCaches(
+                dbc,
+                resource,
+                CmsMemoryMonitor.CacheType.ACL,
+                CmsMemoryMonitor.CacheType.PERMISSION,
+                CmsMemoryMonitor.CacheType.RESOURCE,
+                CmsMemoryMonitor.CacheType.RESOURCE_LIST);
+        } else {
+            m_monitor.clearAccessControlListCache();
         }
+    }
 
-        // parent is new, but it will not get published
-        return false;
+    /**
+     * Clears the cached permission checks depending on the lock state of the given resource.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the resource whose lock state has changed
+     */
+    private void clearPermissionCache(CmsDbContext dbc, CmsResource resource) {
+
+        if (m_monitor.isDependencyTracking()) {
+            invalidateResourceCaches(dbc, resource, CmsMemoryMonitor.CacheType.PERMISSION);
+        } else {
+            m_monitor.flushCache(CmsMemoryMonitor.CacheType.PERMISSION);
+        }
+    }
+
+    /**
+     * Clears the caches depending on the given resource after its attributes, content or properties have changed.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the changed resource
+     * @param properties <code>true</code> if the properties of the resource have changed
+     */
+    private void clearResourceCaches(CmsDbContext dbc, CmsResource resource, boolean properties) {
+
+        if (m_monitor.isDependencyTracking()) {
+            if (properties) {
+                invalidateResourceCaches(
+                    dbc,
+                    resource,
+                    CmsMemoryMonitor.CacheType.RESOURCE,
+                    CmsMemoryMonitor.CacheType.RESOURCE_LIST,
+                    CmsMemoryMonitor.CacheType.PROPERTY,
+                    CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            } else {
+                invalidateResourceCaches(
+                    dbc,
+                    resource,
+                    CmsMemoryMonitor.CacheType.RESOURCE,
+                    CmsMemoryMonitor.CacheType.RESOURCE_LIST);
+            }
+        } else {
+            m_monitor.clearResourceCache();
+            if (properties) {
+                m_monitor.flushCache(CmsMemoryMonitor.CacheType.PROPERTY, CmsMemoryMonitor.CacheType.PROPERTY_LIST);
+            }
+        }
     }
 
     /**
@@ -10170,11 +10406,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
 
         List<CmsResource> result = new ArrayList<CmsResource>();
 
-        // local folder list for adding new publishing subfolders
+        // local folder ids for adding new publishing subfolders,
+        // the folders already contained in the publish list are looked up in the list
         // this solves the {@link org.opencms.file.TestPublishIssues#testPublishScenarioD} problem.
-        List<CmsResource> newFolderList = new ArrayList<CmsResource>(publishList == null
-        ? resourceList
-        : publishList.getFolderList());
+        Set<CmsUUID> newFolderIds = (publishList == null) ? getStructureIds(resourceList) : new HashSet<CmsUUID>();
+        // most resources share their parent folders, so read each of them only once
+        Map<String, CmsResource> parents = new HashMap<String, CmsResource>();
 
         for (int i = 0; i < resourceList.size(); i++) {
             CmsResource res = resourceList.get(i);
@@ -10189,7 +10426,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     // this solves the {@link org.opencms.file.TestPublishIssues#testPublishScenarioE} problem.
                     if (lock.isShared() && (publishList != null)) {
                         if (!res.getState().isDeleted()
-                            || !checkDeletedParentFolder(dbc, publishList.getDeletedFolderList(), res)) {
+                            || !checkDeletedParentFolder(dbc, publishList, parents, res)) {
                             continue;
                         }
                     } else {
@@ -10197,7 +10434,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
                         continue;
                     }
                 }
-                if (!"/".equals(res.getRootPath()) && !checkParentResource(dbc, newFolderList, res)) {
+                if (!"/".equals(res.getRootPath())
+                    && !checkParentResource(dbc, publishList, newFolderIds, parents, res)) {
                     continue;
                 }
                 // check permissions
@@ -10213,7 +10451,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     continue;
                 }
                 if (res.isFolder()) {
-                    newFolderList.add(res);
+                    newFolderIds.add(res.getStructureId());
                 }
                 result.add(res);
             } catch (Exception e) {
@@ -10244,6 +10482,8 @@ public final class CmsDriverManager implements I_CmsEventListener {
         List<CmsResource> result = new ArrayList<CmsResource>();
 
         // removed internal extendible folder list, since iterated (sibling) resources are files in any case, never folders
+        Set<CmsUUID> folderIds = Collections.emptySet();
+        Map<String, CmsResource> parents = new HashMap<String, CmsResource>();
 
         for (Iterator<CmsResource> i = resourceList.iterator(); i.hasNext();) {
             CmsResource res = i.next();
@@ -10258,7 +10498,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                     // this solves the {@link org.opencms.file.TestPublishIssues#testPublishScenarioE} problem.
                     if (lock.isShared() && (publishList != null)) {
                         if (!res.getState().isDeleted()
-                            || !checkDeletedParentFolder(dbc, publishList.getDeletedFolderList(), res)) {
+                            || !checkDeletedParentFolder(dbc, publishList, parents, res)) {
                             continue;
                         }
                     } else {
@@ -10266,7 +10506,7 @@ public final class CmsDriverManager implements I_CmsEventListener {
                         continue;
                     }
                 }
-                if (!"/".equals(res.getRootPath()) && !checkParentResource(dbc, publishList.getFolderList(), res)) {
+                if (!"/".equals(res.getRootPath()) && !checkParentResource(dbc, publishList, folderIds, parents, res)) {
                     // don't add resources that have no parent in the online project
                     continue;
                 }
@@ -10381,6 +10621,12 @@ public final class CmsDriverManager implements I_CmsEventListener {
             }
         }
         if (dbc.getProjectId().isNullUUID()) {
+            if (m_monitor.isDependencyTracking()) {
+                List<String> dependencies = new ArrayList<String>();
+                CmsCacheDependencies.addParentPathTags(dependencies, resource.getRootPath());
+                dependencies.add(CmsCacheDependencies.getResourceTag(resource.getResourceId()));
+                m_monitor.addCacheDependencies(CmsMemoryMonitor.CacheType.ACL, cacheKey, dependencies);
+            }
             m_monitor.cacheACL(cacheKey, acl);
         }
         return acl;
@@ -10452,6 +10698,22 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return projectId;
     }
 
+    /**
+     * Returns the structure ids of the given resources.<p>
+     * 
+     * @param resources the resources
+     * 
+     * @return a modifiable set of structure ids
+     */
+    private Set<CmsUUID> getStructureIds(List<CmsResource> resources) {
+
+        Set<CmsUUID> result = new HashSet<CmsUUID>(resources.size());
+        for (CmsResource resource : resources) {
+            result.add(resource.getStructureId());
+        }
+        return result;
+    }
+
     /**
      * Returns if and what state needs to be updated.<p>
      * 
@@ -10664,6 +10926,41 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return allUsers;
     }
 
+    /**
+     * Removes the entries depending on the given resource and its siblings from the given caches.<p>
+     * 
+     * This removes the entries for the resource itself, all entries inheriting data from it 
+     * and all cached resource lists of the folders containing it or one of its siblings.<p>
+     * 
+     * If the siblings can not be read, the given caches are flushed completely.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the changed resource
+     * @param types the cache types to invalidate
+     */
+    private void invalidateResourceCaches(CmsDbContext dbc, CmsResource resource, CmsMemoryMonitor.CacheType... types) {
+
+        List<CmsResource> siblings = Collections.singletonList(resource);
+        if (resource.getSiblingCount() > 1) {
+            try {
+                siblings = getVfsDriver(dbc).readSiblings(dbc, dbc.currentProject().getUuid(), resource, true);
+            } catch (CmsDataAccessException e) {
+                LOG.error(e.getLocalizedMessage(), e);
+                m_monitor.flushCache(types);
+                return;
+            }
+        }
+        Set<String> dependencies = new HashSet<String>();
+        dependencies.add(CmsCacheDependencies.getResourceTag(resource.getResourceId()));
+        dependencies.add(CmsCacheDependencies.getPathTag(resource.getRootPath()));
+        CmsCacheDependencies.addParentTreeTags(dependencies, resource.getRootPath());
+        for (CmsResource sibling : siblings) {
+            dependencies.add(CmsCacheDependencies.getPathTag(sibling.getRootPath()));
+            CmsCacheDependencies.addParentTreeTags(dependencies, sibling.getRootPath());
+        }
+        m_monitor.invalidateCache(dependencies, types);
+    }
+
     /**
      * Reads all resources that are inside and changed in a specified project.<p>
      * 
@@ -10739,6 +11036,29 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Reads a parent folder while checking the resources to publish.<p>
+     * 
+     * @param dbc the current database context
+     * @param parents the parent folders already read, by root path
+     * @param parentPath the root path of the parent folder
+     * 
+     * @return the parent folder, or <code>null</code> if it can not be read
+     */
+    private CmsResource readParentForPublishing(CmsDbContext dbc, Map<String, CmsResource> parents, String parentPath) {
+
+        CmsResource parent = parents.get(parentPath);
+        if (parent == null) {
+            try {
+                parent = readResource(dbc, parentPath, CmsResourceFilter.ALL);
+            } catch (Exception e) {
+                return null;
+            }
+            parents.put(parentPath, parent);
+        }
+        return parent;
+    }
+
     /**
      * Sorts the given list of {@link CmsAccessControlEntry} objects.<p>
      * 
@@ -11144,6 +11464,59 @@ public final class CmsDriverManager implements I_CmsEventListener {
         return result;
     }
 
+    /**
+     * Updates state, properties, relations and caches of a resource after its content was replaced.<p>
+     * 
+     * @param dbc the current database context
+     * @param resource the resource whose content was replaced
+     * @param properties the new properties of the resource
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    private void updateReplacedResource(CmsDbContext dbc, CmsResource resource, List<CmsProperty> properties)
+    throws CmsException {
+
+        if ((properties != null) && !properties.isEmpty()) {
+            // write the properties
+            getVfsDriver(dbc).writePropertyObjects(dbc, dbc.currentProject(), resource, properties);
+        }
+
+        // update the resource state
+        if (resource.getState().isUnchanged()) {
+            resource.setState(CmsResource.STATE_CHANGED);
+        }
+        resource.setUserLastModified(dbc.currentUser().getId());
+
+        // log it
+        log(dbc, new CmsLogEntry(
+            dbc,
+            resource.getStructureId(),
+            CmsLogEntryType.RESOURCE_CONTENT_MODIFIED,
+            new String[] {resource.getRootPath()}), false);
+
+        setDateLastModified(dbc, resource, System.currentTimeMillis());
+
+        getVfsDriver(dbc).writeResourceState(dbc, dbc.currentProject(), resource, UPDATE_RESOURCE, false);
+
+        deleteRelationsWithSiblings(dbc, resource);
+
+        // clear the cache
+        clearResourceCaches(dbc, resource, (properties != null) && !properties.isEmpty());
+
+        if ((properties != null) && !properties.isEmpty()) {
+            // resource and properties were modified
+            OpenCms.fireCmsEvent(new CmsEvent(
+                I_CmsEventListener.EVENT_RESOURCE_AND_PROPERTIES_MODIFIED,
+                Collections.<String, Object> singletonMap(I_CmsEventListener.KEY_RESOURCE, resource)));
+        } else {
+            // only the resource was modified
+            Map<String, Object> data = new HashMap<String, Object>(2);
+            data.put(I_CmsEventListener.KEY_RESOURCE, resource);
+            data.put(I_CmsEventListener.KEY_CHANGE, new Integer(CHANGED_RESOURCE | CHANGED_CONTENT));
+            OpenCms.fireCmsEvent(new CmsEvent(I_CmsEventListener.EVENT_RESOURCE_MODIFIED, data));
+        }
+    }
+
     /**
      * Updates the state of a resource, depending on the <code>resourceState</code> parameter.<p>
      * 
@@ -127,6 +127,9 @@ public class CmsPublishList implements Externalizable {
     /** Indicates if sub-resources in folders should be published (for direct publish only). */
     private boolean m_publishSubResources;
 
+    /** The structure ids of all resources in the file, folder and deleted folder lists, for fast lookups. */
+    private Set<CmsUUID> m_structureIds;
+
     /**
      * Empty constructor.<p> 
      */
@@ -209,6 +212,7 @@ public class CmsPublishList implements Externalizable {
         m_fileList = new ArrayList<CmsResource>();
         m_folderList = new ArrayList<CmsResource>();
         m_deletedFolderList = new ArrayList<CmsResource>();
+        m_structureIds = new HashSet<CmsUUID>();
         m_publishHistoryId = new CmsUUID();
         m_publishSiblings = publishSiblings;
         m_publishSubResources = publishSubResources;
@@ -333,6 +337,53 @@ public class CmsPublishList implements Externalizable {
         return result;
     }
 
+    /**
+     * Checks if this publish list and the given publish list touch the same resources.<p>
+     *
+     * This is the case if both lists contain the same resource or siblings of the same resource,
+     * or if one of the lists contains a folder that is a parent folder of a resource in the other list.<p>
+     *
+     * Publish lists that do not intersect can be published at the same time.<p>
+     *
+     * @param publishList the publish list to check
+     *
+     * @return <code>true</code> if both publish lists touch the same resources
+     */
+    public boolean intersects(CmsPublishList publishList) {
+
+        Set<CmsUUID> ids = new HashSet<CmsUUID>();
+        Set<String> paths = new HashSet<String>();
+        Set<String> parentPaths = new HashSet<String>();
+        for (CmsResource resource : getAllResources()) {
+            ids.add(resource.getStructureId());
+            ids.add(resource.getResourceId());
+            paths.add(resource.getRootPath());
+            String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+            while ((parentPath != null) && parentPaths.add(parentPath)) {
+                parentPath = CmsResource.getParentFolder(parentPath);
+            }
+        }
+        for (CmsResource resource : publishList.getAllResources()) {
+            if (ids.contains(resource.getStructureId()) || ids.contains(resource.getResourceId())) {
+                // same resource or sibling
+                return true;
+            }
+            if (paths.contains(resource.getRootPath()) || parentPaths.contains(resource.getRootPath())) {
+                // same path or parent folder of a resource in this list
+                return true;
+            }
+            String parentPath = CmsResource.getParentFolder(resource.getRootPath());
+            while (parentPath != null) {
+                if (paths.contains(parentPath)) {
+                    // a resource in this list is a parent folder
+                    return true;
+                }
+                parentPath = CmsResource.getParentFolder(parentPath);
+            }
+        }
+        return false;
+    }
+
     /**
      * Checks if this is a publish list is used for a "direct publish" operation.<p>
      * 
@@ -420,6 +471,15 @@ public class CmsPublishList implements Externalizable {
             if (m_deletedFolderUUIDs != null) {
                 m_deletedFolderList = internalReadResourceList(cms, m_deletedFolderUUIDs);
             }
+            m_structureIds = new HashSet<CmsUUID>();
+            internalAddStructureIds(m_fileList);
+            internalAddStructureIds(m_folderList);
+            internalAddStructureIds(m_deletedFolderList);
+            // the resources are written from the lists again, so the ids are not needed anymore
+            m_directPublishResourceUUIDs = null;
+            m_fileUUIDs = null;
+            m_folderUUIDs = null;
+            m_deletedFolderUUIDs = null;
             m_needsRevive = false;
         }
     }
@@ -538,24 +598,19 @@ public class CmsPublishList implements Externalizable {
                     resource.getRootPath()));
             }
         }
+        if (!m_structureIds.add(resource.getStructureId())) {
+            // only add resources not already contained in the list
+            // this is required to make sure no siblings are duplicated
+            return;
+        }
         if (resource.isFolder()) {
             if (resource.getState().isDeleted()) {
-                if (!m_deletedFolderList.contains(resource)) {
-                    // only add files not already contained in the list
-                    m_deletedFolderList.add(resource);
-                }
+                m_deletedFolderList.add(resource);
             } else {
-                if (!m_folderList.contains(resource)) {
-                    // only add files not already contained in the list
-                    m_folderList.add(resource);
-                }
+                m_folderList.add(resource);
             }
         } else {
-            if (!m_fileList.contains(resource)) {
-                // only add files not already contained in the list
-                // this is required to make sure no siblings are duplicated
-                m_fileList.add(resource);
-            }
+            m_fileList.add(resource);
         }
     }
 
@@ -605,7 +660,7 @@ public class CmsPublishList implements Externalizable {
      */
     protected boolean containsResource(CmsResource res) {
 
-        return m_deletedFolderList.contains(res) || m_folderList.contains(res) || m_fileList.contains(res);
+        return m_structureIds.contains(res.getStructureId());
     }
 
     /**
@@ -725,12 +780,29 @@ public class CmsPublishList implements Externalizable {
     protected boolean remove(CmsResource resource) {
 
         // it is essential that this method is only visible within the db package!
+        if (!m_structureIds.remove(resource.getStructureId())) {
+            return false;
+        }
         boolean ret = m_fileList.remove(resource);
         ret |= m_folderList.remove(resource);
         ret |= m_deletedFolderList.remove(resource);
         return ret;
     }
 
+    /**
+     * Adds the structure ids of the given resources to the lookup set.<p>
+     * 
+     * @param resources the resources, may be <code>null</code>
+     */
+    private void internalAddStructureIds(List<CmsResource> resources) {
+
+        if (resources != null) {
+            for (CmsResource resource : resources) {
+                m_structureIds.add(resource.getStructureId());
+            }
+        }
+    }
+
     /**
      * Builds a list of <code>CmsResource</code> instances from a list of resource structure IDs.<p>
      * 
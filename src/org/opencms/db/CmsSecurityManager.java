@@ -88,6 +88,7 @@ import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -3742,6 +3743,34 @@ public final class CmsSecurityManager {
         return result;
     }
 
+    /**
+     * Reads the binary content of a file resource as a stream.<p>
+     * 
+     * The returned stream must be closed by the caller.<p>
+     * 
+     * @param context the current request context
+     * @param resource the file resource to read the content for
+     * 
+     * @return the content of the file as a stream
+     * 
+     * @throws CmsException if something goes wrong
+     * 
+     * @see CmsObject#readContentStream(CmsResource)
+     */
+    public InputStream readContentStream(CmsRequestContext context, CmsResource resource) throws CmsException {
+
+        InputStream result = null;
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            result = m_driverManager.readContentStream(dbc, resource);
+        } catch (Exception e) {
+            dbc.report(null, Messages.get().container(Messages.ERR_READ_FILE_1, context.getSitePath(resource)), e);
+        } finally {
+            dbc.clear();
+        }
+        return result;
+    }
+
     /**
      * Returns the default file for the given folder.<p>
      * 
@@ -5204,6 +5233,49 @@ public final class CmsSecurityManager {
         }
     }
 
+    /**
+     * Replaces the content, type and properties of a resource, reading the new content from a stream.<p>
+     * 
+     * @param context the current request context
+     * @param resource the name of the resource to apply this operation to
+     * @param type the new type of the resource
+     * @param content the stream to read the new content of the resource from
+     * @param length the length of the new content, or <code>-1</code> if not known
+     * @param properties the new properties of the resource
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws CmsSecurityException if the user has insufficient permission for the given resource (write access permission is required)
+     * 
+     * @see CmsObject#replaceResource(String, int, InputStream, long, List)
+     * @see org.opencms.file.types.I_CmsResourceType#replaceResource(CmsObject, CmsSecurityManager, CmsResource, int, InputStream, long, List)
+     */
+    public void replaceResource(
+        CmsRequestContext context,
+        CmsResource resource,
+        int type,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException, CmsSecurityException {
+
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(context);
+        try {
+            checkOfflineProject(dbc);
+            checkPermissions(dbc, resource, CmsPermissionSet.ACCESS_WRITE, true, CmsResourceFilter.ALL);
+            if (CmsResourceTypeJsp.isJspTypeId(type)) {
+                // security check preventing the creation of a jsp file without permissions
+                checkRoleForResource(dbc, CmsRole.DEVELOPER, resource);
+            }
+            m_driverManager.replaceResource(dbc, resource, type, content, length, properties);
+        } catch (Exception e) {
+            dbc.report(
+                null,
+                Messages.get().container(Messages.ERR_REPLACE_RESOURCE_1, context.getSitePath(resource)),
+                e);
+        } finally {
+            dbc.clear();
+        }
+    }
+
     /**
      * Resets the password for a specified user.<p>
      *
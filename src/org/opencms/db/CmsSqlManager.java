@@ -127,4 +127,16 @@ public class CmsSqlManager {
 
         return m_driverManager.getIdleConnections(dbPoolUrl);
     }
+
+    /**
+     * Returns the statement cache of a pool, with the cache hit and miss statistics.<p>
+     * 
+     * @param dbPoolUrl the url of a pool
+     * 
+     * @return the statement cache of the pool, or <code>null</code> if the pool does not cache statements
+     */
+    public CmsDbStatementCache getStatementCache(String dbPoolUrl) {
+
+        return CmsDbPool.getStatementCache(dbPoolUrl);
+    }
 }
\ No newline at end of file
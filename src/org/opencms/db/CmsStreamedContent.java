@@ -0,0 +1,297 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.util.CmsFileUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * A file content that is streamed into the VFS.<p>
+ * 
+ * The size of the content is counted while the database driver reads the bytes. If requested,
+ * the CRC-32 checksum of the content is computed as well.
+ * The drivers need to know the length of the content before they start reading, so a content of unknown 
+ * length is spooled to a temporary file first. The temporary file is deleted when this stream is closed.<p>
+ * 
+ * If the content ends before the announced length is reached, reading fails with an <code>{@link IOException}</code>
+ * instead of reporting the end of the stream, so the database driver never stores a truncated content.<p>
+ * 
+ * @since 8.0.4
+ * 
+ * @see CmsDriverManager#replaceResource(CmsDbContext, org.opencms.file.CmsResource, int, InputStream, long, java.util.List)
+ */
+final class CmsStreamedContent extends FilterInputStream {
+
+    /** The prefix of the temporary spool files. */
+    private static final String SPOOL_FILE_PREFIX = "opencms-content-";
+
+    /** The checksum of the bytes read so far, or <code>null</code> if no checksum is computed. */
+    private final CRC32 m_checksum;
+
+    /** The number of bytes read so far. */
+    private long m_count;
+
+    /** Indicates if the content ended before the announced length was reached. */
+    private boolean m_incomplete;
+
+    /** The length of the content. */
+    private final long m_length;
+
+    /** The root path of the resource the content is written to, used for error messages. */
+    private final String m_rootPath;
+
+    /** The temporary file the content was spooled to, or <code>null</code>. */
+    private File m_spoolFile;
+
+    /**
+     * Creates a new streamed content.<p>
+     * 
+     * @param rootPath the root path of the resource the content is written to
+     * @param content the stream to read the content from
+     * @param length the length of the content, or <code>-1</code> if the length is not known
+     * @param checksum if <code>true</code>, the CRC-32 checksum of the content is computed
+     * 
+     * @throws IOException if the content of unknown length could not be spooled to a temporary file 
+     */
+    CmsStreamedContent(String rootPath, InputStream content, long length, boolean checksum) throws IOException {
+
+        super(content);
+        m_rootPath = rootPath;
+        m_checksum = checksum ? new CRC32() : null;
+        if (length < 0) {
+            m_spoolFile = File.createTempFile(SPOOL_FILE_PREFIX, null);
+            OutputStream out = new BufferedOutputStream(new FileOutputStream(m_spoolFile));
+            try {
+                CmsFileUtil.copy(content, out, 0, -1);
+            } catch (IOException e) {
+                out.close();
+                deleteSpoolFile();
+                throw e;
+            }
+            out.close();
+            length = m_spoolFile.length();
+            in = new BufferedInputStream(new FileInputStream(m_spoolFile));
+        }
+        m_length = length;
+    }
+
+    /**
+     * Closes the content stream and deletes the temporary spool file, if any.<p>
+     * 
+     * The stream the content was initially read from is not closed, this is up to the caller.<p>
+     * 
+     * @see java.io.FilterInputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+
+        if (m_spoolFile != null) {
+            try {
+                in.close();
+            } finally {
+                deleteSpoolFile();
+            }
+        }
+    }
+
+    /**
+     * Returns the CRC-32 checksum of the bytes read so far.<p>
+     * 
+     * @return the CRC-32 checksum of the bytes read so far, or <code>-1</code> if no checksum is computed
+     */
+    public long getChecksum() {
+
+        return (m_checksum != null) ? m_checksum.getValue() : -1;
+    }
+
+    /**
+     * Returns the number of bytes read so far.<p>
+     * 
+     * @return the number of bytes read so far
+     */
+    public long getCount() {
+
+        return m_count;
+    }
+
+    /**
+     * Returns the length of the content.<p>
+     * 
+     * This is either the length given by the caller, or the size of the spooled content.<p>
+     * 
+     * @return the length of the content
+     */
+    public long getLength() {
+
+        return m_length;
+    }
+
+    /**
+     * Returns <code>true</code> if the content ended before the announced length was reached.<p>
+     * 
+     * @return <code>true</code> if the content ended before the announced length was reached
+     */
+    public boolean isIncomplete() {
+
+        return m_incomplete;
+    }
+
+    /**
+     * Returns <code>true</code> if the content was spooled to a temporary file.<p>
+     * 
+     * @return <code>true</code> if the content was spooled to a temporary file
+     */
+    public boolean isSpooled() {
+
+        return m_spoolFile != null;
+    }
+
+    /**
+     * Marks are not supported, since the number of bytes read and the checksum can not be reset.<p>
+     * 
+     * @see java.io.FilterInputStream#mark(int)
+     */
+    @Override
+    public void mark(int readlimit) {
+
+        // noop
+    }
+
+    /**
+     * @see java.io.FilterInputStream#markSupported()
+     */
+    @Override
+    public boolean markSupported() {
+
+        return false;
+    }
+
+    /**
+     * @see java.io.FilterInputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+
+        int b = in.read();
+        if (b >= 0) {
+            if (m_checksum != null) {
+                m_checksum.update(b);
+            }
+            m_count++;
+        } else {
+            checkComplete();
+        }
+        return b;
+    }
+
+    /**
+     * @see java.io.FilterInputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        int result = in.read(b, off, len);
+        if (result > 0) {
+            if (m_checksum != null) {
+                m_checksum.update(b, off, result);
+            }
+            m_count += result;
+        } else if (result < 0) {
+            checkComplete();
+        }
+        return result;
+    }
+
+    /**
+     * @see java.io.FilterInputStream#reset()
+     */
+    @Override
+    public void reset() throws IOException {
+
+        throw new IOException(Messages.get().getBundle().key(Messages.ERR_MARK_NOT_SUPPORTED_1, m_rootPath));
+    }
+
+    /**
+     * Skips bytes by reading them, so they are included in the checksum.<p>
+     * 
+     * @see java.io.FilterInputStream#skip(long)
+     */
+    @Override
+    public long skip(long n) throws IOException {
+
+        byte[] buf = new byte[(int)Math.min(8192, Math.max(n, 0))];
+        long skipped = 0;
+        while (skipped < n) {
+            int len = read(buf, 0, (int)Math.min(buf.length, n - skipped));
+            if (len < 0) {
+                break;
+            }
+            skipped += len;
+        }
+        return skipped;
+    }
+
+    /**
+     * Checks that the announced length has been read when the end of the content is reached.<p>
+     * 
+     * @throws IOException if the content ended before the announced length was reached
+     */
+    private void checkComplete() throws IOException {
+
+        if (m_count < m_length) {
+            m_incomplete = true;
+            throw new IOException(Messages.get().getBundle().key(
+                Messages.ERR_CONTENT_LENGTH_MISMATCH_3,
+                m_rootPath,
+                new Long(m_length),
+                new Long(m_count)));
+        }
+    }
+
+    /**
+     * Deletes the temporary spool file.<p>
+     */
+    private void deleteSpoolFile() {
+
+        if (!m_spoolFile.delete()) {
+            m_spoolFile.deleteOnExit();
+        }
+        m_spoolFile = null;
+    }
+}
@@ -41,6 +41,7 @@ import org.opencms.relations.CmsRelationFilter;
 import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.util.CmsUUID;
 
+import java.io.InputStream;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -409,6 +410,22 @@ public interface I_CmsVfsDriver {
      */
     byte[] readContent(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId) throws CmsDataAccessException;
 
+    /**
+     * Reads the content of a file specified by it's resource ID as a stream.<p>
+     * 
+     * The stream may keep database resources open, and must always be closed by the caller.<p>
+     * 
+     * @param dbc the current database context
+     * @param projectId the ID of the current project
+     * @param resourceId the id of the resource
+     * 
+     * @return the file content as a stream
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException;
+
     /**
      * Reads a folder specified by it's structure ID.<p>
      *
@@ -761,6 +778,27 @@ public interface I_CmsVfsDriver {
     void replaceResource(CmsDbContext dbc, CmsResource newResource, byte[] newResourceContent, int newResourceType)
     throws CmsDataAccessException;
 
+    /**
+     * Replaces the content of an existing resource with content read from a stream.<p>
+     * 
+     * Exactly <code>length</code> bytes are read from the stream and written to the content tables,
+     * the stream is not closed by this method.<p>
+     * 
+     * @param dbc the current database context
+     * @param newResource the new resource
+     * @param newResourceContent the stream to read the new content from
+     * @param length the number of bytes to read from the stream
+     * @param newResourceType the resource type
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void replaceResource(
+        CmsDbContext dbc,
+        CmsResource newResource,
+        InputStream newResourceContent,
+        int length,
+        int newResourceType) throws CmsDataAccessException;
+
     /**
      * Sets the driver manager for this driver if possible.<p>
      * 
@@ -844,6 +882,21 @@ public interface I_CmsVfsDriver {
      */
     void writeContent(CmsDbContext dbc, CmsUUID resourceId, byte[] content) throws CmsDataAccessException;
 
+    /**
+     * Writes the resource content with the specified resource id, reading it from a stream.<p>
+     * 
+     * Exactly <code>length</code> bytes are read from the stream, the stream is not closed by this method.<p>
+     * 
+     * @param dbc the current database context
+     * @param resourceId the id of the resource used to identify the content to update
+     * @param content the stream to read the new content of the file from
+     * @param length the number of bytes to read from the stream
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    void writeContent(CmsDbContext dbc, CmsUUID resourceId, InputStream content, int length)
+    throws CmsDataAccessException;
+
     /**
      * Writes the "last-modified-in-project" ID of a resource.<p>
      * 
@@ -953,4 +1006,28 @@ public interface I_CmsVfsDriver {
         int changed,
         boolean isPublishing) throws CmsDataAccessException;
 
+    /**
+     * Writes the file state of several resources at once.<p>
+     * 
+     * This has the same effect as calling 
+     * {@link #writeResourceState(CmsDbContext, CmsProject, CmsResource, int, boolean)} for each of 
+     * the given resources, but allows the driver to send the updates to the database in batches.<p>
+     * 
+     * @param dbc the current database context
+     * @param project the current project
+     * @param resources the resources to be updated
+     * @param changed determines whether the structure or resource state, or none of them, is set to "changed"
+     * @param isPublishing if this method is called during publishing to version numbers are updated
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     * 
+     * @see #writeResourceState(CmsDbContext, CmsProject, CmsResource, int, boolean)
+     */
+    void writeResourceStates(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources,
+        int changed,
+        boolean isPublishing) throws CmsDataAccessException;
+
 }
\ No newline at end of file
@@ -108,6 +108,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0 = "ERR_CONFIG_SUBSCRIPTIONMANAGER_FROZEN_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CONTENT_LENGTH_MISMATCH_3 = "ERR_CONTENT_LENGTH_MISMATCH_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CONTENT_TOO_LARGE_2 = "ERR_CONTENT_TOO_LARGE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_COPY_ACE_2 = "ERR_COPY_ACE_2";
 
@@ -324,6 +330,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_LOGIN_MESSAGE_FROZEN_0 = "ERR_LOGIN_MESSAGE_FROZEN_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_MARK_NOT_SUPPORTED_1 = "ERR_MARK_NOT_SUPPORTED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_MARK_RESOURCE_AS_VISITED_2 = "ERR_MARK_RESOURCE_AS_VISITED_2";
 
@@ -615,6 +624,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_SET_USERS_ORGUNIT_2 = "ERR_SET_USERS_ORGUNIT_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_SPOOL_CONTENT_1 = "ERR_SPOOL_CONTENT_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_STATEMENT_CLOSED_1 = "ERR_STATEMENT_CLOSED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_SUBSCRIBE_RESOURCE_FOR_GROUP_2 = "ERR_SUBSCRIBE_RESOURCE_FOR_GROUP_2";
 
@@ -813,9 +828,15 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CMS_EVENT_1 = "LOG_CMS_EVENT_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_CONTENT_STREAMED_4 = "LOG_CONTENT_STREAMED_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CREATE_FOLDER_FAILED_1 = "LOG_CREATE_FOLDER_FAILED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DB_CONNECTION_LEAK_2 = "LOG_DB_CONNECTION_LEAK_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_DELETE_TEMP_PROJECT_FAILED_1 = "LOG_DELETE_TEMP_PROJECT_FAILED_1";
 
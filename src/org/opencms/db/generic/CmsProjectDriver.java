@@ -186,6 +186,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
     /** Attribute name for reading the project of a resource. */
     public static final String DBC_ATTR_READ_PROJECT_FOR_RESOURCE = "DBC_ATTR_READ_PROJECT_FOR_RESOURCE";
 
+    /** The number of published resources for which the state is reset with a single database batch. */
+    public static final int PUBLISH_BATCH_SIZE = 100;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(org.opencms.db.generic.CmsProjectDriver.class);
 
@@ -1555,6 +1558,12 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         int publishedFileCount = 0;
         Set<CmsUUID> publishedContentIds = new HashSet<CmsUUID>();
         Set<CmsUUID> publishedIds = new HashSet<CmsUUID>();
+        List<CmsResource> resetResources = new ArrayList<CmsResource>(PUBLISH_BATCH_SIZE);
+        Set<CmsUUID> resetResourceIds = new HashSet<CmsUUID>();
+        long foldersTime = 0;
+        long filesTime = 0;
+        long deletedFoldersTime = 0;
+        long resetTime = 0;
 
         try {
 
@@ -1586,6 +1595,8 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                     dbc.currentUser().getName()));
             }
 
+            long phaseStart = System.currentTimeMillis();
+            long resetStart;
             publishedFolderCount = 0;
             int foldersSize = publishList.getFolderList().size();
             if (foldersSize > 0) {
@@ -1632,8 +1643,9 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                             OpenCms.getSystemInfo().getHistoryVersions(),
                             -1);
 
-                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
-                        internalResetResourceState(dbc, currentFolder);
+                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0,
+                        // the states of the published resources are written in batches
+                        resetResources.add(currentFolder);
 
                         m_driverManager.unlockResource(dbc, currentFolder, true, true);
                     } else {
@@ -1664,8 +1676,19 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                         Messages.get().container(Messages.ERR_ERROR_PUBLISHING_FOLDER_1, currentFolder.getRootPath()),
                         t);
                 }
+
+                if (resetResources.size() >= PUBLISH_BATCH_SIZE) {
+                    resetStart = System.currentTimeMillis();
+                    internalResetResourceStates(dbc, report, resetResources);
+                    resetTime += System.currentTimeMillis() - resetStart;
+                }
             }
 
+            resetStart = System.currentTimeMillis();
+            internalResetResourceStates(dbc, report, resetResources);
+            resetTime += System.currentTimeMillis() - resetStart;
+            foldersTime = System.currentTimeMillis() - phaseStart;
+
             if (foldersSize > 0) {
                 report.println(
                     Messages.get().container(Messages.RPT_PUBLISH_FOLDERS_END_0),
@@ -1675,6 +1698,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             ///////////////////////////////////////////////////////////////////////////////////////
             // publish changed/new/deleted files
 
+            phaseStart = System.currentTimeMillis();
             publishedFileCount = 0;
             int filesSize = publishList.getFileList().size();
 
@@ -1699,6 +1723,14 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
             Iterator<CmsResource> itFiles = publishList.getFileList().iterator();
             while (itFiles.hasNext()) {
                 CmsResource currentResource = itFiles.next();
+                if ((resetResources.size() >= PUBLISH_BATCH_SIZE)
+                    || resetResourceIds.contains(currentResource.getResourceId())) {
+                    // the pending states have to be written before a sibling of a pending resource is published
+                    resetStart = System.currentTimeMillis();
+                    internalResetResourceStates(dbc, report, resetResources);
+                    resetResourceIds.clear();
+                    resetTime += System.currentTimeMillis() - resetStart;
+                }
                 try {
                     // bounce the current publish task through all project drivers
                     projectDriver.publishFile(
@@ -1714,8 +1746,10 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
 
                     CmsResourceState state = currentResource.getState();
                     if (!state.isDeleted()) {
-                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0
-                        internalResetResourceState(dbc, currentResource);
+                        // reset the resource state to UNCHANGED and the last-modified-in-project-ID to 0,
+                        // the states of the published resources are written in batches
+                        resetResources.add(currentResource);
+                        resetResourceIds.add(currentResource.getResourceId());
                     }
 
                     // unlock it
@@ -1740,6 +1774,12 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                 }
             }
 
+            resetStart = System.currentTimeMillis();
+            internalResetResourceStates(dbc, report, resetResources);
+            resetResourceIds.clear();
+            resetTime += System.currentTimeMillis() - resetStart;
+            filesTime = System.currentTimeMillis() - phaseStart;
+
             if (filesSize > 0) {
                 report.println(Messages.get().container(Messages.RPT_PUBLISH_FILES_END_0), I_CmsReport.FORMAT_HEADLINE);
             }
@@ -1752,6 +1792,7 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                 return;
             }
 
+            phaseStart = System.currentTimeMillis();
             deletedFolderCount = 0;
             int deletedFoldersSize = deletedFolders.size();
             if (deletedFoldersSize > 0) {
@@ -1805,6 +1846,8 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                 }
             }
 
+            deletedFoldersTime = System.currentTimeMillis() - phaseStart;
+
             if (deletedFoldersSize > 0) {
                 report.println(Messages.get().container(Messages.RPT_DELETE_FOLDERS_END_0), I_CmsReport.FORMAT_HEADLINE);
             }
@@ -1833,6 +1876,18 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
                 LOG.info(message.key());
             }
             report.println(message);
+
+            message = Messages.get().container(
+                Messages.RPT_PUBLISH_PHASES_4,
+                new Object[] {
+                    String.valueOf(foldersTime),
+                    String.valueOf(filesTime),
+                    String.valueOf(deletedFoldersTime),
+                    String.valueOf(resetTime)});
+            if (LOG.isInfoEnabled()) {
+                LOG.info(message.key());
+            }
+            report.println(message);
         }
     }
 
@@ -3000,6 +3055,55 @@ public class CmsProjectDriver implements I_CmsDriver, I_CmsProjectDriver {
         }
     }
 
+    /**
+     * Resets the state to UNCHANGED for a list of published resources, 
+     * writing the new states to the database in a single batch.<p>
+     * 
+     * If the batch fails, the states are reset one resource after another, 
+     * so the error is reported for the resource that caused it.<p>
+     * 
+     * @param dbc the current database context
+     * @param report the report to write errors to
+     * @param resources the resources to reset, the list is cleared afterwards
+     * 
+     * @throws CmsException if the state of a single resource could not be reset
+     */
+    protected void internalResetResourceStates(CmsDbContext dbc, I_CmsReport report, List<CmsResource> resources)
+    throws CmsException {
+
+        if (resources.isEmpty()) {
+            return;
+        }
+        try {
+            Iterator<CmsResource> it = resources.iterator();
+            while (it.hasNext()) {
+                it.next().setState(CmsResource.STATE_UNCHANGED);
+            }
+            m_driverManager.getVfsDriver(dbc).writeResourceStates(
+                dbc,
+                dbc.currentProject(),
+                resources,
+                CmsDriverManager.UPDATE_ALL,
+                true);
+        } catch (CmsDataAccessException e) {
+            Iterator<CmsResource> it = resources.iterator();
+            while (it.hasNext()) {
+                CmsResource resource = it.next();
+                try {
+                    internalResetResourceState(dbc, resource);
+                } catch (Throwable t) {
+                    dbc.report(report, Messages.get().container(
+                        resource.isFolder()
+                        ? Messages.ERR_ERROR_PUBLISHING_FOLDER_1
+                        : Messages.ERR_ERROR_PUBLISHING_FILE_1,
+                        resource.getRootPath()), t);
+                }
+            }
+        } finally {
+            resources.clear();
+        }
+    }
+
     /**
      * Serialize publish list to write it as byte array to the database.<p>
      * 
@@ -0,0 +1,165 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db.generic;
+
+import org.opencms.db.CmsDbContext;
+import org.opencms.util.CmsUUID;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the parameters of repeated SQL statements and executes them as JDBC batches on a single connection.<p>
+ * 
+ * One prepared statement is created per query key and project, all parameter sets added for the same 
+ * query are sent to the database with a single call of {@link PreparedStatement#executeBatch()}.<p>
+ * 
+ * The statements are executed in the order in which their queries were first added, so only statements 
+ * that do not depend on each other should be collected in the same batch.<p>
+ * 
+ * @since 8.0.4 
+ */
+public class CmsSqlBatch {
+
+    /** The connection used for all statements of this batch. */
+    private Connection m_connection;
+
+    /** The statement that was used last, for error reporting. */
+    private PreparedStatement m_lastStatement;
+
+    /** The number of parameter sets added since the last execution. */
+    private int m_size;
+
+    /** The SQL manager used to create the prepared statements. */
+    private CmsSqlManager m_sqlManager;
+
+    /** The prepared statements of this batch, mapped by project id and query key. */
+    private Map<String, PreparedStatement> m_statements;
+
+    /**
+     * Creates a new SQL batch.<p>
+     * 
+     * @param sqlManager the SQL manager used to create the prepared statements
+     * @param conn the connection used for all statements of this batch
+     */
+    public CmsSqlBatch(CmsSqlManager sqlManager, Connection conn) {
+
+        m_sqlManager = sqlManager;
+        m_connection = conn;
+        m_statements = new LinkedHashMap<String, PreparedStatement>();
+    }
+
+    /**
+     * Adds a set of parameters for the given query to this batch.<p>
+     * 
+     * Parameters of type <code>Integer</code> and <code>Long</code> are set as numbers,
+     * all other parameters are set as strings.<p>
+     * 
+     * @param projectId the id of the project used to resolve the online/offline tables of the query
+     * @param queryKey the key of the SQL query
+     * @param params the query parameters
+     * 
+     * @throws SQLException if the statement could not be prepared or a parameter could not be set
+     */
+    public void add(CmsUUID projectId, String queryKey, Object... params) throws SQLException {
+
+        String key = projectId + queryKey;
+        PreparedStatement stmt = m_statements.get(key);
+        if (stmt == null) {
+            stmt = m_sqlManager.getPreparedStatement(m_connection, projectId, queryKey);
+            m_statements.put(key, stmt);
+        }
+        m_lastStatement = stmt;
+        for (int i = 0; i < params.length; i++) {
+            if (params[i] instanceof Integer) {
+                stmt.setInt(i + 1, ((Integer)params[i]).intValue());
+            } else if (params[i] instanceof Long) {
+                stmt.setLong(i + 1, ((Long)params[i]).longValue());
+            } else {
+                stmt.setString(i + 1, (String)params[i]);
+            }
+        }
+        stmt.addBatch();
+        m_size++;
+    }
+
+    /**
+     * Closes all prepared statements of this batch, the connection is left open.<p>
+     * 
+     * @param dbc the current database context
+     */
+    public void close(CmsDbContext dbc) {
+
+        Iterator<PreparedStatement> it = m_statements.values().iterator();
+        while (it.hasNext()) {
+            m_sqlManager.closeAll(dbc, null, it.next(), null);
+        }
+        m_statements.clear();
+        m_size = 0;
+    }
+
+    /**
+     * Executes all collected statements.<p>
+     * 
+     * @throws SQLException if one of the batches fails
+     */
+    public void execute() throws SQLException {
+
+        Iterator<PreparedStatement> it = m_statements.values().iterator();
+        while (it.hasNext()) {
+            m_lastStatement = it.next();
+            m_lastStatement.executeBatch();
+        }
+        m_size = 0;
+    }
+
+    /**
+     * Returns the statement that was used last, for error reporting.<p>
+     * 
+     * @return the statement that was used last
+     */
+    public PreparedStatement getLastStatement() {
+
+        return m_lastStatement;
+    }
+
+    /**
+     * Returns the number of parameter sets added since the last execution.<p>
+     * 
+     * @return the number of parameter sets added since the last execution
+     */
+    public int size() {
+
+        return m_size;
+    }
+}
@@ -37,6 +37,7 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -188,6 +189,25 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
     }
 
+    /**
+     * Retrieves the value of the designated column in the current row of this ResultSet object as 
+     * a stream of uninterpreted bytes.<p>
+     * 
+     * The stream is only valid until the result set is closed. Overwrite this method if another 
+     * database server requires a different handling of binary streams.<p>
+     * 
+     * @param res the result set
+     * @param attributeName the name of the table attribute
+     * 
+     * @return the column value as a stream; if the value is SQL NULL, the value returned is null 
+     * 
+     * @throws SQLException if a database access error occurs
+     */
+    public InputStream getBinaryStream(ResultSet res, String attributeName) throws SQLException {
+
+        return res.getBinaryStream(attributeName);
+    }
+
     /**
      * Retrieves the value of the designated column in the current row of this ResultSet object as 
      * a byte array in the Java programming language.<p>
@@ -212,19 +232,53 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
      * 
      * Use this method to get a connection for reading/writing project independent data.<p>
      * 
+     * If the database context pins its connections, the connection pinned to the context is returned,
+     * and the first connection taken from the pool is pinned to the context.<p>
+     * 
      * @param dbc the current database context
      * 
      * @return a JDBC connection
      * 
      * @throws SQLException if the project id is not supported
+     * 
+     * @see CmsDbContext#pinConnections()
      */
     public Connection getConnection(CmsDbContext dbc) throws SQLException {
 
         if (dbc == null) {
             LOG.error(Messages.get().getBundle().key(Messages.LOG_NULL_DB_CONTEXT_0));
+            // match the ID to a JDBC pool URL of the OpenCms JDBC pools {online|offline|backup}
+            return getConnectionByUrl(m_poolUrl);
         }
-        // match the ID to a JDBC pool URL of the OpenCms JDBC pools {online|offline|backup}
-        return getConnectionByUrl(m_poolUrl);
+        Connection con = dbc.getPinnedConnection(m_poolUrl);
+        if (con == null) {
+            // match the ID to a JDBC pool URL of the OpenCms JDBC pools {online|offline|backup}
+            con = getConnectionByUrl(m_poolUrl);
+            dbc.incrementConnectionCheckouts();
+            con = dbc.pinConnection(m_poolUrl, con);
+        }
+        return con;
+    }
+
+    /**
+     * Returns a JDBC connection from the connection pool that is never pinned to the database context.<p>
+     * 
+     * Use this method for connections that have to outlive the database context, 
+     * like the connection of a content stream. The caller has to close the connection.<p>
+     * 
+     * @param dbc the current database context
+     * 
+     * @return a JDBC connection
+     * 
+     * @throws SQLException if the connection could not be obtained
+     */
+    public Connection getDetachedConnection(CmsDbContext dbc) throws SQLException {
+
+        Connection con = getConnectionByUrl(m_poolUrl);
+        if (dbc != null) {
+            dbc.incrementConnectionCheckouts();
+        }
+        return con;
     }
 
     /**
@@ -310,6 +364,21 @@ public class CmsSqlManager extends org.opencms.db.CmsSqlManager {
 
     }
 
+    /**
+     * Prepares a statement to deliver the binary content of its result without buffering the result in memory.<p>
+     * 
+     * The generic implementation does nothing, since most JDBC drivers only 
+     * read large binary columns while the stream is read.<p>
+     * 
+     * @param stmt the statement
+     * 
+     * @throws SQLException if a database access error occurs
+     */
+    public void prepareStreamingQuery(PreparedStatement stmt) throws SQLException {
+
+        // noop
+    }
+
     /**
      * Searches for the SQL query with the specified key and CmsProject.<p>
      * 
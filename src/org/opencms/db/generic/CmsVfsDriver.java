@@ -74,6 +74,7 @@ import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -108,13 +109,6 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /** Contains the macro replacement value for the online project. */
     protected static final String ONLINE = "ONLINE";
 
-    /** 
-     * This field is temporarily used to compute the versions during publishing.<p>
-     * 
-     * @see #publishVersions(CmsDbContext, CmsResource, boolean) 
-     */
-    protected List m_resOp = new ArrayList();
-
     /** The sql manager. */
     protected CmsSqlManager m_sqlManager;
 
@@ -1481,7 +1475,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
         // if resource is null just flush the internal cache
         if (resource == null) {
-            m_resOp.clear();
+            dbc.removeAttribute(CmsDriverManager.KEY_RESOURCE_OPERATIONS);
             return;
         }
 
@@ -1490,9 +1484,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             return;
         }
 
+        // the resource operations are kept per publish job, since several jobs may publish at the same time
+        Set<CmsUUID> resourceOperations = internalGetResourceOperations(dbc);
         if (firstSibling) {
             // reset the resource operation flag
-            m_resOp.remove(resource.getResourceId());
+            resourceOperations.remove(resource.getResourceId());
         }
 
         boolean resOp = false; // assume structure operation
@@ -1515,7 +1511,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             if (resOp) {
                 return;
             }
-            if (m_resOp.contains(resource.getResourceId())) {
+            if (resourceOperations.contains(resource.getResourceId())) {
                 return;
             }
         }
@@ -1531,7 +1527,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
         if (resOp) {
             if (resource.getSiblingCount() > 1) {
-                m_resOp.add(resource.getResourceId());
+                resourceOperations.add(resource.getResourceId());
             }
             resVersion++;
         }
@@ -1679,6 +1675,55 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return byteRes;
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#readContentStream(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID)
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException {
+
+        PreparedStatement stmt = null;
+        ResultSet res = null;
+        Connection conn = null;
+        InputStream result = null;
+
+        try {
+            // the stream keeps the connection until it is closed, so it must not use a connection pinned to the context
+            conn = m_sqlManager.getDetachedConnection(dbc);
+            if (projectId.equals(CmsProject.ONLINE_PROJECT_ID)) {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_ONLINE_FILES_CONTENT");
+            } else {
+                stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_OFFLINE_FILES_CONTENT");
+            }
+            m_sqlManager.prepareStreamingQuery(stmt);
+            stmt.setString(1, resourceId.toString());
+            res = stmt.executeQuery();
+
+            if (res.next()) {
+                InputStream content = m_sqlManager.getBinaryStream(
+                    res,
+                    m_sqlManager.readQuery("C_RESOURCES_FILE_CONTENT"));
+                if (content == null) {
+                    content = new ByteArrayInputStream(new byte[0]);
+                }
+                result = new CmsResultSetInputStream(content, m_sqlManager, dbc, conn, stmt, res);
+            } else {
+                throw new CmsVfsResourceNotFoundException(Messages.get().container(
+                    Messages.ERR_READ_CONTENT_WITH_RESOURCE_ID_2,
+                    resourceId,
+                    Boolean.valueOf(projectId.equals(CmsProject.ONLINE_PROJECT_ID))));
+            }
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } finally {
+            if (result == null) {
+                m_sqlManager.closeAll(dbc, conn, stmt, res);
+            }
+        }
+        return result;
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readFolder(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID)
      */
@@ -2509,7 +2554,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readVersions(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID)
      */
-    public Map readVersions(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId, CmsUUID structureId)
+    public Map<String, Integer> readVersions(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        CmsUUID resourceId,
+        CmsUUID structureId)
     throws CmsDataAccessException {
 
         int structureVersion = -1;
@@ -2550,7 +2599,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         } finally {
             m_sqlManager.closeAll(dbc, conn, stmt, res);
         }
-        Map result = new HashMap();
+        Map<String, Integer> result = new HashMap<String, Integer>();
         result.put("structure", new Integer(structureVersion));
         result.put(I_CmsEventListener.KEY_RESOURCE, new Integer(resourceVersion));
         return result;
@@ -2711,28 +2760,26 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             // nothing to do
             return;
         }
-        Connection conn = null;
-        PreparedStatement stmt = null;
-        try {
-            // write the file content
-            writeContent(dbc, newResource.getResourceId(), resContent);
-
-            // update the resource record
-            conn = m_sqlManager.getConnection(dbc);
-            stmt = m_sqlManager.getPreparedStatement(conn, dbc.currentProject(), "C_RESOURCE_REPLACE");
-            stmt.setInt(1, newResourceType);
-            stmt.setInt(2, resContent.length);
-            stmt.setLong(3, System.currentTimeMillis());
-            stmt.setString(4, newResource.getResourceId().toString());
-            stmt.executeUpdate();
+        // write the file content
+        writeContent(dbc, newResource.getResourceId(), resContent);
+        // update the resource record
+        internalReplaceResource(dbc, newResource, resContent.length, newResourceType);
+    }
 
-        } catch (SQLException e) {
-            throw new CmsDbSqlException(Messages.get().container(
-                Messages.ERR_GENERIC_SQL_1,
-                CmsDbSqlException.getErrorQuery(stmt)), e);
-        } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, null);
-        }
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#replaceResource(org.opencms.db.CmsDbContext, org.opencms.file.CmsResource, java.io.InputStream, int, int)
+     */
+    public void replaceResource(
+        CmsDbContext dbc,
+        CmsResource newResource,
+        InputStream resContent,
+        int length,
+        int newResourceType) throws CmsDataAccessException {
+
+        // write the file content
+        writeContent(dbc, newResource.getResourceId(), resContent, length);
+        // update the resource record
+        internalReplaceResource(dbc, newResource, length, newResourceType);
     }
 
     /**
@@ -2812,8 +2859,42 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             offlineResource,
             CmsRelationFilter.TARGETS).iterator();
         dbc.setProjectId(dbcProjectId);
-        while (itRelations.hasNext()) {
-            vfsDriver.createRelation(dbc, onlineProject.getUuid(), (CmsRelation)itRelations.next());
+        if (!itRelations.hasNext()) {
+            return;
+        }
+
+        Connection conn = null;
+        CmsSqlBatch batch = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            batch = new CmsSqlBatch(m_sqlManager, conn);
+            while (itRelations.hasNext()) {
+                CmsRelation relation = (CmsRelation)itRelations.next();
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(
+                        Messages.LOG_CREATE_RELATION_2,
+                        String.valueOf(onlineProject.getUuid()),
+                        relation));
+                }
+                batch.add(
+                    onlineProject.getUuid(),
+                    "C_CREATE_RELATION",
+                    relation.getSourceId().toString(),
+                    relation.getSourcePath(),
+                    relation.getTargetId().toString(),
+                    relation.getTargetPath(),
+                    new Integer(relation.getType().getId()));
+            }
+            // create all online relations with a single round trip
+            batch.execute();
+        } catch (SQLException e) {
+            throw wrapException((batch == null) ? null : batch.getLastStatement(), e);
+        } finally {
+            if (batch != null) {
+                batch.close(dbc);
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
     }
 
@@ -2912,6 +2993,31 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#writeContent(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.io.InputStream, int)
+     */
+    public void writeContent(CmsDbContext dbc, CmsUUID resourceId, InputStream content, int length)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, dbc.currentProject(), "C_OFFLINE_CONTENTS_UPDATE");
+            // the driver reads the content directly from the stream 
+            stmt.setBinaryStream(1, content, length);
+            stmt.setString(2, resourceId.toString());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#writeLastModifiedProjectId(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, CmsUUID, org.opencms.file.CmsResource)
      */
@@ -2946,44 +3052,10 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         ? project.getUuid()
         : dbc.getProjectId();
 
-        // TODO: check if we need autocreation for link property definition types too
-        CmsPropertyDefinition propertyDefinition = null;
-        try {
-            // read the property definition
-            propertyDefinition = readPropertyDefinition(dbc, property.getName(), projectId);
-        } catch (CmsDbEntryNotFoundException e) {
-            if (property.autoCreatePropertyDefinition()) {
-                propertyDefinition = createPropertyDefinition(
-                    dbc,
-                    projectId,
-                    property.getName(),
-                    CmsPropertyDefinition.TYPE_NORMAL);
-                try {
-                    readPropertyDefinition(dbc, property.getName(), CmsProject.ONLINE_PROJECT_ID);
-                } catch (CmsDataAccessException e1) {
-                    createPropertyDefinition(
-                        dbc,
-                        CmsProject.ONLINE_PROJECT_ID,
-                        property.getName(),
-                        CmsPropertyDefinition.TYPE_NORMAL);
-                }
-                try {
-                    m_driverManager.getHistoryDriver(dbc).readPropertyDefinition(dbc, property.getName());
-                } catch (CmsDataAccessException e1) {
-                    m_driverManager.getHistoryDriver(dbc).createPropertyDefinition(
-                        dbc,
-                        property.getName(),
-                        CmsPropertyDefinition.TYPE_NORMAL);
-                }
-            } else {
-                throw new CmsDbEntryNotFoundException(Messages.get().container(
-                    Messages.ERR_NO_PROPERTYDEF_WITH_NAME_1,
-                    property.getName()));
-            }
-        }
+        CmsPropertyDefinition propertyDefinition = internalReadOrCreatePropertyDefinition(dbc, property, projectId);
 
-        PreparedStatement stmt = null;
         Connection conn = null;
+        CmsSqlBatch batch = null;
 
         try {
             // read the existing property to test if we need the 
@@ -2996,92 +3068,16 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             }
 
             conn = m_sqlManager.getConnection(dbc);
-
-            for (int i = 0; i < 2; i++) {
-                int mappingType = -1;
-                String value = null;
-                CmsUUID id = null;
-                boolean existsPropertyValue = false;
-                boolean deletePropertyValue = false;
-
-                // 1) take any required decisions to choose and fill the correct SQL query
-
-                if (i == 0) {
-                    // write/delete the *structure value* on the first cycle
-                    if ((existingProperty.getStructureValue() != null) && property.isDeleteStructureValue()) {
-                        // this property value is marked to be deleted
-                        deletePropertyValue = true;
-                    } else {
-                        value = property.getStructureValue();
-                        if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
-                            // no structure value set or the structure value is an empty string, 
-                            // continue with the resource value
-                            continue;
-                        }
-                    }
-
-                    // set the vars to be written to the database
-                    mappingType = CmsProperty.STRUCTURE_RECORD_MAPPING;
-                    id = resource.getStructureId();
-                    existsPropertyValue = existingProperty.getStructureValue() != null;
-                } else {
-                    // write/delete the *resource value* on the second cycle
-                    if ((existingProperty.getResourceValue() != null) && property.isDeleteResourceValue()) {
-                        // this property value is marked to be deleted
-                        deletePropertyValue = true;
-                    } else {
-                        value = property.getResourceValue();
-                        if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
-                            // no resource value set or the resource value is an empty string,
-                            // break out of the loop
-                            break;
-                        }
-                    }
-
-                    // set the vars to be written to the database
-                    mappingType = CmsProperty.RESOURCE_RECORD_MAPPING;
-                    id = resource.getResourceId();
-                    existsPropertyValue = existingProperty.getResourceValue() != null;
-                }
-
-                // 2) execute the SQL query
-                try {
-                    if (!deletePropertyValue) {
-                        // insert/update the property value                    
-                        if (existsPropertyValue) {
-                            // {structure|resource} property value already exists- use update statement
-                            stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_UPDATE");
-                            stmt.setString(1, m_sqlManager.validateEmpty(value));
-                            stmt.setString(2, id.toString());
-                            stmt.setInt(3, mappingType);
-                            stmt.setString(4, propertyDefinition.getId().toString());
-                        } else {
-                            // {structure|resource} property value doesn't exist- use create statement
-                            stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_CREATE");
-                            stmt.setString(1, new CmsUUID().toString());
-                            stmt.setString(2, propertyDefinition.getId().toString());
-                            stmt.setString(3, id.toString());
-                            stmt.setInt(4, mappingType);
-                            stmt.setString(5, m_sqlManager.validateEmpty(value));
-                        }
-                    } else {
-                        // {structure|resource} property value marked as deleted- use delete statement
-                        stmt = m_sqlManager.getPreparedStatement(conn, projectId, "C_PROPERTIES_DELETE");
-                        stmt.setString(1, propertyDefinition.getId().toString());
-                        stmt.setString(2, id.toString());
-                        stmt.setInt(3, mappingType);
-                    }
-                    stmt.executeUpdate();
-                } finally {
-                    m_sqlManager.closeAll(dbc, null, stmt, null);
-                }
-            }
+            batch = new CmsSqlBatch(m_sqlManager, conn);
+            internalAddPropertyValues(batch, projectId, resource, propertyDefinition, property, existingProperty);
+            batch.execute();
         } catch (SQLException e) {
-            throw new CmsDbSqlException(Messages.get().container(
-                Messages.ERR_GENERIC_SQL_1,
-                CmsDbSqlException.getErrorQuery(stmt)), e);
+            throw wrapException((batch == null) ? null : batch.getLastStatement(), e);
         } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, null);
+            if (batch != null) {
+                batch.close(dbc);
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
     }
 
@@ -3091,11 +3087,74 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     public void writePropertyObjects(CmsDbContext dbc, CmsProject project, CmsResource resource, List properties)
     throws CmsDataAccessException {
 
-        CmsProperty property = null;
+        if (properties.size() < 2) {
+            for (int i = 0; i < properties.size(); i++) {
+                writePropertyObject(dbc, project, resource, (CmsProperty)properties.get(i));
+            }
+            return;
+        }
 
+        CmsUUID projectId = ((dbc.getProjectId() == null) || dbc.getProjectId().isNullUUID())
+        ? project.getUuid()
+        : dbc.getProjectId();
+
+        Map<String, CmsPropertyDefinition> propertyDefinitions = new HashMap<String, CmsPropertyDefinition>();
         for (int i = 0; i < properties.size(); i++) {
-            property = (CmsProperty)properties.get(i);
-            writePropertyObject(dbc, project, resource, property);
+            CmsProperty property = (CmsProperty)properties.get(i);
+            if (propertyDefinitions.containsKey(property.getName())) {
+                // the same property is written more than once, so the values must be written one after another
+                for (int j = 0; j < properties.size(); j++) {
+                    writePropertyObject(dbc, project, resource, (CmsProperty)properties.get(j));
+                }
+                return;
+            }
+            propertyDefinitions.put(property.getName(), internalReadOrCreatePropertyDefinition(
+                dbc,
+                property,
+                projectId));
+        }
+
+        // read all existing properties at once to test if we need the 
+        // insert or update query to write a property value
+        Map<String, CmsProperty> existingProperties = new HashMap<String, CmsProperty>();
+        Iterator itExisting = readPropertyObjects(dbc, project, resource).iterator();
+        while (itExisting.hasNext()) {
+            CmsProperty existingProperty = (CmsProperty)itExisting.next();
+            existingProperties.put(existingProperty.getName(), existingProperty);
+        }
+
+        Connection conn = null;
+        CmsSqlBatch batch = null;
+
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            batch = new CmsSqlBatch(m_sqlManager, conn);
+            for (int i = 0; i < properties.size(); i++) {
+                CmsProperty property = (CmsProperty)properties.get(i);
+                CmsPropertyDefinition propertyDefinition = propertyDefinitions.get(property.getName());
+                CmsProperty existingProperty = existingProperties.get(propertyDefinition.getName());
+                if (existingProperty == null) {
+                    existingProperty = CmsProperty.getNullProperty();
+                }
+                if (!existingProperty.isIdentical(property)) {
+                    internalAddPropertyValues(
+                        batch,
+                        projectId,
+                        resource,
+                        propertyDefinition,
+                        property,
+                        existingProperty);
+                }
+            }
+            // write all property values with a single round trip per query
+            batch.execute();
+        } catch (SQLException e) {
+            throw wrapException((batch == null) ? null : batch.getLastStatement(), e);
+        } finally {
+            if (batch != null) {
+                batch.close(dbc);
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
     }
 
@@ -3210,73 +3269,95 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         int changed,
         boolean isPublishing) throws CmsDataAccessException {
 
-        PreparedStatement stmt = null;
-        Connection conn = null;
+        writeResourceStates(dbc, project, Collections.singletonList(resource), changed, isPublishing);
+    }
 
-        if (project.getUuid().equals(CmsProject.ONLINE_PROJECT_ID)) {
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#writeResourceStates(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, java.util.List, int, boolean)
+     */
+    public void writeResourceStates(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources,
+        int changed,
+        boolean isPublishing) throws CmsDataAccessException {
+
+        if (project.getUuid().equals(CmsProject.ONLINE_PROJECT_ID) || resources.isEmpty()) {
             return;
         }
 
+        CmsUUID projectId = project.getUuid();
+        Connection conn = null;
+        CmsSqlBatch batch = null;
+
         try {
             conn = m_sqlManager.getConnection(dbc);
+            batch = new CmsSqlBatch(m_sqlManager, conn);
 
-            if (changed == CmsDriverManager.UPDATE_RESOURCE_PROJECT) {
-                stmt = m_sqlManager.getPreparedStatement(conn, project, "C_RESOURCES_UPDATE_RESOURCE_PROJECT");
-                stmt.setInt(1, resource.getFlags());
-                stmt.setString(2, project.getUuid().toString());
-                stmt.setString(3, resource.getResourceId().toString());
-                stmt.executeUpdate();
-                m_sqlManager.closeAll(dbc, null, stmt, null);
-            }
+            Iterator<CmsResource> it = resources.iterator();
+            while (it.hasNext()) {
+                CmsResource resource = it.next();
+
+                if (changed == CmsDriverManager.UPDATE_RESOURCE_PROJECT) {
+                    batch.add(
+                        projectId,
+                        "C_RESOURCES_UPDATE_RESOURCE_PROJECT",
+                        new Integer(resource.getFlags()),
+                        projectId.toString(),
+                        resource.getResourceId().toString());
+                }
 
-            if (changed == CmsDriverManager.UPDATE_RESOURCE) {
-                stmt = m_sqlManager.getPreparedStatement(conn, project, "C_RESOURCES_UPDATE_RESOURCE_STATELASTMODIFIED");
-                stmt.setInt(1, resource.getState().getState());
-                stmt.setLong(2, resource.getDateLastModified());
-                stmt.setString(3, resource.getUserLastModified().toString());
-                stmt.setString(4, project.getUuid().toString());
-                stmt.setString(5, resource.getResourceId().toString());
-                stmt.executeUpdate();
-                m_sqlManager.closeAll(dbc, null, stmt, null);
-            }
+                if (changed == CmsDriverManager.UPDATE_RESOURCE) {
+                    batch.add(
+                        projectId,
+                        "C_RESOURCES_UPDATE_RESOURCE_STATELASTMODIFIED",
+                        new Integer(resource.getState().getState()),
+                        new Long(resource.getDateLastModified()),
+                        resource.getUserLastModified().toString(),
+                        projectId.toString(),
+                        resource.getResourceId().toString());
+                }
 
-            if ((changed == CmsDriverManager.UPDATE_RESOURCE_STATE) || (changed == CmsDriverManager.UPDATE_ALL)) {
-                stmt = m_sqlManager.getPreparedStatement(conn, project, "C_RESOURCES_UPDATE_RESOURCE_STATE");
-                stmt.setInt(1, resource.getState().getState());
-                stmt.setString(2, project.getUuid().toString());
-                stmt.setString(3, resource.getResourceId().toString());
-                stmt.executeUpdate();
-                m_sqlManager.closeAll(dbc, null, stmt, null);
-            }
+                if ((changed == CmsDriverManager.UPDATE_RESOURCE_STATE) || (changed == CmsDriverManager.UPDATE_ALL)) {
+                    batch.add(
+                        projectId,
+                        "C_RESOURCES_UPDATE_RESOURCE_STATE",
+                        new Integer(resource.getState().getState()),
+                        projectId.toString(),
+                        resource.getResourceId().toString());
+                }
 
-            if ((changed == CmsDriverManager.UPDATE_STRUCTURE)
-                || (changed == CmsDriverManager.UPDATE_ALL)
-                || (changed == CmsDriverManager.UPDATE_STRUCTURE_STATE)) {
-                stmt = m_sqlManager.getPreparedStatement(conn, project, "C_RESOURCES_UPDATE_STRUCTURE_STATE");
-                stmt.setInt(1, resource.getState().getState());
-                stmt.setString(2, resource.getStructureId().toString());
-                stmt.executeUpdate();
-                m_sqlManager.closeAll(dbc, null, stmt, null);
-            }
+                if ((changed == CmsDriverManager.UPDATE_STRUCTURE)
+                    || (changed == CmsDriverManager.UPDATE_ALL)
+                    || (changed == CmsDriverManager.UPDATE_STRUCTURE_STATE)) {
+                    batch.add(
+                        projectId,
+                        "C_RESOURCES_UPDATE_STRUCTURE_STATE",
+                        new Integer(resource.getState().getState()),
+                        resource.getStructureId().toString());
+                }
 
-            if ((changed == CmsDriverManager.UPDATE_STRUCTURE) || (changed == CmsDriverManager.UPDATE_ALL)) {
-                stmt = m_sqlManager.getPreparedStatement(conn, project, "C_RESOURCES_UPDATE_RELEASE_EXPIRED");
-                stmt.setLong(1, resource.getDateReleased());
-                stmt.setLong(2, resource.getDateExpired());
-                stmt.setString(3, resource.getStructureId().toString());
-                stmt.executeUpdate();
-                m_sqlManager.closeAll(dbc, null, stmt, null);
+                if ((changed == CmsDriverManager.UPDATE_STRUCTURE) || (changed == CmsDriverManager.UPDATE_ALL)) {
+                    batch.add(
+                        projectId,
+                        "C_RESOURCES_UPDATE_RELEASE_EXPIRED",
+                        new Long(resource.getDateReleased()),
+                        new Long(resource.getDateExpired()),
+                        resource.getStructureId().toString());
+                }
             }
+            batch.execute();
         } catch (SQLException e) {
-            throw new CmsDbSqlException(Messages.get().container(
-                Messages.ERR_GENERIC_SQL_1,
-                CmsDbSqlException.getErrorQuery(stmt)), e);
+            throw wrapException((batch == null) ? null : batch.getLastStatement(), e);
         } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, null);
+            if (batch != null) {
+                batch.close(dbc);
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
 
         if (isPublishing) {
-            internalUpdateVersions(dbc, resource);
+            internalUpdateVersions(dbc, resources);
         }
     }
 
@@ -3361,6 +3442,108 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Adds the statements required to write the structure and the resource value of a property to a SQL batch.<p>
+     * 
+     * @param batch the batch to add the statements to
+     * @param projectId the id of the project to write the property values to
+     * @param resource the resource the property is attached to
+     * @param propertyDefinition the definition of the property
+     * @param property the property to write
+     * @param existingProperty the property as currently stored in the database
+     * 
+     * @throws SQLException if something goes wrong
+     */
+    protected void internalAddPropertyValues(
+        CmsSqlBatch batch,
+        CmsUUID projectId,
+        CmsResource resource,
+        CmsPropertyDefinition propertyDefinition,
+        CmsProperty property,
+        CmsProperty existingProperty) throws SQLException {
+
+        for (int i = 0; i < 2; i++) {
+            int mappingType = -1;
+            String value = null;
+            CmsUUID id = null;
+            boolean existsPropertyValue = false;
+            boolean deletePropertyValue = false;
+
+            // 1) take any required decisions to choose and fill the correct SQL query
+
+            if (i == 0) {
+                // write/delete the *structure value* on the first cycle
+                if ((existingProperty.getStructureValue() != null) && property.isDeleteStructureValue()) {
+                    // this property value is marked to be deleted
+                    deletePropertyValue = true;
+                } else {
+                    value = property.getStructureValue();
+                    if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+                        // no structure value set or the structure value is an empty string, 
+                        // continue with the resource value
+                        continue;
+                    }
+                }
+
+                // set the vars to be written to the database
+                mappingType = CmsProperty.STRUCTURE_RECORD_MAPPING;
+                id = resource.getStructureId();
+                existsPropertyValue = existingProperty.getStructureValue() != null;
+            } else {
+                // write/delete the *resource value* on the second cycle
+                if ((existingProperty.getResourceValue() != null) && property.isDeleteResourceValue()) {
+                    // this property value is marked to be deleted
+                    deletePropertyValue = true;
+                } else {
+                    value = property.getResourceValue();
+                    if (CmsStringUtil.isEmptyOrWhitespaceOnly(value)) {
+                        // no resource value set or the resource value is an empty string,
+                        // break out of the loop
+                        break;
+                    }
+                }
+
+                // set the vars to be written to the database
+                mappingType = CmsProperty.RESOURCE_RECORD_MAPPING;
+                id = resource.getResourceId();
+                existsPropertyValue = existingProperty.getResourceValue() != null;
+            }
+
+            // 2) add the SQL query to the batch
+            if (!deletePropertyValue) {
+                // insert/update the property value                    
+                if (existsPropertyValue) {
+                    // {structure|resource} property value already exists- use update statement
+                    batch.add(
+                        projectId,
+                        "C_PROPERTIES_UPDATE",
+                        m_sqlManager.validateEmpty(value),
+                        id.toString(),
+                        new Integer(mappingType),
+                        propertyDefinition.getId().toString());
+                } else {
+                    // {structure|resource} property value doesn't exist- use create statement
+                    batch.add(
+                        projectId,
+                        "C_PROPERTIES_CREATE",
+                        new CmsUUID().toString(),
+                        propertyDefinition.getId().toString(),
+                        id.toString(),
+                        new Integer(mappingType),
+                        m_sqlManager.validateEmpty(value));
+                }
+            } else {
+                // {structure|resource} property value marked as deleted- use delete statement
+                batch.add(
+                    projectId,
+                    "C_PROPERTIES_DELETE",
+                    propertyDefinition.getId().toString(),
+                    id.toString(),
+                    new Integer(mappingType));
+            }
+        }
+    }
+
     /**
      * Returns the count of properties for a property definition.<p>
      * 
@@ -3451,6 +3634,27 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new CmsUrlNameMappingEntry(name, structureId, state, dateChanged, locale);
     }
 
+    /**
+     * Returns the ids of the resources whose resource version was already increased 
+     * by the publish job of the given database context.<p>
+     * 
+     * @param dbc the current database context
+     * 
+     * @return the modifiable set of resource ids
+     * 
+     * @see #publishVersions(CmsDbContext, CmsResource, boolean) 
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<CmsUUID> internalGetResourceOperations(CmsDbContext dbc) {
+
+        Set<CmsUUID> resourceOperations = (Set<CmsUUID>)dbc.getAttribute(CmsDriverManager.KEY_RESOURCE_OPERATIONS);
+        if (resourceOperations == null) {
+            resourceOperations = new HashSet<CmsUUID>();
+            dbc.setAttribute(CmsDriverManager.KEY_RESOURCE_OPERATIONS, resourceOperations);
+        }
+        return resourceOperations;
+    }
+
     /**
      * Increments a counter.<p>
      *  
@@ -3512,6 +3716,60 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * Reads the definition of a property, creating it in the offline and online project and
+     * in the history if the property is marked for automatic creation of its definition.<p>
+     * 
+     * @param dbc the current database context
+     * @param property the property to read the definition for
+     * @param projectId the id of the project to read the definition from
+     * 
+     * @return the property definition
+     * 
+     * @throws CmsDataAccessException if the definition does not exist and may not be created
+     */
+    protected CmsPropertyDefinition internalReadOrCreatePropertyDefinition(
+        CmsDbContext dbc,
+        CmsProperty property,
+        CmsUUID projectId) throws CmsDataAccessException {
+
+        CmsPropertyDefinition propertyDefinition = null;
+        try {
+            // read the property definition
+            propertyDefinition = readPropertyDefinition(dbc, property.getName(), projectId);
+        } catch (CmsDbEntryNotFoundException e) {
+            if (property.autoCreatePropertyDefinition()) {
+                propertyDefinition = createPropertyDefinition(
+                    dbc,
+                    projectId,
+                    property.getName(),
+                    CmsPropertyDefinition.TYPE_NORMAL);
+                try {
+                    readPropertyDefinition(dbc, property.getName(), CmsProject.ONLINE_PROJECT_ID);
+                } catch (CmsDataAccessException e1) {
+                    createPropertyDefinition(
+                        dbc,
+                        CmsProject.ONLINE_PROJECT_ID,
+                        property.getName(),
+                        CmsPropertyDefinition.TYPE_NORMAL);
+                }
+                try {
+                    m_driverManager.getHistoryDriver(dbc).readPropertyDefinition(dbc, property.getName());
+                } catch (CmsDataAccessException e1) {
+                    m_driverManager.getHistoryDriver(dbc).createPropertyDefinition(
+                        dbc,
+                        property.getName(),
+                        CmsPropertyDefinition.TYPE_NORMAL);
+                }
+            } else {
+                throw new CmsDbEntryNotFoundException(Messages.get().container(
+                    Messages.ERR_NO_PROPERTYDEF_WITH_NAME_1,
+                    property.getName()));
+            }
+        }
+        return propertyDefinition;
+    }
+
     /**
      * Returns the parent id of the given resource.<p>
      * 
@@ -3703,14 +3961,46 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     }
 
     /**
-     * Updates the offline version numbers.<p>
-     *  
+     * Updates the type, size and content date of a resource after its content has been replaced.<p>
+     * 
      * @param dbc the current database context
-     * @param resource the resource to update the version number for
+     * @param resource the resource whose content was replaced
+     * @param length the length of the new content
+     * @param resourceType the new resource type
      * 
-     * @throws CmsDataAccessException if something goes wrong 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalReplaceResource(CmsDbContext dbc, CmsResource resource, int length, int resourceType)
+    throws CmsDataAccessException {
+
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        try {
+            conn = m_sqlManager.getConnection(dbc);
+            stmt = m_sqlManager.getPreparedStatement(conn, dbc.currentProject(), "C_RESOURCE_REPLACE");
+            stmt.setInt(1, resourceType);
+            stmt.setInt(2, length);
+            stmt.setLong(3, System.currentTimeMillis());
+            stmt.setString(4, resource.getResourceId().toString());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new CmsDbSqlException(Messages.get().container(
+                Messages.ERR_GENERIC_SQL_1,
+                CmsDbSqlException.getErrorQuery(stmt)), e);
+        } finally {
+            m_sqlManager.closeAll(dbc, conn, stmt, null);
+        }
+    }
+
+    /**
+     * Updates the offline version numbers of the given resources to the online version numbers.<p>
+     * 
+     * @param dbc the current database context
+     * @param resources the resources to update the version numbers for
+     * 
+     * @throws CmsDataAccessException if something goes wrong
      */
-    protected void internalUpdateVersions(CmsDbContext dbc, CmsResource resource) throws CmsDataAccessException {
+    protected void internalUpdateVersions(CmsDbContext dbc, List<CmsResource> resources) throws CmsDataAccessException {
 
         if (dbc.getRequestContext() == null) {
             // no needed during initialization 
@@ -3722,41 +4012,51 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
 
         // read the online version numbers
-        Map onlineVersions = readVersions(
-            dbc,
-            CmsProject.ONLINE_PROJECT_ID,
-            resource.getResourceId(),
-            resource.getStructureId());
-        int onlineStructureVersion = ((Integer)onlineVersions.get("structure")).intValue();
-        int onlineResourceVersion = ((Integer)onlineVersions.get("resource")).intValue();
+        List<Map<String, Integer>> onlineVersions = new ArrayList<Map<String, Integer>>(resources.size());
+        Iterator<CmsResource> itResources = resources.iterator();
+        while (itResources.hasNext()) {
+            CmsResource resource = itResources.next();
+            onlineVersions.add(readVersions(
+                dbc,
+                CmsProject.ONLINE_PROJECT_ID,
+                resource.getResourceId(),
+                resource.getStructureId()));
+        }
 
+        CmsUUID projectId = dbc.currentProject().getUuid();
         Connection conn = null;
-        PreparedStatement stmt = null;
-        ResultSet res = null;
+        CmsSqlBatch batch = null;
 
         try {
             conn = m_sqlManager.getConnection(dbc);
+            batch = new CmsSqlBatch(m_sqlManager, conn);
 
-            // update the resource version
-            stmt = m_sqlManager.getPreparedStatement(conn, dbc.currentProject(), "C_RESOURCES_UPDATE_RESOURCE_VERSION");
-            stmt.setInt(1, onlineResourceVersion);
-            stmt.setString(2, resource.getResourceId().toString());
-            stmt.executeUpdate();
-            m_sqlManager.closeAll(dbc, null, stmt, null);
+            for (int i = 0; i < resources.size(); i++) {
+                CmsResource resource = resources.get(i);
+                Map<String, Integer> versions = onlineVersions.get(i);
 
-            // update the structure version
-            stmt = m_sqlManager.getPreparedStatement(conn, dbc.currentProject(), "C_RESOURCES_UPDATE_STRUCTURE_VERSION");
-            stmt.setInt(1, onlineStructureVersion);
-            stmt.setString(2, resource.getStructureId().toString());
-            stmt.executeUpdate();
-            m_sqlManager.closeAll(dbc, null, stmt, null);
+                // update the resource version
+                batch.add(
+                    projectId,
+                    "C_RESOURCES_UPDATE_RESOURCE_VERSION",
+                    versions.get("resource"),
+                    resource.getResourceId().toString());
 
+                // update the structure version
+                batch.add(
+                    projectId,
+                    "C_RESOURCES_UPDATE_STRUCTURE_VERSION",
+                    versions.get("structure"),
+                    resource.getStructureId().toString());
+            }
+            batch.execute();
         } catch (SQLException e) {
-            throw new CmsDbSqlException(Messages.get().container(
-                Messages.ERR_GENERIC_SQL_1,
-                CmsDbSqlException.getErrorQuery(stmt)), e);
+            throw wrapException((batch == null) ? null : batch.getLastStatement(), e);
         } finally {
-            m_sqlManager.closeAll(dbc, conn, stmt, res);
+            if (batch != null) {
+                batch.close(dbc);
+            }
+            m_sqlManager.closeAll(dbc, conn, null, null);
         }
     }
 
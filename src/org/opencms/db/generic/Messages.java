@@ -451,6 +451,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String RPT_PUBLISH_FOLDERS_END_0 = "RPT_PUBLISH_FOLDERS_END_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String RPT_PUBLISH_PHASES_4 = "RPT_PUBLISH_PHASES_4";
+
     /** Message constant for key in the resource bundle. */
     public static final String RPT_PUBLISH_STAT_4 = "RPT_PUBLISH_STAT_4";
 
@@ -32,6 +32,7 @@ import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.db.CmsDbConsistencyException;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDbEntryNotFoundException;
+import org.opencms.db.CmsDbIoException;
 import org.opencms.db.CmsDbSqlException;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsResourceState;
@@ -95,6 +96,10 @@ import org.opencms.util.CmsPair;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.ResultSet;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -391,13 +396,6 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
     /** The driver manager. */
     protected CmsDriverManager m_driverManager;
 
-    /** 
-     * This field is temporarily used to compute the versions during publishing.<p>
-     * 
-     * @see #publishVersions(CmsDbContext, CmsResource, boolean) 
-     */
-    protected List<CmsUUID> m_resOp = new ArrayList<CmsUUID>();
-
     /** The sql manager. */
     protected CmsSqlManager m_sqlManager;
 
@@ -1694,7 +1692,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
         // if resource is null just flush the internal cache
         if (resource == null) {
-            m_resOp.clear();
+            dbc.removeAttribute(CmsDriverManager.KEY_RESOURCE_OPERATIONS);
             return;
         }
 
@@ -1703,9 +1701,11 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             return;
         }
 
+        // the resource operations are kept per publish job, since several jobs may publish at the same time
+        Set<CmsUUID> resourceOperations = internalGetResourceOperations(dbc);
         if (firstSibling) {
             // reset the resource operation flag
-            m_resOp.remove(resource.getResourceId());
+            resourceOperations.remove(resource.getResourceId());
         }
 
         boolean resOp = false; // assume structure operation
@@ -1728,7 +1728,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
             if (resOp) {
                 return;
             }
-            if (m_resOp.contains(resource.getResourceId())) {
+            if (resourceOperations.contains(resource.getResourceId())) {
                 return;
             }
         }
@@ -1744,7 +1744,7 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
 
         if (resOp) {
             if (resource.getSiblingCount() > 1) {
-                m_resOp.add(resource.getResourceId());
+                resourceOperations.add(resource.getResourceId());
             }
             resVersion++;
         }
@@ -1880,6 +1880,18 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return byteRes == null ? EMPTY_BLOB : byteRes;
     }
 
+    /**
+     * Returns the content read with {@link #readContent(CmsDbContext, CmsUUID, CmsUUID)} as a stream,
+     * since the content entities always hold the whole content.<p>
+     * 
+     * @see org.opencms.db.I_CmsVfsDriver#readContentStream(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, org.opencms.util.CmsUUID)
+     */
+    public InputStream readContentStream(CmsDbContext dbc, CmsUUID projectId, CmsUUID resourceId)
+    throws CmsDataAccessException {
+
+        return new ByteArrayInputStream(readContent(dbc, projectId, resourceId));
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#readFolder(org.opencms.db.CmsDbContext, CmsUUID, org.opencms.util.CmsUUID)
      */
@@ -2736,6 +2748,23 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#replaceResource(org.opencms.db.CmsDbContext, org.opencms.file.CmsResource, java.io.InputStream, int, int)
+     */
+    public void replaceResource(
+        CmsDbContext dbc,
+        CmsResource newResource,
+        InputStream resContent,
+        int length,
+        int newResourceType) throws CmsDataAccessException {
+
+        replaceResource(
+            dbc,
+            newResource,
+            readStreamedContent(newResource.getResourceId(), resContent, length),
+            newResourceType);
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#replaceResource(org.opencms.db.CmsDbContext, org.opencms.file.CmsResource, byte[], int)
      */
@@ -2919,6 +2948,16 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#writeContent(org.opencms.db.CmsDbContext, org.opencms.util.CmsUUID, java.io.InputStream, int)
+     */
+    public void writeContent(CmsDbContext dbc, CmsUUID resourceId, InputStream content, int length)
+    throws CmsDataAccessException {
+
+        // the persistence layer maps the content to a byte array, so it has to be read completely
+        writeContent(dbc, resourceId, readStreamedContent(resourceId, content, length));
+    }
+
     /**
      * @see org.opencms.db.I_CmsVfsDriver#writeLastModifiedProjectId(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, CmsUUID, org.opencms.file.CmsResource)
      */
@@ -3297,6 +3336,22 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         }
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#writeResourceStates(org.opencms.db.CmsDbContext, org.opencms.file.CmsProject, java.util.List, int, boolean)
+     */
+    public void writeResourceStates(
+        CmsDbContext dbc,
+        CmsProject project,
+        List<CmsResource> resources,
+        int changed,
+        boolean isPublishing) throws CmsDataAccessException {
+
+        Iterator<CmsResource> it = resources.iterator();
+        while (it.hasNext()) {
+            writeResourceState(dbc, project, it.next(), changed, isPublishing);
+        }
+    }
+
     /**
      * Checks that the current user has write permissions for all subresources of the given folder.<p>
      * 
@@ -3422,6 +3477,27 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return new CmsUrlNameMappingEntry(name, structureId, state, dateChanged, locale);
     }
 
+    /**
+     * Returns the ids of the resources whose resource version was already increased 
+     * by the publish job of the given database context.<p>
+     * 
+     * @param dbc the current database context
+     * 
+     * @return the modifiable set of resource ids
+     * 
+     * @see #publishVersions(CmsDbContext, CmsResource, boolean) 
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<CmsUUID> internalGetResourceOperations(CmsDbContext dbc) {
+
+        Set<CmsUUID> resourceOperations = (Set<CmsUUID>)dbc.getAttribute(CmsDriverManager.KEY_RESOURCE_OPERATIONS);
+        if (resourceOperations == null) {
+            resourceOperations = new HashSet<CmsUUID>();
+            dbc.setAttribute(CmsDriverManager.KEY_RESOURCE_OPERATIONS, resourceOperations);
+        }
+        return resourceOperations;
+    }
+
     /**
      * Returns the parent id of the given resource.<p>
      * 
@@ -4329,6 +4405,31 @@ public class CmsVfsDriver implements I_CmsDriver, I_CmsVfsDriver {
         return q;
     }
 
+    /**
+     * Reads the given number of bytes of content from a stream.<p>
+     * 
+     * @param resourceId the id of the resource the content belongs to
+     * @param content the stream to read the content from
+     * @param length the number of bytes to read
+     * 
+     * @return the content
+     * 
+     * @throws CmsDataAccessException if reading from the stream fails
+     */
+    private byte[] readStreamedContent(CmsUUID resourceId, InputStream content, int length)
+    throws CmsDataAccessException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(length);
+        try {
+            CmsFileUtil.copy(content, out, 0, length);
+        } catch (IOException e) {
+            throw new CmsDbIoException(
+                Messages.get().container(Messages.ERR_READING_FROM_INPUT_STREAM_1, resourceId),
+                e);
+        }
+        return out.toByteArray();
+    }
+
     /**
      * Replaces the %(PROJECT) macro inside a query with either Online or Offline, depending on the value 
      * of a flag.<p>
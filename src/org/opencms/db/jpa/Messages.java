@@ -166,6 +166,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_QUERY_NOT_FOUND_1 = "ERR_QUERY_NOT_FOUND_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READING_FROM_INPUT_STREAM_1 = "ERR_READING_FROM_INPUT_STREAM_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READ_CONTENT_WITH_RESOURCE_ID_2 = "ERR_READ_CONTENT_WITH_RESOURCE_ID_2";
 
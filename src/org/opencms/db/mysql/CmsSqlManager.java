@@ -27,6 +27,9 @@
 
 package org.opencms.db.mysql;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
 /**
  * MySQL implementation of the SQL manager.<p>
  * 
@@ -49,4 +52,16 @@ public class CmsSqlManager extends org.opencms.db.generic.CmsSqlManager {
         loadQueryProperties(QUERY_PROPERTIES);
     }
 
+    /**
+     * Makes the MySQL driver stream the result row by row instead of reading the whole result into memory.<p>
+     * 
+     * The connection can not be used for other statements until the result set is closed.<p>
+     * 
+     * @see org.opencms.db.generic.CmsSqlManager#prepareStreamingQuery(java.sql.PreparedStatement)
+     */
+    @Override
+    public void prepareStreamingQuery(PreparedStatement stmt) throws SQLException {
+
+        stmt.setFetchSize(Integer.MIN_VALUE);
+    }
 }
\ No newline at end of file
@@ -36,9 +36,12 @@ import org.opencms.db.generic.Messages;
 import org.opencms.file.CmsDataAccessException;
 import org.opencms.file.CmsProject;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
@@ -172,6 +175,16 @@ public class CmsVfsDriver extends org.opencms.db.generic.CmsVfsDriver {
         internalWriteContent(dbc, dbc.currentProject().getUuid(), resourceId, content, -1);
     }
 
+    /**
+     * @see org.opencms.db.I_CmsVfsDriver#writeContent(CmsDbContext, CmsUUID, InputStream, int)
+     */
+    @Override
+    public void writeContent(CmsDbContext dbc, CmsUUID resourceId, InputStream content, int length)
+    throws CmsDataAccessException {
+
+        internalWriteContent(dbc, dbc.currentProject().getUuid(), resourceId, content, length, -1);
+    }
+
     /**
      * Writes the resource content with the specified resource id.<p>
      * 
@@ -190,6 +203,35 @@ public class CmsVfsDriver extends org.opencms.db.generic.CmsVfsDriver {
         byte[] contents,
         int publishTag) throws CmsDataAccessException {
 
+        internalWriteContent(
+            dbc,
+            projectId,
+            resourceId,
+            new ByteArrayInputStream(contents),
+            contents.length,
+            publishTag);
+    }
+
+    /**
+     * Writes the resource content with the specified resource id, reading it from a stream.<p>
+     * 
+     * @param dbc the current database context
+     * @param projectId the id of the current project
+     * @param resourceId the id of the resource used to identify the content to update
+     * @param contents the stream to read the new content of the file from
+     * @param length the number of bytes to read from the stream
+     * @param publishTag the publish tag if to be written to the online content
+     * 
+     * @throws CmsDataAccessException if something goes wrong
+     */
+    protected void internalWriteContent(
+        CmsDbContext dbc,
+        CmsUUID projectId,
+        CmsUUID resourceId,
+        InputStream contents,
+        int length,
+        int publishTag) throws CmsDataAccessException {
+
         PreparedStatement stmt = null;
         PreparedStatement commit = null;
         Connection conn = null;
@@ -223,7 +265,7 @@ public class CmsVfsDriver extends org.opencms.db.generic.CmsVfsDriver {
             }
             // write file content 
             OutputStream output = CmsUserDriver.getOutputStreamFromBlob(res, "FILE_CONTENT");
-            output.write(contents, 0, contents.length);
+            CmsFileUtil.copy(contents, output, 0, length);
             output.close();
 
             if (!wasInTransaction) {
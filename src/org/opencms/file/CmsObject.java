@@ -63,6 +63,8 @@ import org.opencms.util.CmsUUID;
 import org.opencms.workplace.CmsWorkplace;
 import org.opencms.xml.content.CmsNumberSuffixNameSequence;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -750,6 +752,36 @@ public final class CmsObject {
         return getResourceType(type).createResource(this, m_securityManager, resourcename, content, properties);
     }
 
+    /**
+     * Creates a new resource of the given resource type
+     * with content read from a stream and the provided properties.<p>
+     * 
+     * For resource types that do not need to inspect the content, like the "binary" type, the content is 
+     * streamed into the VFS without ever being held in memory completely. The stream is not closed by this method.<p>
+     * 
+     * @param resourcename the name of the resource to create (full current site relative path)
+     * @param type the type of the resource to create
+     * @param content the stream to read the contents for the new resource from
+     * @param length the length of the content, or <code>-1</code> if not known
+     * @param properties the properties for the new resource
+     * 
+     * @return the created resource
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws CmsIllegalArgumentException if the <code>resourcename</code> argument is null or of length 0
+     * 
+     * @see I_CmsResourceType#isContentStreamable()
+     */
+    public CmsResource createResource(
+        String resourcename,
+        int type,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException, CmsIllegalArgumentException {
+
+        return getResourceType(type).createResource(this, m_securityManager, resourcename, content, length, properties);
+    }
+
     /**
      * Creates a new sibling of the source resource.<p>
      * 
@@ -2185,6 +2217,39 @@ public final class CmsObject {
         return m_securityManager.readBestUrlName(m_context, id, locale, defaultLocales);
     }
 
+    /**
+     * Reads the binary content of a file resource as a stream, 
+     * for the given resource (this may also be an historical version of the resource).<p>
+     * 
+     * Use this method instead of {@link #readFile(CmsResource)} for large binary files,
+     * since the content is read from the database while the stream is read, 
+     * and is never kept in memory as a whole.<p>
+     * 
+     * The returned stream must always be closed, since it may keep a database connection open.<p>
+     * 
+     * No resource filter is applied when reading the content, since we already have
+     * a full resource instance and assume we just want the content for that instance.<p>
+     * 
+     * @param resource the file resource to read the content for
+     * 
+     * @return the content of the file as a stream
+     * 
+     * @throws CmsException if the content could not be read for any reason
+     * 
+     * @see #readFile(CmsResource)
+     */
+    public InputStream readContentStream(CmsResource resource) throws CmsException {
+
+        if (resource instanceof CmsFile) {
+            CmsFile file = (CmsFile)resource;
+            if ((file.getContents() != null) && (file.getContents().length > 0)) {
+                // file has the contents already available
+                return new ByteArrayInputStream(file.getContents());
+            }
+        }
+        return m_securityManager.readContentStream(m_context, resource);
+    }
+
     /**
      * Returns the default resource for the given folder.<p>
      * <ol>
@@ -3309,6 +3374,40 @@ public final class CmsObject {
         getResourceType(resource).replaceResource(this, m_securityManager, resource, type, content, properties);
     }
 
+    /**
+     * Replaces the content, type and properties of a resource, reading the new content from a stream.<p>
+     * 
+     * For resource types that do not need to inspect the content, like the "binary" type, the content is 
+     * streamed into the VFS without ever being held in memory completely. The stream is not closed by this method.<p>
+     * 
+     * @param resourcename the name of the resource to replace (full current site relative path)
+     * @param type the new type of the resource
+     * @param content the stream to read the new content of the resource from
+     * @param length the length of the new content, or <code>-1</code> if not known
+     * @param properties the new properties of the resource
+     * 
+     * @throws CmsException if something goes wrong
+     * 
+     * @see I_CmsResourceType#isContentStreamable()
+     */
+    public void replaceResource(
+        String resourcename,
+        int type,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException {
+
+        CmsResource resource = readResource(resourcename, CmsResourceFilter.IGNORE_EXPIRATION);
+        getResourceType(resource).replaceResource(
+            this,
+            m_securityManager,
+            resource,
+            type,
+            content,
+            length,
+            properties);
+    }
+
     /**
      * Restores a deleted resource identified by its structure id from the historical archive.<p>
      * 
@@ -54,6 +54,8 @@ import org.opencms.util.CmsMacroResolver;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.xml.containerpage.CmsFormatterConfiguration;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -353,6 +355,46 @@ public abstract class A_CmsResourceType implements I_CmsResourceType {
         return result;
     }
 
+    /**
+     * @see org.opencms.file.types.I_CmsResourceType#createResource(org.opencms.file.CmsObject, org.opencms.db.CmsSecurityManager, java.lang.String, java.io.InputStream, long, java.util.List)
+     */
+    public CmsResource createResource(
+        CmsObject cms,
+        CmsSecurityManager securityManager,
+        String resourcename,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException {
+
+        if (!isContentStreamable()) {
+            // this resource type needs the complete content 
+            return createResource(cms, securityManager, resourcename, readContent(resourcename, content), properties);
+        }
+        // create the resource with an empty content, then stream the content into it
+        CmsResource result = createResource(cms, securityManager, resourcename, new byte[0], properties);
+        boolean streamed = false;
+        try {
+            securityManager.replaceResource(cms.getRequestContext(), result, getTypeId(), content, length, null);
+            streamed = true;
+        } finally {
+            if (!streamed) {
+                // do not leave an empty resource behind
+                try {
+                    securityManager.deleteResource(
+                        cms.getRequestContext(),
+                        result,
+                        CmsResource.DELETE_REMOVE_SIBLINGS);
+                } catch (CmsException e) {
+                    LOG.error(
+                        Messages.get().getBundle().key(Messages.LOG_DELETE_INCOMPLETE_RESOURCE_1, resourcename),
+                        e);
+                }
+            }
+        }
+        // read the resource again to get the size of the new content
+        return securityManager.readResource(cms.getRequestContext(), result.getStructureId(), CmsResourceFilter.ALL);
+    }
+
     /**
      * @see org.opencms.file.types.I_CmsResourceType#createSibling(org.opencms.file.CmsObject, org.opencms.db.CmsSecurityManager, CmsResource, java.lang.String, java.util.List)
      */
@@ -680,6 +722,16 @@ public abstract class A_CmsResourceType implements I_CmsResourceType {
         return m_addititionalModuleResourceType;
     }
 
+    /**
+     * Returns <code>false</code>, since by default a resource type may need to inspect the content.<p>
+     * 
+     * @see org.opencms.file.types.I_CmsResourceType#isContentStreamable()
+     */
+    public boolean isContentStreamable() {
+
+        return false;
+    }
+
     /**
      * @see org.opencms.file.types.I_CmsResourceType#isDirectEditable()
      */
@@ -771,6 +823,34 @@ public abstract class A_CmsResourceType implements I_CmsResourceType {
         createRelations(cms, securityManager, resource.getRootPath());
     }
 
+    /**
+     * @see org.opencms.file.types.I_CmsResourceType#replaceResource(org.opencms.file.CmsObject, org.opencms.db.CmsSecurityManager, org.opencms.file.CmsResource, int, java.io.InputStream, long, java.util.List)
+     */
+    public void replaceResource(
+        CmsObject cms,
+        CmsSecurityManager securityManager,
+        CmsResource resource,
+        int type,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException {
+
+        if (!isContentStreamable() || !OpenCms.getResourceManager().getResourceType(type).isContentStreamable()) {
+            // the old or the new resource type needs the complete content
+            replaceResource(
+                cms,
+                securityManager,
+                resource,
+                type,
+                readContent(resource.getRootPath(), content),
+                properties);
+            return;
+        }
+        securityManager.replaceResource(cms.getRequestContext(), resource, type, content, length, properties);
+        // type may have changed from link parseable to non link parseable
+        createRelations(cms, securityManager, resource.getRootPath());
+    }
+
     /**
      * @see org.opencms.file.types.I_CmsResourceType#restoreResource(org.opencms.file.CmsObject, CmsSecurityManager, CmsResource, int)
      */
@@ -1166,6 +1246,28 @@ public abstract class A_CmsResourceType implements I_CmsResourceType {
         return result;
     }
 
+    /**
+     * Reads the complete content of a resource from a stream.<p>
+     * 
+     * This is used if a resource type needs to inspect the content of a resource that is created 
+     * or replaced with content from a stream. The stream is not closed by this method.<p>
+     * 
+     * @param resourcename the name of the resource the content belongs to
+     * @param content the stream to read the content from
+     * 
+     * @return the content
+     * 
+     * @throws CmsVfsException if reading the content fails
+     */
+    protected byte[] readContent(String resourcename, InputStream content) throws CmsVfsException {
+
+        try {
+            return CmsFileUtil.readFully(content, false);
+        } catch (IOException e) {
+            throw new CmsVfsException(Messages.get().container(Messages.ERR_READ_CONTENT_STREAM_1, resourcename), e);
+        }
+    }
+
     /**
      * Update the relations after an undo changes operation.<p>
      * 
@@ -120,4 +120,15 @@ public class CmsResourceTypeBinary extends A_CmsResourceType {
         // set static members with values from the configuration        
         m_staticTypeId = m_typeId;
     }
+
+    /**
+     * Returns <code>true</code>, since the content of binary resources is never inspected.<p>
+     * 
+     * @see org.opencms.file.types.A_CmsResourceType#isContentStreamable()
+     */
+    @Override
+    public boolean isContentStreamable() {
+
+        return true;
+    }
 }
\ No newline at end of file
@@ -40,6 +40,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.xml.containerpage.CmsFormatterConfiguration;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -299,6 +300,41 @@ public interface I_CmsResourceType extends I_CmsConfigurationParameterHandler {
         byte[] content,
         List<CmsProperty> properties) throws CmsException, CmsIllegalArgumentException;
 
+    /**
+     * Creates a new resource of the given resource type
+     * with content read from a stream and the provided properties.<p>
+     * 
+     * If this resource type does not need to inspect the content (see {@link #isContentStreamable()}),
+     * the content is streamed into the VFS without being held in memory completely. Otherwise the 
+     * content is read into memory and the resource is created like with 
+     * {@link #createResource(CmsObject, CmsSecurityManager, String, byte[], List)}.
+     * The stream is not closed by this method.<p>
+     * 
+     * A streamed resource is first created with an empty content, which is then replaced with the streamed
+     * content. If reading the stream fails, the new resource is deleted again before the error is thrown.<p>
+     * 
+     * @param cms the initialized CmsObject
+     * @param securityManager the initialized OpenCms security manager
+     * @param resourcename the name of the resource to create (full path)
+     * @param content the stream to read the content for the new resource from
+     * @param length the length of the content, or <code>-1</code> if not known
+     * @param properties the properties for the new resource
+     * 
+     * @return the created resource
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws CmsIllegalArgumentException if the <code>source</code> argument is null or of length 0
+     * 
+     * @see CmsObject#createResource(String, int, InputStream, long, List)
+     */
+    CmsResource createResource(
+        CmsObject cms,
+        CmsSecurityManager securityManager,
+        String resourcename,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException, CmsIllegalArgumentException;
+
     /**
      * Creates a new sibling of the source resource.<p>
      * 
@@ -532,6 +568,16 @@ public interface I_CmsResourceType extends I_CmsConfigurationParameterHandler {
      */
     boolean isAdditionalModuleResourceType();
 
+    /**
+     * Returns <code>true</code> if the content of resources of this type can be streamed into the VFS.<p>
+     * 
+     * This is the case if the resource type never needs to inspect or modify the content when a resource 
+     * is created or replaced, for example for validation, link parsing or image size detection.<p>
+     * 
+     * @return <code>true</code> if the content of resources of this type can be streamed into the VFS
+     */
+    boolean isContentStreamable();
+
     /**
      * Returns <code>true</code> if this resource type is direct editable.<p>
      * 
@@ -653,6 +699,37 @@ public interface I_CmsResourceType extends I_CmsConfigurationParameterHandler {
         byte[] content,
         List<CmsProperty> properties) throws CmsException;
 
+    /**
+     * Replaces the content, type and properties of a resource, reading the new content from a stream.<p>
+     * 
+     * The content is only streamed into the VFS if both this resource type and the new resource type 
+     * are content streamable (see {@link #isContentStreamable()}). Otherwise the content is read into 
+     * memory and the resource is replaced like with 
+     * {@link #replaceResource(CmsObject, CmsSecurityManager, CmsResource, int, byte[], List)}.
+     * The stream is not closed by this method.<p>
+     * 
+     * @param cms the current cms context
+     * @param securityManager the initialized OpenCms security manager
+     * @param resource the name of the resource to replace
+     * @param type the new type of the resource
+     * @param content the stream to read the new content of the resource from
+     * @param length the length of the new content, or <code>-1</code> if not known
+     * @param properties the new properties of the resource
+     *  
+     * @throws CmsException if something goes wrong
+     * 
+     * @see CmsObject#replaceResource(String, int, InputStream, long, List)
+     * @see CmsSecurityManager#replaceResource(org.opencms.file.CmsRequestContext, CmsResource, int, InputStream, long, List)
+     */
+    void replaceResource(
+        CmsObject cms,
+        CmsSecurityManager securityManager,
+        CmsResource resource,
+        int type,
+        InputStream content,
+        long length,
+        List<CmsProperty> properties) throws CmsException;
+
     /**
      * Restores a resource in the current project with a version from the historical archive.<p>
      * 
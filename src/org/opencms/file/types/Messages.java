@@ -64,6 +64,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_PROCESS_HTML_CONTENT_1 = "ERR_PROCESS_HTML_CONTENT_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_READ_CONTENT_STREAM_1 = "ERR_READ_CONTENT_STREAM_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_READING_FORMATTER_CONFIGURATION_1 = "ERR_READING_FORMATTER_CONFIGURATION_1";
 
@@ -91,6 +94,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ADD_MAPPING_TYPE_2 = "LOG_ADD_MAPPING_TYPE_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DELETE_INCOMPLETE_RESOURCE_1 = "LOG_DELETE_INCOMPLETE_RESOURCE_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_GET_CONFIGURATION_1 = "LOG_GET_CONFIGURATION_1";
 
@@ -50,8 +50,12 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -202,6 +206,35 @@ public class CmsObjectWrapper {
         return res;
     }
 
+    /**
+     * Creates a new resource of the given resource type with content read from a stream and the provided properties.<p>
+     * 
+     * Resource wrappers need the complete content, so the content is streamed into the VFS only if the
+     * parent folder is not handled by a resource wrapper and the resource type does not need to inspect 
+     * the content. Otherwise the content is read into memory and the resource is created with 
+     * {@link #createResource(String, int, byte[], List)}. The stream is not closed by this method.<p>
+     * 
+     * @see CmsObject#createResource(String, int, InputStream, long, List)
+     * 
+     * @param resourcename the name of the resource to create (full path)
+     * @param type the type of the resource to create
+     * @param content the stream to read the contents for the new resource from
+     * @param properties the properties for the new resource
+     * 
+     * @return the created resource
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws IOException if reading the content fails
+     */
+    public CmsResource createResource(String resourcename, int type, InputStream content, List<CmsProperty> properties)
+    throws CmsException, IOException {
+
+        if (isContentStreamable(resourcename, type)) {
+            return m_cms.createResource(resourcename, type, content, -1, properties);
+        }
+        return createResource(resourcename, type, CmsFileUtil.readFully(content, false), properties);
+    }
+
     /**
      * Deletes a resource given its name.<p>
      * 
@@ -499,6 +532,30 @@ public class CmsObjectWrapper {
         }
     }
 
+    /**
+     * Reads the content of a file resource as a stream.<p>
+     * 
+     * The content of resources handled by a resource wrapper and of textual resources that need 
+     * the UTF-8 marker is read with {@link #readFile(String, CmsResourceFilter)}, since it is 
+     * generated in memory anyway. The content of all other resources is streamed from the database.<p>
+     * 
+     * @see CmsObject#readContentStream(CmsResource)
+     * 
+     * @param resource the file resource to read the content for
+     * 
+     * @return the content of the file as a stream, which must be closed by the caller
+     *
+     * @throws CmsException if the content could not be read for any reason
+     */
+    public InputStream readContentStream(CmsResource resource) throws CmsException {
+
+        if ((getResourceTypeWrapper(resource) != null) || needUtf8Marker(resource)) {
+            CmsFile file = readFile(m_cms.getSitePath(resource), CmsResourceFilter.IGNORE_EXPIRATION);
+            return new ByteArrayInputStream(file.getContents());
+        }
+        return m_cms.readContentStream(resource);
+    }
+
     /**
      * Reads a file resource (including it's binary content) from the VFS,
      * using the specified resource filter.<p>
@@ -820,6 +877,33 @@ public class CmsObjectWrapper {
         return res;
     }
 
+    /**
+     * Writes the content of a file resource, reading it from a stream.<p>
+     * 
+     * The content of resources that are handled by a resource wrapper, or whose resource type needs 
+     * to inspect the content, is read into memory and written with {@link #writeFile(CmsFile)}.
+     * The content of all other resources is streamed into the VFS. The stream is not closed by this method.<p>
+     * 
+     * @see CmsObject#replaceResource(String, int, InputStream, long, List)
+     * 
+     * @param resource the file resource to write the content for
+     * @param content the stream to read the new content from
+     * 
+     * @throws CmsException if something goes wrong
+     * @throws IOException if reading the content fails
+     */
+    public void writeFile(CmsResource resource, InputStream content) throws CmsException, IOException {
+
+        String resourcename = m_cms.getSitePath(resource);
+        if ((getResourceTypeWrapper(resource) == null) && isContentStreamable(resourcename, resource.getTypeId())) {
+            m_cms.replaceResource(resourcename, resource.getTypeId(), content, -1, null);
+        } else {
+            CmsFile file = readFile(resourcename, CmsResourceFilter.DEFAULT);
+            file.setContents(CmsFileUtil.readFully(content, false));
+            writeFile(file);
+        }
+    }
+
     /**
      * Try to find a resource type wrapper for the resource.<p>
      * 
@@ -847,6 +931,32 @@ public class CmsObjectWrapper {
         return null;
     }
 
+    /**
+     * Checks if the content of a resource can be streamed into the VFS.<p>
+     * 
+     * This is the case if the resource type does not need to inspect the content, and the parent 
+     * folder of the resource is a real folder not handled by any resource wrapper.<p>
+     * 
+     * @param resourcename the name of the resource
+     * @param type the type of the resource
+     * 
+     * @return <code>true</code> if the content of the resource can be streamed into the VFS
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    private boolean isContentStreamable(String resourcename, int type) throws CmsException {
+
+        if (!OpenCms.getResourceManager().getResourceType(type).isContentStreamable()) {
+            return false;
+        }
+        String parentFolder = CmsResource.getParentFolder(resourcename);
+        if ((parentFolder == null) || !m_cms.existsResource(parentFolder, CmsResourceFilter.ALL)) {
+            // the parent folder is a virtual folder created by a resource wrapper
+            return false;
+        }
+        return getResourceTypeWrapper(m_cms.readResource(parentFolder, CmsResourceFilter.ALL)) == null;
+    }
+
     /**
      * Checks if the resource type needs an UTF-8 marker.<p>
      *
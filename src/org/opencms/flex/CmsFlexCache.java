@@ -35,20 +35,25 @@ import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsRole;
-import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 
 import java.io.File;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
-import org.apache.commons.collections.map.LRUMap;
 import org.apache.commons.logging.Log;
 
 /**
@@ -87,6 +92,20 @@ import org.apache.commons.logging.Log;
  * For every entry a key is saved which contains the resource name and the variation.
  * </ul>
  *
+ * Both hash-levels are concurrent maps, so cache lookups never block on a global monitor.
+ * The number of resource keys is bounded by the configured maximum; if it is exceeded,
+ * the least recently used keys are released together with all their variations.
+ * The byte budget of the cached entries is enforced by the {@link CmsLruCache}.<p>
+ *
+ * If "single flight" rendering is configured, concurrent cache misses for the same 
+ * resource and variation are coalesced: only the first request renders the entry, 
+ * while all other requests wait for the result (or are served the expired entry, if configured).<p>
+ *
+ * If "stale while revalidate" is configured, a publish does not remove the online entries, 
+ * but marks all of them as stale.
+ * A stale entry is rendered again by the next request, while concurrent requests are still served the stale entry.
+ * The number of concurrent revalidations and the time a stale entry may be served are limited.<p>
+ *
  * Cache clearing is handled using events.
  * The cache is fully flushed if an event {@link I_CmsEventListener#EVENT_PUBLISH_PROJECT} 
  * or {@link I_CmsEventListener#EVENT_CLEAR_CACHES} is caught.<p>
@@ -111,6 +130,12 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         /** Maps variations to CmsFlexCacheEntries. */
         public Map<String, I_CmsLruCacheObject> m_map;
 
+        /** The time this variation list was last accessed, used to release the least recently used keys. */
+        volatile long m_lastAccess;
+
+        /** Indicates that the key must be read again, since the resource may have been changed by a publish. */
+        volatile boolean m_stale;
+
         /**
          * Generates a new instance of CmsFlexCacheVariation.<p>
          *
@@ -119,59 +144,76 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         public CmsFlexCacheVariation(CmsFlexCacheKey theKey) {
 
             m_key = theKey;
-            m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            m_map = new ConcurrentHashMap<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+            m_lastAccess = System.currentTimeMillis();
         }
     }
 
     /**
-     * Extended LRUMap that handles the variations in case a key is removed.<p>
+     * A render of an entry in progress, claimed with {@link CmsFlexCache#claimRender(String, String)}.<p>
      */
-    class CmsFlexKeyMap extends LRUMap {
+    static class CmsFlexRender {
 
-        /** Serial version UID required for safe serialization. */
-        private static final long serialVersionUID = 6931995916013396902L;
+        /** The latch that is released when the render is finished. */
+        CountDownLatch m_latch;
+
+        /** The resource name of the entry. */
+        String m_resource;
+
+        /** Indicates if this render revalidates a stale entry. */
+        boolean m_revalidation;
+
+        /** The expired or stale entry that is served to concurrent requests, or <code>null</code>. */
+        volatile CmsFlexCacheEntry m_stale;
 
         /**
-         * Initialize the map with the given size.<p>
+         * Creates a new render.<p>
          * 
-         * @param maxSize the maximum number of key to cache 
+         * @param resource the resource name of the entry
+         * @param stale the expired or stale entry to serve to concurrent requests, or <code>null</code>
          */
-        public CmsFlexKeyMap(int maxSize) {
+        CmsFlexRender(String resource, CmsFlexCacheEntry stale) {
 
-            super(maxSize);
+            m_latch = new CountDownLatch(1);
+            m_resource = resource;
+            m_stale = stale;
+            m_revalidation = (stale != null) && stale.isStale();
         }
+    }
+
+    /**
+     * A snapshot of the last access time of a resource key, used to release the least recently used keys.<p>
+     */
+    static class CmsFlexKeyAccess implements Comparable<CmsFlexKeyAccess> {
+
+        /** The last access time when the snapshot was taken. */
+        long m_lastAccess;
+
+        /** The resource name. */
+        String m_resource;
+
+        /** The variation list of the resource. */
+        CmsFlexCacheVariation m_variation;
 
         /**
-         * Ensures that all variations that referenced by this key are released
-         * if the key is released.<p>
-         * 
-         * @param entry the entry to remove
-         * 
-         * @return <code>true</code> to actually delete the entry
+         * Creates a new access snapshot.<p>
          * 
-         * @see LRUMap#removeLRU(LinkEntry)
+         * @param resource the resource name
+         * @param variation the variation list of the resource
          */
-        @Override
-        protected boolean removeLRU(LinkEntry entry) {
+        CmsFlexKeyAccess(String resource, CmsFlexCacheVariation variation) {
 
-            CmsFlexCacheVariation v = (CmsFlexCacheVariation)entry.getValue();
-            if (v == null) {
-                return true;
-            }
-            Map<String, I_CmsLruCacheObject> m = v.m_map;
-            if ((m == null) || (m.size() == 0)) {
-                return true;
-            }
-            Collection<I_CmsLruCacheObject> entries = m.values();
-            synchronized (m_variationCache) {
-                for (I_CmsLruCacheObject e : entries) {
-                    m_variationCache.remove(e);
-                }
-                v.m_map.clear();
-                v.m_map = null;
-                v.m_key = null;
-            }
-            return true;
+            m_resource = resource;
+            m_variation = variation;
+            m_lastAccess = variation.m_lastAccess;
+        }
+
+        /**
+         * @see java.lang.Comparable#compareTo(java.lang.Object)
+         */
+        public int compareTo(CmsFlexKeyAccess o) {
+
+            return (m_lastAccess < o.m_lastAccess) ? -1 : ((m_lastAccess == o.m_lastAccess) ? 0 : 1);
         }
     }
 
@@ -205,6 +247,9 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** Initial size for variation lists, should be a power of 2. */
     public static final int INITIAL_CAPACITY_VARIATIONS = 8;
 
+    /** Fraction of the maximum number of keys that is released in one go if the key limit is exceeded. */
+    public static final int KEY_EVICTION_FRACTION = 32;
+
     /** Offline repository constant. */
     public static final String REPOSITORY_OFFLINE = "offline";
 
@@ -217,9 +262,27 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     /** The LRU cache to organize the cached entries. */
     protected CmsLruCache m_variationCache;
 
+    /** Indicates if the output of cached entries should be stored off-heap. */
+    private boolean m_cacheOffHeap;
+
     /** Indicates if offline resources should be cached or not. */
     private boolean m_cacheOffline;
 
+    /** The number of requests that gave up waiting for a concurrent render of the same entry. */
+    private AtomicLong m_countRenderTimeouts = new AtomicLong();
+
+    /** The number of requests served with the result of a concurrent render of the same entry. */
+    private AtomicLong m_countRenderWaits = new AtomicLong();
+
+    /** The number of renders that other requests could wait for. */
+    private AtomicLong m_countRenders = new AtomicLong();
+
+    /** The number of stale entries that have been rendered again. */
+    private AtomicLong m_countRevalidations = new AtomicLong();
+
+    /** The number of requests served with an expired entry while the entry was rendered again. */
+    private AtomicLong m_countStaleHits = new AtomicLong();
+
     /** The device selector. */
     private I_CmsJspDeviceSelector m_deviceSelector;
 
@@ -227,7 +290,31 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
     private boolean m_enabled;
 
     /** Map to store the entries for fast lookup. */
-    private Map<String, CmsFlexCacheVariation> m_keyCache;
+    private ConcurrentMap<String, CmsFlexCacheVariation> m_keyCache;
+
+    /** Lock that ensures only one thread at a time releases keys if the key limit is exceeded. */
+    private ReentrantLock m_keyEvictionLock;
+
+    /** The maximum number of resource keys in the cache. */
+    private int m_maxKeys;
+
+    /** The maximum number of stale entries that are rendered again at the same time. */
+    private int m_maxRevalidations;
+
+    /** The maximum time a stale entry is delivered after a publish, 0 to remove entries after a publish. */
+    private long m_maxStaleness;
+
+    /** The renders in progress. */
+    private ConcurrentMap<String, CmsFlexRender> m_renders;
+
+    /** The number of renders in progress that revalidate a stale entry. */
+    private AtomicInteger m_revalidations = new AtomicInteger();
+
+    /** Indicates if expired entries are served while the entry is rendered again. */
+    private boolean m_singleFlightStale;
+
+    /** The maximum time to wait for a concurrent render of the same entry, 0 to disable single flight rendering. */
+    private long m_singleFlightTimeout;
 
     /** Counter for the size. */
     private int m_size;
@@ -247,10 +334,18 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
 
         m_enabled = configuration.isCacheEnabled();
         m_cacheOffline = configuration.isCacheOffline();
+        m_cacheOffHeap = configuration.isCacheOffHeap();
 
         // set the local device selector
         m_deviceSelector = configuration.getDeviceSelector();
 
+        // set the single flight parameters
+        m_singleFlightTimeout = configuration.getSingleFlightTimeout();
+        m_singleFlightStale = configuration.isSingleFlightStale();
+        m_maxStaleness = configuration.getMaxStaleness();
+        m_maxRevalidations = configuration.getMaxRevalidations();
+        m_renders = new ConcurrentHashMap<String, CmsFlexRender>();
+
         long maxCacheBytes = configuration.getMaxCacheBytes();
         long avgCacheBytes = configuration.getAvgCacheBytes();
         int maxEntryBytes = configuration.getMaxEntryBytes();
@@ -260,9 +355,10 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_entryLruCache", m_variationCache);
 
         if (m_enabled) {
-            CmsFlexKeyMap flexKeyMap = new CmsFlexKeyMap(maxKeys);
-            m_keyCache = Collections.synchronizedMap(CmsCollectionsGenericWrapper.<String, CmsFlexCacheVariation> map(flexKeyMap));
-            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", flexKeyMap);
+            m_maxKeys = maxKeys;
+            m_keyEvictionLock = new ReentrantLock();
+            m_keyCache = new ConcurrentHashMap<String, CmsFlexCacheVariation>(INITIAL_CAPACITY_CACHE);
+            OpenCms.getMemoryMonitor().register(getClass().getName() + ".m_resourceMap", m_keyCache);
 
             OpenCms.addCmsEventListener(this, new int[] {
                 I_CmsEventListener.EVENT_PUBLISH_PROJECT,
@@ -279,6 +375,16 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Indicates if the output of cached entries is stored off-heap.<p>
+     *
+     * @return true if the output of cached entries is stored off-heap, false if not
+     */
+    public boolean cacheOffHeap() {
+
+        return m_cacheOffHeap;
+    }
+
     /**
      * Indicates if offline project resources are cached.<p>
      *
@@ -303,6 +409,14 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
 
         switch (event.getType()) {
             case I_CmsEventListener.EVENT_PUBLISH_PROJECT:
+                if (isStaleWhileRevalidate()) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_RECEIVED_EVENT_MARK_STALE_0));
+                    }
+                    markStale();
+                    break;
+                }
+                //$FALL-THROUGH$
             case I_CmsEventListener.EVENT_CLEAR_CACHES:
                 if (LOG.isDebugEnabled()) {
                     LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_RECEIVED_EVENT_CLEAR_CACHE_0));
@@ -454,6 +568,59 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_variationCache;
     }
 
+    /**
+     * Returns the number of renders that concurrent requests for the same entry could wait for.<p>
+     *
+     * @return the number of coordinated renders
+     */
+    public long getRenderCount() {
+
+        return m_countRenders.get();
+    }
+
+    /**
+     * Returns the number of requests that gave up waiting for a concurrent render 
+     * of the same entry and rendered the entry themselves.<p>
+     *
+     * @return the number of render timeouts
+     */
+    public long getRenderTimeoutCount() {
+
+        return m_countRenderTimeouts.get();
+    }
+
+    /**
+     * Returns the number of requests that were served with the result of 
+     * a concurrent render of the same entry, instead of rendering the entry themselves.<p>
+     *
+     * @return the number of coalesced requests
+     */
+    public long getRenderWaitCount() {
+
+        return m_countRenderWaits.get();
+    }
+
+    /**
+     * Returns the number of stale entries that were rendered again after a publish.<p>
+     *
+     * @return the number of revalidations
+     */
+    public long getRevalidationCount() {
+
+        return m_countRevalidations.get();
+    }
+
+    /**
+     * Returns the number of requests that were served with an expired or stale entry
+     * while the entry was rendered again by another request.<p>
+     *
+     * @return the number of stale hits
+     */
+    public long getStaleHitCount() {
+
+        return m_countStaleHits.get();
+    }
+
     /**
      * Indicates if the cache is enabled (i.e. actually
      * caching entries) or not.<p>
@@ -465,6 +632,26 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_enabled;
     }
 
+    /**
+     * Indicates if concurrent cache misses for the same entry are coalesced.<p>
+     *
+     * @return true if concurrent cache misses for the same entry are coalesced
+     */
+    public boolean isSingleFlight() {
+
+        return isEnabled() && (m_singleFlightTimeout > 0);
+    }
+
+    /**
+     * Indicates if entries are marked as stale after a publish, instead of being removed.<p>
+     *
+     * @return true if entries are marked as stale after a publish
+     */
+    public boolean isStaleWhileRevalidate() {
+
+        return isEnabled() && (m_maxStaleness > 0);
+    }
+
     /**
      * Returns the total number of cached resource keys.
      *
@@ -488,6 +675,38 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         return m_variationCache.size();
     }
 
+    /**
+     * Claims the render of the entry for the given resource and variation.<p>
+     * 
+     * If the render is claimed, the caller must render the entry, put it in the cache and finally 
+     * call {@link #releaseRender(String, String, CmsFlexRender)}. Otherwise another request is already rendering 
+     * the entry, and the caller should use {@link #waitForRender(String, String)}.<p>
+     * 
+     * An expired or stale entry that may still be served is attached to the claimed render, 
+     * so it is served to concurrent requests exactly as long as the render is in progress.<p>
+     * 
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the claimed render, or <code>null</code> if another request is already rendering the entry
+     */
+    CmsFlexRender claimRender(String resource, String variation) {
+
+        CmsFlexRender render = new CmsFlexRender(resource, getServableEntry(resource, variation));
+        if (m_renders.putIfAbsent(getRenderId(resource, variation), render) != null) {
+            return null;
+        }
+        m_countRenders.incrementAndGet();
+        if (render.m_revalidation) {
+            m_revalidations.incrementAndGet();
+            m_countRevalidations.incrementAndGet();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_REVALIDATE_2, resource, variation));
+            }
+        }
+        return render;
+    }
+
     /**
      * Looks up a specific entry in the cache.<p>
      * 
@@ -504,33 +723,42 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             // cache is disabled
             return null;
         }
-        Object o = m_keyCache.get(key.getResource());
-        if (o != null) {
+        CmsFlexCacheVariation v = m_keyCache.get(key.getResource());
+        if (v != null) {
             // found a matching key in the cache
-            CmsFlexCacheVariation v = (CmsFlexCacheVariation)o;
+            v.m_lastAccess = System.currentTimeMillis();
             String variation = v.m_key.matchRequestKey(key);
 
             if (CmsStringUtil.isEmpty(variation)) {
                 // requested resource is not cacheable
                 return null;
             }
-            CmsFlexCacheEntry entry = (CmsFlexCacheEntry)v.m_map.get(variation);
-            if (entry == null) {
-                // no cache entry available for variation
-                return null;
-            }
-            if (entry.getDateExpires() < System.currentTimeMillis()) {
-                // cache entry avaiable but expired, remove entry
-                m_variationCache.remove(entry);
-                return null;
-            }
-            // return the found cache entry
-            return entry;
+            return getEntry(v, key.getResource(), variation);
         } else {
             return null;
         }
     }
 
+    /**
+     * Looks up the entry for a variation that has already been calculated.<p>
+     * 
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the entry found for the variation, or <code>null</code> if the entry has to be rendered
+     */
+    CmsFlexCacheEntry get(String resource, String variation) {
+
+        if (!isEnabled()) {
+            return null;
+        }
+        CmsFlexCacheVariation v = m_keyCache.get(resource);
+        if (v == null) {
+            return null;
+        }
+        return getEntry(v, resource, variation);
+    }
+
     /**
      * Returns the CmsFlexCacheKey data structure for a given resource name.<p>
      *
@@ -542,12 +770,13 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (!isEnabled()) {
             return null;
         }
-        Object o = m_keyCache.get(resource);
-        if (o != null) {
+        CmsFlexCacheVariation v = m_keyCache.get(resource);
+        if ((v != null) && !v.m_stale) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_FOUND_1, resource));
             }
-            return ((CmsFlexCacheVariation)o).m_key;
+            v.m_lastAccess = System.currentTimeMillis();
+            return v.m_key;
         } else {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHEKEY_NOT_FOUND_1, resource));
@@ -623,16 +852,37 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         if (!isEnabled()) {
             return;
         }
-        Object o = m_keyCache.get(key.getResource());
-        if (o == null) {
+        CmsFlexCacheVariation v = m_keyCache.get(key.getResource());
+        if (v == null) {
             // No variation map for this resource yet, so create one
-            CmsFlexCacheVariation variationMap = new CmsFlexCacheVariation(key);
-            m_keyCache.put(key.getResource(), variationMap);
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADD_KEY_1, key.getResource()));
-            }
+            getVariation(key);
+        } else if (v.m_stale) {
+            // the key has been read again after a publish, the caching directives might have changed
+            v.m_key = key;
+            v.m_stale = false;
         }
-        // If != null the key is already in the cache, so we just do nothing
+        // Otherwise the key is already in the cache, so we just do nothing
+    }
+
+    /**
+     * Releases a render claimed with {@link #claimRender(String, String)}, 
+     * waking up all requests waiting for the entry.<p>
+     * 
+     * This must be called exactly once for every claimed render, also if the render failed.<p>
+     * 
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * @param render the render returned by {@link #claimRender(String, String)}
+     */
+    void releaseRender(String resource, String variation, CmsFlexRender render) {
+
+        // the render may already have been removed by a cache clear, so only remove this render
+        m_renders.remove(getRenderId(resource, variation), render);
+        render.m_stale = null;
+        if (render.m_revalidation) {
+            m_revalidations.decrementAndGet();
+        }
+        render.m_latch.countDown();
     }
 
     /**
@@ -654,6 +904,56 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Waits for the render of an entry by a concurrent request.<p>
+     * 
+     * If expired or stale entries may be served, the entry is returned immediately if available.
+     * Otherwise this waits until the concurrent render is finished or the single flight timeout is reached.
+     * If single flight rendering is disabled, this does not wait at all.<p>
+     * 
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the rendered (or expired) entry, or <code>null</code> if the caller has to render the entry itself
+     */
+    CmsFlexCacheEntry waitForRender(String resource, String variation) {
+
+        CmsFlexRender render = m_renders.get(getRenderId(resource, variation));
+        if (render != null) {
+            // stale entries are only attached to the render if serving them is allowed
+            CmsFlexCacheEntry stale = render.m_stale;
+            if (stale != null) {
+                m_countStaleHits.incrementAndGet();
+                return stale;
+            }
+            if (!isSingleFlight()) {
+                // the render was only claimed to serve a stale entry, concurrent misses are rendered in parallel
+                return null;
+            }
+            try {
+                if (!render.m_latch.await(m_singleFlightTimeout, TimeUnit.MILLISECONDS)) {
+                    m_countRenderTimeouts.incrementAndGet();
+                    if (LOG.isInfoEnabled()) {
+                        LOG.info(Messages.get().getBundle().key(
+                            Messages.LOG_FLEXCACHE_RENDER_TIMEOUT_3,
+                            resource,
+                            variation,
+                            new Long(m_singleFlightTimeout)));
+                    }
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        CmsFlexCacheEntry entry = get(resource, variation);
+        if (entry != null) {
+            m_countRenderWaits.incrementAndGet();
+        }
+        return entry;
+    }
+
     /**
      * Empties the cache completely.<p>
      */
@@ -663,6 +963,7 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             return;
         }
         m_keyCache.clear();
+        clearRenders(null);
         m_size = 0;
 
         m_variationCache.clear();
@@ -692,32 +993,22 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             String s = i.next();
             if (s.endsWith(suffix)) {
                 CmsFlexCacheVariation v = m_keyCache.get(s);
+                if (v == null) {
+                    // key has been released concurrently
+                    continue;
+                }
+                m_size -= v.m_map.size();
                 if (entriesOnly) {
                     // Clear only entry
-                    m_size -= v.m_map.size();
-                    Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-                    while (allEntries.hasNext()) {
-                        I_CmsLruCacheObject nextObject = allEntries.next();
-                        allEntries.remove();
-                        m_variationCache.remove(nextObject);
-                    }
-                    v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
+                    clearVariation(v);
                 } else {
                     // Clear key and entry
-                    m_size -= v.m_map.size();
-                    Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-                    while (allEntries.hasNext()) {
-                        I_CmsLruCacheObject nextObject = allEntries.next();
-                        allEntries.remove();
-                        m_variationCache.remove(nextObject);
-                    }
-
-                    v.m_map = null;
-                    v.m_key = null;
-                    m_keyCache.remove(s);
+                    m_keyCache.remove(s, v);
+                    clearVariation(v);
                 }
             }
         }
+        clearRenders(suffix);
         if (LOG.isInfoEnabled()) {
             LOG.info(Messages.get().getBundle().key(
                 Messages.LOG_FLEXCACHE_CLEAR_HALF_2,
@@ -747,14 +1038,11 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         Iterator<String> i = cacheKeys.iterator();
         while (i.hasNext()) {
             CmsFlexCacheVariation v = m_keyCache.get(i.next());
-            Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
-            while (allEntries.hasNext()) {
-                I_CmsLruCacheObject nextObject = allEntries.next();
-                allEntries.remove();
-                m_variationCache.remove(nextObject);
+            if (v != null) {
+                clearVariation(v);
             }
-            v.m_map = new Hashtable<String, I_CmsLruCacheObject>(INITIAL_CAPACITY_VARIATIONS);
         }
+        clearRenders(null);
         m_size = 0;
     }
 
@@ -836,6 +1124,207 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
         clearAccordingToSuffix(CACHE_ONLINESUFFIX, true);
     }
 
+    /**
+     * Removes the renders in progress, so that later requests neither wait for them nor get their stale entries.<p>
+     * 
+     * Requests already waiting for a removed render are still woken up when it is released.<p>
+     * 
+     * @param suffix the suffix of the resource names of the renders to remove, or <code>null</code> for all renders
+     */
+    private void clearRenders(String suffix) {
+
+        Iterator<CmsFlexRender> i = m_renders.values().iterator();
+        while (i.hasNext()) {
+            CmsFlexRender render = i.next();
+            if ((suffix == null) || render.m_resource.endsWith(suffix)) {
+                render.m_stale = null;
+                i.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all entries of the given variation list from the cache.<p>
+     * 
+     * The variation map itself is kept, since concurrent readers may still hold a reference to it.<p>
+     * 
+     * @param v the variation list to clear
+     */
+    private void clearVariation(CmsFlexCacheVariation v) {
+
+        Iterator<I_CmsLruCacheObject> allEntries = v.m_map.values().iterator();
+        while (allEntries.hasNext()) {
+            I_CmsLruCacheObject nextObject = allEntries.next();
+            allEntries.remove();
+            m_variationCache.remove(nextObject);
+        }
+    }
+
+    /**
+     * Returns the entry for the given variation, checking if it has expired or is stale.<p>
+     * 
+     * An expired entry is removed from the cache, unless expired entries are served while they are rendered again.
+     * In that case it is kept until it is replaced, so that {@link #claimRender(String, String)} can attach it 
+     * to the render.<p>
+     * 
+     * @param v the variation list of the resource
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the entry to deliver, or <code>null</code> if the entry has to be rendered
+     */
+    private CmsFlexCacheEntry getEntry(CmsFlexCacheVariation v, String resource, String variation) {
+
+        CmsFlexCacheEntry entry = (CmsFlexCacheEntry)v.m_map.get(variation);
+        if (entry == null) {
+            // no cache entry available for variation
+            return null;
+        }
+        if (entry.getDateExpires() < System.currentTimeMillis()) {
+            // cache entry avaiable but expired
+            if (!(m_singleFlightStale && isSingleFlight())) {
+                m_variationCache.remove(entry);
+            }
+            return null;
+        }
+        if (entry.isStale()) {
+            // cache entry available but possibly outdated by a publish
+            return getStale(entry, resource, variation);
+        }
+        // return the found cache entry
+        return entry;
+    }
+
+    /**
+     * Returns the id of a render for the given resource and variation.<p>
+     * 
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the id of the render
+     */
+    private String getRenderId(String resource, String variation) {
+
+        StringBuffer result = new StringBuffer(resource.length() + variation.length() + 1);
+        result.append(resource).append('\n').append(variation);
+        return result.toString();
+    }
+
+    /**
+     * Returns the expired or stale entry for the given variation that may be served while it is rendered again.<p>
+     * 
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the entry that may be served while it is rendered again, or <code>null</code>
+     */
+    private CmsFlexCacheEntry getServableEntry(String resource, String variation) {
+
+        CmsFlexCacheVariation v = m_keyCache.get(resource);
+        if (v == null) {
+            return null;
+        }
+        CmsFlexCacheEntry entry = (CmsFlexCacheEntry)v.m_map.get(variation);
+        if (entry == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (entry.isStale()) {
+            return ((now - entry.getStaleSince()) <= m_maxStaleness) ? entry : null;
+        }
+        if (entry.getDateExpires() < now) {
+            return m_singleFlightStale ? entry : null;
+        }
+        return null;
+    }
+
+    /**
+     * Decides if a stale entry is delivered or if it has to be rendered again by the current request.<p>
+     * 
+     * The current request renders the entry again, unless another request is already doing so, 
+     * or the maximum number of concurrent revalidations has been reached.
+     * Stale entries that exceed the maximum staleness are removed from the cache.<p>
+     * 
+     * @param entry the stale entry
+     * @param resource the resource name of the entry
+     * @param variation the variation of the entry
+     * 
+     * @return the stale entry to deliver, or <code>null</code> if the current request has to render the entry
+     */
+    private CmsFlexCacheEntry getStale(CmsFlexCacheEntry entry, String resource, String variation) {
+
+        String id = getRenderId(resource, variation);
+        if ((System.currentTimeMillis() - entry.getStaleSince()) > m_maxStaleness) {
+            // the entry is too old to be delivered
+            m_variationCache.remove(entry);
+            return null;
+        }
+        if (m_renders.containsKey(id) || (m_revalidations.get() >= m_maxRevalidations)) {
+            // the entry is already being rendered again, or too many entries are being rendered again
+            m_countStaleHits.incrementAndGet();
+            return entry;
+        }
+        // the current request renders the entry again, its render serves the stale entry to concurrent requests
+        return null;
+    }
+
+    /**
+     * Returns the variation list for the resource of the given key, creating it if required.<p>
+     * 
+     * If a new variation list is created and this exceeds the maximum number of keys,
+     * the least recently used keys are released.<p>
+     * 
+     * @param key the key to get the variation list for
+     * 
+     * @return the variation list for the resource of the given key
+     */
+    private CmsFlexCacheVariation getVariation(CmsFlexCacheKey key) {
+
+        CmsFlexCacheVariation v = m_keyCache.get(key.getResource());
+        if (v != null) {
+            return v;
+        }
+        CmsFlexCacheVariation list = new CmsFlexCacheVariation(key);
+        v = m_keyCache.putIfAbsent(key.getResource(), list);
+        if (v != null) {
+            // another thread was faster
+            return v;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADD_KEY_1, key.getResource()));
+        }
+        if (m_keyCache.size() > m_maxKeys) {
+            releaseKeys();
+        }
+        return list;
+    }
+
+    /**
+     * Marks all online entries and keys as stale after a publish, and clears the offline entries.<p>
+     * 
+     * All online entries are marked, not only the entries of the published resources, since a cached 
+     * entry may depend on any other resource it has read. This matches the full cache clear that is 
+     * done after a publish if stale entries are not served.<p>
+     */
+    private synchronized void markStale() {
+
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, CmsFlexCacheVariation> entry : m_keyCache.entrySet()) {
+            if (entry.getKey().endsWith(CACHE_ONLINESUFFIX)) {
+                CmsFlexCacheVariation v = entry.getValue();
+                v.m_stale = true;
+                for (I_CmsLruCacheObject cached : v.m_map.values()) {
+                    ((CmsFlexCacheEntry)cached).markStale(now);
+                }
+            }
+        }
+        // offline entries are not served stale
+        clearAccordingToSuffix(CACHE_OFFLINESUFFIX, false);
+        if (LOG.isInfoEnabled()) {
+            LOG.info(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_MARKED_STALE_0));
+        }
+    }
+
     /**
      * This method purges the JSP repository dirs,
      * i.e. it deletes all JSP files that OpenCms has written to the
@@ -873,34 +1362,24 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
      */
     private void put(CmsFlexCacheKey key, CmsFlexCacheEntry theCacheEntry) {
 
-        CmsFlexCacheVariation o = m_keyCache.get(key.getResource());
         if (key.getTimeout() > 0) {
             theCacheEntry.setDateExpiresToNextTimeout(key.getTimeout());
         }
-        if (o != null) {
-            // We already have a variation map for this resource
-            Map<String, I_CmsLruCacheObject> m = o.m_map;
-            boolean wasAdded = true;
-            if (!m.containsKey(key.getVariation())) {
-                wasAdded = m_variationCache.add(theCacheEntry);
-            } else {
-                wasAdded = m_variationCache.touch(theCacheEntry);
-            }
-
-            if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), m);
-                m.put(key.getVariation(), theCacheEntry);
-            }
+        // get the variation map for this resource, a new one is created if required
+        Map<String, I_CmsLruCacheObject> m = getVariation(key).m_map;
+        boolean wasAdded = true;
+        if (m.get(key.getVariation()) != theCacheEntry) {
+            wasAdded = m_variationCache.add(theCacheEntry);
         } else {
-            // No variation map for this resource yet, so create one
-            CmsFlexCacheVariation list = new CmsFlexCacheVariation(key);
-
-            boolean wasAdded = m_variationCache.add(theCacheEntry);
+            wasAdded = m_variationCache.touch(theCacheEntry);
+        }
 
-            if (wasAdded) {
-                theCacheEntry.setVariationData(key.getVariation(), list.m_map);
-                list.m_map.put(key.getVariation(), theCacheEntry);
-                m_keyCache.put(key.getResource(), list);
+        if (wasAdded) {
+            theCacheEntry.setVariationData(key.getVariation(), m);
+            I_CmsLruCacheObject old = m.put(key.getVariation(), theCacheEntry);
+            if ((old != null) && (old != theCacheEntry)) {
+                // the variation was rendered again (or concurrently), release the replaced entry
+                m_variationCache.remove(old);
             }
         }
 
@@ -913,4 +1392,39 @@ public class CmsFlexCache extends Object implements I_CmsEventListener {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_FLEXCACHE_ADDED_ENTRY_1, theCacheEntry.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Releases the least recently used keys together with all their variations 
+     * if the maximum number of keys is exceeded.<p>
+     * 
+     * To avoid a full scan for every new key, a small fraction of the maximum number of keys 
+     * is released in one go. If another thread is already releasing keys, this method returns immediately.<p>
+     */
+    private void releaseKeys() {
+
+        if (!m_keyEvictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = m_keyCache.size() - m_maxKeys;
+            if (excess <= 0) {
+                return;
+            }
+            int count = Math.min(m_keyCache.size(), excess + (m_maxKeys / KEY_EVICTION_FRACTION));
+            // take a snapshot of the access times, since these may change while sorting
+            List<CmsFlexKeyAccess> keys = new ArrayList<CmsFlexKeyAccess>(m_keyCache.size());
+            for (Map.Entry<String, CmsFlexCacheVariation> entry : m_keyCache.entrySet()) {
+                keys.add(new CmsFlexKeyAccess(entry.getKey(), entry.getValue()));
+            }
+            Collections.sort(keys);
+            for (int i = 0; (i < count) && (i < keys.size()); i++) {
+                CmsFlexKeyAccess key = keys.get(i);
+                if (m_keyCache.remove(key.m_resource, key.m_variation)) {
+                    clearVariation(key.m_variation);
+                }
+            }
+        } finally {
+            m_keyEvictionLock.unlock();
+        }
+    }
+}
@@ -40,6 +40,9 @@ import org.apache.commons.logging.Log;
  */
 public class CmsFlexCacheConfiguration {
 
+    /** The default maximum number of stale entries that are rendered again at the same time. */
+    public static final int DEFAULT_MAX_REVALIDATIONS = 4;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsFlexCacheConfiguration.class);
 
@@ -48,6 +51,9 @@ public class CmsFlexCacheConfiguration {
     /** Indicates if the cache is enabled or not. */
     private boolean m_cacheEnabled;
 
+    /** Indicates if the output of cached entries should be stored off-heap. */
+    private boolean m_cacheOffHeap;
+
     /** Indicates if offline resources should be cached or not. */
     private boolean m_cacheOffline;
 
@@ -71,6 +77,18 @@ public class CmsFlexCacheConfiguration {
 
     private int m_maxKeys;
 
+    /** The maximum number of stale entries that are rendered again at the same time. */
+    private int m_maxRevalidations = DEFAULT_MAX_REVALIDATIONS;
+
+    /** The maximum time in milliseconds a stale entry is delivered after a publish. */
+    private long m_maxStaleness;
+
+    /** Indicates if expired entries are served while the entry is rendered again. */
+    private boolean m_singleFlightStale;
+
+    /** The maximum time in milliseconds to wait for a concurrent render of the same entry. */
+    private long m_singleFlightTimeout;
+
     /**
      * Empty public constructor for the digester.
      */
@@ -142,6 +160,40 @@ public class CmsFlexCacheConfiguration {
         return m_maxKeys;
     }
 
+    /**
+     * Returns the maximum number of stale entries that are rendered again at the same time.<p>
+     *
+     * @return the maximum number of concurrent revalidations
+     */
+    public int getMaxRevalidations() {
+
+        return m_maxRevalidations;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds a stale entry is delivered after a publish.<p>
+     * 
+     * A value of 0 means that entries are removed from the cache after a publish.<p>
+     *
+     * @return the maximum staleness
+     */
+    public long getMaxStaleness() {
+
+        return m_maxStaleness;
+    }
+
+    /**
+     * Returns the maximum time in milliseconds to wait for a concurrent render of the same entry.<p>
+     * 
+     * A value of 0 means that concurrent cache misses are not coalesced.<p>
+     *
+     * @return the single flight timeout
+     */
+    public long getSingleFlightTimeout() {
+
+        return m_singleFlightTimeout;
+    }
+
     /**
      * Initializes the flex cache configuration with required parameters.<p>
      * 
@@ -178,6 +230,16 @@ public class CmsFlexCacheConfiguration {
         return m_cacheEnabled;
     }
 
+    /**
+     * Checks if the output of cached entries is stored off-heap.<p>
+     *
+     * @return true if the output of cached entries is stored off-heap; otherwise false
+     */
+    public boolean isCacheOffHeap() {
+
+        return m_cacheOffHeap;
+    }
+
     /**
      * Checks the cacheOffline.<p>
      *
@@ -188,6 +250,16 @@ public class CmsFlexCacheConfiguration {
         return m_cacheOffline;
     }
 
+    /**
+     * Checks if expired entries are served while the entry is rendered again by a concurrent request.<p>
+     *
+     * @return true if expired entries are served during a concurrent render; otherwise false
+     */
+    public boolean isSingleFlightStale() {
+
+        return m_singleFlightStale;
+    }
+
     /**
      * Sets the avgCacheBytes.<p>
      *
@@ -208,6 +280,16 @@ public class CmsFlexCacheConfiguration {
         m_cacheEnabled = enabled;
     }
 
+    /**
+     * Sets if the output of cached entries should be stored off-heap.<p>
+     *
+     * @param cacheOffHeap <code>"true"</code> to store the output of cached entries off-heap
+     */
+    public void setCacheOffHeap(String cacheOffHeap) {
+
+        m_cacheOffHeap = Boolean.valueOf(cacheOffHeap).booleanValue();
+    }
+
     /**
      * Sets the cacheOffline.<p>
      *
@@ -282,4 +364,31 @@ public class CmsFlexCacheConfiguration {
 
         m_maxKeys = maxKeys;
     }
+
+    /**
+     * Sets the single flight parameters.<p>
+     *
+     * @param timeout the maximum time in milliseconds to wait for a concurrent render of the same entry
+     * @param stale <code>"true"</code> to serve expired entries during a concurrent render
+     */
+    public void setSingleFlight(String timeout, String stale) {
+
+        m_singleFlightTimeout = Long.parseLong(timeout);
+        m_singleFlightStale = Boolean.valueOf(stale).booleanValue();
+    }
+
+    /**
+     * Sets the stale while revalidate parameters.<p>
+     *
+     * @param maxStaleness the maximum time in milliseconds a stale entry is delivered after a publish
+     * @param maxRevalidations the maximum number of stale entries that are rendered again at the same time,
+     *      if <code>null</code> the default is used
+     */
+    public void setStaleWhileRevalidate(String maxStaleness, String maxRevalidations) {
+
+        m_maxStaleness = Long.parseLong(maxStaleness);
+        if (maxRevalidations != null) {
+            m_maxRevalidations = Integer.parseInt(maxRevalidations);
+        }
+    }
 }
@@ -36,11 +36,14 @@ import org.opencms.monitor.I_CmsMemoryMonitorable;
 import org.opencms.util.CmsCollectionsGenericWrapper;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.ServletException;
 
@@ -57,6 +60,9 @@ import org.apache.commons.logging.Log;
  * nothing else will be cached.<p>
  *
  * The pre-generated output is saved in <code>byte[]</code> arrays.
+ * If the entry is completed with off-heap storage enabled, the output is moved
+ * to a single direct {@link ByteBuffer} outside of the Java heap, and the arrays 
+ * are replaced by read-only views of this buffer.
  * The include() calls are saved as Strings of the included resource name, 
  * the parameters for the calls are saved in a HashMap.
  * The headers are saved in a HashMap.
@@ -74,6 +80,12 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** Initial size for lists. */
     public static final int INITIAL_CAPACITY_LISTS = 10;
 
+    /** The minimum size of the output of an entry in bytes to be stored off-heap. */
+    public static final int OFFHEAP_MIN_SIZE = 4096;
+
+    /** The size of the chunks used to copy off-heap output to a stream. */
+    private static final int COPY_BUFFER_SIZE = 8192;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsFlexCacheEntry.class);
 
@@ -104,6 +116,9 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /** A redirection target (if redirection is set). */
     private String m_redirectTarget;
 
+    /** The time this entry became stale, or 0 if the entry is not stale. */
+    private volatile long m_staleSince;
+
     /** The key under which this cache entry is stored in the variation map. */
     private String m_variationKey;
 
@@ -216,6 +231,26 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
      */
     public void complete() {
 
+        complete(false);
+    }
+
+    /**
+     * Completes this cache entry, optionally moving the generated output off-heap.<p>
+     * 
+     * If off-heap storage is requested and the output is at least {@link #OFFHEAP_MIN_SIZE} bytes,
+     * all output byte arrays are copied to a single direct buffer. The cache costs of the entry 
+     * are adjusted to the exact size of this buffer. If the buffer can not be allocated, 
+     * the output remains on the heap.<p>
+     * 
+     * @param offHeap if <code>true</code>, the output is moved off-heap
+     * 
+     * @see #complete()
+     */
+    public void complete(boolean offHeap) {
+
+        if (offHeap && !m_completed && (m_elements != null)) {
+            moveOffHeap();
+        }
         m_completed = true;
         // Prevent changing of the cached lists
         if (m_headers != null) {
@@ -232,7 +267,8 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
     /**
      * Returns the list of data entries of this cache entry.<p>
      * 
-     * Data entries are byte arrays representing some kind of output
+     * Data entries are byte arrays (or read-only {@link ByteBuffer} views in case the entry
+     * is stored off-heap) representing some kind of output
      * or Strings representing include calls to other resources.<p>
      *
      * @return the list of data elements of this cache entry
@@ -295,6 +331,18 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return m_previous;
     }
 
+    /**
+     * Returns the time this entry became stale.<p>
+     * 
+     * @return the time this entry became stale, or 0 if the entry is not stale
+     * 
+     * @see #markStale(long)
+     */
+    public long getStaleSince() {
+
+        return m_staleSince;
+    }
+
     /**
      * @see org.opencms.cache.I_CmsLruCacheObject#getValue()
      */
@@ -303,13 +351,43 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         return m_elements;
     }
 
+    /**
+     * Checks if this entry is stale, i.e. it may be outdated and should be rendered again.<p>
+     * 
+     * @return true if this entry is stale
+     */
+    public boolean isStale() {
+
+        return m_staleSince > 0;
+    }
+
+    /**
+     * Marks this entry as stale.<p>
+     * 
+     * A stale entry may still be delivered, but it should be rendered again.
+     * If the entry is already stale, the time it became stale is not changed.<p>
+     * 
+     * @param time the time the entry became stale
+     */
+    public void markStale(long time) {
+
+        if (m_staleSince == 0) {
+            m_staleSince = time;
+        }
+    }
+
     /**
      * @see org.opencms.cache.I_CmsLruCacheObject#removeFromLruCache()
      */
     public void removeFromLruCache() {
 
         if ((m_variationMap != null) && (m_variationKey != null)) {
-            m_variationMap.remove(m_variationKey);
+            if (m_variationMap instanceof ConcurrentMap<?, ?>) {
+                // only remove this entry, not a newer entry for the same variation
+                ((ConcurrentMap<String, I_CmsLruCacheObject>)m_variationMap).remove(m_variationKey, this);
+            } else {
+                m_variationMap.remove(m_variationKey);
+            }
         }
         if (LOG.isDebugEnabled()) {
             LOG.debug(Messages.get().getBundle().key(
@@ -380,7 +458,11 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
                     }
                 } else {
                     try {
-                        res.writeToOutputStream((byte[])o, hasNoSubElements);
+                        if (o instanceof ByteBuffer) {
+                            res.writeToOutputStream((ByteBuffer)o, hasNoSubElements);
+                        } else {
+                            res.writeToOutputStream((byte[])o, hasNoSubElements);
+                        }
                     } catch (IOException e) {
                         CmsMessageContainer message = Messages.get().container(
                             Messages.LOG_FLEXCACHEKEY_NOT_FOUND_1,
@@ -538,6 +620,8 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
                     str += "" + count + " - <cms:include target=" + o + ">\n";
                 } else if (o instanceof byte[]) {
                     str += "" + count + " - <![CDATA[" + new String((byte[])o) + "]]>\n";
+                } else if (o instanceof ByteBuffer) {
+                    str += "" + count + " - <![CDATA[" + new String(getBytes((ByteBuffer)o)) + "]]>\n";
                 } else {
                     str += "<!--[" + o.toString() + "]-->";
                 }
@@ -547,4 +631,87 @@ public class CmsFlexCacheEntry implements I_CmsLruCacheObject, I_CmsMemoryMonito
         }
         return str;
     }
+
+    /**
+     * Returns the content of an off-heap output segment as a byte array.<p>
+     * 
+     * @param segment the output segment
+     * 
+     * @return the content of the segment
+     */
+    static byte[] getBytes(ByteBuffer segment) {
+
+        ByteBuffer buffer = segment.duplicate();
+        buffer.rewind();
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    /**
+     * Writes an off-heap output segment of a cache entry to the given stream.<p>
+     * 
+     * The content is copied in small chunks, so that no heap array of the
+     * full size of the segment is required.<p>
+     * 
+     * @param segment the output segment to write
+     * @param out the stream to write to
+     * 
+     * @throws IOException in case writing to the stream fails
+     */
+    static void write(ByteBuffer segment, OutputStream out) throws IOException {
+
+        // use a duplicate, so that concurrent readers of the segment do not interfere
+        ByteBuffer buffer = segment.duplicate();
+        buffer.rewind();
+        byte[] chunk = new byte[Math.min(COPY_BUFFER_SIZE, buffer.remaining())];
+        while (buffer.hasRemaining()) {
+            int len = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, len);
+            out.write(chunk, 0, len);
+        }
+    }
+
+    /**
+     * Moves all output byte arrays of this entry to a single direct buffer.<p>
+     */
+    private void moveOffHeap() {
+
+        int size = 0;
+        for (Object o : m_elements) {
+            if (o instanceof byte[]) {
+                size += ((byte[])o).length;
+            }
+        }
+        if (size < OFFHEAP_MIN_SIZE) {
+            return;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = ByteBuffer.allocateDirect(size);
+        } catch (OutOfMemoryError e) {
+            // the direct memory limit has been reached, keep the output on the heap
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(
+                    Messages.LOG_FLEXCACHEENTRY_OFFHEAP_ALLOCATION_FAILED_1,
+                    new Integer(size)));
+            }
+            return;
+        }
+        for (int i = 0; i < m_elements.size(); i++) {
+            Object o = m_elements.get(i);
+            if (o instanceof byte[]) {
+                byte[] bytes = (byte[])o;
+                int start = buffer.position();
+                buffer.put(bytes);
+                ByteBuffer segment = buffer.duplicate();
+                segment.position(start);
+                segment.limit(buffer.position());
+                m_elements.set(i, segment.slice().asReadOnlyBuffer());
+                m_byteSize -= CmsMemoryMonitor.getMemorySize(bytes);
+            }
+        }
+        // account for the exact size of the off-heap buffer
+        m_byteSize += size;
+    }
 }
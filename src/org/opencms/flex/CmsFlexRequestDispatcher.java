@@ -301,26 +301,7 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                 entry = cache.get(w_req.getCmsCacheKey());
                 if (entry != null) {
                     // the target is already in the cache
-                    try {
-                        if (LOG.isDebugEnabled()) {
-                            LOG.debug(Messages.get().getBundle().key(
-                                Messages.LOG_FLEXREQUESTDISPATCHER_LOADING_RESOURCE_FROM_CACHE_1,
-                                m_vfsTarget));
-                        }
-                        controller.updateDates(entry.getDateLastModified(), entry.getDateExpires());
-                        entry.service(w_req, w_res);
-                    } catch (CmsException e) {
-                        Throwable t;
-                        if (e.getCause() != null) {
-                            t = e.getCause();
-                        } else {
-                            t = e;
-                        }
-                        t = controller.setThrowable(e, m_vfsTarget);
-                        throw new ServletException(Messages.get().getBundle().key(
-                            Messages.ERR_FLEXREQUESTDISPATCHER_ERROR_LOADING_RESOURCE_FROM_CACHE_1,
-                            m_vfsTarget), t);
-                    }
+                    serviceCacheEntry(entry, w_req, w_res, controller);
                 } else {
                     // cache is on and resource is not yet cached, so we need to read the cache key for the response
                     CmsFlexCacheKey res_key = cache.getKey(CmsFlexCacheKey.getKeyName(m_vfsTarget, w_req.isOnline()));
@@ -382,9 +363,6 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                 if (w_req.isCacheable()) {
                     variation = w_res.getCmsCacheKey().matchRequestKey(w_req.getCmsCacheKey());
                 }
-                // indicate to the response if caching is not required                
-                w_res.setCmsCachingRequired(!controller.isForwardMode() && (variation != null));
-
                 try {
                     if (resource == null) {
                         resource = cms.readResource(m_vfsTarget);
@@ -408,36 +386,63 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
                         m_vfsTarget), e);
                 }
 
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug(Messages.get().getBundle().key(
-                        Messages.LOG_FLEXREQUESTDISPATCHER_INCLUDE_RESOURCE_1,
-                        m_vfsTarget));
-                }
-                try {
-                    loader.service(cms, resource, w_req, w_res);
-                } catch (CmsException e) {
-                    // an error occurred during access to OpenCms
-                    controller.setThrowable(e, m_vfsTarget);
-                    throw new ServletException(e);
+                String renderResource = null;
+                CmsFlexCache.CmsFlexRender render = null;
+                if ((variation != null)
+                    && !controller.isForwardMode()
+                    && (cache.isSingleFlight() || cache.isStaleWhileRevalidate())) {
+                    // coalesce concurrent cache misses for the same variation, or serve the stale entry to them
+                    renderResource = w_res.getCmsCacheKey().getResource();
+                    render = cache.claimRender(renderResource, variation);
+                    if (render == null) {
+                        entry = cache.waitForRender(renderResource, variation);
+                    }
                 }
 
-                entry = w_res.processCacheEntry();
-                if ((entry != null) && (variation != null) && w_req.isCacheable()) {
-                    // the result can be cached
-                    if (w_res.getCmsCacheKey().getTimeout() > 0) {
-                        // cache entry has a timeout, set last modified to time of last creation
-                        entry.setDateLastModifiedToPreviousTimeout(w_res.getCmsCacheKey().getTimeout());
-                        entry.setDateExpiresToNextTimeout(w_res.getCmsCacheKey().getTimeout());
-                        controller.updateDates(entry.getDateLastModified(), entry.getDateExpires());
-                    } else {
-                        // no timeout, use last modified date from files in VFS
-                        entry.setDateLastModified(controller.getDateLastModified());
-                        entry.setDateExpires(controller.getDateExpires());
-                    }
-                    cache.put(w_res.getCmsCacheKey(), entry, variation);
+                if (entry != null) {
+                    // the target has been rendered by a concurrent request
+                    serviceCacheEntry(entry, w_req, w_res, controller);
                 } else {
-                    // result can not be cached, do not use "last modified" optimization
-                    controller.updateDates(-1, controller.getDateExpires());
+                    // indicate to the response if caching is not required                
+                    w_res.setCmsCachingRequired(!controller.isForwardMode() && (variation != null));
+                    try {
+                        if (LOG.isDebugEnabled()) {
+                            LOG.debug(Messages.get().getBundle().key(
+                                Messages.LOG_FLEXREQUESTDISPATCHER_INCLUDE_RESOURCE_1,
+                                m_vfsTarget));
+                        }
+                        try {
+                            loader.service(cms, resource, w_req, w_res);
+                        } catch (CmsException e) {
+                            // an error occurred during access to OpenCms
+                            controller.setThrowable(e, m_vfsTarget);
+                            throw new ServletException(e);
+                        }
+
+                        entry = w_res.processCacheEntry();
+                        if ((entry != null) && (variation != null) && w_req.isCacheable()) {
+                            // the result can be cached
+                            if (w_res.getCmsCacheKey().getTimeout() > 0) {
+                                // cache entry has a timeout, set last modified to time of last creation
+                                entry.setDateLastModifiedToPreviousTimeout(w_res.getCmsCacheKey().getTimeout());
+                                entry.setDateExpiresToNextTimeout(w_res.getCmsCacheKey().getTimeout());
+                                controller.updateDates(entry.getDateLastModified(), entry.getDateExpires());
+                            } else {
+                                // no timeout, use last modified date from files in VFS
+                                entry.setDateLastModified(controller.getDateLastModified());
+                                entry.setDateExpires(controller.getDateExpires());
+                            }
+                            cache.put(w_res.getCmsCacheKey(), entry, variation);
+                        } else {
+                            // result can not be cached, do not use "last modified" optimization
+                            controller.updateDates(-1, controller.getDateExpires());
+                        }
+                    } finally {
+                        if (render != null) {
+                            // wake up all requests waiting for this render
+                            cache.releaseRender(renderResource, variation, render);
+                        }
+                    }
                 }
             }
 
@@ -463,4 +468,43 @@ public class CmsFlexRequestDispatcher implements RequestDispatcher {
             controller.pop();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Delivers a cached entry to the given request / response.<p>
+     * 
+     * @param entry the cached entry
+     * @param w_req the wrapped request
+     * @param w_res the wrapped response
+     * @param controller the flex controller
+     * 
+     * @throws ServletException in case something goes wrong
+     * @throws IOException in case something goes wrong
+     */
+    private void serviceCacheEntry(
+        CmsFlexCacheEntry entry,
+        CmsFlexRequest w_req,
+        CmsFlexResponse w_res,
+        CmsFlexController controller) throws ServletException, IOException {
+
+        try {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(
+                    Messages.LOG_FLEXREQUESTDISPATCHER_LOADING_RESOURCE_FROM_CACHE_1,
+                    m_vfsTarget));
+            }
+            controller.updateDates(entry.getDateLastModified(), entry.getDateExpires());
+            entry.service(w_req, w_res);
+        } catch (CmsException e) {
+            Throwable t;
+            if (e.getCause() != null) {
+                t = e.getCause();
+            } else {
+                t = e;
+            }
+            t = controller.setThrowable(e, m_vfsTarget);
+            throw new ServletException(Messages.get().getBundle().key(
+                Messages.ERR_FLEXREQUESTDISPATCHER_ERROR_LOADING_RESOURCE_FROM_CACHE_1,
+                m_vfsTarget), t);
+        }
+    }
+}
@@ -39,6 +39,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -836,7 +837,7 @@ public class CmsFlexResponse extends HttpServletResponseWrapper {
                 }
             }
             // update the "last modified" date for the cache entry
-            m_cachedEntry.complete();
+            m_cachedEntry.complete(m_controller.getCmsCache().cacheOffHeap());
         }
         // in case the output was only buffered we have to re-write it to the "right" stream       
         if (m_writeOnlyToBuffer) {
@@ -957,6 +958,39 @@ public class CmsFlexResponse extends HttpServletResponseWrapper {
         m_suspended = value;
     }
 
+    /** 
+     * Writes an off-heap output segment to the current output stream,
+     * this method should be called from CmsFlexCacheEntry.service() only.<p>
+     *
+     * @param segment the off-heap output segment
+     * @param useArray indicates that the content should be used directly as the output of this response
+     * 
+     * @throws IOException in case something goes wrong while writing to the stream
+     * 
+     * @see #writeToOutputStream(byte[], boolean)
+     */
+    void writeToOutputStream(ByteBuffer segment, boolean useArray) throws IOException {
+
+        if (isSuspended()) {
+            return;
+        }
+        if (m_writeOnlyToBuffer) {
+            if (useArray) {
+                // the parent response requires the output as byte array
+                m_cacheBytes = CmsFlexCacheEntry.getBytes(segment);
+            } else {
+                if (m_out == null) {
+                    initStream();
+                }
+                CmsFlexCacheEntry.write(segment, m_out);
+            }
+        } else {
+            // the request is not buffered, so we can write directly to it's parents output stream 
+            CmsFlexCacheEntry.write(segment, m_res.getOutputStream());
+            m_res.getOutputStream().flush();
+        }
+    }
+
     /** 
      * Writes some bytes to the current output stream,
      * this method should be called from CmsFlexCacheEntry.service() only.<p>
@@ -1154,6 +1188,8 @@ public class CmsFlexResponse extends HttpServletResponseWrapper {
                 Object o = elements.get(i);
                 if (o instanceof byte[]) {
                     res.getOutputStream().write((byte[])o);
+                } else if (o instanceof ByteBuffer) {
+                    CmsFlexCacheEntry.write((ByteBuffer)o, res.getOutputStream());
                 } else {
                     if ((m_includeResults != null) && (m_includeResults.size() > count)) {
                         // make sure that we don't run behind end of list (should never happen, though)
@@ -106,6 +106,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_CLEAR_ONLINE_KEYS_AND_ENTRIES_0 = "LOG_FLEXCACHE_CLEAR_ONLINE_KEYS_AND_ENTRIES_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_MARKED_STALE_0 = "LOG_FLEXCACHE_MARKED_STALE_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_PURGED_JSP_REPOSITORY_0 = "LOG_FLEXCACHE_PURGED_JSP_REPOSITORY_0";
 
@@ -115,9 +118,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_RECEIVED_EVENT_CLEAR_CACHE_PARTIALLY_0 = "LOG_FLEXCACHE_RECEIVED_EVENT_CLEAR_CACHE_PARTIALLY_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_RECEIVED_EVENT_MARK_STALE_0 = "LOG_FLEXCACHE_RECEIVED_EVENT_MARK_STALE_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_RECEIVED_EVENT_PURGE_REPOSITORY_0 = "LOG_FLEXCACHE_RECEIVED_EVENT_PURGE_REPOSITORY_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_RENDER_TIMEOUT_3 = "LOG_FLEXCACHE_RENDER_TIMEOUT_3";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHE_REVALIDATE_2 = "LOG_FLEXCACHE_REVALIDATE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHE_RESOURCE_NOT_CACHEABLE_0 = "LOG_FLEXCACHE_RESOURCE_NOT_CACHEABLE_0";
 
@@ -133,6 +145,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHEENTRY_ENTRY_COMPLETED_1 = "LOG_FLEXCACHEENTRY_ENTRY_COMPLETED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_FLEXCACHEENTRY_OFFHEAP_ALLOCATION_FAILED_1 = "LOG_FLEXCACHEENTRY_OFFHEAP_ALLOCATION_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_FLEXCACHEENTRY_REMOVED_ENTRY_FOR_VARIATION_1 = "LOG_FLEXCACHEENTRY_REMOVED_ENTRY_FOR_VARIATION_1";
 
@@ -35,11 +35,17 @@ import org.opencms.flex.CmsFlexController;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsRequestUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.workplace.CmsWorkplaceManager;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Locale;
 
@@ -54,6 +60,11 @@ import javax.servlet.http.HttpServletResponse;
  * This loader is also used to deliver static sub-elements of pages processed 
  * by other loaders.<p>
  * 
+ * The content is streamed from the VFS, so large files are never kept in memory as a whole.
+ * Requests for a single byte range of the content are answered with the requested range only.
+ * Subclasses can send content derived from a resource and cached in the RFS with 
+ * {@link #loadFile(CmsObject, CmsResource, File, HttpServletRequest, HttpServletResponse)}.<p>
+ * 
  * @since 6.0.0 
  */
 public class CmsDumpLoader implements I_CmsResourceLoader {
@@ -61,6 +72,9 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
     /** The id of this loader. */
     public static final int RESOURCE_LOADER_ID = 1;
 
+    /** The unit of the supported byte ranges. */
+    private static final String RANGE_UNIT = "bytes";
+
     /** The maximum age for dumped contents in the clients cache. */
     private static long m_clientCacheMaxAge;
 
@@ -228,14 +242,291 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             // no further processing required
             return;
         }
+        sendContent(cms, resource, null, null, req, res);
+    }
 
-        // make sure we have the file contents available
-        CmsFile file = cms.readFile(resource);
+    /**
+     * @see org.opencms.loader.I_CmsResourceLoader#service(org.opencms.file.CmsObject, org.opencms.file.CmsResource, javax.servlet.ServletRequest, javax.servlet.ServletResponse)
+     */
+    public void service(CmsObject cms, CmsResource resource, ServletRequest req, ServletResponse res)
+    throws CmsException, IOException {
+
+        writeContent(cms, resource, res, 0, -1);
+    }
+
+    /**
+     * Checks if the requested resource must be send to the client by checking the "If-Modified-Since" http header.<p>
+     * 
+     * If the resource has not been modified, the "304 - not modified" 
+     * header is send to the client and <code>true</code>
+     * is returned, otherwise nothing is send and <code>false</code> is returned.<p>
+     * 
+     * @param resource the resource to check
+     * @param req the current request
+     * @param res the current response
+     * 
+     * @return <code>true</code> if the "304 - not modified" header has been send to the client
+     */
+    protected boolean canSendLastModifiedHeader(CmsResource resource, HttpServletRequest req, HttpServletResponse res) {
+
+        // resource state must be unchanged
+        if (resource.getState().isUnchanged()
+        // the request must not have been send by a workplace user (we can't use "304 - not modified" in workplace
+            && !CmsWorkplaceManager.isWorkplaceUser(req)
+            // last modified header must match the time form the resource
+            && CmsFlexController.isNotModifiedSince(req, resource.getDateLastModified())) {
+            return sendNotModified(resource, res);
+        }
+        return false;
+    }
+
+    /**
+     * Returns the entity tag of a file in the RFS, which is sent in the "ETag" header if the file is delivered 
+     * with {@link #loadFile(CmsObject, CmsResource, File, HttpServletRequest, HttpServletResponse)}.<p>
+     * 
+     * The entity tag is calculated from the name and the size of the file, which is sufficient 
+     * for disk cache files, since their names already contain a hash code of the resource version.<p>
+     * 
+     * @param file the file to get the entity tag for
+     * @param length the size of the file
+     * 
+     * @return the entity tag of the file, including the quotes
+     */
+    protected String getETag(File file, long length) {
+
+        return "\"" + Integer.toHexString(file.getName().hashCode()) + "-" + Long.toHexString(length) + "\"";
+    }
+
+    /**
+     * Returns the single byte range requested with the "Range" header of the request.<p>
+     * 
+     * The length of the content and the validator for an "If-Range" header are taken from the resource.<p>
+     * 
+     * @param resource the requested resource
+     * @param req the current request
+     * 
+     * @return the first and the last position of the requested range, 
+     *      or <code>null</code> if the full content should be sent
+     *      
+     * @see #getRequestedRange(HttpServletRequest, long, long, String)
+     */
+    protected long[] getRequestedRange(CmsResource resource, HttpServletRequest req) {
+
+        return getRequestedRange(req, resource.getLength(), resource.getDateLastModified(), null);
+    }
+
+    /**
+     * Returns the single byte range requested with the "Range" header of the request.<p>
+     * 
+     * Requests for multiple ranges, ranges in other units than bytes, syntactically invalid ranges and
+     * ranges with an "If-Range" header that matches neither the given last modification date nor the given 
+     * entity tag are answered with the full content, so <code>null</code> is returned for them.<p>
+     * 
+     * If the requested range starts behind the end of the content, the returned start position is 
+     * the length of the content, and the request should be answered with 
+     * "416 - requested range not satisfiable".<p>
+     * 
+     * @param req the current request
+     * @param length the length of the content
+     * @param dateLastModified the last modification date of the content
+     * @param etag the entity tag of the content, or <code>null</code> if no entity tag is sent
+     * 
+     * @return the first and the last position of the requested range, 
+     *      or <code>null</code> if the full content should be sent
+     */
+    protected long[] getRequestedRange(HttpServletRequest req, long length, long dateLastModified, String etag) {
+
+        String header = req.getHeader(CmsRequestUtil.HEADER_RANGE);
+        if ((header == null) || !header.startsWith(RANGE_UNIT + "=")) {
+            return null;
+        }
+        String ifRange = req.getHeader(CmsRequestUtil.HEADER_IF_RANGE);
+        if (ifRange != null) {
+            // the range is only valid for the version of the content the client already has
+            if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+                // an entity tag, weak tags never match
+                if (!ifRange.equals(etag)) {
+                    return null;
+                }
+            } else {
+                try {
+                    long date = req.getDateHeader(CmsRequestUtil.HEADER_IF_RANGE);
+                    if ((date / 1000) != (dateLastModified / 1000)) {
+                        return null;
+                    }
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        String spec = header.substring(RANGE_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if ((dash < 0) || (spec.indexOf(',') >= 0)) {
+            return null;
+        }
+        long start;
+        long end;
+        try {
+            if (dash == 0) {
+                // a suffix range, like "-500" for the last 500 bytes
+                long suffix = Long.parseLong(spec.substring(1).trim());
+                if (suffix <= 0) {
+                    return new long[] {length, length};
+                }
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash).trim());
+                if (dash == (spec.length() - 1)) {
+                    // an open range, like "500-" for all bytes from position 500
+                    end = length - 1;
+                } else {
+                    end = Long.parseLong(spec.substring(dash + 1).trim());
+                    if (end < start) {
+                        return null;
+                    }
+                    end = Math.min(end, length - 1);
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (start >= length) {
+            return new long[] {length, length};
+        }
+        return new long[] {start, end};
+    }
+
+    /**
+     * Sends a file from the RFS to the client as the content of the given resource.<p>
+     * 
+     * This is used for content that is derived from the resource and cached in the RFS, like scaled images.
+     * The file is transferred to the response with a file channel, so its content is never copied to the heap.
+     * The "Content-Length", "ETag" and range headers are calculated from the file, 
+     * while the "Last-Modified" and "Expires" headers are still taken from the resource.<p>
+     * 
+     * The caller should check the "If-Modified-Since" header with 
+     * {@link #canSendLastModifiedHeader(CmsResource, HttpServletRequest, HttpServletResponse)} before 
+     * creating the file, the "If-None-Match" header is checked by this method.<p>
+     * 
+     * The file is opened before any header is set. If the file has been removed in the meantime, 
+     * e.g. by the eviction of a bounded disk cache, nothing is sent and <code>false</code> is returned, 
+     * so the caller can create the file again.<p>
+     * 
+     * @param cms the current users OpenCms context
+     * @param resource the requested resource
+     * @param file the file that contains the content to send
+     * @param req the current request
+     * @param res the current response
+     * 
+     * @return <code>false</code> if the file does not exist, <code>true</code> otherwise
+     * 
+     * @throws IOException if the content could not be written
+     * @throws CmsException if something goes wrong
+     */
+    protected boolean loadFile(
+        CmsObject cms,
+        CmsResource resource,
+        File file,
+        HttpServletRequest req,
+        HttpServletResponse res) throws IOException, CmsException {
+
+        FileInputStream in;
+        try {
+            in = new FileInputStream(file);
+        } catch (FileNotFoundException e) {
+            return false;
+        }
+        try {
+            // the open channel still reads the content if the file is removed now
+            FileChannel channel = in.getChannel();
+            String etag = getETag(file, channel.size());
+            res.setHeader(CmsRequestUtil.HEADER_ETAG, etag);
+            if (!CmsWorkplaceManager.isWorkplaceUser(req)
+                && isETagMatch(req.getHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH), etag)
+                && sendNotModified(resource, res)) {
+                // the client already has this version of the file
+                return true;
+            }
+            sendContent(cms, resource, channel, etag, req, res);
+        } finally {
+            in.close();
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the given "If-None-Match" header matches the given entity tag.<p>
+     * 
+     * @param header the value of the "If-None-Match" header, or <code>null</code>
+     * @param etag the entity tag to check
+     * 
+     * @return <code>true</code> if the header matches the entity tag
+     */
+    private boolean isETagMatch(String header, String etag) {
+
+        if (header == null) {
+            return false;
+        }
+        for (String tag : CmsStringUtil.splitAsList(header, ',', true)) {
+            // the weak comparison is used for "If-None-Match"
+            if ("*".equals(tag) || etag.equals(tag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        // set response status to "200 - OK" (required for static export "on-demand")
-        res.setStatus(HttpServletResponse.SC_OK);
-        // set content length header
-        res.setContentLength(file.getContents().length);
+    /**
+     * Sends the content of the given resource, or of the given file, to the client.<p>
+     * 
+     * @param cms the current users OpenCms context
+     * @param resource the requested resource
+     * @param channel the file channel that contains the content to send, 
+     *      or <code>null</code> to send the resource content
+     * @param etag the entity tag of the file, or <code>null</code>
+     * @param req the current request
+     * @param res the current response
+     * 
+     * @throws IOException if the content could not be written
+     * @throws CmsException if the content could not be read
+     */
+    private void sendContent(
+        CmsObject cms,
+        CmsResource resource,
+        FileChannel channel,
+        String etag,
+        HttpServletRequest req,
+        HttpServletResponse res) throws IOException, CmsException {
+
+        // the content is streamed, so the headers are set from the content length
+        long length = (channel != null) ? channel.size() : resource.getLength();
+        long[] range = getRequestedRange(req, length, resource.getDateLastModified(), etag);
+        if ((range != null) && (range[0] >= length)) {
+            // set response status to "416 - requested range not satisfiable"
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_RANGE, RANGE_UNIT + " */" + length);
+            res.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        res.setHeader(CmsRequestUtil.HEADER_ACCEPT_RANGES, RANGE_UNIT);
+        if (range == null) {
+            // set response status to "200 - OK" (required for static export "on-demand")
+            res.setStatus(HttpServletResponse.SC_OK);
+            // set content length header
+            setContentLength(res, length);
+        } else {
+            // set response status to "206 - partial content" 
+            res.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_RANGE, RANGE_UNIT
+                + " "
+                + range[0]
+                + "-"
+                + range[1]
+                + "/"
+                + length);
+            setContentLength(res, (range[1] - range[0]) + 1);
+        }
 
         if (CmsWorkplaceManager.isWorkplaceUser(req)) {
             // prevent caching for Workplace users
@@ -243,7 +534,7 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             CmsRequestUtil.setNoCacheHeaders(res);
         } else {
             // set date last modified header
-            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, file.getDateLastModified());
+            res.setDateHeader(CmsRequestUtil.HEADER_LAST_MODIFIED, resource.getDateLastModified());
 
             // set "Expires" only if cache control is not already set
             if (!res.containsHeader(CmsRequestUtil.HEADER_CACHE_CONTROL)) {
@@ -257,48 +548,74 @@ public class CmsDumpLoader implements I_CmsResourceLoader {
             }
         }
 
-        service(cms, file, req, res);
+        long offset = (range == null) ? 0 : range[0];
+        long count = (range == null) ? -1 : (range[1] - range[0]) + 1;
+        if (channel != null) {
+            CmsFileUtil.copy(channel, res.getOutputStream(), offset, count);
+        } else if (range == null) {
+            service(cms, resource, req, res);
+        } else {
+            writeContent(cms, resource, res, offset, count);
+        }
     }
 
     /**
-     * @see org.opencms.loader.I_CmsResourceLoader#service(org.opencms.file.CmsObject, org.opencms.file.CmsResource, javax.servlet.ServletRequest, javax.servlet.ServletResponse)
+     * Sends the "304 - not modified" status to the client, if the given resource is released and not expired.<p>
+     * 
+     * @param resource the requested resource
+     * @param res the current response
+     * 
+     * @return <code>true</code> if the "304 - not modified" status has been send to the client
      */
-    public void service(CmsObject cms, CmsResource resource, ServletRequest req, ServletResponse res)
-    throws CmsException, IOException {
-
-        res.getOutputStream().write(cms.readFile(resource).getContents());
+    private boolean sendNotModified(CmsResource resource, HttpServletResponse res) {
+
+        long now = System.currentTimeMillis();
+        if ((resource.getDateReleased() < now) && (resource.getDateExpired() > now)) {
+            // resource is available and not expired 
+            CmsFlexController.setDateExpiresHeader(res, resource.getDateExpired(), m_clientCacheMaxAge);
+            // set status 304 - not modified
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
     }
 
     /**
-     * Checks if the requested resource must be send to the client by checking the "If-Modified-Since" http header.<p>
+     * Sets the content length header of the response.<p>
      * 
-     * If the resource has not been modified, the "304 - not modified" 
-     * header is send to the client and <code>true</code>
-     * is returned, otherwise nothing is send and <code>false</code> is returned.<p>
+     * @param res the current response
+     * @param length the content length
+     */
+    private void setContentLength(HttpServletResponse res, long length) {
+
+        if (length <= Integer.MAX_VALUE) {
+            res.setContentLength((int)length);
+        } else {
+            // the servlet API only supports int content lengths
+            res.setHeader(CmsRequestUtil.HEADER_CONTENT_LENGTH, String.valueOf(length));
+        }
+    }
+
+    /**
+     * Streams the content of the given resource to the response.<p>
      * 
-     * @param resource the resource to check
-     * @param req the current request
+     * @param cms the current users OpenCms context
+     * @param resource the resource to write the content for
      * @param res the current response
+     * @param offset the position of the first byte to write
+     * @param length the number of bytes to write, or <code>-1</code> to write the content up to the end
      * 
-     * @return <code>true</code> if the "304 - not modified" header has been send to the client
+     * @throws CmsException if the content could not be read
+     * @throws IOException if the content could not be written
      */
-    protected boolean canSendLastModifiedHeader(CmsResource resource, HttpServletRequest req, HttpServletResponse res) {
+    private void writeContent(CmsObject cms, CmsResource resource, ServletResponse res, long offset, long length)
+    throws CmsException, IOException {
 
-        // resource state must be unchanged
-        if (resource.getState().isUnchanged()
-        // the request must not have been send by a workplace user (we can't use "304 - not modified" in workplace
-            && !CmsWorkplaceManager.isWorkplaceUser(req)
-            // last modified header must match the time form the resource
-            && CmsFlexController.isNotModifiedSince(req, resource.getDateLastModified())) {
-            long now = System.currentTimeMillis();
-            if ((resource.getDateReleased() < now) && (resource.getDateExpired() > now)) {
-                // resource is available and not expired 
-                CmsFlexController.setDateExpiresHeader(res, resource.getDateExpired(), m_clientCacheMaxAge);
-                // set status 304 - not modified
-                res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                return true;
-            }
+        InputStream in = cms.readContentStream(resource);
+        try {
+            CmsFileUtil.copy(in, res.getOutputStream(), offset, length);
+        } finally {
+            in.close();
         }
-        return false;
     }
 }
\ No newline at end of file
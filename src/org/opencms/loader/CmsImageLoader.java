@@ -27,20 +27,30 @@
 
 package org.opencms.loader;
 
+import org.opencms.cache.CmsDiskCacheIndex;
+import org.opencms.cache.CmsDiskCacheStatistics;
 import org.opencms.cache.CmsVfsNameBasedDiskCache;
 import org.opencms.configuration.CmsParameterConfiguration;
+import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsFile;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeImage;
 import org.opencms.main.CmsEvent;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.scheduler.jobs.CmsImageCacheCleanupJob;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -58,6 +68,11 @@ import org.apache.commons.logging.Log;
  * For example, to scale an image to exact 800x600 pixel with center fitting and a background color of grey, 
  * the following parameter String can be used: <code>w:800,h:600,t:0,c:c0c0c0</code>.<p> 
  * 
+ * The images are scaled by a {@link CmsImageScalingExecutor}, which limits the number of images scaled 
+ * at the same time with the {@link #CONFIGURATION_SCALING_THREADS} and {@link #CONFIGURATION_SCALING_MEMORY} 
+ * options. The scaled versions configured with {@link #CONFIGURATION_PREGENERATE} are created right after 
+ * an image has been published.<p>
+ * 
  * @since 6.2.0 
  */
 public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener {
@@ -65,6 +80,12 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The configuration parameter for the OpenCms XML configuration to set the image down scale operation. */
     public static final String CONFIGURATION_DOWNSCALE = "image.scaling.downscale";
 
+    /** The configuration parameter for the OpenCms XML configuration to set the maximum image cache size in MB. */
+    public static final String CONFIGURATION_CACHE_MAX_SIZE = "image.cache.maxsize";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the image cache eviction policy. */
+    public static final String CONFIGURATION_CACHE_POLICY = "image.cache.policy";
+
     /** The configuration parameter for the OpenCms XML configuration to set the image cache repository. */
     public static final String CONFIGURATION_IMAGE_FOLDER = "image.folder";
 
@@ -74,9 +95,18 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The configuration parameter for the OpenCms XML configuration to set the maximum image scale size. */
     public static final String CONFIGURATION_MAX_SCALE_SIZE = "image.scaling.maxsize";
 
+    /** The configuration parameter for the OpenCms XML configuration to add a scaled version to pre-generate. */
+    public static final String CONFIGURATION_PREGENERATE = "image.scaling.pregenerate";
+
     /** The configuration parameter for the OpenCms XML configuration to enable the image scaling. */
     public static final String CONFIGURATION_SCALING_ENABLED = "image.scaling.enabled";
 
+    /** The configuration parameter for the OpenCms XML configuration to set the image scaling memory budget in MB. */
+    public static final String CONFIGURATION_SCALING_MEMORY = "image.scaling.memory";
+
+    /** The configuration parameter for the OpenCms XML configuration to set the number of image scaling threads. */
+    public static final String CONFIGURATION_SCALING_THREADS = "image.scaling.threads";
+
     /** Default name for the image cache repository. */
     public static final String IMAGE_REPOSITORY_DEFAULT = "/WEB-INF/imagecache/";
 
@@ -98,15 +128,33 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     /** The maximum image size (width * height) to apply image blurring when down scaling (setting this to high may cause "out of memory" errors). */
     protected static int m_maxBlurSize = CmsImageScaler.SCALE_DEFAULT_MAX_BLUR_SIZE;
 
+    /** The executor that creates the scaled image versions. */
+    protected static CmsImageScalingExecutor m_scalingExecutor;
+
     /** The disk cache to use for saving scaled image versions. */
     protected static CmsVfsNameBasedDiskCache m_vfsDiskCache;
 
+    /** The maximum size of the image cache in megabytes, if <code>&lt;= 0</code> the cache is not bounded. */
+    protected int m_cacheMaxSize;
+
+    /** The eviction policy of the image cache. */
+    protected String m_cachePolicy = CmsDiskCacheIndex.POLICY_LRU;
+
     /** The name of the configured image cache repository. */
     protected String m_imageRepositoryFolder;
 
     /** The maximum image size (width or height) to allow when up scaling an image using request parameters. */
     protected int m_maxScaleSize = CmsImageScaler.SCALE_DEFAULT_MAX_SIZE;
 
+    /** The scaled versions that are pre-generated after publishing. */
+    protected List<CmsImageScaler> m_pregenerateScalers = new ArrayList<CmsImageScaler>();
+
+    /** The memory budget for scaling images, in megabytes (default is a quarter of the maximum heap size). */
+    protected int m_scalingMemory = (int)(Runtime.getRuntime().maxMemory() / (4 * 1024 * 1024));
+
+    /** The maximum number of images scaled at the same time (default is the number of processors). */
+    protected int m_scalingThreads = Runtime.getRuntime().availableProcessors();
+
     /**
      * Creates a new image loader.<p>
      */
@@ -128,6 +176,16 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         return m_downScaleParams;
     }
 
+    /**
+     * Returns a snapshot of the size, hit and miss counters of the image cache.<p>
+     * 
+     * @return a snapshot of the size, hit and miss counters of the image cache
+     */
+    public static CmsDiskCacheStatistics getImageCacheStatistics() {
+
+        return m_vfsDiskCache.getStatistics();
+    }
+
     /**
      * Returns the path of the image cache repository folder in the RFS,
      * which is set with the {@link #CONFIGURATION_IMAGE_FOLDER} configuration option.<p> 
@@ -197,6 +255,29 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             if (CONFIGURATION_DOWNSCALE.equals(paramName)) {
                 m_downScaleParams = paramValue.trim();
             }
+            if (CONFIGURATION_SCALING_THREADS.equals(paramName)) {
+                m_scalingThreads = CmsStringUtil.getIntValue(paramValue, m_scalingThreads, paramName);
+            }
+            if (CONFIGURATION_SCALING_MEMORY.equals(paramName)) {
+                m_scalingMemory = CmsStringUtil.getIntValue(paramValue, m_scalingMemory, paramName);
+            }
+            if (CONFIGURATION_CACHE_MAX_SIZE.equals(paramName)) {
+                m_cacheMaxSize = CmsStringUtil.getIntValue(paramValue, m_cacheMaxSize, paramName);
+            }
+            if (CONFIGURATION_CACHE_POLICY.equals(paramName)) {
+                m_cachePolicy = paramValue.trim();
+            }
+            if (CONFIGURATION_PREGENERATE.equals(paramName)) {
+                CmsImageScaler scaler = new CmsImageScaler(paramValue.trim());
+                if (scaler.isValid()) {
+                    m_pregenerateScalers.add(scaler);
+                } else {
+                    LOG.error(Messages.get().getBundle().key(
+                        Messages.ERR_INVALID_IMAGE_SCALE_PARAMS_2,
+                        paramName,
+                        paramValue));
+                }
+            }
         }
         super.addConfigurationParameter(paramName, paramValue);
     }
@@ -209,8 +290,13 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         if (event == null) {
             return;
         }
-        // only react on the clear caches event
         int type = event.getType();
+        if ((type == I_CmsEventListener.EVENT_PUBLISH_PROJECT) && m_enabled && !m_pregenerateScalers.isEmpty()) {
+            // pre-generate the configured scaled versions of the published images
+            pregenerateImages(new CmsUUID((String)event.getData().get(I_CmsEventListener.KEY_PUBLISHID)));
+            return;
+        }
+        // otherwise only react on the clear caches event
         if (type != I_CmsEventListener.EVENT_CLEAR_CACHES) {
             return;
         }
@@ -240,6 +326,13 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
 
         m_enabled = false;
         m_imageRepositoryFolder = null;
+        if (m_scalingExecutor != null) {
+            m_scalingExecutor.shutdown();
+            m_scalingExecutor = null;
+        }
+        if (m_vfsDiskCache != null) {
+            m_vfsDiskCache.shutdown();
+        }
         m_vfsDiskCache = null;
     }
 
@@ -281,7 +374,12 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
         if (m_vfsDiskCache == null) {
             m_vfsDiskCache = new CmsVfsNameBasedDiskCache(
                 OpenCms.getSystemInfo().getWebApplicationRfsPath(),
-                m_imageRepositoryFolder);
+                m_imageRepositoryFolder,
+                m_cacheMaxSize * 1024L * 1024L,
+                m_cachePolicy);
+        }
+        if (m_scalingExecutor == null) {
+            m_scalingExecutor = new CmsImageScalingExecutor(m_vfsDiskCache, m_scalingThreads, m_scalingMemory);
         }
         OpenCms.addCmsEventListener(this);
         // output setup information
@@ -289,9 +387,20 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             CmsLog.INIT.info(Messages.get().getBundle().key(
                 Messages.INIT_IMAGE_REPOSITORY_PATH_1,
                 m_vfsDiskCache.getRepositoryPath()));
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_IMAGE_CACHE_MAX_SIZE_2,
+                new Integer(m_cacheMaxSize),
+                m_cachePolicy));
             CmsLog.INIT.info(Messages.get().getBundle().key(
                 Messages.INIT_IMAGE_SCALING_ENABLED_1,
                 Boolean.valueOf(m_enabled)));
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_IMAGE_SCALING_THREADS_2,
+                new Integer(m_scalingThreads),
+                new Integer(m_scalingMemory)));
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.INIT_IMAGE_SCALING_PREGENERATE_1,
+                m_pregenerateScalers));
         }
     }
 
@@ -309,10 +418,22 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
             }
             // get the scale information from the request
             CmsImageScaler scaler = new CmsImageScaler(req, m_maxScaleSize, m_maxBlurSize);
-            // load the file from the cache
-            CmsFile file = getScaledImage(cms, resource, scaler);
-            // now perform standard load operation inherited from dump loader
-            super.load(cms, file, req, res);
+            if (resource instanceof CmsFile) {
+                // the content of the file must be replaced with the scaled image (required e.g. for static export)
+                CmsFile file = getScaledImage(cms, resource, scaler);
+                // now perform standard load operation inherited from dump loader
+                super.load(cms, file, req, res);
+            } else {
+                // send the image directly from the disk cache, without reading it into memory
+                File scaledFile = getScaledImageFile(cms, resource, scaler);
+                if (!loadFile(cms, resource, scaledFile, req, res)) {
+                    // the file has been evicted from the disk cache in the meantime, so it is created again
+                    scaledFile = getScaledImageFile(cms, resource, scaler);
+                    if (!loadFile(cms, resource, scaledFile, req, res)) {
+                        throw new FileNotFoundException(scaledFile.getAbsolutePath());
+                    }
+                }
+            }
         } else {
             // scaling is disabled
             super.load(cms, resource, req, res);
@@ -338,34 +459,114 @@ public class CmsImageLoader extends CmsDumpLoader implements I_CmsEventListener
     protected CmsFile getScaledImage(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
     throws IOException, CmsException {
 
-        String cacheParam = scaler.isValid() ? scaler.toString() : null;
-        String cacheName = m_vfsDiskCache.getCacheName(resource, cacheParam);
-        byte[] content = m_vfsDiskCache.getCacheContent(cacheName);
+        // the scaled version is read from the cache, after the scaling executor has created it if required
+        byte[] content = CmsFileUtil.readFile(getScaledImageFile(cms, resource, scaler));
 
         CmsFile file;
-        if (content != null) {
-            if (resource instanceof CmsFile) {
-                // the original file content must be modified (required e.g. for static export)
-                file = (CmsFile)resource;
-            } else {
-                // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
-                file = new CmsFile(resource);
-            }
-            // save the content in the file
-            file.setContents(content);
+        if (resource instanceof CmsFile) {
+            // the original file content must be modified (required e.g. for static export)
+            file = (CmsFile)resource;
         } else {
-            // we must read the content from the VFS (if this has not been done yet)
-            file = cms.readFile(resource);
-            // upgrade the file (load the content)
-            if (scaler.isValid()) {
-                // valid scaling parameters found, scale the content
-                content = scaler.scaleImage(file);
-                // exchange the content of the file with the scaled version
-                file.setContents(content);
-            }
-            // save the file content in the cache
-            m_vfsDiskCache.saveCacheFile(cacheName, file.getContents());
+            // this is no file, but we don't want to use "upgrade" since we don't need to read the content from the VFS
+            file = new CmsFile(resource);
         }
+        // save the content in the file
+        file.setContents(content);
         return file;
     }
+
+    /**
+     * Returns the disk cache file that contains a scaled version of the given OpenCms VFS image resource.<p>
+     * 
+     * If the scaled version does not exist in the cache, it is created by the {@link CmsImageScalingExecutor}. 
+     * Unscaled versions of the images are also stored in the cache.<p>
+     * 
+     * @param cms the current users OpenCms context
+     * @param resource the base VFS resource for the image
+     * @param scaler the configured image scaler
+     * 
+     * @return the disk cache file that contains a scaled version of the given OpenCms VFS image resource
+     * 
+     * @throws IOException in case of errors accessing the disk based cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    protected File getScaledImageFile(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
+    throws IOException, CmsException {
+
+        return m_scalingExecutor.getScaledImageFile(cms, resource, scaler);
+    }
+
+    /**
+     * Pre-generates the configured scaled versions of the images published with the given publish job.<p>
+     * 
+     * The published images are read with the export user. Both reading the images and creating the scaled 
+     * versions is done in the background, so the publish event is not delayed.<p>
+     * 
+     * @param publishHistoryId the id of the publish job
+     */
+    protected void pregenerateImages(final CmsUUID publishHistoryId) {
+
+        final CmsImageScalingExecutor executor = m_scalingExecutor;
+        if (executor == null) {
+            return;
+        }
+        executor.executeInBackground(new Runnable() {
+
+            /**
+             * @see java.lang.Runnable#run()
+             */
+            public void run() {
+
+                pregenerateImages(executor, publishHistoryId);
+            }
+        });
+    }
+
+    /**
+     * Reads the images published with the given publish job and creates their configured scaled versions.<p>
+     * 
+     * This is called in the background thread of the given executor.<p>
+     * 
+     * @param executor the executor that creates the scaled versions
+     * @param publishHistoryId the id of the publish job
+     */
+    private void pregenerateImages(CmsImageScalingExecutor executor, CmsUUID publishHistoryId) {
+
+        CmsObject cms;
+        List<CmsPublishedResource> publishedResources;
+        try {
+            // this will always use the root site
+            cms = OpenCms.initCmsObject(OpenCms.getDefaultUsers().getUserExport());
+            publishedResources = cms.readPublishedResources(publishHistoryId);
+        } catch (CmsException e) {
+            LOG.error(
+                Messages.get().getBundle().key(Messages.LOG_READ_PUBLISHED_RESOURCES_FAILED_1, publishHistoryId),
+                e);
+            return;
+        }
+        List<CmsResource> images = new ArrayList<CmsResource>();
+        for (CmsPublishedResource pubRes : publishedResources) {
+            if (pubRes.isFolder()
+                || pubRes.getState().isDeleted()
+                || (pubRes.getType() != CmsResourceTypeImage.getStaticTypeId())) {
+                continue;
+            }
+            try {
+                images.add(cms.readResource(pubRes.getRootPath()));
+            } catch (CmsException e) {
+                // the image is not readable for the export user, so it is not pre-generated
+                LOG.debug(e.getLocalizedMessage(), e);
+            }
+        }
+        if (images.isEmpty()) {
+            return;
+        }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(
+                Messages.LOG_IMAGE_PREGENERATE_START_2,
+                new Integer(images.size()),
+                new Integer(m_pregenerateScalers.size())));
+        }
+        executor.scaleImages(cms, images, m_pregenerateScalers);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,449 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.loader;
+
+import org.opencms.cache.CmsVfsNameBasedDiskCache;
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Creates the scaled versions of images for the {@link CmsImageLoader} with a bounded pool of worker threads.<p>
+ * 
+ * The number of images scaled at the same time is limited by the number of worker threads, and by a memory 
+ * budget for the decoded images. Concurrent requests for the same scaled version of an image are coalesced, 
+ * so every version is scaled only once. The results are stored in the image disk cache.<p>
+ * 
+ * Scaled versions can also be pre-generated in the background, for example right after an image has been
+ * published. Only one background version is scaled at a time, so the worker threads remain available 
+ * for the requests.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsImageScalingExecutor {
+
+    /**
+     * Scales an image and stores the result in the disk cache.<p>
+     */
+    private class ScalingJob implements Callable<File> {
+
+        /** The disk cache name of the scaled image. */
+        private String m_cacheName;
+
+        /** The OpenCms context used to read the image. */
+        private CmsObject m_cms;
+
+        /** The image resource. */
+        private CmsResource m_resource;
+
+        /** The image scaler to use. */
+        private CmsImageScaler m_scaler;
+
+        /**
+         * Creates a new scaling job.<p>
+         * 
+         * @param cms the OpenCms context used to read the image
+         * @param resource the image resource
+         * @param scaler the image scaler to use
+         * @param cacheName the disk cache name of the scaled image
+         */
+        protected ScalingJob(CmsObject cms, CmsResource resource, CmsImageScaler scaler, String cacheName) {
+
+            m_cms = cms;
+            m_resource = resource;
+            m_scaler = scaler;
+            m_cacheName = cacheName;
+        }
+
+        /**
+         * @see java.util.concurrent.Callable#call()
+         */
+        public File call() throws Exception {
+
+            try {
+                // another job may have finished this version since the caller looked it up 
+                File cacheFile = m_diskCache.getCacheFile(m_cacheName);
+                if (cacheFile == null) {
+                    CmsFile file = m_cms.readFile(m_resource);
+                    int cost = getMemoryCost(file.getContents(), m_scaler);
+                    m_memory.acquire(cost);
+                    byte[] content;
+                    try {
+                        content = m_scaler.scaleImage(file);
+                    } finally {
+                        m_memory.release(cost);
+                    }
+                    cacheFile = m_diskCache.saveCacheFile(m_cacheName, content);
+                }
+                return cacheFile;
+            } finally {
+                // the result is in the disk cache now, so later requests don't need to wait for this job
+                m_jobs.remove(m_cacheName);
+            }
+        }
+    }
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsImageScalingExecutor.class);
+
+    /** The executor that pre-generates scaled images in the background. */
+    private ThreadPoolExecutor m_backgroundExecutor;
+
+    /** The disk cache for the scaled images. */
+    private CmsVfsNameBasedDiskCache m_diskCache;
+
+    /** The executor that scales the images. */
+    private ThreadPoolExecutor m_executor;
+
+    /** The running and waiting scaling jobs, by the disk cache name of the scaled image. */
+    private ConcurrentMap<String, FutureTask<File>> m_jobs;
+
+    /** The memory budget for the decoded images, in kilobytes. */
+    private Semaphore m_memory;
+
+    /** The total memory budget for the decoded images, in kilobytes. */
+    private int m_memoryLimit;
+
+    /**
+     * Creates a new image scaling executor.<p>
+     * 
+     * @param diskCache the disk cache for the scaled images
+     * @param threads the maximum number of images scaled at the same time
+     * @param memoryLimit the maximum memory used for the decoded images at the same time, in megabytes 
+     */
+    public CmsImageScalingExecutor(CmsVfsNameBasedDiskCache diskCache, int threads, int memoryLimit) {
+
+        m_diskCache = diskCache;
+        m_jobs = new ConcurrentHashMap<String, FutureTask<File>>();
+        m_memoryLimit = (int)Math.min(Integer.MAX_VALUE, Math.max(1L, memoryLimit) * 1024L);
+        // fair, so large images are not starved by small ones
+        m_memory = new Semaphore(m_memoryLimit, true);
+        int poolSize = Math.max(1, threads);
+        m_executor = new ThreadPoolExecutor(
+            poolSize,
+            poolSize,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            createThreadFactory("OpenCms: Image scaling worker "));
+        m_backgroundExecutor = new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            createThreadFactory("OpenCms: Image pre-generation "));
+    }
+
+    /**
+     * Creates a factory for daemon threads with the given name prefix.<p>
+     * 
+     * @param name the name prefix of the threads
+     * 
+     * @return the thread factory
+     */
+    private static ThreadFactory createThreadFactory(final String name) {
+
+        return new ThreadFactory() {
+
+            /** The number of the next thread. */
+            private int m_threadNumber;
+
+            /**
+             * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+             */
+            public synchronized Thread newThread(Runnable runnable) {
+
+                m_threadNumber++;
+                Thread thread = new Thread(runnable, name + m_threadNumber);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Returns the disk cache file that contains the scaled version of the given image.<p>
+     * 
+     * If the scaled version does not exist in the cache, it is created by a worker thread while the 
+     * calling thread waits. If the same version is already being created for another request, the
+     * calling thread waits for this instead. Unscaled versions of the images are stored in the cache by the
+     * calling thread.<p>
+     * 
+     * @param cms the current users OpenCms context
+     * @param resource the image resource
+     * @param scaler the image scaler to use
+     * 
+     * @return the disk cache file that contains the scaled version of the given image
+     * 
+     * @throws IOException in case of errors accessing the disk cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS
+     */
+    public File getScaledImageFile(CmsObject cms, CmsResource resource, CmsImageScaler scaler)
+    throws IOException, CmsException {
+
+        String cacheName = m_diskCache.getCacheName(resource, scaler.isValid() ? scaler.toString() : null);
+        File cacheFile = m_diskCache.getCacheFile(cacheName);
+        if (cacheFile != null) {
+            return cacheFile;
+        }
+        if (!scaler.isValid()) {
+            // the image is only copied to the cache, which needs no worker thread
+            return m_diskCache.saveCacheFile(cacheName, cms.readFile(resource).getContents());
+        }
+        // the worker must not share the request context with the calling thread
+        FutureTask<File> job = new FutureTask<File>(new ScalingJob(
+            OpenCms.initCmsObject(cms),
+            resource,
+            scaler,
+            cacheName));
+        FutureTask<File> runningJob = m_jobs.putIfAbsent(cacheName, job);
+        if (runningJob == null) {
+            runningJob = job;
+            try {
+                m_executor.execute(job);
+            } catch (RejectedExecutionException e) {
+                // the executor has been shut down
+                job.run();
+            }
+        } else if (LOG.isDebugEnabled()) {
+            LOG.debug(Messages.get().getBundle().key(Messages.LOG_IMAGE_SCALING_COALESCED_1, cacheName));
+        }
+        return waitFor(runningJob, resource);
+    }
+
+    /**
+     * Executes the given task in the background thread that pre-generates the scaled images.<p>
+     * 
+     * Use this for tasks that prepare a pre-generation, for example by reading the images from the VFS, 
+     * so the calling thread does not have to wait for this.<p>
+     * 
+     * @param task the task to execute
+     */
+    public void executeInBackground(Runnable task) {
+
+        try {
+            m_backgroundExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the executor has been shut down, nothing to pre-generate
+        }
+    }
+
+    /**
+     * Pre-generates the given scaled versions of the given images in the background.<p>
+     * 
+     * @param cms the OpenCms context used to read the images
+     * @param resources the image resources
+     * @param scalers the image scalers for the versions to generate
+     */
+    public void pregenerate(
+        final CmsObject cms,
+        final List<CmsResource> resources,
+        final List<CmsImageScaler> scalers) {
+
+        executeInBackground(new Runnable() {
+
+            /**
+             * @see java.lang.Runnable#run()
+             */
+            public void run() {
+
+                scaleImages(cms, resources, scalers);
+            }
+        });
+    }
+
+    /**
+     * Creates the given scaled versions of the given images, the calling thread waits until all are created.<p>
+     * 
+     * Errors are logged, they do not stop the creation of the other versions. If the calling thread 
+     * is interrupted, the remaining versions are not created.<p>
+     * 
+     * @param cms the OpenCms context used to read the images
+     * @param resources the image resources
+     * @param scalers the image scalers for the versions to create
+     */
+    public void scaleImages(CmsObject cms, List<CmsResource> resources, List<CmsImageScaler> scalers) {
+
+        for (CmsResource resource : resources) {
+            for (CmsImageScaler scaler : scalers) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // the executor has been shut down
+                    return;
+                }
+                try {
+                    getScaledImageFile(cms, resource, scaler);
+                } catch (Exception e) {
+                    LOG.warn(Messages.get().getBundle().key(
+                        Messages.LOG_IMAGE_PREGENERATE_FAILED_2,
+                        resource.getRootPath(),
+                        scaler.toString()), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Shuts down the worker threads.<p>
+     * 
+     * Running and waiting scale operations are finished, but no more images are pre-generated.<p>
+     */
+    public void shutdown() {
+
+        m_backgroundExecutor.shutdownNow();
+        m_executor.shutdown();
+    }
+
+    /**
+     * Returns the memory required to scale the given image, in kilobytes.<p>
+     * 
+     * This includes the decoded source image twice, since the scaling may blur a copy of it, 
+     * and the decoded target image. The result is limited to the total memory budget, 
+     * so even images that exceed the budget can be scaled, one at a time.<p>
+     * 
+     * @param content the image content
+     * @param scaler the image scaler to use
+     * 
+     * @return the memory required to scale the given image, in kilobytes
+     */
+    protected int getMemoryCost(byte[] content, CmsImageScaler scaler) {
+
+        long bytes = content.length;
+        long pixels = getPixelCount(content);
+        if (pixels > 0) {
+            long targetPixels = pixels;
+            if ((scaler.getWidth() > 0) && (scaler.getHeight() > 0)) {
+                targetPixels = (long)scaler.getWidth() * scaler.getHeight();
+            }
+            // 4 bytes per pixel for the decoded images
+            bytes += 4L * ((2L * pixels) + targetPixels);
+        }
+        // if the image header can not be read, the image can not be decoded either
+        long cost = (bytes + 1023L) / 1024L;
+        return (int)Math.max(1L, Math.min(cost, m_memoryLimit));
+    }
+
+    /**
+     * Returns the number of pixels of the given image, read from the image header without decoding the image.<p>
+     * 
+     * @param content the image content
+     * 
+     * @return the number of pixels of the given image, or <code>-1</code> if the image header can not be read
+     */
+    private long getPixelCount(byte[] content) {
+
+        ImageInputStream in = new MemoryCacheImageInputStream(new ByteArrayInputStream(content));
+        try {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    return (long)reader.getWidth(0) * reader.getHeight(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException e) {
+            // the image header can not be read
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Waits for the given scaling job and returns its result.<p>
+     * 
+     * @param job the scaling job
+     * @param resource the image resource
+     * 
+     * @return the disk cache file that contains the scaled image
+     * 
+     * @throws IOException in case of errors accessing the disk cache
+     * @throws CmsException in case of errors accessing the OpenCms VFS, or if the calling thread was interrupted
+     */
+    private File waitFor(FutureTask<File> job, CmsResource resource) throws IOException, CmsException {
+
+        try {
+            return job.get();
+        } catch (InterruptedException e) {
+            // keep the interrupted state for the caller
+            Thread.currentThread().interrupt();
+            throw new CmsLoaderException(Messages.get().container(
+                Messages.ERR_IMAGE_SCALING_INTERRUPTED_1,
+                resource.getRootPath()), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException)cause;
+            } else if (cause instanceof CmsException) {
+                throw (CmsException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            } else if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+            throw new CmsLoaderException(Messages.get().container(
+                Messages.ERR_IMAGE_SCALING_FAILED_1,
+                resource.getRootPath()), cause);
+        }
+    }
+}
@@ -74,6 +74,10 @@ import java.util.LinkedHashSet;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -165,6 +169,12 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsJspLoader.class);
 
+    /** The maximum time in milliseconds to wait for another thread updating the same JSP file. */
+    private static final long PROCESSING_LOCK_TIMEOUT = 30000;
+
+    /** The suffix of the temporary files the JSP files are written to before they are renamed. */
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
     /** The maximum age for delivered contents in the clients cache. */
     private static long m_clientCacheMaxAge;
 
@@ -174,8 +184,11 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
     /** The directory to store the generated JSP pages in (relative path in web application). */
     private static String m_jspWebAppRepository;
 
-    /** Help variable to keep synchronized the jsp writing process. */
-    private static Set<String> m_processingFiles = Collections.synchronizedSet(new HashSet<String>());
+    /** 
+     * The locks for the JSP files being written, with the JSP file path in the real FS as key.
+     * A lock is removed when it is released and no other thread waits for it.
+     */
+    private static ConcurrentMap<String, ReentrantLock> m_processingFiles = new ConcurrentHashMap<String, ReentrantLock>();
 
     /** The CmsFlexCache used to store generated cache entries in. */
     private CmsFlexCache m_cache;
@@ -221,6 +234,72 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         return m_jspRepository;
     }
 
+    /**
+     * Returns the number of JSP files that are currently locked or waited for.<p>
+     * 
+     * @return the number of JSP files that are currently locked or waited for
+     */
+    static int getProcessingFileCount() {
+
+        return m_processingFiles.size();
+    }
+
+    /**
+     * Locks the given JSP file in the real FS, so that only one thread at a time updates it.<p>
+     * 
+     * The lock must be released with {@link #unlockProcessingFile(String, ReentrantLock)}.<p>
+     * 
+     * @param jspPath the path of the JSP file in the real FS
+     * @param timeout the maximum time in milliseconds to wait for another thread updating the file
+     * 
+     * @return the acquired lock, or <code>null</code> if the lock could not be acquired in time
+     */
+    static ReentrantLock lockProcessingFile(String jspPath, long timeout) {
+
+        long end = System.currentTimeMillis() + timeout;
+        while (true) {
+            ReentrantLock lock = m_processingFiles.get(jspPath);
+            if (lock == null) {
+                lock = new ReentrantLock();
+                ReentrantLock existingLock = m_processingFiles.putIfAbsent(jspPath, lock);
+                if (existingLock != null) {
+                    lock = existingLock;
+                }
+            }
+            try {
+                if (!lock.tryLock(Math.max(0, end - System.currentTimeMillis()), TimeUnit.MILLISECONDS)) {
+                    return null;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (m_processingFiles.get(jspPath) == lock) {
+                return lock;
+            }
+            // the lock has been removed by the previous owner before this thread acquired it, so try again
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a lock acquired with {@link #lockProcessingFile(String, long)}.<p>
+     * 
+     * The lock is removed if no other thread is waiting for it, so only the files 
+     * that are currently being updated have a lock.<p>
+     * 
+     * @param jspPath the path of the JSP file in the real FS
+     * @param lock the lock to release
+     */
+    static void unlockProcessingFile(String jspPath, ReentrantLock lock) {
+
+        if ((lock.getHoldCount() == 1) && !lock.hasQueuedThreads()) {
+            // threads that get the lock from the map after this will notice the removal and try again 
+            m_processingFiles.remove(jspPath, lock);
+        }
+        lock.unlock();
+    }
+
     /**
      * @see org.opencms.configuration.I_CmsConfigurationParameterHandler#addConfigurationParameter(java.lang.String, java.lang.String)
      */
@@ -693,19 +772,14 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             d.mkdirs();
         }
 
+        // only one thread at a time updates a JSP file, other files are updated in parallel
+        ReentrantLock lock = lockProcessingFile(jspPath, PROCESSING_LOCK_TIMEOUT);
+        if (lock == null) {
+            // files are replaced atomically, so it is safe to continue without the lock
+            LOG.warn(Messages.get().getBundle().key(Messages.LOG_JSP_LOCK_TIMEOUT_1, jspPath));
+        }
+
         try {
-            // check if the file is being concurrently processed
-            while (m_processingFiles.contains(jspVfsName)) {
-                // wait a little bit until the first thread finishes
-                try {
-                    synchronized (m_processingFiles) {
-                        m_processingFiles.wait(100);
-                    }
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            m_processingFiles.add(jspVfsName);
             // check if the JSP must be updated
             boolean mustUpdate = false;
             File f = new File(jspPath);
@@ -780,12 +854,7 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
                                 Boolean.valueOf(f.canWrite())}));
                     }
                     // write the parsed JSP content to the real FS
-                    synchronized (CmsJspLoader.class) {
-                        // this must be done only one file at a time
-                        FileOutputStream fs = new FileOutputStream(f);
-                        fs.write(contents);
-                        fs.close();
-                    }
+                    writeJsp(f, contents);
                     if (controller.getCurrentRequest().isOnline()) {
                         m_onlineJsps.put(jspVfsName, Boolean.TRUE);
                     } else {
@@ -804,7 +873,9 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
             // update "last modified" and "expires" date on controller
             controller.updateDates(f.lastModified(), CmsResource.DATE_EXPIRED_DEFAULT);
         } finally {
-            m_processingFiles.remove(jspVfsName);
+            if (lock != null) {
+                unlockProcessingFile(jspPath, lock);
+            }
         }
 
         return jspTargetName;
@@ -1598,4 +1669,42 @@ public class CmsJspLoader implements I_CmsResourceLoader, I_CmsFlexCacheEnabledL
         // the current jsp file should be updated only if one of the included jsp has been updated
         return numberOfUpdates < updatedFiles.size();
     }
+
+    /**
+     * Writes the given contents to a JSP file in the real FS.<p>
+     * 
+     * The contents are first written to a temporary file in the same folder, which is
+     * then renamed to the JSP file, so that the servlet container never reads a partially 
+     * written JSP.<p>
+     * 
+     * @param f the JSP file to write
+     * @param contents the contents to write
+     * 
+     * @throws IOException in case the file could not be written
+     */
+    protected void writeJsp(File f, byte[] contents) throws IOException {
+
+        File tempFile = File.createTempFile(f.getName(), TEMP_FILE_SUFFIX, f.getParentFile());
+        try {
+            FileOutputStream fs = new FileOutputStream(tempFile);
+            try {
+                fs.write(contents);
+            } finally {
+                fs.close();
+            }
+            if (!tempFile.renameTo(f)) {
+                // some platforms do not allow to rename a file to an existing file
+                f.delete();
+                if (!tempFile.renameTo(f)) {
+                    throw new FileNotFoundException(Messages.get().getBundle().key(
+                        Messages.ERR_LOADER_JSP_WRITE_1,
+                        f.getName()));
+                }
+            }
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
 }
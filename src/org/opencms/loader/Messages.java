@@ -46,6 +46,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CONFLICTING_RESTYPES_IN_MODULE_5 = "ERR_CONFLICTING_RESTYPES_IN_MODULE_5";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_IMAGE_SCALING_FAILED_1 = "ERR_IMAGE_SCALING_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_IMAGE_SCALING_INTERRUPTED_1 = "ERR_IMAGE_SCALING_INTERRUPTED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_INVALID_COLLECTOR_NAME_1 = "ERR_INVALID_COLLECTOR_NAME_1";
 
@@ -151,12 +157,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_GET_RESTYPE_2 = "INIT_GET_RESTYPE_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_CACHE_MAX_SIZE_2 = "INIT_IMAGE_CACHE_MAX_SIZE_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_IMAGE_REPOSITORY_PATH_1 = "INIT_IMAGE_REPOSITORY_PATH_1";
 
     /** Message constant for key in the resource bundle. */
     public static final String INIT_IMAGE_SCALING_ENABLED_1 = "INIT_IMAGE_SCALING_ENABLED_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_SCALING_PREGENERATE_1 = "INIT_IMAGE_SCALING_PREGENERATE_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String INIT_IMAGE_SCALING_THREADS_2 = "INIT_IMAGE_SCALING_THREADS_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String INIT_JSP_CACHE_SIZE_1 = "INIT_JSP_CACHE_SIZE_1";
 
@@ -217,6 +232,18 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_IGNORING_EXC_1 = "LOG_IGNORING_EXC_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_PREGENERATE_FAILED_2 = "LOG_IMAGE_PREGENERATE_FAILED_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_PREGENERATE_START_2 = "LOG_IMAGE_PREGENERATE_START_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_IMAGE_SCALING_COALESCED_1 = "LOG_IMAGE_SCALING_COALESCED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_JSP_LOCK_TIMEOUT_1 = "LOG_JSP_LOCK_TIMEOUT_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_JSP_PERMCHECK_4 = "LOG_JSP_PERMCHECK_4";
 
@@ -226,6 +253,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_READ_MIMETYPES_FAILED_2 = "LOG_READ_MIMETYPES_FAILED_2";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_READ_PUBLISHED_RESOURCES_FAILED_1 = "LOG_READ_PUBLISHED_RESOURCES_FAILED_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_UNSUPPORTED_ENC_1 = "LOG_UNSUPPORTED_ENC_1";
 
@@ -0,0 +1,284 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Bounded queue of the events to deliver asynchronously to a single event listener.<p>
+ * 
+ * The queue is processed by at most one worker thread at a time, so the events are 
+ * delivered in the order they were added and never concurrently to the listener. 
+ * To share the worker threads fairly between the listeners, a worker delivers 
+ * at most {@link #BATCH_SIZE} events before the queue is scheduled again.<p>
+ * 
+ * @since 8.0.4
+ */
+class CmsEventListenerQueue implements Runnable {
+
+    /**
+     * A queued event.<p>
+     */
+    private static final class QueuedEvent {
+
+        /** The event. */
+        final CmsEvent m_event;
+
+        /** The time the event was queued in nanoseconds. */
+        final long m_time;
+
+        /**
+         * Creates a new queued event.<p>
+         * 
+         * @param event the event
+         */
+        QueuedEvent(CmsEvent event) {
+
+            m_event = event;
+            m_time = System.nanoTime();
+        }
+    }
+
+    /** The maximum number of events delivered by a worker before the queue is scheduled again. */
+    static final int BATCH_SIZE = 32;
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsEventListenerQueue.class);
+
+    /** The number of delivered events. */
+    private AtomicLong m_completed;
+
+    /** The executor running the workers. */
+    private Executor m_executor;
+
+    /** The listener. */
+    private I_CmsEventListener m_listener;
+
+    /** The queued events. */
+    private BlockingQueue<QueuedEvent> m_queue;
+
+    /** Indicates if a worker is scheduled or running for this queue. */
+    private AtomicBoolean m_scheduled;
+
+    /** The statistics of the listener. */
+    private CmsEventListenerStatistics m_statistics;
+
+    /** The number of added events. */
+    private AtomicLong m_submitted;
+
+    /** The number of threads waiting for events to be delivered. */
+    private AtomicInteger m_waiting;
+
+    /**
+     * Creates a new event listener queue.<p>
+     * 
+     * @param listener the listener
+     * @param capacity the maximum number of queued events
+     * @param executor the executor running the workers
+     * @param statistics the statistics of the listener
+     */
+    CmsEventListenerQueue(
+        I_CmsEventListener listener,
+        int capacity,
+        Executor executor,
+        CmsEventListenerStatistics statistics) {
+
+        m_listener = listener;
+        m_queue = new LinkedBlockingQueue<QueuedEvent>(capacity);
+        m_executor = executor;
+        m_statistics = statistics;
+        m_completed = new AtomicLong();
+        m_scheduled = new AtomicBoolean();
+        m_submitted = new AtomicLong();
+        m_waiting = new AtomicInteger();
+    }
+
+    /**
+     * Delivers the queued events.<p>
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+
+        try {
+            int count = 0;
+            QueuedEvent event = m_queue.poll();
+            while (event != null) {
+                deliver(event);
+                count++;
+                event = (count < BATCH_SIZE) ? m_queue.poll() : null;
+            }
+        } finally {
+            m_scheduled.set(false);
+        }
+        if (!m_queue.isEmpty()) {
+            // events were added after the last poll, or the batch size was reached
+            schedule();
+        }
+    }
+
+    /**
+     * Adds an event to this queue, waiting for space if the queue is full.<p>
+     * 
+     * @param event the event to add
+     * @param block if <code>false</code>, the event is not added if the queue is full
+     * 
+     * @return <code>true</code> if the event was added
+     * 
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    boolean add(CmsEvent event, boolean block) throws InterruptedException {
+
+        QueuedEvent queued = new QueuedEvent(event);
+        boolean added;
+        // the counter must match the order of the queue, see waitFor()
+        synchronized (m_queue) {
+            if (block) {
+                m_queue.put(queued);
+                added = true;
+            } else {
+                added = m_queue.offer(queued);
+            }
+            if (added) {
+                m_submitted.incrementAndGet();
+            }
+        }
+        if (added) {
+            schedule();
+        }
+        return added;
+    }
+
+    /**
+     * Returns the number of events added to this queue so far.<p>
+     * 
+     * @return the number of events added to this queue so far
+     */
+    long getSubmitted() {
+
+        return m_submitted.get();
+    }
+
+    /**
+     * Returns the number of queued events.<p>
+     * 
+     * @return the number of queued events
+     */
+    int size() {
+
+        return m_queue.size();
+    }
+
+    /**
+     * Waits until the given number of events has been delivered.<p>
+     * 
+     * Since the events are delivered in the order they were added, this waits until 
+     * all events added before {@link #getSubmitted()} returned the given number are delivered.<p>
+     * 
+     * @param count the number of events
+     * @param deadline the time in milliseconds to wait until, or <code>0</code> to wait forever
+     * 
+     * @return <code>true</code> if the events have been delivered
+     * 
+     * @throws InterruptedException if the current thread was interrupted while waiting
+     */
+    boolean waitFor(long count, long deadline) throws InterruptedException {
+
+        if (m_completed.get() >= count) {
+            return true;
+        }
+        m_waiting.incrementAndGet();
+        try {
+            synchronized (this) {
+                while (m_completed.get() < count) {
+                    long timeout = 0;
+                    if (deadline > 0) {
+                        timeout = deadline - System.currentTimeMillis();
+                        if (timeout <= 0) {
+                            return false;
+                        }
+                    }
+                    wait(timeout);
+                }
+            }
+        } finally {
+            m_waiting.decrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Delivers an event to the listener.<p>
+     * 
+     * @param event the event to deliver
+     */
+    private void deliver(QueuedEvent event) {
+
+        long start = System.nanoTime();
+        boolean error = false;
+        try {
+            m_listener.cmsEvent(event.m_event);
+        } catch (Throwable t) {
+            error = true;
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_ASYNC_EVENT_ERROR_2, m_listener, event.m_event), t);
+        } finally {
+            long end = System.nanoTime();
+            m_statistics.record(end - start, start - event.m_time, error);
+            m_completed.incrementAndGet();
+            if (m_waiting.get() > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Schedules a worker for this queue, if none is scheduled or running.<p>
+     */
+    private void schedule() {
+
+        if (m_scheduled.compareAndSet(false, true)) {
+            try {
+                m_executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                // the event manager has been shut down, deliver on this thread
+                run();
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dispatch statistics of an event listener.<p>
+ * 
+ * For each listener, the event manager counts the delivered events and measures the 
+ * time spent in the listener. For asynchronously delivered events, the time the events 
+ * were waiting in the queue of the listener is measured as well.<p>
+ * 
+ * @since 8.0.4
+ * 
+ * @see CmsEventManager#getListenerStatistics()
+ */
+public class CmsEventListenerStatistics {
+
+    /** The number of asynchronously delivered events. */
+    private AtomicLong m_asyncCount;
+
+    /** The number of delivered events. */
+    private AtomicLong m_count;
+
+    /** The number of events which caused an exception in the listener. */
+    private AtomicLong m_errorCount;
+
+    /** The maximum time spent in the listener in nanoseconds. */
+    private AtomicLong m_maxTime;
+
+    /** The total time spent in the listener in nanoseconds. */
+    private AtomicLong m_totalTime;
+
+    /** The total time asynchronous events were waiting in the queue in nanoseconds. */
+    private AtomicLong m_totalWaitTime;
+
+    /**
+     * Creates new, empty statistics.<p>
+     */
+    public CmsEventListenerStatistics() {
+
+        m_asyncCount = new AtomicLong();
+        m_count = new AtomicLong();
+        m_errorCount = new AtomicLong();
+        m_maxTime = new AtomicLong();
+        m_totalTime = new AtomicLong();
+        m_totalWaitTime = new AtomicLong();
+    }
+
+    /**
+     * Returns the number of asynchronously delivered events.<p>
+     * 
+     * @return the number of asynchronously delivered events
+     */
+    public long getAsyncCount() {
+
+        return m_asyncCount.get();
+    }
+
+    /**
+     * Returns the average time spent in the listener in milliseconds.<p>
+     * 
+     * @return the average time spent in the listener in milliseconds
+     */
+    public double getAverageTime() {
+
+        long count = m_count.get();
+        return count == 0 ? 0 : (m_totalTime.get() / 1000000.0) / count;
+    }
+
+    /**
+     * Returns the average time asynchronous events were waiting in the queue in milliseconds.<p>
+     * 
+     * @return the average time asynchronous events were waiting in the queue in milliseconds
+     */
+    public double getAverageWaitTime() {
+
+        long count = m_asyncCount.get();
+        return count == 0 ? 0 : (m_totalWaitTime.get() / 1000000.0) / count;
+    }
+
+    /**
+     * Returns the number of delivered events.<p>
+     * 
+     * @return the number of delivered events
+     */
+    public long getCount() {
+
+        return m_count.get();
+    }
+
+    /**
+     * Returns the number of events which caused an exception in the listener.<p>
+     * 
+     * @return the number of events which caused an exception in the listener
+     */
+    public long getErrorCount() {
+
+        return m_errorCount.get();
+    }
+
+    /**
+     * Returns the maximum time spent in the listener in milliseconds.<p>
+     * 
+     * @return the maximum time spent in the listener in milliseconds
+     */
+    public double getMaxTime() {
+
+        return m_maxTime.get() / 1000000.0;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return Messages.get().getBundle().key(
+            Messages.GUI_EVENT_LISTENER_STATISTICS_6,
+            new Object[] {
+                new Long(getCount()),
+                new Long(getAsyncCount()),
+                new Long(getErrorCount()),
+                new Double(getAverageTime()),
+                new Double(getMaxTime()),
+                new Double(getAverageWaitTime())});
+    }
+
+    /**
+     * Records the delivery of an event.<p>
+     * 
+     * @param time the time spent in the listener in nanoseconds
+     * @param waitTime the time the event was waiting in the queue in nanoseconds, 
+     *      or <code>-1</code> if the event was delivered synchronously
+     * @param error <code>true</code> if the listener threw an exception
+     */
+    protected void record(long time, long waitTime, boolean error) {
+
+        m_count.incrementAndGet();
+        m_totalTime.addAndGet(time);
+        long max = m_maxTime.get();
+        while ((time > max) && !m_maxTime.compareAndSet(max, time)) {
+            max = m_maxTime.get();
+        }
+        if (waitTime >= 0) {
+            m_asyncCount.incrementAndGet();
+            m_totalWaitTime.addAndGet(waitTime);
+        }
+        if (error) {
+            m_errorCount.incrementAndGet();
+        }
+    }
+}
@@ -27,11 +27,21 @@
 
 package org.opencms.main;
 
+import org.opencms.cluster.CmsClusterEventBus;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 
@@ -44,6 +54,14 @@ import org.apache.commons.logging.Log;
  * Events can be used in OpenCms to notify custom event listeners that certain system events have happened.
  * Event listeners have to implement the interface {@link org.opencms.main.I_CmsEventListener}.<p>
  * 
+ * Listeners implementing {@link I_CmsAsyncEventListener} can receive events asynchronously. 
+ * These events are delivered by a pool of worker threads from a bounded queue per listener, 
+ * after all synchronous listeners have processed the event. 
+ * Use {@link #waitForAsyncEvents(long)} to wait until the queued events have been delivered.
+ * Asynchronous delivery is disabled by default, see {@link #setAsyncDispatch(int, int)}. 
+ * If it is enabled, asynchronous listeners that write to the same report, like the search manager 
+ * and the static export manager after a publish, may interleave their report output.<p>
+ * 
  * @since 7.0.0
  * 
  * @see org.opencms.main.CmsEvent
@@ -51,21 +69,73 @@ import org.apache.commons.logging.Log;
  */
 public class CmsEventManager {
 
+    /**
+     * Worker thread delivering asynchronous events.<p>
+     */
+    private static final class DispatchThread extends Thread {
+
+        /**
+         * Creates a new worker thread.<p>
+         * 
+         * @param runnable the runnable to execute
+         * @param name the thread name
+         */
+        DispatchThread(Runnable runnable, String name) {
+
+            super(runnable, name);
+            setDaemon(true);
+        }
+    }
+
+    /** The default maximum number of queued asynchronous events per listener. */
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+
+    /** The default number of threads delivering asynchronous events, all events are delivered synchronously. */
+    public static final int DEFAULT_ASYNC_THREADS = 0;
+
     /** Required as template for event list generation. */
     protected static final I_CmsEventListener[] EVENT_LIST = new I_CmsEventListener[0];
 
     /** The static log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsEventManager.class);
 
+    /** The time in milliseconds to wait for queued events on shutdown. */
+    private static final long SHUTDOWN_TIMEOUT = 30000;
+
+    /** The maximum number of queued asynchronous events per listener. */
+    private int m_asyncQueueSize;
+
+    /** The number of threads delivering asynchronous events. */
+    private int m_asyncThreads;
+
+    /** The cluster event bus, or <code>null</code> if events are not distributed. */
+    private CmsClusterEventBus m_clusterEventBus;
+
     /** Stores the active event listeners. */
     private Map<Integer, List<I_CmsEventListener>> m_eventListeners;
 
+    /** The worker threads delivering asynchronous events, created on demand. */
+    private volatile ExecutorService m_executor;
+
+    /** The queues of the asynchronous listeners. */
+    private Map<I_CmsEventListener, CmsEventListenerQueue> m_queues;
+
+    /** Indicates if this event manager has been shut down. */
+    private volatile boolean m_shutDown;
+
+    /** The dispatch statistics of the listeners. */
+    private ConcurrentMap<I_CmsEventListener, CmsEventListenerStatistics> m_statistics;
+
     /**
      * Create a new instance of an OpenCms event manager.<p>
      */
     public CmsEventManager() {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>();
+        m_asyncThreads = DEFAULT_ASYNC_THREADS;
+        m_asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+        m_queues = new ConcurrentHashMap<I_CmsEventListener, CmsEventListenerQueue>();
+        m_statistics = new ConcurrentHashMap<I_CmsEventListener, CmsEventListenerStatistics>();
     }
 
     /**
@@ -114,8 +184,18 @@ public class CmsEventManager {
      */
     public void fireEvent(CmsEvent event) {
 
-        fireEventHandler(m_eventListeners.get(event.getTypeInteger()), event);
-        fireEventHandler(m_eventListeners.get(I_CmsEventListener.LISTENERS_FOR_ALL_EVENTS), event);
+        List<I_CmsEventListener> listeners = m_eventListeners.get(event.getTypeInteger());
+        List<I_CmsEventListener> allEventListeners = m_eventListeners.get(I_CmsEventListener.LISTENERS_FOR_ALL_EVENTS);
+        fireEventHandler(listeners, event);
+        fireEventHandler(allEventListeners, event);
+        // queue the event for the asynchronous listeners after all synchronous listeners are done 
+        fireAsyncEventHandler(listeners, event);
+        fireAsyncEventHandler(allEventListeners, event);
+        CmsClusterEventBus clusterEventBus = m_clusterEventBus;
+        if (clusterEventBus != null) {
+            // distribute the event to the other cluster nodes
+            clusterEventBus.send(event);
+        }
     }
 
     /**
@@ -139,6 +219,47 @@ public class CmsEventManager {
         fireEvent(new CmsEvent(type, data));
     }
 
+    /**
+     * Returns the maximum number of queued asynchronous events per listener.<p>
+     * 
+     * @return the maximum number of queued asynchronous events per listener
+     */
+    public int getAsyncQueueSize() {
+
+        return m_asyncQueueSize;
+    }
+
+    /**
+     * Returns the number of threads delivering asynchronous events.<p>
+     * 
+     * @return the number of threads delivering asynchronous events, 
+     *      <code>0</code> if all events are delivered synchronously
+     */
+    public int getAsyncThreads() {
+
+        return m_asyncThreads;
+    }
+
+    /**
+     * Returns the cluster event bus.<p>
+     * 
+     * @return the cluster event bus, or <code>null</code> if events are not distributed
+     */
+    public CmsClusterEventBus getClusterEventBus() {
+
+        return m_clusterEventBus;
+    }
+
+    /**
+     * Returns the dispatch statistics of all listeners which have received events.<p>
+     * 
+     * @return the dispatch statistics of all listeners which have received events
+     */
+    public Map<I_CmsEventListener, CmsEventListenerStatistics> getListenerStatistics() {
+
+        return Collections.unmodifiableMap(new HashMap<I_CmsEventListener, CmsEventListenerStatistics>(m_statistics));
+    }
+
     /**
      * Removes a cms event listener.<p>
      *
@@ -153,6 +274,92 @@ public class CmsEventManager {
                 listeners.remove(listener);
             }
         }
+        // already queued events are still delivered
+        m_queues.remove(listener);
+    }
+
+    /**
+     * Sets the asynchronous event delivery settings.<p>
+     * 
+     * The settings must be set before the first asynchronous event is fired.<p>
+     * 
+     * @param threads the number of threads delivering asynchronous events, 
+     *      <code>0</code> to deliver all events synchronously
+     * @param queueSize the maximum number of queued asynchronous events per listener
+     */
+    public void setAsyncDispatch(int threads, int queueSize) {
+
+        m_asyncThreads = threads;
+        m_asyncQueueSize = queueSize;
+    }
+
+    /**
+     * Sets the cluster event bus used to distribute events to the other cluster nodes.<p>
+     * 
+     * @param clusterEventBus the cluster event bus, or <code>null</code> if events are not distributed
+     */
+    public void setClusterEventBus(CmsClusterEventBus clusterEventBus) {
+
+        m_clusterEventBus = clusterEventBus;
+    }
+
+    /**
+     * Shuts down this event manager.<p>
+     * 
+     * Waits until the queued asynchronous events have been delivered, 
+     * after that all events are delivered synchronously.<p>
+     */
+    public void shutDown() {
+
+        ExecutorService executor;
+        synchronized (this) {
+            m_shutDown = true;
+            executor = m_executor;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Waits until all asynchronous events fired before this method was called have been delivered.<p>
+     * 
+     * @param timeout the maximum time to wait in milliseconds, or <code>0</code> to wait without limit
+     * 
+     * @return <code>true</code> if all events have been delivered, 
+     *      <code>false</code> if the timeout elapsed or the current thread was interrupted
+     */
+    public boolean waitForAsyncEvents(long timeout) {
+
+        if ((m_executor == null) || (m_executor.isTerminated())) {
+            // no events have been queued, or all have been delivered
+            return true;
+        }
+        if ((Thread.currentThread() instanceof DispatchThread)) {
+            // waiting in an asynchronous listener could dead lock
+            return false;
+        }
+        long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+        Map<CmsEventListenerQueue, Long> counts = new HashMap<CmsEventListenerQueue, Long>();
+        for (CmsEventListenerQueue queue : m_queues.values()) {
+            counts.put(queue, new Long(queue.getSubmitted()));
+        }
+        try {
+            for (Map.Entry<CmsEventListenerQueue, Long> entry : counts.entrySet()) {
+                if (!entry.getKey().waitFor(entry.getValue().longValue(), deadline)) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
     }
 
     /**
@@ -173,10 +380,30 @@ public class CmsEventManager {
     protected void initialize(CmsEventManager base) {
 
         m_eventListeners = new HashMap<Integer, List<I_CmsEventListener>>(base.getEventListeners());
+        m_clusterEventBus = base.getClusterEventBus();
+    }
+
+    /**
+     * Queues the specified event for the asynchronous event listeners in the given list.<p>
+     * 
+     * @param listeners the listeners to fire
+     * @param event the event to fire
+     */
+    protected void fireAsyncEventHandler(List<I_CmsEventListener> listeners, CmsEvent event) {
+
+        if ((m_asyncThreads <= 0) || (listeners == null) || (listeners.size() == 0)) {
+            return;
+        }
+        I_CmsEventListener[] list = listeners.toArray(EVENT_LIST);
+        for (int i = 0; i < list.length; i++) {
+            if (isAsyncDelivery(list[i], event)) {
+                queueEvent(list[i], event);
+            }
+        }
     }
 
     /**
-     * Fires the specified event to a list of event listeners.<p>
+     * Fires the specified event to the synchronous event listeners in the given list.<p>
      * 
      * @param listeners the listeners to fire
      * @param event the event to fire
@@ -190,8 +417,10 @@ public class CmsEventManager {
                 I_CmsEventListener[] list = listeners.toArray(EVENT_LIST);
                 // loop through all registered event listeners
                 for (int i = 0; i < list.length; i++) {
-                    // fire the event
-                    list[i].cmsEvent(event);
+                    if (!isAsyncDelivery(list[i], event)) {
+                        // fire the event
+                        deliverEvent(list[i], event);
+                    }
                 }
             }
         } else {
@@ -231,8 +460,16 @@ public class CmsEventManager {
                         list[i],
                         new Integer(i),
                         event.toString()));
+                    if (isAsyncDelivery(list[i], event)) {
+                        LOG.debug(Messages.get().getBundle().key(
+                            Messages.LOG_DEBUG_EVENT_ASYNC_LISTENER_3,
+                            list[i],
+                            new Integer(i),
+                            event.toString()));
+                        continue;
+                    }
                     // fire the event
-                    list[i].cmsEvent(event);
+                    deliverEvent(list[i], event);
                     LOG.debug(Messages.get().getBundle().key(
                         Messages.LOG_DEBUG_EVENT_END_LISTENER_3,
                         list[i],
@@ -245,4 +482,122 @@ public class CmsEventManager {
             LOG.debug(Messages.get().getBundle().key(Messages.LOG_DEBUG_EVENT_COMPLETE_1, event.toString()));
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Delivers an event synchronously to a listener.<p>
+     * 
+     * @param listener the listener
+     * @param event the event
+     */
+    private void deliverEvent(I_CmsEventListener listener, CmsEvent event) {
+
+        long start = System.nanoTime();
+        boolean error = true;
+        try {
+            listener.cmsEvent(event);
+            error = false;
+        } finally {
+            getStatistics(listener).record(System.nanoTime() - start, -1, error);
+        }
+    }
+
+    /**
+     * Returns the queue of an asynchronous listener, creating the worker threads if required.<p>
+     * 
+     * @param listener the listener
+     * 
+     * @return the queue of the listener, or <code>null</code> if this event manager has been shut down
+     */
+    private CmsEventListenerQueue getQueue(I_CmsEventListener listener) {
+
+        CmsEventListenerQueue queue = m_queues.get(listener);
+        if (queue != null) {
+            return queue;
+        }
+        synchronized (this) {
+            queue = m_queues.get(listener);
+            if ((queue == null) && !m_shutDown) {
+                if (m_executor == null) {
+                    final AtomicInteger count = new AtomicInteger();
+                    m_executor = Executors.newFixedThreadPool(m_asyncThreads, new ThreadFactory() {
+
+                        public Thread newThread(Runnable runnable) {
+
+                            return new DispatchThread(runnable, "OpenCms: Event dispatcher " + count.incrementAndGet());
+                        }
+                    });
+                }
+                queue = new CmsEventListenerQueue(listener, m_asyncQueueSize, m_executor, getStatistics(listener));
+                m_queues.put(listener, queue);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Returns the statistics of a listener.<p>
+     * 
+     * @param listener the listener
+     * 
+     * @return the statistics of the listener
+     */
+    private CmsEventListenerStatistics getStatistics(I_CmsEventListener listener) {
+
+        CmsEventListenerStatistics statistics = m_statistics.get(listener);
+        if (statistics == null) {
+            statistics = new CmsEventListenerStatistics();
+            CmsEventListenerStatistics existing = m_statistics.putIfAbsent(listener, statistics);
+            if (existing != null) {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * Checks if an event is delivered asynchronously to a listener.<p>
+     * 
+     * @param listener the listener
+     * @param event the event
+     * 
+     * @return <code>true</code> if the event is delivered asynchronously to the listener
+     */
+    private boolean isAsyncDelivery(I_CmsEventListener listener, CmsEvent event) {
+
+        return (m_asyncThreads > 0)
+            && (listener instanceof I_CmsAsyncEventListener)
+            && ((I_CmsAsyncEventListener)listener).isAsyncDelivery(event);
+    }
+
+    /**
+     * Queues an event for an asynchronous listener.<p>
+     * 
+     * If the queue of the listener is full, the current thread waits for space in the queue. 
+     * If this event manager has been shut down, or the current thread is a worker thread 
+     * which must not wait, the event is delivered synchronously.<p>
+     * 
+     * @param listener the listener
+     * @param event the event
+     */
+    private void queueEvent(I_CmsEventListener listener, CmsEvent event) {
+
+        CmsEventListenerQueue queue = getQueue(listener);
+        try {
+            if ((queue != null) && !queue.add(event, false)) {
+                if (Thread.currentThread() instanceof DispatchThread) {
+                    LOG.warn(Messages.get().getBundle().key(Messages.LOG_ASYNC_EVENT_QUEUE_FULL_2, listener, event));
+                    queue = null;
+                } else {
+                    // wait for space in the queue
+                    queue.add(event, true);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queue = null;
+        }
+        if (queue == null) {
+            deliverEvent(listener, event);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+/**
+ * Event listener that can receive events asynchronously.<p>
+ * 
+ * Events for which {@link #isAsyncDelivery(CmsEvent)} returns <code>true</code> are not 
+ * delivered on the thread that fired the event, but are queued and delivered by the 
+ * worker threads of the {@link CmsEventManager}, after all synchronous listeners 
+ * have processed the event. The events are always delivered to a listener in the order 
+ * they were fired, and never concurrently to the same listener.<p>
+ * 
+ * Since the thread firing an event may continue before the event is delivered, 
+ * event data like database contexts or reports must only be used by asynchronous 
+ * listeners if the thread firing the event waits with 
+ * {@link CmsEventManager#waitForAsyncEvents(long)}, like the publish engine does.<p>
+ * 
+ * @since 8.0.4
+ */
+public interface I_CmsAsyncEventListener extends I_CmsEventListener {
+
+    /**
+     * Checks if the given event can be delivered asynchronously to this listener.<p>
+     * 
+     * The result must only depend on the event.<p>
+     * 
+     * @param event the event
+     * 
+     * @return <code>true</code> if the given event can be delivered asynchronously to this listener
+     */
+    boolean isAsyncDelivery(CmsEvent event);
+}
@@ -60,6 +60,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CRITICAL_INIT_ADMINCMS_0 = "ERR_CRITICAL_INIT_ADMINCMS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String ERR_CRITICAL_INIT_CLUSTER_0 = "ERR_CRITICAL_INIT_CLUSTER_0";
+
     /** Message constant for key in the resource bundle. */
     public static final String ERR_CRITICAL_INIT_DATABASE_0 = "ERR_CRITICAL_INIT_DATABASE_0";
 
@@ -135,6 +138,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String ERR_UNKNOWN_MODULE_1 = "ERR_UNKNOWN_MODULE_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String GUI_EVENT_LISTENER_STATISTICS_6 = "GUI_EVENT_LISTENER_STATISTICS_6";
+
     /** Message constant for key in the resource bundle. */
     public static final String GUI_SHELL_AVAILABLE_METHODS_1 = "GUI_SHELL_AVAILABLE_METHODS_1";
 
@@ -321,12 +327,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_WEBINF_PATH_1 = "INIT_WEBINF_PATH_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ASYNC_EVENT_ERROR_2 = "LOG_ASYNC_EVENT_ERROR_2";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ASYNC_EVENT_QUEUE_FULL_2 = "LOG_ASYNC_EVENT_QUEUE_FULL_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CONSOLE_TOTAL_RUNTIME_1 = "LOG_CONSOLE_TOTAL_RUNTIME_1";
 
     /** Message constant for key in the resource bundle. */
     public static final String LOG_DEBUG_EVENT_1 = "LOG_DEBUG_EVENT_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_DEBUG_EVENT_ASYNC_LISTENER_3 = "LOG_DEBUG_EVENT_ASYNC_LISTENER_3";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_DEBUG_EVENT_COMPLETE_1 = "LOG_DEBUG_EVENT_COMPLETE_1";
 
@@ -354,6 +369,12 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_ADE_MANAGER_SHUTDOWN_1 = "LOG_ERROR_ADE_MANAGER_SHUTDOWN_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_CLUSTER_SHUTDOWN_1 = "LOG_ERROR_CLUSTER_SHUTDOWN_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1 = "LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_ERROR_EXPORT_1 = "LOG_ERROR_EXPORT_1";
 
@@ -28,6 +28,7 @@
 package org.opencms.main;
 
 import org.opencms.ade.configuration.CmsADEManager;
+import org.opencms.cluster.CmsClusterEventBus;
 import org.opencms.configuration.CmsConfigurationException;
 import org.opencms.configuration.CmsConfigurationManager;
 import org.opencms.configuration.CmsImportExportConfiguration;
@@ -1240,6 +1241,17 @@ public final class OpenCmsCore {
         } catch (CmsException e) {
             throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_MANAGERS_0), e);
         }
+
+        // start distributing events to the other cluster nodes, now that all event listeners are registered
+        CmsClusterEventBus clusterEventBus = systemConfiguration.getClusterEventBus();
+        if (clusterEventBus != null) {
+            try {
+                clusterEventBus.initialize(m_eventManager);
+            } catch (IOException e) {
+                throw new CmsInitException(Messages.get().container(Messages.ERR_CRITICAL_INIT_CLUSTER_0), e);
+            }
+            m_eventManager.setClusterEventBus(clusterEventBus);
+        }
     }
 
     /**
@@ -1646,6 +1658,26 @@ public final class OpenCmsCore {
                         Messages.LOG_ERROR_PUBLISH_SHUTDOWN_1,
                         e.getMessage()), e);
                 }
+                try {
+                    // stop distributing events, after the publish engine has fired its last events
+                    CmsClusterEventBus clusterEventBus = m_eventManager.getClusterEventBus();
+                    if (clusterEventBus != null) {
+                        m_eventManager.setClusterEventBus(null);
+                        clusterEventBus.shutDown();
+                    }
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(Messages.get().getBundle().key(
+                        Messages.LOG_ERROR_CLUSTER_SHUTDOWN_1,
+                        e.getMessage()), e);
+                }
+                try {
+                    // deliver the queued asynchronous events before the managers are shut down
+                    m_eventManager.shutDown();
+                } catch (Throwable e) {
+                    CmsLog.INIT.error(Messages.get().getBundle().key(
+                        Messages.LOG_ERROR_EVENT_MANAGER_SHUTDOWN_1,
+                        e.getMessage()), e);
+                }
                 try {
                     // search manager must be shut down early since there may be background indexing still ongoing
                     if (m_searchManager != null) {
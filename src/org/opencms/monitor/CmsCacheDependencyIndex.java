@@ -0,0 +1,144 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the dependencies of the entries of a single memory monitor cache.<p>
+ * 
+ * A dependency is a string tag, for example derived from a root path, a resource id or a principal id, 
+ * see {@link org.opencms.db.CmsCacheDependencies}. The index maps each tag to the keys of the cache entries 
+ * depending on it, so that a write operation can remove exactly the affected entries instead of 
+ * flushing the whole cache.<p>
+ * 
+ * Keys are not removed from the index when the cache evicts them, stale keys are only dropped
+ * when one of their tags is invalidated. To keep the index bounded, {@link #addDependencies(String, Collection)}
+ * reports when the index has grown beyond its limit, in which case the cache and the index must be flushed.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsCacheDependencyIndex {
+
+    /** The cache keys by dependency tag. */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Boolean>> m_keysByDependency;
+
+    /** The maximum number of tag/key pairs in this index. */
+    private final int m_maxEntries;
+
+    /** The current number of tag/key pairs in this index. */
+    private final AtomicInteger m_size;
+
+    /**
+     * Creates a new dependency index.<p>
+     * 
+     * @param maxEntries the maximum number of tag/key pairs in this index
+     */
+    public CmsCacheDependencyIndex(int maxEntries) {
+
+        m_maxEntries = maxEntries;
+        m_keysByDependency = new ConcurrentHashMap<String, ConcurrentHashMap<String, Boolean>>();
+        m_size = new AtomicInteger();
+    }
+
+    /**
+     * Registers the given cache key as depending on the given tags.<p>
+     * 
+     * @param key the cache key
+     * @param dependencies the dependency tags of the cache entry
+     * 
+     * @return <code>false</code> if the index has grown beyond its limit and must be cleared together with the cache
+     */
+    public boolean addDependencies(String key, Collection<String> dependencies) {
+
+        for (String dependency : dependencies) {
+            while (true) {
+                ConcurrentHashMap<String, Boolean> keys = m_keysByDependency.get(dependency);
+                if (keys == null) {
+                    keys = new ConcurrentHashMap<String, Boolean>(4, 0.75f, 2);
+                    ConcurrentHashMap<String, Boolean> existing = m_keysByDependency.putIfAbsent(dependency, keys);
+                    if (existing != null) {
+                        keys = existing;
+                    }
+                }
+                if (keys.put(key, Boolean.TRUE) == null) {
+                    m_size.incrementAndGet();
+                }
+                if (m_keysByDependency.get(dependency) == keys) {
+                    break;
+                }
+                // the key set has been invalidated concurrently, so the key must be added to a new set
+            }
+        }
+        return m_size.get() <= m_maxEntries;
+    }
+
+    /**
+     * Removes all tags from this index.<p>
+     */
+    public void clear() {
+
+        m_keysByDependency.clear();
+        m_size.set(0);
+    }
+
+    /**
+     * Removes the given tags from the index and returns the keys of all cache entries that depend on them.<p>
+     * 
+     * @param dependencies the dependency tags to invalidate
+     * 
+     * @return the keys of all cache entries depending on the given tags
+     */
+    public Set<String> removeDependentKeys(Collection<String> dependencies) {
+
+        Set<String> result = new HashSet<String>();
+        for (String dependency : dependencies) {
+            ConcurrentHashMap<String, Boolean> keys = m_keysByDependency.remove(dependency);
+            if (keys != null) {
+                m_size.addAndGet(-keys.size());
+                result.addAll(keys.keySet());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of tag/key pairs in this index.<p>
+     * 
+     * @return the number of tag/key pairs in this index
+     */
+    public int size() {
+
+        return m_size.get();
+    }
+}
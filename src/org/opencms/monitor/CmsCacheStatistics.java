@@ -0,0 +1,148 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+/**
+ * Immutable snapshot of the counters of an {@link I_CmsMemoryCache}.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsCacheStatistics {
+
+    /** The number of entries evicted because the cache was full. */
+    private final long m_evictions;
+
+    /** The number of successful lookups. */
+    private final long m_hits;
+
+    /** The maximum number of entries. */
+    private final int m_maxSize;
+
+    /** The number of failed lookups. */
+    private final long m_misses;
+
+    /** The number of entries at the time the snapshot was taken. */
+    private final int m_size;
+
+    /**
+     * Creates a new statistics snapshot.<p>
+     * 
+     * @param size the number of entries at the time the snapshot was taken
+     * @param maxSize the maximum number of entries
+     * @param hits the number of successful lookups
+     * @param misses the number of failed lookups
+     * @param evictions the number of entries evicted because the cache was full
+     */
+    public CmsCacheStatistics(int size, int maxSize, long hits, long misses, long evictions) {
+
+        m_size = size;
+        m_maxSize = maxSize;
+        m_hits = hits;
+        m_misses = misses;
+        m_evictions = evictions;
+    }
+
+    /**
+     * Returns the number of entries evicted because the cache was full.<p>
+     *
+     * @return the number of evicted entries
+     */
+    public long getEvictions() {
+
+        return m_evictions;
+    }
+
+    /**
+     * Returns the percentage of successful lookups, or <code>0</code> if there were no lookups yet.<p>
+     * 
+     * @return the percentage of successful lookups
+     */
+    public int getHitRatio() {
+
+        long lookups = m_hits + m_misses;
+        if (lookups == 0) {
+            return 0;
+        }
+        return (int)((m_hits * 100) / lookups);
+    }
+
+    /**
+     * Returns the number of successful lookups.<p>
+     *
+     * @return the number of successful lookups
+     */
+    public long getHits() {
+
+        return m_hits;
+    }
+
+    /**
+     * Returns the maximum number of entries.<p>
+     *
+     * @return the maximum number of entries, or <code>-1</code> if the cache is unbounded
+     */
+    public int getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * Returns the number of failed lookups.<p>
+     *
+     * @return the number of failed lookups
+     */
+    public long getMisses() {
+
+        return m_misses;
+    }
+
+    /**
+     * Returns the number of entries at the time the snapshot was taken.<p>
+     *
+     * @return the number of entries
+     */
+    public int getSize() {
+
+        return m_size;
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        StringBuffer result = new StringBuffer(64);
+        result.append("hits: ").append(m_hits);
+        result.append(" misses: ").append(m_misses);
+        result.append(" ratio: ").append(getHitRatio()).append('%');
+        result.append(" evictions: ").append(m_evictions);
+        return result.toString();
+    }
+}
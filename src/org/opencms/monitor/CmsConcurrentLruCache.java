@@ -0,0 +1,339 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size bounded cache with lock-free reads and approximate LRU eviction.<p>
+ * 
+ * The entries are kept in a {@link ConcurrentHashMap}, so lookups never block and 
+ * concurrent writes only contend if they hit the same hash bin. Instead of maintaining
+ * an exact access order list (which would require a lock on every read), each entry 
+ * carries the value of a logical clock from the time it was last used.<p>
+ * 
+ * If the cache grows beyond its maximum size, one writing thread evicts the least recently 
+ * used entries in a batch, so that the cache shrinks to {@link #EVICTION_LOW_WATER_MARK} percent of 
+ * its capacity. Other threads writing at the same time don't wait for the eviction to finish.<p>
+ * 
+ * @param <V> the type of the cached values
+ * 
+ * @since 8.0.4
+ */
+public class CmsConcurrentLruCache<V> implements I_CmsMemoryCache<V> {
+
+    /**
+     * A cache entry holding the value and the time of the last access.<p>
+     * 
+     * @param <V> the type of the cached value
+     */
+    private static final class CacheEntry<V> {
+
+        /** The logical time of the last access. */
+        volatile long m_lastAccess;
+
+        /** The cached value. */
+        final V m_value;
+
+        /**
+         * Creates a new cache entry.<p>
+         * 
+         * @param value the cached value
+         * @param time the logical time of creation
+         */
+        CacheEntry(V value, long time) {
+
+            m_value = value;
+            m_lastAccess = time;
+        }
+    }
+
+    /** The percentage of the maximum size the cache is reduced to on eviction. */
+    public static final int EVICTION_LOW_WATER_MARK = 90;
+
+    /** The logical clock, advanced on every write. */
+    private final AtomicLong m_clock;
+
+    /** The eviction counter. */
+    private final CmsStripedCounter m_evictions;
+
+    /** Lock to ensure only one thread at a time performs an eviction. */
+    private final ReentrantLock m_evictionLock;
+
+    /** The hit counter. */
+    private final CmsStripedCounter m_hits;
+
+    /** The cache entries. */
+    private final ConcurrentHashMap<String, CacheEntry<V>> m_map;
+
+    /** The maximum number of entries, <code>-1</code> for an unbounded cache. */
+    private final int m_maxSize;
+
+    /** The miss counter. */
+    private final CmsStripedCounter m_misses;
+
+    /** The name of this cache. */
+    private final String m_name;
+
+    /** The number of entries, maintained separately since {@link ConcurrentHashMap#size()} is expensive. */
+    private final AtomicInteger m_size;
+
+    /**
+     * Creates a new cache.<p>
+     * 
+     * @param name the name of the cache
+     * @param maxSize the maximum number of entries, if <code>&lt;= 0</code> the cache is not bounded
+     */
+    public CmsConcurrentLruCache(String name, int maxSize) {
+
+        m_name = name;
+        m_maxSize = (maxSize > 0) ? maxSize : -1;
+        int initialCapacity = (maxSize > 0) ? Math.min(maxSize, 1024) : 16;
+        m_map = new ConcurrentHashMap<String, CacheEntry<V>>(
+            initialCapacity,
+            0.75f,
+            Math.max(16, 4 * Runtime.getRuntime().availableProcessors()));
+        m_clock = new AtomicLong();
+        m_size = new AtomicInteger();
+        m_evictionLock = new ReentrantLock();
+        m_hits = new CmsStripedCounter();
+        m_misses = new CmsStripedCounter();
+        m_evictions = new CmsStripedCounter();
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#clear()
+     */
+    public void clear() {
+
+        Iterator<String> i = m_map.keySet().iterator();
+        while (i.hasNext()) {
+            if (m_map.remove(i.next()) != null) {
+                m_size.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#get(java.lang.String)
+     */
+    public V get(String key) {
+
+        CacheEntry<V> entry = m_map.get(key);
+        if (entry == null) {
+            m_misses.increment();
+            return null;
+        }
+        m_hits.increment();
+        long now = m_clock.get();
+        if (entry.m_lastAccess != now) {
+            // avoid writing to the shared entry if it was already touched in this clock cycle
+            entry.m_lastAccess = now;
+        }
+        return entry.m_value;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#getKeys()
+     */
+    public List<String> getKeys() {
+
+        return new ArrayList<String>(m_map.keySet());
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#getMaxSize()
+     */
+    public int getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#getName()
+     */
+    public String getName() {
+
+        return m_name;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#getStatistics()
+     */
+    public CmsCacheStatistics getStatistics() {
+
+        return new CmsCacheStatistics(size(), m_maxSize, m_hits.get(), m_misses.get(), m_evictions.get());
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#getValues()
+     */
+    public List<V> getValues() {
+
+        List<V> result = new ArrayList<V>(m_map.size());
+        for (CacheEntry<V> entry : m_map.values()) {
+            result.add(entry.m_value);
+        }
+        return result;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#put(java.lang.String, java.lang.Object)
+     */
+    public void put(String key, V value) {
+
+        CacheEntry<V> previous = m_map.put(key, new CacheEntry<V>(value, m_clock.incrementAndGet()));
+        if (previous == null) {
+            int size = m_size.incrementAndGet();
+            if ((m_maxSize > 0) && (size > m_maxSize)) {
+                evict();
+            }
+        }
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#remove(java.lang.String)
+     */
+    public V remove(String key) {
+
+        CacheEntry<V> entry = m_map.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        m_size.decrementAndGet();
+        return entry.m_value;
+    }
+
+    /**
+     * @see org.opencms.monitor.I_CmsMemoryCache#size()
+     */
+    public int size() {
+
+        return m_map.size();
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return m_name + " [" + size() + "/" + m_maxSize + "] " + getStatistics();
+    }
+
+    /**
+     * Evicts the least recently used entries until the cache is reduced to the low water mark.<p>
+     * 
+     * If another thread is already evicting, this method returns immediately.<p>
+     */
+    private void evict() {
+
+        if (!m_evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            // repeat in case other threads have added entries while the eviction was running
+            while ((m_size.get() > m_maxSize) && evictBatch()) {
+                // continue
+            }
+        } finally {
+            m_evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Evicts one batch of the least recently used entries, so that the cache is reduced to the low water mark.<p>
+     * 
+     * Must only be called by the thread holding the eviction lock.<p>
+     * 
+     * @return <code>true</code> if entries have been evicted
+     */
+    private boolean evictBatch() {
+
+        // take a snapshot of the access times
+        int count = 0;
+        long[] times = new long[m_size.get() + 16];
+        for (CacheEntry<V> entry : m_map.values()) {
+            if (count == times.length) {
+                long[] newTimes = new long[count * 2];
+                System.arraycopy(times, 0, newTimes, 0, count);
+                times = newTimes;
+            }
+            times[count++] = entry.m_lastAccess;
+        }
+        int toEvict = count - ((m_maxSize * EVICTION_LOW_WATER_MARK) / 100);
+        if (toEvict <= 0) {
+            // the cache has shrunk meanwhile, correct the size counter that may have drifted
+            m_size.set(count);
+            return false;
+        }
+        Arrays.sort(times, 0, count);
+        long threshold = times[toEvict - 1];
+        int evicted = evictEntries(threshold, toEvict);
+        if (evicted < toEvict) {
+            // most of the old entries have been used while the eviction was running, 
+            // in order to keep the cache bounded the remaining entries are evicted regardless of their age
+            evicted += evictEntries(Long.MAX_VALUE, toEvict - evicted);
+        }
+        m_size.addAndGet(-evicted);
+        m_evictions.add(evicted);
+        return evicted > 0;
+    }
+
+    /**
+     * Removes up to the given number of entries that have not been used since the given logical time.<p>
+     * 
+     * @param threshold the logical time, only entries last used at or before this time are removed
+     * @param maxCount the maximum number of entries to remove
+     * 
+     * @return the number of removed entries
+     */
+    private int evictEntries(long threshold, int maxCount) {
+
+        int evicted = 0;
+        Iterator<Map.Entry<String, CacheEntry<V>>> i = m_map.entrySet().iterator();
+        while (i.hasNext() && (evicted < maxCount)) {
+            Map.Entry<String, CacheEntry<V>> mapEntry = i.next();
+            CacheEntry<V> entry = mapEntry.getValue();
+            // only remove the entry if it has not been replaced meanwhile
+            if ((entry.m_lastAccess <= threshold) && m_map.remove(mapEntry.getKey(), entry)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+}
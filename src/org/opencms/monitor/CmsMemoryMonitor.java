@@ -31,6 +31,7 @@ import org.opencms.cache.CmsLruCache;
 import org.opencms.cache.CmsMemoryObjectCache;
 import org.opencms.cache.CmsVfsMemoryObjectCache;
 import org.opencms.configuration.CmsSystemConfiguration;
+import org.opencms.db.CmsCacheDependencies;
 import org.opencms.db.CmsCacheSettings;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsPublishedResource;
@@ -63,7 +64,6 @@ import org.opencms.security.CmsOrganizationalUnit;
 import org.opencms.security.CmsPermissionSet;
 import org.opencms.security.CmsRole;
 import org.opencms.security.I_CmsPermissionHandler;
-import org.opencms.util.CmsCollectionsGenericWrapper;
 import org.opencms.util.CmsDateUtil;
 import org.opencms.util.CmsStringUtil;
 import org.opencms.util.CmsUUID;
@@ -72,14 +72,19 @@ import org.opencms.xml.CmsXmlContentDefinition;
 import org.opencms.xml.CmsXmlEntityResolver;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Date;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.mail.internet.InternetAddress;
 
@@ -151,6 +156,18 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         XML_ENTITY_TEMP;
     }
 
+    /** The maximum number of dependencies tracked per cache entry on average before the index is reset. */
+    private static final int DEPENDENCY_INDEX_FACTOR = 16;
+
+    /** The cache types whose entries are registered with their dependencies by the driver manager. */
+    private static final Set<CacheType> DEPENDENCY_TYPES = Collections.unmodifiableSet(EnumSet.of(
+        CacheType.ACL,
+        CacheType.PERMISSION,
+        CacheType.PROPERTY,
+        CacheType.PROPERTY_LIST,
+        CacheType.RESOURCE,
+        CacheType.RESOURCE_LIST));
+
     /** Set interval for clearing the caches to 10 minutes. */
     private static final int INTERVAL_CLEAR = 1000 * 60 * 10;
 
@@ -164,79 +181,92 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     private static final int MAX_DEPTH = 5;
 
     /** Cache for access control lists. */
-    private Map<String, CmsAccessControlList> m_cacheAccessControlList;
+    private I_CmsMemoryCache<CmsAccessControlList> m_cacheAccessControlList;
 
     /** A temporary cache for XML content definitions. */
-    private Map<String, CmsXmlContentDefinition> m_cacheContentDefinitions;
+    private I_CmsMemoryCache<CmsXmlContentDefinition> m_cacheContentDefinitions;
 
     /** Cache for groups. */
-    private Map<String, CmsGroup> m_cacheGroup;
+    private I_CmsMemoryCache<CmsGroup> m_cacheGroup;
 
     /** Cache for roles. */
-    private Map<String, Boolean> m_cacheHasRoles;
+    private I_CmsMemoryCache<Boolean> m_cacheHasRoles;
 
     /** A cache for accelerated locale lookup. */
-    private Map<String, Locale> m_cacheLocale;
+    private I_CmsMemoryCache<Locale> m_cacheLocale;
 
     /** Cache for the resource locks. */
     private Map<String, CmsLock> m_cacheLock;
 
     /** The memory object cache map. */
-    private Map<String, Object> m_cacheMemObject;
+    private I_CmsMemoryCache<Object> m_cacheMemObject;
 
     /** Cache for organizational units. */
-    private Map<String, CmsOrganizationalUnit> m_cacheOrgUnit;
+    private I_CmsMemoryCache<CmsOrganizationalUnit> m_cacheOrgUnit;
 
     /** Cache for permission checks. */
-    private Map<String, I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
+    private I_CmsMemoryCache<I_CmsPermissionHandler.CmsPermissionCheckResult> m_cachePermission;
 
     /** Cache for offline projects. */
-    private Map<String, CmsProject> m_cacheProject;
+    private I_CmsMemoryCache<CmsProject> m_cacheProject;
 
     /** Cache for project resources. */
-    private Map<String, List<CmsResource>> m_cacheProjectResources;
+    private I_CmsMemoryCache<List<CmsResource>> m_cacheProjectResources;
 
     /** Cache for properties. */
-    private Map<String, CmsProperty> m_cacheProperty;
+    private I_CmsMemoryCache<CmsProperty> m_cacheProperty;
 
     /** Cache for property lists. */
-    private Map<String, List<CmsProperty>> m_cachePropertyList;
+    private I_CmsMemoryCache<List<CmsProperty>> m_cachePropertyList;
 
     /** Cache for published resources. */
-    private Map<String, List<CmsPublishedResource>> m_cachePublishedResources;
+    private I_CmsMemoryCache<List<CmsPublishedResource>> m_cachePublishedResources;
 
     /** Cache for resources. */
-    private Map<String, CmsResource> m_cacheResource;
+    private I_CmsMemoryCache<CmsResource> m_cacheResource;
 
     /** Cache for resource lists. */
-    private Map<String, List<CmsResource>> m_cacheResourceList;
+    private I_CmsMemoryCache<List<CmsResource>> m_cacheResourceList;
 
     /** Cache for role lists. */
-    private Map<String, List<CmsRole>> m_cacheRoleLists;
+    private I_CmsMemoryCache<List<CmsRole>> m_cacheRoleLists;
 
     /** Cache for user data. */
-    private Map<String, CmsUser> m_cacheUser;
+    private I_CmsMemoryCache<CmsUser> m_cacheUser;
 
     /** Cache for user groups. */
-    private Map<String, List<CmsGroup>> m_cacheUserGroups;
+    private I_CmsMemoryCache<List<CmsGroup>> m_cacheUserGroups;
 
     /** Cache for user lists. */
-    private Map<String, List<CmsUser>> m_cacheUserList;
+    private I_CmsMemoryCache<List<CmsUser>> m_cacheUserList;
 
     /** The vfs memory cache map. */
-    private Map<String, Object> m_cacheVfsObject;
+    private I_CmsMemoryCache<Object> m_cacheVfsObject;
 
     /** A permanent cache to avoid multiple readings of often used files from the VFS. */
-    private Map<String, byte[]> m_cacheXmlPermanentEntity;
+    private I_CmsMemoryCache<byte[]> m_cacheXmlPermanentEntity;
 
     /** A temporary cache to avoid multiple readings of often used files from the VFS. */
-    private Map<String, byte[]> m_cacheXmlTemporaryEntity;
+    private I_CmsMemoryCache<byte[]> m_cacheXmlTemporaryEntity;
+
+    /** The engine used to create the caches. */
+    private I_CmsCacheEngine m_cacheEngine;
+
+    /** The caches created by the cache engine. */
+    private Map<CacheType, I_CmsMemoryCache<?>> m_caches = new EnumMap<CacheType, I_CmsMemoryCache<?>>(CacheType.class);
+
+    /** The dependency indexes of the caches that support key based invalidation. */
+    private Map<CacheType, CmsCacheDependencyIndex> m_dependencies = new EnumMap<CacheType, CmsCacheDependencyIndex>(
+        CacheType.class);
+
+    /** Flag indicating if the dependencies of cache entries are tracked for key based invalidation. */
+    private boolean m_dependencyTracking;
 
     /** The memory monitor configuration. */
     private CmsMemoryMonitorConfiguration m_configuration;
 
     /** Map to keep track of disabled caches. */
-    private Map<CacheType, Boolean> m_disabled = new HashMap<CacheType, Boolean>();
+    private Map<CacheType, Boolean> m_disabled = new ConcurrentHashMap<CacheType, Boolean>();
 
     /** Interval in which emails are send. */
     private int m_intervalEmail;
@@ -507,6 +537,10 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
             return ((CmsLruCache)obj).size();
         }
 
+        if (obj instanceof I_CmsMemoryCache) {
+            return getValueSize(((I_CmsMemoryCache<?>)obj).getValues(), 1);
+        }
+
         if (obj instanceof Map) {
             return getValueSize((Map<?, ?>)obj, 1);
         }
@@ -522,6 +556,34 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
     }
 
+    /**
+     * Registers the dependencies of a cache entry, so that the entry can be removed with 
+     * {@link #invalidateCache(Collection, CacheType[])} when one of them changes.<p>
+     * 
+     * This must be called before the entry itself is put into the cache.
+     * If dependency tracking is disabled, or not supported for the given cache type, nothing happens.<p>
+     * 
+     * @param type the cache type
+     * @param key the cache key of the entry
+     * @param dependencies the dependency tags of the entry, as created by {@link org.opencms.db.CmsCacheDependencies}
+     */
+    public void addCacheDependencies(CacheType type, String key, Collection<String> dependencies) {
+
+        CmsCacheDependencyIndex index = m_dependencies.get(type);
+        if ((index == null) || (m_disabled.get(type) != null)) {
+            return;
+        }
+        if (!index.addDependencies(key, dependencies)) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(
+                    Messages.LOG_MM_DEPENDENCY_INDEX_FULL_2,
+                    type,
+                    new Integer(index.size())));
+            }
+            flushCache(type);
+        }
+    }
+
     /**
      * Caches the given acl under the given cache key.<p>
      * 
@@ -935,7 +997,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     public void clearUserCache(CmsUser user) {
 
         uncacheUser(user);
-        flushCache(CacheType.RESOURCE_LIST);
+        invalidateCache(
+            Collections.singletonList(CmsCacheDependencies.getPrincipalTag(user.getId())),
+            CacheType.RESOURCE_LIST);
     }
 
     /**
@@ -1071,6 +1135,10 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                 default:
                     // can't happen
             }
+            CmsCacheDependencyIndex index = m_dependencies.get(type);
+            if (index != null) {
+                index.clear();
+            }
         }
     }
 
@@ -1380,6 +1448,33 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return new ArrayList<CmsPublishJobInfoBean>(m_publishHistory);
     }
 
+    /**
+     * Returns the cache engine used to create the caches.<p>
+     * 
+     * @return the cache engine used to create the caches
+     */
+    public I_CmsCacheEngine getCacheEngine() {
+
+        return m_cacheEngine;
+    }
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters for the given cache type.<p>
+     * 
+     * @param type the cache type
+     * 
+     * @return a snapshot of the statistics, or <code>null</code> if the given cache type 
+     *      is not managed by the cache engine
+     */
+    public CmsCacheStatistics getCacheStatistics(CacheType type) {
+
+        I_CmsMemoryCache<?> cache = m_caches.get(type);
+        if (cache == null) {
+            return null;
+        }
+        return cache.getStatistics();
+    }
+
     /**
      * Returns the ACL cached with the given cache key or <code>null</code> if not found.<p>
      * 
@@ -1815,21 +1910,31 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
 
         // create and register all system caches
+        m_cacheEngine = createCacheEngine(cacheSettings.getCacheEngine());
+        m_dependencyTracking = cacheSettings.isKeyInvalidation();
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.LOG_MM_CACHE_INVALIDATION_1,
+                m_dependencyTracking ? CmsCacheSettings.CACHE_INVALIDATION_KEYS : CmsCacheSettings.CACHE_INVALIDATION_FULL));
+        }
 
         // temporary xml entities cache
-        Map<String, byte[]> xmlTemporaryCache = CmsCollectionsGenericWrapper.createLRUMap(128);
-        m_cacheXmlTemporaryEntity = Collections.synchronizedMap(xmlTemporaryCache);
-        register(CmsXmlEntityResolver.class.getName() + ".xmlEntityTemporaryCache", m_cacheXmlTemporaryEntity);
+        m_cacheXmlTemporaryEntity = createCache(
+            CacheType.XML_ENTITY_TEMP,
+            CmsXmlEntityResolver.class.getName() + ".xmlEntityTemporaryCache",
+            128);
 
         // permanent xml entities cache
-        Map<String, byte[]> xmlPermanentCache = new HashMap<String, byte[]>(32);
-        m_cacheXmlPermanentEntity = Collections.synchronizedMap(xmlPermanentCache);
-        register(CmsXmlEntityResolver.class.getName() + ".xmlEntityPermanentCache", m_cacheXmlPermanentEntity);
+        m_cacheXmlPermanentEntity = createCache(
+            CacheType.XML_ENTITY_PERM,
+            CmsXmlEntityResolver.class.getName() + ".xmlEntityPermanentCache",
+            -1);
 
         // xml content definitions cache
-        Map<String, CmsXmlContentDefinition> contentDefinitionsCache = CmsCollectionsGenericWrapper.createLRUMap(64);
-        m_cacheContentDefinitions = Collections.synchronizedMap(contentDefinitionsCache);
-        register(CmsXmlEntityResolver.class.getName() + ".contentDefinitionsCache", m_cacheContentDefinitions);
+        m_cacheContentDefinitions = createCache(
+            CacheType.CONTENT_DEFINITION,
+            CmsXmlEntityResolver.class.getName() + ".contentDefinitionsCache",
+            64);
 
         // lock cache
         Map<String, CmsLock> lockCache = new HashMap<String, CmsLock>();
@@ -1837,49 +1942,55 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsLockManager.class.getName(), lockCache);
 
         // locale cache
-        Map<String, Locale> map = new HashMap<String, Locale>();
-        m_cacheLocale = Collections.synchronizedMap(map);
-        register(CmsLocaleManager.class.getName(), map);
+        m_cacheLocale = createCache(CacheType.LOCALE, CmsLocaleManager.class.getName(), -1);
 
         // permissions cache
-        Map<String, I_CmsPermissionHandler.CmsPermissionCheckResult> lruPermissions = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getPermissionCacheSize());
-        m_cachePermission = Collections.synchronizedMap(lruPermissions);
-        register(CmsSecurityManager.class.getName(), lruPermissions);
+        m_cachePermission = createCache(
+            CacheType.PERMISSION,
+            CmsSecurityManager.class.getName(),
+            cacheSettings.getPermissionCacheSize());
 
         // user cache
-        Map<String, CmsUser> lruUsers = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getUserCacheSize());
-        m_cacheUser = Collections.synchronizedMap(lruUsers);
-        register(CmsDriverManager.class.getName() + ".userCache", lruUsers);
+        m_cacheUser = createCache(
+            CacheType.USER,
+            CmsDriverManager.class.getName() + ".userCache",
+            cacheSettings.getUserCacheSize());
 
         // user list cache
-        Map<String, List<CmsUser>> lruUserList = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getUserCacheSize());
-        m_cacheUserList = Collections.synchronizedMap(lruUserList);
-        register(CmsDriverManager.class.getName() + ".userListCache", lruUserList);
+        m_cacheUserList = createCache(
+            CacheType.USER_LIST,
+            CmsDriverManager.class.getName() + ".userListCache",
+            cacheSettings.getUserCacheSize());
 
         // group cache
-        Map<String, CmsGroup> lruGroup = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getGroupCacheSize());
-        m_cacheGroup = Collections.synchronizedMap(lruGroup);
-        register(CmsDriverManager.class.getName() + ".groupCache", lruGroup);
+        m_cacheGroup = createCache(
+            CacheType.GROUP,
+            CmsDriverManager.class.getName() + ".groupCache",
+            cacheSettings.getGroupCacheSize());
 
         // organizational unit cache
-        Map<String, CmsOrganizationalUnit> lruOrgUnit = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getOrgUnitCacheSize());
-        m_cacheOrgUnit = Collections.synchronizedMap(lruOrgUnit);
-        register(CmsDriverManager.class.getName() + ".orgUnitCache", lruOrgUnit);
+        m_cacheOrgUnit = createCache(
+            CacheType.ORG_UNIT,
+            CmsDriverManager.class.getName() + ".orgUnitCache",
+            cacheSettings.getOrgUnitCacheSize());
 
         // user groups list cache
-        Map<String, List<CmsGroup>> lruUserGroups = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getUserGroupsCacheSize());
-        m_cacheUserGroups = Collections.synchronizedMap(lruUserGroups);
-        register(CmsDriverManager.class.getName() + ".userGroupsCache", lruUserGroups);
+        m_cacheUserGroups = createCache(
+            CacheType.USERGROUPS,
+            CmsDriverManager.class.getName() + ".userGroupsCache",
+            cacheSettings.getUserGroupsCacheSize());
 
         // project cache
-        Map<String, CmsProject> lruProjects = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getProjectCacheSize());
-        m_cacheProject = Collections.synchronizedMap(lruProjects);
-        register(CmsDriverManager.class.getName() + ".projectCache", lruProjects);
+        m_cacheProject = createCache(
+            CacheType.PROJECT,
+            CmsDriverManager.class.getName() + ".projectCache",
+            cacheSettings.getProjectCacheSize());
 
         // project resources cache cache
-        Map<String, List<CmsResource>> lruProjectResources = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getProjectResourcesCacheSize());
-        m_cacheProjectResources = Collections.synchronizedMap(lruProjectResources);
-        register(CmsDriverManager.class.getName() + ".projectResourcesCache", lruProjectResources);
+        m_cacheProjectResources = createCache(
+            CacheType.PROJECT_RESOURCES,
+            CmsDriverManager.class.getName() + ".projectResourcesCache",
+            cacheSettings.getProjectResourcesCacheSize());
 
         // publish history
         int size = configuration.getPublishManager().getPublishHistorySize();
@@ -1893,54 +2004,58 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         register(CmsPublishQueue.class.getName() + ".publishQueue", buffer);
 
         // resource cache
-        Map<String, CmsResource> lruResources = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getResourceCacheSize());
-        m_cacheResource = Collections.synchronizedMap(lruResources);
-        register(CmsDriverManager.class.getName() + ".resourceCache", lruResources);
+        m_cacheResource = createCache(
+            CacheType.RESOURCE,
+            CmsDriverManager.class.getName() + ".resourceCache",
+            cacheSettings.getResourceCacheSize());
 
         // roles cache
-        Map<String, Boolean> lruHasRoles = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getRolesCacheSize());
-        m_cacheHasRoles = Collections.synchronizedMap(lruHasRoles);
-        register(CmsDriverManager.class.getName() + ".rolesCache", lruHasRoles);
+        m_cacheHasRoles = createCache(
+            CacheType.HAS_ROLE,
+            CmsDriverManager.class.getName() + ".rolesCache",
+            cacheSettings.getRolesCacheSize());
 
         // role lists cache
-        Map<String, List<CmsRole>> lruRoleLists = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getRolesCacheSize());
-        m_cacheRoleLists = Collections.synchronizedMap(lruRoleLists);
-        register(CmsDriverManager.class.getName() + ".roleListsCache", lruRoleLists);
+        m_cacheRoleLists = createCache(
+            CacheType.ROLE_LIST,
+            CmsDriverManager.class.getName() + ".roleListsCache",
+            cacheSettings.getRolesCacheSize());
 
         // resource list cache
-        Map<String, List<CmsResource>> lruResourceList = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getResourcelistCacheSize());
-        m_cacheResourceList = Collections.synchronizedMap(lruResourceList);
-        register(CmsDriverManager.class.getName() + ".resourceListCache", lruResourceList);
+        m_cacheResourceList = createCache(
+            CacheType.RESOURCE_LIST,
+            CmsDriverManager.class.getName() + ".resourceListCache",
+            cacheSettings.getResourcelistCacheSize());
 
         // property cache
-        Map<String, CmsProperty> lruProperty = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getPropertyCacheSize());
-        m_cacheProperty = Collections.synchronizedMap(lruProperty);
-        register(CmsDriverManager.class.getName() + ".propertyCache", lruProperty);
+        m_cacheProperty = createCache(
+            CacheType.PROPERTY,
+            CmsDriverManager.class.getName() + ".propertyCache",
+            cacheSettings.getPropertyCacheSize());
 
         // property list cache
-        Map<String, List<CmsProperty>> lruPropertyList = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getPropertyListsCacheSize());
-        m_cachePropertyList = Collections.synchronizedMap(lruPropertyList);
-        register(CmsDriverManager.class.getName() + ".propertyListCache", lruPropertyList);
+        m_cachePropertyList = createCache(
+            CacheType.PROPERTY_LIST,
+            CmsDriverManager.class.getName() + ".propertyListCache",
+            cacheSettings.getPropertyListsCacheSize());
 
         // published resources list cache
-        Map<String, List<CmsPublishedResource>> lruPublishedResources = CmsCollectionsGenericWrapper.createLRUMap(5);
-        m_cachePublishedResources = Collections.synchronizedMap(lruPublishedResources);
-        register(CmsDriverManager.class.getName() + ".publishedResourcesCache", lruPublishedResources);
+        m_cachePublishedResources = createCache(
+            CacheType.PUBLISHED_RESOURCES,
+            CmsDriverManager.class.getName() + ".publishedResourcesCache",
+            5);
 
         // acl cache
-        Map<String, CmsAccessControlList> lruAcl = CmsCollectionsGenericWrapper.createLRUMap(cacheSettings.getAclCacheSize());
-        m_cacheAccessControlList = Collections.synchronizedMap(lruAcl);
-        register(CmsDriverManager.class.getName() + ".accessControlListCache", lruAcl);
+        m_cacheAccessControlList = createCache(
+            CacheType.ACL,
+            CmsDriverManager.class.getName() + ".accessControlListCache",
+            cacheSettings.getAclCacheSize());
 
         // vfs object cache
-        Map<String, Object> vfsObjectCache = new HashMap<String, Object>();
-        m_cacheVfsObject = Collections.synchronizedMap(vfsObjectCache);
-        register(CmsVfsMemoryObjectCache.class.getName(), vfsObjectCache);
+        m_cacheVfsObject = createCache(CacheType.VFS_OBJECT, CmsVfsMemoryObjectCache.class.getName(), -1);
 
         // memory object cache
-        Map<String, Object> memObjectCache = new HashMap<String, Object>();
-        m_cacheMemObject = Collections.synchronizedMap(memObjectCache);
-        register(CmsMemoryObjectCache.class.getName(), memObjectCache);
+        m_cacheMemObject = createCache(CacheType.MEMORY_OBJECT, CmsMemoryObjectCache.class.getName(), -1);
 
         if (LOG.isDebugEnabled()) {
             // this will happen only once during system startup
@@ -1948,6 +2063,30 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         }
     }
 
+    /**
+     * Removes all cache entries of the given types that depend on one of the given tags.<p>
+     * 
+     * Caches without a dependency index, for example because dependency tracking is disabled, 
+     * are flushed completely.<p>
+     * 
+     * @param dependencies the dependency tags that have changed, as created by {@link org.opencms.db.CmsCacheDependencies}
+     * @param types the cache types to invalidate
+     */
+    public void invalidateCache(Collection<String> dependencies, CacheType... types) {
+
+        for (CacheType type : types) {
+            CmsCacheDependencyIndex index = m_dependencies.get(type);
+            if (index == null) {
+                flushCache(type);
+                continue;
+            }
+            I_CmsMemoryCache<?> cache = m_caches.get(type);
+            for (String key : index.removeDependentKeys(dependencies)) {
+                cache.remove(key);
+            }
+        }
+    }
+
     /**
      * Checks if the property cache is enabled.<p>
      * 
@@ -2000,6 +2139,17 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         return isEnabled(CacheType.RESOURCE_LIST);
     }
 
+    /**
+     * Checks if the dependencies of cache entries are tracked, so that changes only 
+     * invalidate the cache entries depending on them instead of flushing whole caches.<p>
+     * 
+     * @return <code>true</code> if the dependencies of cache entries are tracked
+     */
+    public boolean isDependencyTracking() {
+
+        return m_dependencyTracking;
+    }
+
     /**
      * Checks if the given cache is enabled.<p>
      * 
@@ -2343,7 +2493,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the number of items within a monitored object.<p>
      * 
-     * <code>obj</code> must be of type {@link CmsLruCache} or {@link Map}.<p>
+     * <code>obj</code> must be of type {@link CmsLruCache}, {@link I_CmsMemoryCache} or {@link Map}.<p>
      * 
      * @param obj the object
      * 
@@ -2354,6 +2504,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (obj instanceof CmsLruCache) {
             return Integer.toString(((CmsLruCache)obj).size());
         }
+        if (obj instanceof I_CmsMemoryCache) {
+            return Integer.toString(((I_CmsMemoryCache<?>)obj).size());
+        }
         if (obj instanceof Map) {
             return Integer.toString(((Map<?, ?>)obj).size());
         }
@@ -2411,7 +2564,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the total size of key strings within a monitored object.<p>
      * 
-     * <code>obj</code> must be of type {@link Map}, the keys must be of type {@link String}.<p>
+     * <code>obj</code> must be of type {@link I_CmsMemoryCache} or {@link Map}, the keys must be of type {@link String}.<p>
      * 
      * @param obj the object
      * 
@@ -2419,6 +2572,13 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
      */
     protected long getKeySize(Object obj) {
 
+        if (obj instanceof I_CmsMemoryCache) {
+            long keySize = 0;
+            for (String key : ((I_CmsMemoryCache<?>)obj).getKeys()) {
+                keySize += (key.length() * 2);
+            }
+            return keySize;
+        }
         if (obj instanceof Map) {
             return getKeySize((Map<?, ?>)obj, 1);
         }
@@ -2429,7 +2589,7 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
     /**
      * Returns the max costs for all items within a monitored object.<p>
      * 
-     * <code>obj</code> must be of type {@link CmsLruCache} or {@link LRUMap}.<p>
+     * <code>obj</code> must be of type {@link CmsLruCache}, {@link I_CmsMemoryCache} or {@link LRUMap}.<p>
      * 
      * @param obj the object
      * 
@@ -2440,6 +2600,9 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         if (obj instanceof CmsLruCache) {
             return Long.toString(((CmsLruCache)obj).getMaxCacheCosts());
         }
+        if ((obj instanceof I_CmsMemoryCache) && (((I_CmsMemoryCache<?>)obj).getMaxSize() > 0)) {
+            return Integer.toString(((I_CmsMemoryCache<?>)obj).getMaxSize());
+        }
         if (obj instanceof LRUMap) {
             return Integer.toString(((LRUMap)obj).maxSize());
         }
@@ -2553,6 +2716,12 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                 + "Size: "
                 + form.sprintf(Long.toString(size))
                 + "\n";
+            if (obj instanceof I_CmsMemoryCache) {
+                content += new PrintfFormat("%-42.42s").sprintf("")
+                    + "  "
+                    + ((I_CmsMemoryCache<?>)obj).getStatistics()
+                    + "\n";
+            }
         }
         content += "\nTotal size of cache memory monitored: " + totalSize + " (" + (totalSize / 1048576) + ")\n\n";
 
@@ -2657,6 +2826,17 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
                         form.sprintf(getItems(obj)),
                         form.sprintf(getLimit(obj)),
                         form.sprintf(Long.toString(size))}));
+                if (obj instanceof I_CmsMemoryCache) {
+                    CmsCacheStatistics stats = ((I_CmsMemoryCache<?>)obj).getStatistics();
+                    LOG.info(Messages.get().getBundle().key(
+                        Messages.LOG_MM_CACHE_STATISTICS_5,
+                        new Object[] {
+                            name1.sprintf(key),
+                            form.sprintf(Long.toString(stats.getHits())),
+                            form.sprintf(Long.toString(stats.getMisses())),
+                            form.sprintf(Integer.toString(stats.getHitRatio())),
+                            form.sprintf(Long.toString(stats.getEvictions()))}));
+                }
             }
 
             LOG.info(Messages.get().getBundle().key(
@@ -2725,4 +2905,56 @@ public class CmsMemoryMonitor implements I_CmsScheduledJob {
         m_memoryCurrent.update();
         m_memoryAverage.calculateAverage(m_memoryCurrent);
     }
+
+    /**
+     * Creates a cache for the given cache type with the configured cache engine and registers it for monitoring.<p>
+     * 
+     * @param <V> the type of the cached values
+     * @param type the cache type
+     * @param name the name used to register the cache for monitoring
+     * @param maxSize the maximum number of entries, if <code>&lt;= 0</code> the cache is not bounded
+     * 
+     * @return the new cache
+     */
+    private <V> I_CmsMemoryCache<V> createCache(CacheType type, String name, int maxSize) {
+
+        I_CmsMemoryCache<V> cache = m_cacheEngine.createCache(type, name, maxSize);
+        m_caches.put(type, cache);
+        if (m_dependencyTracking && (maxSize > 0) && DEPENDENCY_TYPES.contains(type)) {
+            m_dependencies.put(type, new CmsCacheDependencyIndex(maxSize * DEPENDENCY_INDEX_FACTOR));
+        }
+        register(name, cache);
+        return cache;
+    }
+
+    /**
+     * Creates the cache engine with the given class name.<p>
+     * 
+     * If no class name is given, or the class can not be instantiated, the 
+     * {@link CmsConcurrentCacheEngine} is used.<p>
+     * 
+     * @param className the class name of the cache engine, may be <code>null</code>
+     * 
+     * @return the cache engine
+     */
+    private I_CmsCacheEngine createCacheEngine(String className) {
+
+        I_CmsCacheEngine engine = null;
+        if (className != null) {
+            try {
+                engine = (I_CmsCacheEngine)Class.forName(className).newInstance();
+            } catch (Exception e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_MM_CACHE_ENGINE_INIT_FAILED_1, className), e);
+            }
+        }
+        if (engine == null) {
+            engine = new CmsConcurrentCacheEngine();
+        }
+        if (CmsLog.INIT.isInfoEnabled()) {
+            CmsLog.INIT.info(Messages.get().getBundle().key(
+                Messages.LOG_MM_CACHE_ENGINE_1,
+                engine.getClass().getName()));
+        }
+        return engine;
+    }
 }
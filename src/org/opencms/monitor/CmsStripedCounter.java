@@ -0,0 +1,134 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A statistics counter that spreads concurrent updates over several cells.<p>
+ * 
+ * Incrementing a single shared counter on every cache lookup makes all request threads
+ * compete for the same memory location. This counter selects a cell based on the 
+ * current thread, so that concurrent threads usually update different cells. 
+ * Reading the counter sums up all cells, so the value returned by {@link #get()} 
+ * is only exact if no updates happen at the same time.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsStripedCounter {
+
+    /** Number of <code>long</code> slots between two cells, to keep the cells in different cache lines. */
+    private static final int PADDING = 8;
+
+    /** The counter cells. */
+    private final AtomicLongArray m_cells;
+
+    /** The mask used to select a cell. */
+    private final int m_mask;
+
+    /**
+     * Creates a new counter with a number of cells that fits the number of available processors.<p>
+     */
+    public CmsStripedCounter() {
+
+        int cells = 1;
+        int max = Math.min(64, 2 * Runtime.getRuntime().availableProcessors());
+        while (cells < max) {
+            cells <<= 1;
+        }
+        m_mask = cells - 1;
+        m_cells = new AtomicLongArray(cells * PADDING);
+    }
+
+    /**
+     * Adds the given value to this counter.<p>
+     * 
+     * @param value the value to add
+     */
+    public void add(long value) {
+
+        m_cells.addAndGet(getCellIndex(), value);
+    }
+
+    /**
+     * Returns the current value of this counter.<p>
+     * 
+     * @return the current value of this counter
+     */
+    public long get() {
+
+        long result = 0;
+        for (int i = 0; i < m_cells.length(); i += PADDING) {
+            result += m_cells.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Increments this counter by one.<p>
+     */
+    public void increment() {
+
+        m_cells.incrementAndGet(getCellIndex());
+    }
+
+    /**
+     * Resets this counter to zero.<p>
+     */
+    public void reset() {
+
+        for (int i = 0; i < m_cells.length(); i += PADDING) {
+            m_cells.set(i, 0);
+        }
+    }
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+
+        return Long.toString(get());
+    }
+
+    /**
+     * Returns the index of the cell to use for the current thread.<p>
+     * 
+     * @return the index of the cell to use for the current thread
+     */
+    private int getCellIndex() {
+
+        long id = Thread.currentThread().getId();
+        int hash = (int)(id ^ (id >>> 32));
+        hash ^= (hash >>> 16);
+        hash *= 0x85ebca6b;
+        hash ^= (hash >>> 13);
+        return (hash & m_mask) * PADDING;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import org.opencms.monitor.CmsMemoryMonitor.CacheType;
+
+/**
+ * Describes a factory for the caches used by the {@link CmsMemoryMonitor}.<p>
+ * 
+ * The implementation class is configured in the <code>&lt;resultcache&gt;</code> node of 
+ * <code>opencms-system.xml</code> with the <code>&lt;cacheengine&gt;</code> element.
+ * If not configured, the {@link CmsConcurrentCacheEngine} is used.<p>
+ * 
+ * @since 8.0.4
+ */
+public interface I_CmsCacheEngine {
+
+    /**
+     * Creates a new cache for the given cache type.<p>
+     * 
+     * @param <V> the type of the cached values 
+     * @param type the type of the cache to create
+     * @param name the name of the cache, used for monitoring output
+     * @param maxSize the maximum number of entries in the cache, 
+     *      if <code>&lt;= 0</code> the cache will not be bounded in size
+     * 
+     * @return the new cache
+     */
+    <V> I_CmsMemoryCache<V> createCache(CacheType type, String name, int maxSize);
+}
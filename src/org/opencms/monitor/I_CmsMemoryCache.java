@@ -0,0 +1,116 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import java.util.List;
+
+/**
+ * Describes a single cache provided by an {@link I_CmsCacheEngine} and managed by the {@link CmsMemoryMonitor}.<p>
+ * 
+ * All implementations must be safe for concurrent use by multiple threads.<p>
+ * 
+ * @param <V> the type of the cached values, the cache keys are always strings
+ * 
+ * @since 8.0.4
+ */
+public interface I_CmsMemoryCache<V> {
+
+    /**
+     * Removes all entries from the cache.<p>
+     */
+    void clear();
+
+    /**
+     * Returns the value cached with the given key or <code>null</code> if not found.<p>
+     * 
+     * @param key the cache key to look for
+     * 
+     * @return the value cached with the given key
+     */
+    V get(String key);
+
+    /**
+     * Returns a snapshot of the keys currently contained in this cache.<p>
+     * 
+     * @return a snapshot of the keys currently contained in this cache
+     */
+    List<String> getKeys();
+
+    /**
+     * Returns the maximum number of entries this cache can hold.<p>
+     * 
+     * @return the maximum number of entries, or <code>-1</code> if the cache is unbounded
+     */
+    int getMaxSize();
+
+    /**
+     * Returns the name of this cache, used for monitoring output.<p>
+     * 
+     * @return the name of this cache
+     */
+    String getName();
+
+    /**
+     * Returns a snapshot of the hit, miss and eviction counters of this cache.<p>
+     * 
+     * @return a snapshot of the statistics of this cache
+     */
+    CmsCacheStatistics getStatistics();
+
+    /**
+     * Returns a snapshot of the values currently contained in this cache.<p>
+     * 
+     * @return a snapshot of the values currently contained in this cache
+     */
+    List<V> getValues();
+
+    /**
+     * Caches the given value under the given key.<p>
+     * 
+     * @param key the cache key
+     * @param value the value to cache, must not be <code>null</code>
+     */
+    void put(String key, V value);
+
+    /**
+     * Removes the value cached with the given key.<p>
+     * 
+     * @param key the cache key to remove
+     * 
+     * @return the removed value, or <code>null</code> if nothing was cached with the given key
+     */
+    V remove(String key);
+
+    /**
+     * Returns the number of entries currently contained in this cache.<p>
+     * 
+     * @return the number of entries currently contained in this cache
+     */
+    int size();
+}
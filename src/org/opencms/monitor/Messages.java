@@ -43,6 +43,21 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_CLEAR_CACHE_MEM_CONS_0 = "LOG_CLEAR_CACHE_MEM_CONS_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_ENGINE_1 = "LOG_MM_CACHE_ENGINE_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_ENGINE_INIT_FAILED_1 = "LOG_MM_CACHE_ENGINE_INIT_FAILED_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_INVALIDATION_1 = "LOG_MM_CACHE_INVALIDATION_1";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_CACHE_STATISTICS_5 = "LOG_MM_CACHE_STATISTICS_5";
+
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_MM_DEPENDENCY_INDEX_FULL_2 = "LOG_MM_DEPENDENCY_INDEX_FULL_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_MM_CONNECTIONS_3 = "LOG_MM_CONNECTIONS_3";
 
@@ -50,6 +50,7 @@ import org.opencms.security.CmsAuthentificationException;
 import org.opencms.security.CmsRole;
 import org.opencms.util.CmsUUID;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -64,15 +65,15 @@ import org.apache.commons.logging.Log;
  */
 public final class CmsPublishEngine {
 
+    /** The maximum time in milliseconds to wait for the asynchronous listeners of the publish event. */
+    private static final long ASYNC_EVENTS_TIMEOUT = 600000;
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsPublishEngine.class);
 
     /** The id of the admin user. */
     private CmsUUID m_adminUserId;
 
-    /** The current running publish job. */
-    private CmsPublishThread m_currentPublishThread;
-
     /** The runtime info factory used during publishing. */
     private final I_CmsDbContextFactory m_dbContextFactory;
 
@@ -82,9 +83,15 @@ public final class CmsPublishEngine {
     /** The engine state. */
     private CmsPublishEngineState m_engineState;
 
+    /** Lock used to process the finished publish jobs one after the other. */
+    private final Object m_finishLock = new Object();
+
     /** The publish listeners. */
     private final CmsPublishListenerCollection m_listeners;
 
+    /** The maximum number of publish jobs running at the same time. */
+    private int m_maxConcurrentJobs;
+
     /** The publish history list with already published jobs. */
     private final CmsPublishHistory m_publishHistory;
 
@@ -94,6 +101,9 @@ public final class CmsPublishEngine {
     /** The amount of time the system will wait for a running publish job during shutdown. */
     private int m_publishQueueShutdowntime;
 
+    /** The running publish threads, in the order they were started. */
+    private final List<CmsPublishThread> m_publishThreads = new ArrayList<CmsPublishThread>();
+
     /** Is set during shutdown. */
     private boolean m_shuttingDown;
 
@@ -124,6 +134,8 @@ public final class CmsPublishEngine {
         m_publishHistory = new CmsPublishHistory(this);
         // initialize event handling
         m_listeners = new CmsPublishListenerCollection(this);
+        // publish one job at a time until configured otherwise
+        m_maxConcurrentJobs = CmsPublishManager.DEFAULT_QUEUE_MAXCONCURRENTJOBS;
         // set engine state to normal processing
         m_engineState = CmsPublishEngineState.ENGINE_STARTED;
         if (CmsLog.INIT.isInfoEnabled()) {
@@ -132,11 +144,29 @@ public final class CmsPublishEngine {
     }
 
     /**
-     * Abandons the given publish thread.<p>
+     * Abandons the current publish thread, that is the longest running publish thread.<p>
      */
     public void abandonThread() {
 
-        if (!m_currentPublishThread.isAlive()) {
+        CmsPublishThread publishThread = getCurrentPublishJob();
+        if (publishThread != null) {
+            abandonThread(publishThread.getPublishJob());
+        }
+    }
+
+    /**
+     * Abandons the publish thread of the given publish job.<p>
+     * 
+     * @param publishJob the running publish job to abandon
+     */
+    public void abandonThread(CmsPublishJobInfoBean publishJob) {
+
+        CmsPublishThread publishThread = getPublishThread(publishJob);
+        if (publishThread == null) {
+            // the job is not running anymore
+            return;
+        }
+        if (!publishThread.isAlive()) {
             // thread is dead
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_DEAD_JOB_0));
@@ -146,13 +176,15 @@ public final class CmsPublishEngine {
             if (LOG.isWarnEnabled()) {
                 LOG.warn(Messages.get().getBundle().key(
                     Messages.LOG_THREADSTORE_PUBLISH_THREAD_INTERRUPT_2,
-                    m_currentPublishThread.getName(),
-                    m_currentPublishThread.getUUID()));
+                    publishThread.getName(),
+                    publishThread.getUUID()));
             }
-            m_currentPublishThread.interrupt();
+            publishThread.interrupt();
         }
         // just throw it away
-        m_currentPublishThread = null;
+        synchronized (m_publishThreads) {
+            m_publishThreads.remove(publishThread);
+        }
         // and try again
         checkCurrentPublishJobThread();
     }
@@ -185,31 +217,49 @@ public final class CmsPublishEngine {
             return;
         }
 
-        // there is no running publish job
-        if (m_currentPublishThread == null) {
-            // but something is waiting in the queue
-            if (!m_publishQueue.isEmpty()) {
-                // start the next waiting publish job
-                CmsPublishJobInfoBean publishJob = m_publishQueue.next();
-                m_currentPublishThread = new CmsPublishThread(this, publishJob);
-                m_currentPublishThread.start();
-            } else {
-                // nothing to do
+        // clean up the dead threads
+        Iterator<CmsPublishThread> itThreads = getPublishThreads().iterator();
+        while (itThreads.hasNext()) {
+            CmsPublishThread publishThread = itThreads.next();
+            if (!publishThread.isAlive()) {
                 if (LOG.isDebugEnabled()) {
-                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_NO_RUNNING_JOB_0));
+                    LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_DEAD_JOB_0));
+                }
+                synchronized (m_publishThreads) {
+                    m_publishThreads.remove(publishThread);
                 }
             }
-            return;
         }
-        if (m_currentPublishThread.isAlive()) {
-            // normal running
-            // wait until it is finished
+
+        // start waiting publish jobs as long as they do not touch the resources of a running job
+        List<CmsPublishJobInfoBean> runningJobs = getRunningPublishJobs();
+        while (runningJobs.size() < m_maxConcurrentJobs) {
+            CmsPublishJobInfoBean publishJob = m_publishQueue.next(runningJobs);
+            if (publishJob == null) {
+                break;
+            }
             if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(
+                    Messages.LOG_PUBLISH_ENGINE_START_JOB_2,
+                    publishJob.getPublishHistoryId(),
+                    new Integer(runningJobs.size())));
+            }
+            CmsPublishThread publishThread = new CmsPublishThread(this, publishJob);
+            synchronized (m_publishThreads) {
+                m_publishThreads.add(publishThread);
+            }
+            publishThread.start();
+            runningJobs.add(publishJob);
+        }
+
+        if (LOG.isDebugEnabled()) {
+            if (runningJobs.isEmpty()) {
+                // nothing to do
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_NO_RUNNING_JOB_0));
+            } else {
+                // normal running, wait until the running jobs are finished
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_PUBLISH_ENGINE_WAITING_0));
             }
-        } else {
-            // clean up the dead thread
-            abandonThread();
         }
     }
 
@@ -271,10 +321,13 @@ public final class CmsPublishEngine {
      */
     public CmsPublishJobBase getJobByPublishHistoryId(CmsUUID publishHistoryId) {
 
-        // try current running job
-        if ((m_currentPublishThread != null)
-            && m_currentPublishThread.getPublishJob().getPublishHistoryId().equals(publishHistoryId)) {
-            return new CmsPublishJobRunning(m_currentPublishThread.getPublishJob());
+        // try the running jobs
+        Iterator<CmsPublishJobInfoBean> itRunningJobs = getRunningPublishJobs().iterator();
+        while (itRunningJobs.hasNext()) {
+            CmsPublishJobInfoBean runningJob = itRunningJobs.next();
+            if (runningJob.getPublishHistoryId().equals(publishHistoryId)) {
+                return new CmsPublishJobRunning(runningJob);
+            }
         }
         // try enqueued jobs
         Iterator<CmsPublishJobEnqueued> itEnqueuedJobs = getPublishQueue().asList().iterator();
@@ -332,10 +385,10 @@ public final class CmsPublishEngine {
         // prevent new publish jobs are accepted
         m_shuttingDown = true;
 
-        // if a job is currently running, 
+        // if jobs are currently running, 
         // wait the specified amount of time,
-        // then write an abort message to the report
-        if (m_currentPublishThread != null) {
+        // then write an abort message to the reports
+        if (!getPublishThreads().isEmpty()) {
 
             // if a shutdown time is defined, wait  if a publish process is running
             if (m_publishQueueShutdowntime > 0) {
@@ -348,8 +401,9 @@ public final class CmsPublishEngine {
                 }
             }
 
-            if (m_currentPublishThread != null) {
-                CmsPublishJobInfoBean publishJob = m_currentPublishThread.getPublishJob();
+            Iterator<CmsPublishJobInfoBean> itRunningJobs = getRunningPublishJobs().iterator();
+            while (itRunningJobs.hasNext()) {
+                CmsPublishJobInfoBean publishJob = itRunningJobs.next();
                 try {
                     abortPublishJob(m_adminUserId, new CmsPublishJobEnqueued(publishJob), false);
                 } catch (CmsException e) {
@@ -395,8 +449,9 @@ public final class CmsPublishEngine {
         // abort event should be raised before the job is removed implicitly
         m_listeners.fireAbort(userId, publishJob);
 
-        if ((m_currentPublishThread == null) || !publishJob.m_publishJob.equals(m_currentPublishThread.getPublishJob())) {
-            // engine is currently publishing another job or is not publishing
+        CmsPublishThread publishThread = getPublishThread(publishJob.m_publishJob);
+        if (publishThread == null) {
+            // engine is currently publishing other jobs or is not publishing
             if (!m_publishQueue.abortPublishJob(publishJob.m_publishJob)) {
                 // job not found
                 throw new CmsPublishException(Messages.get().container(
@@ -404,10 +459,10 @@ public final class CmsPublishEngine {
             }
         } else if (!m_shuttingDown) {
             // engine is currently publishing the job to abort
-            m_currentPublishThread.abort();
-        } else if (m_shuttingDown && (m_currentPublishThread != null)) {
-            // aborting the current job during shut down
-            I_CmsReport report = m_currentPublishThread.getReport();
+            publishThread.abort();
+        } else {
+            // aborting a running job during shut down
+            I_CmsReport report = publishThread.getReport();
             report.println();
             report.println();
             report.println(
@@ -454,20 +509,23 @@ public final class CmsPublishEngine {
     protected void enableEngine() {
 
         m_engineState = CmsPublishEngineState.ENGINE_STARTED;
-        // start publish job if jobs waiting
-        if ((m_currentPublishThread == null) && !m_publishQueue.isEmpty()) {
+        // start publish jobs if jobs waiting
+        if (!m_publishQueue.isEmpty()) {
             checkCurrentPublishJobThread();
         }
     }
 
     /**
-     * Returns the current running publish job.<p>
+     * Returns the current running publish job, that is the longest running one 
+     * if several publish jobs are running at the same time.<p>
      * 
-     * @return the current running publish job
+     * @return the current running publish job, or <code>null</code> if no job is running
      */
     protected CmsPublishThread getCurrentPublishJob() {
 
-        return m_currentPublishThread;
+        synchronized (m_publishThreads) {
+            return m_publishThreads.isEmpty() ? null : m_publishThreads.get(0);
+        }
     }
 
     /**
@@ -536,6 +594,21 @@ public final class CmsPublishEngine {
         return result;
     }
 
+    /**
+     * Returns the running publish jobs, in the order they were started.<p>
+     * 
+     * @return a modifiable copy of the list of running publish jobs
+     */
+    protected List<CmsPublishJobInfoBean> getRunningPublishJobs() {
+
+        List<CmsPublishJobInfoBean> result = new ArrayList<CmsPublishJobInfoBean>();
+        Iterator<CmsPublishThread> itThreads = getPublishThreads().iterator();
+        while (itThreads.hasNext()) {
+            result.add(itThreads.next().getPublishJob());
+        }
+        return result;
+    }
+
     /**
      * Returns the user identified by the given id.<p>
      * 
@@ -563,11 +636,15 @@ public final class CmsPublishEngine {
      * @param adminCms the admin cms
      * @param publishQueuePersistance flag if the queue is persisted
      * @param publishQueueShutdowntime amount of time to wait for a publish job during shutdown
+     * @param maxConcurrentJobs the maximum number of publish jobs running at the same time
      * 
      * @throws CmsException if something goes wrong
      */
-    protected void initialize(CmsObject adminCms, boolean publishQueuePersistance, int publishQueueShutdowntime)
-    throws CmsException {
+    protected void initialize(
+        CmsObject adminCms,
+        boolean publishQueuePersistance,
+        int publishQueueShutdowntime,
+        int maxConcurrentJobs) throws CmsException {
 
         // check the driver manager
         if ((m_driverManager == null) || (m_dbContextFactory == null)) {
@@ -575,6 +652,7 @@ public final class CmsPublishEngine {
         }
 
         m_publishQueueShutdowntime = publishQueueShutdowntime;
+        m_maxConcurrentJobs = Math.max(1, maxConcurrentJobs);
 
         // initially the engine is stopped, must be restartet after full system initialization
         m_engineState = CmsPublishEngineState.ENGINE_STOPPED;
@@ -593,7 +671,8 @@ public final class CmsPublishEngine {
      */
     protected boolean isRunning() {
 
-        return (((m_engineState == CmsPublishEngineState.ENGINE_STARTED) && !m_publishQueue.isEmpty()) || (m_currentPublishThread != null));
+        return (((m_engineState == CmsPublishEngineState.ENGINE_STARTED) && !m_publishQueue.isEmpty())
+            || !getPublishThreads().isEmpty());
     }
 
     /**
@@ -637,56 +716,14 @@ public final class CmsPublishEngine {
             LOG.error(t.getLocalizedMessage(), t);
         }
 
-        // trigger the old event mechanism
-        CmsDbContext dbc = m_dbContextFactory.getDbContext(publishJob.getCmsObject().getRequestContext());
-        try {
-            // fire an event that a project has been published
-            Map<String, Object> eventData = new HashMap<String, Object>();
-            eventData.put(I_CmsEventListener.KEY_REPORT, publishJob.getPublishReport());
-            eventData.put(
-                I_CmsEventListener.KEY_PUBLISHID,
-                publishJob.getPublishList().getPublishHistoryId().toString());
-            eventData.put(I_CmsEventListener.KEY_PROJECTID, dbc.currentProject().getUuid());
-            eventData.put(I_CmsEventListener.KEY_DBCONTEXT, dbc);
-            CmsEvent afterPublishEvent = new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, eventData);
-            OpenCms.fireCmsEvent(afterPublishEvent);
-        } catch (Throwable t) {
-            dbc.rollback();
-            LOG.error(t);
-            // catch every thing including runtime exceptions
-            publishJob.getPublishReport().println(t);
-        } finally {
-            try {
-                dbc.clear();
-            } catch (Throwable t) {
-                // ignore
-            }
-            dbc = null;
-        }
-        try {
-            // fire the publish finish event
-            m_listeners.fireFinish(new CmsPublishJobRunning(publishJob));
-        } catch (Throwable t) {
-            // log failure, most likely a database problem
-            LOG.error(t.getLocalizedMessage(), t);
-        }
-        try {
-            // finish the job
-            publishJob.finish();
-        } catch (Throwable t) {
-            // log failure, most likely a database problem
-            LOG.error(t.getLocalizedMessage(), t);
-        }
-        try {
-            // put the publish job into the history list
-            m_publishHistory.add(publishJob);
-        } catch (Throwable t) {
-            // log failure, most likely a database problem
-            LOG.error(t.getLocalizedMessage(), t);
+        // jobs running at the same time are finished one after the other, 
+        // so event listeners and the publish history see them in a consistent order 
+        synchronized (m_finishLock) {
+            publishJobFinishedEvents(publishJob);
         }
-        if (Thread.currentThread() == m_currentPublishThread) {
-            // wipe the dead thread, only if this thread has not been abandoned
-            m_currentPublishThread = null;
+        synchronized (m_publishThreads) {
+            // wipe the finished thread, only if this thread has not been abandoned
+            m_publishThreads.remove(Thread.currentThread());
         }
         // clear the published resources cache
         OpenCms.getMemoryMonitor().flushCache(CmsMemoryMonitor.CacheType.PUBLISHED_RESOURCES);
@@ -761,8 +798,8 @@ public final class CmsPublishEngine {
 
         if (m_engineState != CmsPublishEngineState.ENGINE_STARTED) {
             m_engineState = CmsPublishEngineState.ENGINE_STARTED;
-            // start publish job if jobs waiting
-            if ((m_currentPublishThread == null) && !m_publishQueue.isEmpty()) {
+            // start publish jobs if jobs waiting
+            if (!m_publishQueue.isEmpty()) {
                 checkCurrentPublishJobThread();
             }
         }
@@ -803,6 +840,37 @@ public final class CmsPublishEngine {
         }
     }
 
+    /**
+     * Returns the running publish thread of the given publish job.<p>
+     * 
+     * @param publishJob the publish job
+     * 
+     * @return the publish thread, or <code>null</code> if the publish job is not running
+     */
+    private CmsPublishThread getPublishThread(CmsPublishJobInfoBean publishJob) {
+
+        Iterator<CmsPublishThread> itThreads = getPublishThreads().iterator();
+        while (itThreads.hasNext()) {
+            CmsPublishThread publishThread = itThreads.next();
+            if (publishThread.getPublishJob().equals(publishJob)) {
+                return publishThread;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a copy of the list of running publish threads.<p>
+     * 
+     * @return the running publish threads, in the order they were started
+     */
+    private List<CmsPublishThread> getPublishThreads() {
+
+        synchronized (m_publishThreads) {
+            return new ArrayList<CmsPublishThread>(m_publishThreads);
+        }
+    }
+
     /**
      * Returns <code>true</code> if the login manager allows login.<p>
      * 
@@ -822,4 +890,67 @@ public final class CmsPublishEngine {
             return false;
         }
     }
+
+    /**
+     * Fires the events for a finished publish job and adds it to the publish history.<p>
+     * 
+     * @param publishJob the finished publish job
+     */
+    private void publishJobFinishedEvents(CmsPublishJobInfoBean publishJob) {
+
+        // trigger the old event mechanism
+        CmsDbContext dbc = m_dbContextFactory.getDbContext(publishJob.getCmsObject().getRequestContext());
+        try {
+            // fire an event that a project has been published
+            Map<String, Object> eventData = new HashMap<String, Object>();
+            eventData.put(I_CmsEventListener.KEY_REPORT, publishJob.getPublishReport());
+            eventData.put(
+                I_CmsEventListener.KEY_PUBLISHID,
+                publishJob.getPublishList().getPublishHistoryId().toString());
+            eventData.put(I_CmsEventListener.KEY_PROJECTID, dbc.currentProject().getUuid());
+            eventData.put(I_CmsEventListener.KEY_DBCONTEXT, dbc);
+            CmsEvent afterPublishEvent = new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, eventData);
+            OpenCms.fireCmsEvent(afterPublishEvent);
+            // the asynchronous listeners use the report and the database context, wait until they are done,
+            // but do not block all other publish jobs from finishing in case a listener hangs
+            if (!OpenCms.getEventManager().waitForAsyncEvents(ASYNC_EVENTS_TIMEOUT)) {
+                LOG.warn(Messages.get().getBundle().key(
+                    Messages.LOG_PUBLISH_ASYNC_EVENTS_TIMEOUT_1,
+                    new Long(ASYNC_EVENTS_TIMEOUT / 1000)));
+            }
+        } catch (Throwable t) {
+            dbc.rollback();
+            LOG.error(t);
+            // catch every thing including runtime exceptions
+            publishJob.getPublishReport().println(t);
+        } finally {
+            try {
+                dbc.clear();
+            } catch (Throwable t) {
+                // ignore
+            }
+            dbc = null;
+        }
+        try {
+            // fire the publish finish event
+            m_listeners.fireFinish(new CmsPublishJobRunning(publishJob));
+        } catch (Throwable t) {
+            // log failure, most likely a database problem
+            LOG.error(t.getLocalizedMessage(), t);
+        }
+        try {
+            // finish the job
+            publishJob.finish();
+        } catch (Throwable t) {
+            // log failure, most likely a database problem
+            LOG.error(t.getLocalizedMessage(), t);
+        }
+        try {
+            // put the publish job into the history list
+            m_publishHistory.add(publishJob);
+        } catch (Throwable t) {
+            // log failure, most likely a database problem
+            LOG.error(t.getLocalizedMessage(), t);
+        }
+    }
 }
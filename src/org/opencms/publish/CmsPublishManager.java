@@ -60,6 +60,9 @@ public class CmsPublishManager {
     /** The default history size. */
     public static final int DEFAULT_HISTORY_SIZE = 100;
 
+    /** The default maximum number of publish jobs running at the same time. */
+    public static final int DEFAULT_QUEUE_MAXCONCURRENTJOBS = 1;
+
     /** The default persistence setting for the publish queue. */
     public static final boolean DEFAULT_QUEUE_PERSISTANCE = false;
 
@@ -78,6 +81,9 @@ public class CmsPublishManager {
     /** The maximum size of the publish history. */
     private int m_publishHistorySize;
 
+    /** The maximum number of publish jobs running at the same time. */
+    private int m_publishQueueMaxConcurrentJobs;
+
     /** Indicates if the publish queue is re-initialized on startup. */
     private boolean m_publishQueuePersistance;
 
@@ -93,6 +99,7 @@ public class CmsPublishManager {
     public CmsPublishManager() {
 
         m_publishEngine = null;
+        m_publishQueueMaxConcurrentJobs = DEFAULT_QUEUE_MAXCONCURRENTJOBS;
         m_frozen = false;
     }
 
@@ -109,6 +116,7 @@ public class CmsPublishManager {
         m_publishHistorySize = historySize;
         m_publishQueuePersistance = queuePersistance;
         m_publishQueueShutdowntime = queueShutdowntime;
+        m_publishQueueMaxConcurrentJobs = DEFAULT_QUEUE_MAXCONCURRENTJOBS;
         m_frozen = false;
     }
 
@@ -120,6 +128,16 @@ public class CmsPublishManager {
         m_publishEngine.abandonThread();
     }
 
+    /**
+     * Abandons the thread of the given running publish job.<p>
+     * 
+     * @param publishJob the running publish job
+     */
+    public void abandonThread(CmsPublishJobRunning publishJob) {
+
+        m_publishEngine.abandonThread(publishJob.m_publishJob);
+    }
+
     /**
      * Aborts the given publish job.<p>
      * 
@@ -182,7 +200,11 @@ public class CmsPublishManager {
     /**
      * Returns the current running publish job.<p>
      * 
+     * If several publish jobs are running at the same time, the longest running one is returned.<p>
+     * 
      * @return the current running publish job
+     * 
+     * @see #getRunningPublishJobs()
      */
     public CmsPublishJobRunning getCurrentPublishJob() {
 
@@ -365,6 +387,18 @@ public class CmsPublishManager {
         return m_publishEngine.getPublishQueue().asList();
     }
 
+    /**
+     * Returns the maximum number of publish jobs running at the same time.<p>
+     * 
+     * Only publish jobs that do not touch the same resources are published at the same time.<p>
+     * 
+     * @return the maximum number of publish jobs running at the same time
+     */
+    public int getPublishQueueMaxConcurrentJobs() {
+
+        return m_publishQueueMaxConcurrentJobs;
+    }
+
     /**
      * Returns the amount of time in seconds the system will wait during shutdown for a running publish job.<p>
      * 
@@ -408,6 +442,21 @@ public class CmsPublishManager {
         return m_publishEngine.getReportContents(publishJob);
     }
 
+    /**
+     * Returns the running publish jobs, in the order they were started.<p>
+     * 
+     * @return a list of {@link CmsPublishJobRunning} objects
+     */
+    public List<CmsPublishJobRunning> getRunningPublishJobs() {
+
+        List<CmsPublishJobRunning> result = new ArrayList<CmsPublishJobRunning>();
+        Iterator<CmsPublishJobInfoBean> it = m_publishEngine.getRunningPublishJobs().iterator();
+        while (it.hasNext()) {
+            result.add(new CmsPublishJobRunning(it.next()));
+        }
+        return result;
+    }
+
     /**
      * Returns the current user's publish list.<p>
      * 
@@ -431,7 +480,11 @@ public class CmsPublishManager {
      */
     public void initialize(CmsObject cms) throws CmsException {
 
-        m_publishEngine.initialize(cms, m_publishQueuePersistance, m_publishQueueShutdowntime);
+        m_publishEngine.initialize(
+            cms,
+            m_publishQueuePersistance,
+            m_publishQueueShutdowntime,
+            m_publishQueueMaxConcurrentJobs);
         m_frozen = true;
     }
 
@@ -635,6 +688,19 @@ public class CmsPublishManager {
         m_publishHistorySize = Integer.parseInt(publishHistorySize);
     }
 
+    /**
+     * Sets the maximum number of publish jobs running at the same time.<p>
+     * 
+     * @param publishQueueMaxConcurrentJobs the maximum number of jobs, parsed as <code>int</code>
+     */
+    public void setPublishQueueMaxConcurrentJobs(String publishQueueMaxConcurrentJobs) {
+
+        if (m_frozen) {
+            throw new CmsRuntimeException(Messages.get().container(Messages.ERR_CONFIG_FROZEN_0));
+        }
+        m_publishQueueMaxConcurrentJobs = Integer.parseInt(publishQueueMaxConcurrentJobs);
+    }
+
     /**
      * Sets if the publish queue is re-initialized on startup.<p>
      * 
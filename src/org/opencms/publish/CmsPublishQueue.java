@@ -29,6 +29,7 @@ package org.opencms.publish;
 
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDriverManager;
+import org.opencms.db.CmsPublishList;
 import org.opencms.file.CmsObject;
 import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
@@ -36,6 +37,7 @@ import org.opencms.main.OpenCms;
 import org.opencms.monitor.CmsMemoryMonitor;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -266,18 +268,32 @@ public class CmsPublishQueue {
     }
 
     /**
-     * Returns the next publish job to be published, removing it 
-     * from the queue, or <code>null</code> if the queue is empty.<p> 
+     * Returns the next publish job that can be published while the given jobs are running, 
+     * removing it from the queue, or <code>null</code> if there is no such job.<p>
+     * 
+     * A waiting job is skipped if its publish list intersects with the publish list of a running job
+     * or of a job enqueued before it, so jobs touching the same resources are still published 
+     * in the order they were enqueued.<p>
+     * 
+     * @param runningJobs the currently running publish jobs
      * 
      * @return the next publish job to be published
+     * 
+     * @see org.opencms.db.CmsPublishList#intersects(org.opencms.db.CmsPublishList)
      */
-    protected CmsPublishJobInfoBean next() {
+    protected CmsPublishJobInfoBean next(Collection<CmsPublishJobInfoBean> runningJobs) {
 
-        CmsPublishJobInfoBean publishJob = OpenCms.getMemoryMonitor().getFirstCachedPublishJob();
-        if (publishJob != null) {
-            OpenCms.getMemoryMonitor().uncachePublishJob(publishJob);
+        List<CmsPublishJobInfoBean> blockingJobs = new ArrayList<CmsPublishJobInfoBean>(runningJobs);
+        Iterator<CmsPublishJobInfoBean> it = OpenCms.getMemoryMonitor().getAllCachedPublishJobs().iterator();
+        while (it.hasNext()) {
+            CmsPublishJobInfoBean publishJob = it.next();
+            if (!intersects(publishJob, blockingJobs)) {
+                OpenCms.getMemoryMonitor().uncachePublishJob(publishJob);
+                return publishJob;
+            }
+            blockingJobs.add(publishJob);
         }
-        return publishJob;
+        return null;
     }
 
     /**
@@ -333,4 +349,31 @@ public class CmsPublishQueue {
             }
         }
     }
+
+    /**
+     * Checks if the publish list of the given job intersects with the publish list of one of the other jobs.<p>
+     * 
+     * @param publishJob the publish job to check
+     * @param otherJobs the other publish jobs
+     * 
+     * @return <code>true</code> if the publish job can not be published together with the other jobs
+     */
+    private boolean intersects(CmsPublishJobInfoBean publishJob, List<CmsPublishJobInfoBean> otherJobs) {
+
+        if (otherJobs.isEmpty()) {
+            return false;
+        }
+        CmsPublishList publishList = publishJob.getPublishList();
+        if (publishList == null) {
+            return true;
+        }
+        Iterator<CmsPublishJobInfoBean> it = otherJobs.iterator();
+        while (it.hasNext()) {
+            CmsPublishList otherPublishList = it.next().getPublishList();
+            if ((otherPublishList == null) || publishList.intersects(otherPublishList)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
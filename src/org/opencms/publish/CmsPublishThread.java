@@ -149,6 +149,8 @@ import org.apache.commons.logging.Log;
         }
         try {
             CmsDbContext dbc = m_publishEngine.getDbContext(getCms().getRequestContext());
+            // use the same connections for the whole publish job, they are released when the context is cleared
+            dbc.pinConnections();
             try {
                 // publish
                 m_publishEngine.getDriverManager().publishJob(getCms(), dbc, m_publishJob.getPublishList(), m_report);
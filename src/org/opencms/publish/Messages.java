@@ -124,6 +124,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String INIT_PUBLISH_REPORT_PATH_SET_1 = "INIT_PUBLISH_REPORT_PATH_SET_1";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PUBLISH_ASYNC_EVENTS_TIMEOUT_1 = "LOG_PUBLISH_ASYNC_EVENTS_TIMEOUT_1";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PUBLISH_ENGINE_DEAD_JOB_0 = "LOG_PUBLISH_ENGINE_DEAD_JOB_0";
 
@@ -136,6 +139,9 @@ public final class Messages extends A_CmsMessageBundle {
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PUBLISH_ENGINE_RUNNING_0 = "LOG_PUBLISH_ENGINE_RUNNING_0";
 
+    /** Message constant for key in the resource bundle. */
+    public static final String LOG_PUBLISH_ENGINE_START_JOB_2 = "LOG_PUBLISH_ENGINE_START_JOB_2";
+
     /** Message constant for key in the resource bundle. */
     public static final String LOG_PUBLISH_ENGINE_WAITING_0 = "LOG_PUBLISH_ENGINE_WAITING_0";
 
@@ -0,0 +1,145 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.report;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Report class used to buffer the output for another report.<p>
+ * 
+ * Everything written to this report is stored and written to the target report
+ * when {@link #flush()} is called. This allows a background thread to produce 
+ * report output which is later written to the target report in the right order.<p>
+ * 
+ * @since 8.0.4 
+ */
+public class CmsBufferedReport extends A_CmsReport {
+
+    /**
+     * A buffered report entry.<p>
+     */
+    private static final class CmsBufferedEntry {
+
+        /** The format of the entry. */
+        int m_format;
+
+        /** The Throwable of the entry, or <code>null</code>. */
+        Throwable m_throwable;
+
+        /** The String value of the entry, or <code>null</code> for a line break. */
+        String m_value;
+
+        /**
+         * Creates a new buffered report entry.<p>
+         * 
+         * @param value the String value, or <code>null</code> for a line break
+         * @param format the format of the entry
+         * @param throwable the Throwable, or <code>null</code>
+         */
+        CmsBufferedEntry(String value, int format, Throwable throwable) {
+
+            m_value = value;
+            m_format = format;
+            m_throwable = throwable;
+        }
+    }
+
+    /** The buffered entries. */
+    private List<CmsBufferedEntry> m_entries;
+
+    /** The report to write the buffered entries to. */
+    private A_CmsReport m_target;
+
+    /**
+     * Constructs a new report that buffers the output for the given report.<p>
+     *  
+     * @param target the report to write the buffered output to
+     */
+    public CmsBufferedReport(A_CmsReport target) {
+
+        init(target.getLocale(), target.getSiteRoot());
+
+        m_target = target;
+        m_entries = new ArrayList<CmsBufferedEntry>();
+    }
+
+    /**
+     * Writes all buffered entries to the target report and clears the buffer.<p>
+     */
+    public synchronized void flush() {
+
+        for (int i = 0, size = m_entries.size(); i < size; i++) {
+            CmsBufferedEntry entry = m_entries.get(i);
+            if (entry.m_throwable != null) {
+                m_target.println(entry.m_throwable);
+            } else if (entry.m_value == null) {
+                m_target.println();
+            } else {
+                m_target.print(entry.m_value, entry.m_format);
+            }
+        }
+        m_entries.clear();
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#getReportUpdate()
+     */
+    public String getReportUpdate() {
+
+        return "";
+    }
+
+    /**
+     * @see org.opencms.report.A_CmsReport#print(java.lang.String, int)
+     */
+    @Override
+    public synchronized void print(String value, int format) {
+
+        // errors and warnings are added to the target report when the entries are written to it
+        m_entries.add(new CmsBufferedEntry(value, format, null));
+        setLastEntryTime(System.currentTimeMillis());
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println()
+     */
+    public synchronized void println() {
+
+        m_entries.add(new CmsBufferedEntry(null, FORMAT_DEFAULT, null));
+    }
+
+    /**
+     * @see org.opencms.report.I_CmsReport#println(java.lang.Throwable)
+     */
+    public synchronized void println(Throwable t) {
+
+        m_entries.add(new CmsBufferedEntry(null, FORMAT_DEFAULT, t));
+    }
+}
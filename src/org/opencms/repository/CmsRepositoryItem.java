@@ -36,6 +36,9 @@ import org.opencms.loader.CmsResourceManager;
 import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
 /**
  * Represents a single entry in the repository. In the context of OpenCms
  * this means a single {@link CmsResource}.<p>
@@ -94,6 +97,27 @@ public class CmsRepositoryItem implements I_CmsRepositoryItem {
         return m_content;
     }
 
+    /**
+     * @see org.opencms.repository.I_CmsRepositoryItem#getContentStream()
+     */
+    public InputStream getContentStream() {
+
+        if (!m_resource.isFile()) {
+            return null;
+        }
+
+        if (m_content == null) {
+            try {
+                return m_cms.readContentStream(m_resource);
+            } catch (CmsException ex) {
+                // noop
+            }
+        }
+
+        byte[] content = getContent();
+        return content == null ? null : new ByteArrayInputStream(content);
+    }
+
     /**
      * @see org.opencms.repository.I_CmsRepositoryItem#getContentLength()
      */
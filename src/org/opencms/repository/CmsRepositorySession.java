@@ -27,7 +27,6 @@
 
 package org.opencms.repository;
 
-import org.opencms.file.CmsFile;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.file.CmsUser;
@@ -40,7 +39,6 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
 import org.opencms.security.CmsSecurityException;
-import org.opencms.util.CmsFileUtil;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -367,10 +365,9 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
     public void save(String path, InputStream inputStream, boolean overwrite) throws CmsException, IOException {
 
         path = validatePath(path);
-        byte[] content = CmsFileUtil.readFully(inputStream);
 
         try {
-            CmsFile file = m_cms.readFile(path, CmsResourceFilter.DEFAULT);
+            CmsResource resource = m_cms.readResource(path, CmsResourceFilter.DEFAULT);
 
             if (LOG.isDebugEnabled()) {
                 LOG.debug(Messages.get().getBundle().key(Messages.LOG_UPDATE_ITEM_1, path));
@@ -378,17 +375,15 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
 
             if (overwrite) {
 
-                file.setContents(content);
-
-                CmsLock lock = m_cms.getLock(file);
+                CmsLock lock = m_cms.getLock(resource);
 
                 // lock resource
                 if (!lock.isInherited()) {
                     m_cms.lockResource(path);
                 }
 
-                // write file
-                m_cms.writeFile(file);
+                // write file, binary content is streamed into the VFS
+                m_cms.writeFile(resource, inputStream);
 
                 if (lock.isNullLock()) {
                     m_cms.unlockResource(path);
@@ -409,8 +404,8 @@ public class CmsRepositorySession extends A_CmsRepositorySession {
 
             int type = OpenCms.getResourceManager().getDefaultTypeForName(path).getTypeId();
 
-            // create the file
-            CmsResource res = m_cms.createResource(path, type, content, null);
+            // create the file, binary content is streamed into the VFS
+            CmsResource res = m_cms.createResource(path, type, inputStream, null);
 
             // unlock file after creation if lock is not inherited
             if (!m_cms.getLock(res).isInherited()) {
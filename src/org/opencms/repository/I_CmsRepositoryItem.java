@@ -27,6 +27,8 @@
 
 package org.opencms.repository;
 
+import java.io.InputStream;
+
 /**
  * This class represents items in the repository interface. That can be
  * files or folders (collections). <p>
@@ -42,6 +44,16 @@ public interface I_CmsRepositoryItem {
      */
     byte[] getContent();
 
+    /**
+     * Returns the content of this item as a stream.<p>
+     * 
+     * Other than {@link #getContent()}, this does not keep the whole content in memory.
+     * The returned stream must be closed by the caller.<p>
+     * 
+     * @return the content of this item as a stream, or <code>null</code> if this item has no content
+     */
+    InputStream getContentStream();
+
     /**
      * Returns the length of the content of this item.<p>
      * 
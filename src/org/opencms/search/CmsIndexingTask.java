@@ -0,0 +1,386 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsException;
+import org.opencms.main.CmsLog;
+import org.opencms.report.I_CmsReport;
+import org.opencms.search.documents.CmsIndexNoContentException;
+import org.opencms.search.documents.I_CmsDocumentFactory;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Fieldable;
+
+/**
+ * Implements the indexing method for a single resource.<p>
+ * 
+ * The task is executed by a worker thread of the {@link CmsIndexingThreadManager}, 
+ * which abandons the task if it does not finish within the configured timeout.<p>
+ * 
+ * @since 8.0.4 
+ */
+public class CmsIndexingTask implements Runnable {
+
+    /** The log object for this class. */
+    private static final Log LOG = CmsLog.getLog(CmsIndexingTask.class);
+
+    /** Indicates if this task has been abandoned. */
+    private boolean m_abandoned;
+
+    /** The cms object. */
+    private CmsObject m_cms;
+
+    /** The counter to output for the report. */
+    private int m_count;
+
+    /** Indicates if this task has finished. */
+    private boolean m_done;
+
+    /** The number of characters of text extracted for the result document. */
+    private int m_extractedLength;
+
+    /** Signals the end of this task. */
+    private CountDownLatch m_finished;
+
+    /** The current index. */
+    private CmsSearchIndex m_index;
+
+    /** The current report. */
+    private I_CmsReport m_report;
+
+    /** The resource to index. */
+    private CmsResource m_res;
+
+    /** The result document. */
+    private Document m_result;
+
+    /** The time this task was started, or 0 if it has not yet been started. */
+    private volatile long m_startTime;
+
+    /** The thread executing this task. */
+    private Thread m_thread;
+
+    /**
+     * Create a new indexing task.<p>
+     * 
+     * @param cms the current OpenCms user context
+     * @param res the resource to index
+     * @param index the index to update the resource in
+     * @param count the report count
+     * @param report the report to write the output to
+     */
+    public CmsIndexingTask(CmsObject cms, CmsResource res, CmsSearchIndex index, int count, I_CmsReport report) {
+
+        m_cms = cms;
+        m_res = res;
+        m_index = index;
+        m_count = count;
+        m_report = report;
+        m_finished = new CountDownLatch(1);
+    }
+
+    /**
+     * Abandons this task and interrupts the thread executing it, in case the task has not yet finished.<p>
+     * 
+     * @return <code>true</code> if the task was abandoned, 
+     *      <code>false</code> if the task had already finished
+     */
+    public synchronized boolean abandon() {
+
+        if (m_done) {
+            return false;
+        }
+        m_abandoned = true;
+        if (m_thread != null) {
+            m_thread.interrupt();
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of characters of text extracted for the result document.<p>
+     * 
+     * In case the resource could not be indexed, or the task has not yet finished, 
+     * <code>0</code> is returned.<p>
+     * 
+     * @return the number of characters of text extracted for the result document
+     */
+    public int getExtractedLength() {
+
+        return m_extractedLength;
+    }
+
+    /**
+     * Returns the report this task writes its output to.<p>
+     * 
+     * @return the report this task writes its output to
+     */
+    public I_CmsReport getReport() {
+
+        return m_report;
+    }
+
+    /**
+     * Returns the resource indexed by this task.<p>
+     * 
+     * @return the resource indexed by this task
+     */
+    public CmsResource getResource() {
+
+        return m_res;
+    }
+
+    /**
+     * Returns the document created by this indexing task.<p>
+     * 
+     * In case the resource could not be indexed, or the task has not yet finished, 
+     * <code>null</code> is returned.<p>
+     * 
+     * @return the document created by this indexing task
+     */
+    public Document getResult() {
+
+        return m_result;
+    }
+
+    /**
+     * Returns the time this task was started, or 0 if it has not yet been started.<p>
+     * 
+     * @return the time this task was started
+     */
+    public long getStartTime() {
+
+        return m_startTime;
+    }
+
+    /**
+     * Returns <code>true</code> if this task has been abandoned.<p>
+     * 
+     * @return <code>true</code> if this task has been abandoned
+     */
+    public synchronized boolean isAbandoned() {
+
+        return m_abandoned;
+    }
+
+    /**
+     * Indexes the resource.<p>
+     * 
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+
+        synchronized (this) {
+            m_thread = Thread.currentThread();
+        }
+        m_startTime = System.currentTimeMillis();
+        // flag for logging in the "final" block
+        boolean docOk = false;
+        try {
+
+            // create the index document
+            m_result = createIndexDocument(m_cms, m_res, m_index, m_count, m_report);
+            if (m_result != null) {
+                m_extractedLength = getTextLength(m_result);
+            }
+            docOk = true;
+
+            // check if the task was abandoned
+            if (isAbandoned() && LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_ABANDONED_THREAD_FINISHED_1, m_res.getRootPath()));
+            }
+
+        } catch (CmsIndexNoContentException e) {
+            // Ignore exception caused by empty documents, so that the report is not messed up with error message
+            if (m_report != null) {
+                m_report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                    I_CmsReport.FORMAT_OK);
+            }
+        } catch (Exception exc) {
+            if (m_report != null) {
+                m_report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                    I_CmsReport.FORMAT_ERROR);
+                m_report.println(org.opencms.report.Messages.get().container(
+                    org.opencms.report.Messages.RPT_ARGUMENT_1,
+                    exc.toString()), I_CmsReport.FORMAT_ERROR);
+            }
+            if (LOG.isErrorEnabled()) {
+                LOG.error(Messages.get().getBundle().key(
+                    Messages.ERR_INDEX_RESOURCE_FAILED_2,
+                    m_res.getRootPath(),
+                    m_index.getName()), exc);
+            }
+            // set flag to avoid logging in finally block
+            docOk = true;
+        } finally {
+            if (!docOk) {
+                // apparently there was a Throwable that causes an issue
+                if (m_report != null) {
+                    m_report.println(org.opencms.report.Messages.get().container(
+                        org.opencms.report.Messages.RPT_FAILED_0), I_CmsReport.FORMAT_ERROR);
+                    m_report.println(Messages.get().container(
+                        Messages.ERR_INDEX_RESOURCE_FAILED_2,
+                        m_res.getRootPath(),
+                        m_index.getName()), I_CmsReport.FORMAT_ERROR);
+                }
+                if (LOG.isErrorEnabled()) {
+                    LOG.error(Messages.get().getBundle().key(
+                        Messages.ERR_INDEX_RESOURCE_FAILED_2,
+                        m_res.getRootPath(),
+                        m_index.getName()));
+                }
+            }
+            synchronized (this) {
+                m_thread = null;
+                m_done = true;
+            }
+            m_finished.countDown();
+        }
+    }
+
+    /**
+     * Waits until this task has finished, or the given time has elapsed.<p>
+     * 
+     * @param timeout the maximum time to wait in milliseconds
+     * 
+     * @return <code>true</code> if the task has finished
+     * 
+     * @throws InterruptedException if the current thread is interrupted while waiting
+     */
+    public boolean waitFor(long timeout) throws InterruptedException {
+
+        return m_finished.await(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the search index document.<p>
+     * 
+     * @param cms the current OpenCms user context
+     * @param res the resource to index
+     * @param index the index to update the resource in
+     * @param count the report count
+     * @param report the report to write the output to
+     * 
+     * @return the created search index document
+     * 
+     * @throws CmsException in case of issues while creating the search index document
+     */
+    protected Document createIndexDocument(
+        CmsObject cms,
+        CmsResource res,
+        CmsSearchIndex index,
+        int count,
+        I_CmsReport report) throws CmsException {
+
+        Document result = null;
+
+        if (report != null) {
+            report.print(org.opencms.report.Messages.get().container(
+                org.opencms.report.Messages.RPT_SUCCESSION_1,
+                String.valueOf(count)), I_CmsReport.FORMAT_NOTE);
+            report.print(Messages.get().container(Messages.RPT_SEARCH_INDEXING_FILE_BEGIN_0), I_CmsReport.FORMAT_NOTE);
+            report.print(org.opencms.report.Messages.get().container(
+                org.opencms.report.Messages.RPT_ARGUMENT_1,
+                report.removeSiteRoot(res.getRootPath())));
+            report.print(
+                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0),
+                I_CmsReport.FORMAT_DEFAULT);
+        }
+
+        // check if this resource should be excluded from the index, if so skip it
+        boolean excludeFromIndex = index.excludeFromIndex(cms, res);
+
+        if (!excludeFromIndex) {
+            // resource is to be included in the index
+            I_CmsDocumentFactory documentFactory = index.getDocumentFactory(res);
+            if (documentFactory != null) {
+                // some resources e.g. JSP do not have a default document factory
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(Messages.get().getBundle().key(
+                        Messages.LOG_INDEXING_WITH_FACTORY_2,
+                        res.getRootPath(),
+                        documentFactory.getName()));
+                }
+                // create the document
+                result = documentFactory.createDocument(cms, res, index);
+            }
+        }
+        if (result == null) {
+            // this resource is not contained in the given search index or locale did not match
+            if (report != null) {
+                report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
+                    I_CmsReport.FORMAT_NOTE);
+            }
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(Messages.get().getBundle().key(Messages.LOG_SKIPPED_1, res.getRootPath()));
+            }
+        } else {
+            // index document was successfully created
+            if ((report != null)) {
+                report.println(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
+                    I_CmsReport.FORMAT_OK);
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the number of characters of the text fields of the given document.<p>
+     * 
+     * Binary fields and fields that read their text from a reader are not counted.<p>
+     * 
+     * @param document the document
+     * 
+     * @return the number of characters of the text fields of the given document
+     */
+    protected int getTextLength(Document document) {
+
+        int result = 0;
+        for (Fieldable field : document.getFields()) {
+            if (!field.isBinary()) {
+                String value = field.stringValue();
+                if (value != null) {
+                    result += value.length();
+                }
+            }
+        }
+        return result;
+    }
+}
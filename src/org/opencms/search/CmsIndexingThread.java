@@ -30,12 +30,8 @@ package org.opencms.search;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.main.CmsException;
-import org.opencms.main.CmsLog;
 import org.opencms.report.I_CmsReport;
-import org.opencms.search.documents.CmsIndexNoContentException;
-import org.opencms.search.documents.I_CmsDocumentFactory;
 
-import org.apache.commons.logging.Log;
 import org.apache.lucene.document.Document;
 
 /**
@@ -44,30 +40,68 @@ import org.apache.lucene.document.Document;
  * The indexing of a single resource is wrapped into a thread
  * in order to prevent the overall indexer from hanging.<p>
  * 
+ * The {@link CmsIndexingThreadManager} no longer uses this class, it executes 
+ * {@link CmsIndexingTask} instances with a pool of worker threads.<p>
+ * 
  * @since 6.0.0 
  */
 public class CmsIndexingThread extends Thread {
 
-    /** The log object for this class. */
-    private static final Log LOG = CmsLog.getLog(CmsIndexingThread.class);
-
-    /** The cms object. */
-    private CmsObject m_cms;
-
-    /** The counter to output for the report. */
-    private int m_count;
-
-    /** The current index. */
-    private CmsSearchIndex m_index;
+    /**
+     * The indexing task of the thread, which creates the document with the thread.<p>
+     */
+    private final class CmsThreadIndexingTask extends CmsIndexingTask {
+
+        /**
+         * Create a new indexing task.<p>
+         * 
+         * @param cms the current OpenCms user context
+         * @param res the resource to index
+         * @param index the index to update the resource in
+         * @param count the report count
+         * @param report the report to write the output to
+         */
+        CmsThreadIndexingTask(CmsObject cms, CmsResource res, CmsSearchIndex index, int count, I_CmsReport report) {
+
+            super(cms, res, index, count, report);
+        }
 
-    /** The current report. */
-    private I_CmsReport m_report;
+        /**
+         * @see org.opencms.search.CmsIndexingTask#createIndexDocument(org.opencms.file.CmsObject, org.opencms.file.CmsResource, org.opencms.search.CmsSearchIndex, int, org.opencms.report.I_CmsReport)
+         */
+        @Override
+        protected Document createIndexDocument(
+            CmsObject cms,
+            CmsResource res,
+            CmsSearchIndex index,
+            int count,
+            I_CmsReport report) throws CmsException {
+
+            return CmsIndexingThread.this.createIndexDocument(cms, res, index, count, report);
+        }
 
-    /** The resource to index. */
-    private CmsResource m_res;
+        /**
+         * Creates the search index document with the default implementation of the task.<p>
+         * 
+         * @param cms the current OpenCms user context
+         * @param res the resource to index
+         * @param index the index to update the resource in
+         * @param count the report count
+         * @param report the report to write the output to
+         * 
+         * @return the created search index document
+         * 
+         * @throws CmsException in case of issues while creating the search index document
+         */
+        Document createTaskDocument(CmsObject cms, CmsResource res, CmsSearchIndex index, int count, I_CmsReport report)
+        throws CmsException {
+
+            return super.createIndexDocument(cms, res, index, count, report);
+        }
+    }
 
-    /** The result document. */
-    private Document m_result;
+    /** The indexing task executed by this thread. */
+    private CmsThreadIndexingTask m_task;
 
     /**
      * Create a new indexing thread.<p>
@@ -82,12 +116,7 @@ public class CmsIndexingThread extends Thread {
 
         super("OpenCms: Indexing '" + res.getName() + "'");
 
-        m_cms = cms;
-        m_res = res;
-        m_index = index;
-        m_count = count;
-        m_report = report;
-        m_result = null;
+        m_task = new CmsThreadIndexingTask(cms, res, index, count, report);
     }
 
     /**
@@ -99,7 +128,7 @@ public class CmsIndexingThread extends Thread {
      */
     public Document getResult() {
 
-        return m_result;
+        return m_task.getResult();
     }
 
     /**
@@ -110,60 +139,7 @@ public class CmsIndexingThread extends Thread {
     @Override
     public void run() {
 
-        // flag for logging in the "final" block
-        boolean docOk = false;
-        try {
-
-            // create the index document
-            m_result = createIndexDocument(m_cms, m_res, m_index, m_count, m_report);
-            docOk = true;
-
-            // check if the thread was interrupted
-            if (isInterrupted() && LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_ABANDONED_THREAD_FINISHED_1, m_res.getRootPath()));
-            }
-
-        } catch (CmsIndexNoContentException e) {
-            // Ignore exception caused by empty documents, so that the report is not messed up with error message
-            m_report.println(
-                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                I_CmsReport.FORMAT_OK);
-        } catch (Exception exc) {
-            if (m_report != null) {
-                m_report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                    I_CmsReport.FORMAT_ERROR);
-                m_report.println(org.opencms.report.Messages.get().container(
-                    org.opencms.report.Messages.RPT_ARGUMENT_1,
-                    exc.toString()), I_CmsReport.FORMAT_ERROR);
-            }
-            if (LOG.isErrorEnabled()) {
-                LOG.error(Messages.get().getBundle().key(
-                    Messages.ERR_INDEX_RESOURCE_FAILED_2,
-                    m_res.getRootPath(),
-                    m_index.getName()), exc);
-            }
-            // set flag to avoid logging in finally block
-            docOk = true;
-        } finally {
-            if (!docOk) {
-                // apparently there was a Throwable that causes an issue
-                if (m_report != null) {
-                    m_report.println(org.opencms.report.Messages.get().container(
-                        org.opencms.report.Messages.RPT_FAILED_0), I_CmsReport.FORMAT_ERROR);
-                    m_report.println(Messages.get().container(
-                        Messages.ERR_INDEX_RESOURCE_FAILED_2,
-                        m_res.getRootPath(),
-                        m_index.getName()), I_CmsReport.FORMAT_ERROR);
-                }
-                if (LOG.isErrorEnabled()) {
-                    LOG.error(Messages.get().getBundle().key(
-                        Messages.ERR_INDEX_RESOURCE_FAILED_2,
-                        m_res.getRootPath(),
-                        m_index.getName()));
-                }
-            }
-        }
+        m_task.run();
     }
 
     /**
@@ -186,58 +162,6 @@ public class CmsIndexingThread extends Thread {
         int count,
         I_CmsReport report) throws CmsException {
 
-        Document result = null;
-
-        if (report != null) {
-            report.print(org.opencms.report.Messages.get().container(
-                org.opencms.report.Messages.RPT_SUCCESSION_1,
-                String.valueOf(count)), I_CmsReport.FORMAT_NOTE);
-            report.print(Messages.get().container(Messages.RPT_SEARCH_INDEXING_FILE_BEGIN_0), I_CmsReport.FORMAT_NOTE);
-            report.print(org.opencms.report.Messages.get().container(
-                org.opencms.report.Messages.RPT_ARGUMENT_1,
-                report.removeSiteRoot(res.getRootPath())));
-            report.print(
-                org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_DOTS_0),
-                I_CmsReport.FORMAT_DEFAULT);
-        }
-
-        // check if this resource should be excluded from the index, if so skip it
-        boolean excludeFromIndex = index.excludeFromIndex(cms, res);
-
-        if (!excludeFromIndex) {
-            // resource is to be included in the index
-            I_CmsDocumentFactory documentFactory = index.getDocumentFactory(res);
-            if (documentFactory != null) {
-                // some resources e.g. JSP do not have a default document factory
-                if (LOG.isDebugEnabled()) {
-                    LOG.debug(Messages.get().getBundle().key(
-                        Messages.LOG_INDEXING_WITH_FACTORY_2,
-                        res.getRootPath(),
-                        documentFactory.getName()));
-                }
-                // create the document
-                result = documentFactory.createDocument(cms, res, index);
-            }
-        }
-        if (result == null) {
-            // this resource is not contained in the given search index or locale did not match
-            if (report != null) {
-                report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_SKIPPED_0),
-                    I_CmsReport.FORMAT_NOTE);
-            }
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(Messages.get().getBundle().key(Messages.LOG_SKIPPED_1, res.getRootPath()));
-            }
-        } else {
-            // index document was successfully created
-            if ((m_report != null)) {
-                m_report.println(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_OK_0),
-                    I_CmsReport.FORMAT_OK);
-            }
-        }
-
-        return result;
+        return m_task.createTaskDocument(cms, res, index, count, report);
     }
-}
\ No newline at end of file
+}
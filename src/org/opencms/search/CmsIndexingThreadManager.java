@@ -27,13 +27,23 @@
 
 package org.opencms.search;
 
+import org.opencms.file.CmsObject;
 import org.opencms.file.CmsResource;
 import org.opencms.i18n.CmsMessageContainer;
+import org.opencms.main.CmsException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.OpenCms;
+import org.opencms.report.A_CmsReport;
+import org.opencms.report.CmsBufferedReport;
 import org.opencms.report.CmsLogReport;
 import org.opencms.report.I_CmsReport;
 
 import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.document.Document;
@@ -41,16 +51,60 @@ import org.apache.lucene.document.Document;
 /**
  * Implements the management of indexing threads.<p>
  * 
+ * The documents are extracted in parallel by a bounded pool of worker threads. 
+ * The extracted documents are written to the index in the order the resources were 
+ * added by the thread that adds the resources, so there is only a single writer 
+ * for the index. The number of extracted documents waiting to be written is bounded, 
+ * adding a resource blocks while too many documents are pending.<p>
+ * 
  * @since 6.0.0 
  */
 public class CmsIndexingThreadManager {
 
+    /**
+     * A document being extracted, waiting to be written to the index.<p>
+     */
+    private static final class CmsPendingDocument {
+
+        /** The VFS indexer the document belongs to. */
+        CmsVfsIndexer m_indexer;
+
+        /** The indexing task extracting the document. */
+        CmsIndexingTask m_task;
+
+        /** The index writer to write the document with. */
+        I_CmsIndexWriter m_writer;
+
+        /**
+         * Creates a new pending document.<p>
+         * 
+         * @param indexer the VFS indexer the document belongs to
+         * @param writer the index writer to write the document with
+         * @param task the indexing task extracting the document
+         */
+        CmsPendingDocument(CmsVfsIndexer indexer, I_CmsIndexWriter writer, CmsIndexingTask task) {
+
+            m_indexer = indexer;
+            m_writer = writer;
+            m_task = task;
+        }
+    }
+
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsIndexingThreadManager.class);
 
+    /** The number of pending documents per worker thread. */
+    private static final int PENDING_DOCUMENTS_PER_THREAD = 2;
+
     /** Number of threads abandoned. */
     private int m_abandonedCounter;
 
+    /** The pool of worker threads, or <code>null</code> if no documents are pending. */
+    private ThreadPoolExecutor m_executor;
+
+    /** The number of characters of text extracted for the indexed documents. */
+    private long m_extractedLength;
+
     /** The time the last error was written to the log. */
     private long m_lastLogErrorTime;
 
@@ -60,12 +114,21 @@ public class CmsIndexingThreadManager {
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
+    /** The number of worker threads extracting documents. */
+    private int m_maxThreads;
+
+    /** The documents waiting to be written to the index, in the order they have been added. */
+    private LinkedList<CmsPendingDocument> m_pendingDocuments;
+
     /** Number of thread returned. */
     private int m_returnedCounter;
 
     /** Overall number of threads started. */
     private int m_startedCounter;
 
+    /** The time the first document was added. */
+    private long m_startTime;
+
     /** Timeout for abandoning threads. */
     private long m_timeout;
 
@@ -77,17 +140,33 @@ public class CmsIndexingThreadManager {
      */
     public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit) {
 
+        this(timeout, maxModificationsBeforeCommit, 0);
+    }
+
+    /**
+     * Creates and starts a thread manager for indexing threads.<p>
+     * 
+     * @param timeout timeout after a thread is abandoned
+     * @param maxModificationsBeforeCommit the maximum number of modifications before a commit in the search index is triggered
+     * @param maxThreads the number of worker threads extracting documents, 
+     *      if not greater than 0 the number of available processors is used
+     */
+    public CmsIndexingThreadManager(long timeout, int maxModificationsBeforeCommit, int maxThreads) {
+
         m_timeout = timeout;
         m_maxModificationsBeforeCommit = maxModificationsBeforeCommit;
+        m_maxThreads = (maxThreads > 0) ? maxThreads : Runtime.getRuntime().availableProcessors();
+        m_pendingDocuments = new LinkedList<CmsPendingDocument>();
     }
 
     /**
-     * Creates and starts a new indexing thread for a resource.<p>
+     * Creates a new indexing task for a resource and starts it in the pool of worker threads.<p>
      * 
-     * After an indexing thread was started, the manager suspends itself 
-     * and waits for an amount of time specified by the <code>timeout</code>
-     * value. If the timeout value is reached, the indexing thread is
-     * aborted by an interrupt signal.<p>
+     * If too many documents are pending, the documents that have been added first 
+     * are written to the index before the new task is started. A document is abandoned 
+     * if the extraction does not finish within the amount of time specified by 
+     * the <code>timeout</code> value, in this case the worker thread 
+     * is interrupted and replaced by a new worker thread.<p>
      * 
      * @param indexer the VFS indexer to create the index thread for 
      * @param writer the index writer that can update the index
@@ -95,67 +174,72 @@ public class CmsIndexingThreadManager {
      */
     public void createIndexingThread(CmsVfsIndexer indexer, I_CmsIndexWriter writer, CmsResource res) {
 
-        I_CmsReport report = indexer.getReport();
-        m_startedCounter++;
-        CmsIndexingThread thread = new CmsIndexingThread(
-            indexer.getCms(),
-            res,
-            indexer.getIndex(),
-            m_startedCounter,
-            report);
-        thread.setPriority(Thread.MIN_PRIORITY);
-        thread.start();
-        try {
-            thread.join(m_timeout);
-        } catch (InterruptedException e) {
-            // ignore
-        }
-        if (thread.isAlive()) {
-            // the thread has not finished - so it must be marked as an abandoned thread 
-            m_abandonedCounter++;
-            thread.interrupt();
-            if (LOG.isWarnEnabled()) {
-                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
-            }
-            if (report != null) {
-                report.println();
-                report.print(
-                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
-                    I_CmsReport.FORMAT_WARNING);
-                report.println(
-                    Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()),
-                    I_CmsReport.FORMAT_WARNING);
-            }
-        } else {
-            // the thread finished normally
-            m_returnedCounter++;
+        // write the documents that have been added first if too many documents are pending
+        while (m_pendingDocuments.size() >= (m_maxThreads * PENDING_DOCUMENTS_PER_THREAD)) {
+            writePendingDocument(m_pendingDocuments.removeFirst());
+        }
+        if (m_executor == null) {
+            m_executor = createExecutor();
         }
-        Document doc = thread.getResult();
-        if (doc != null) {
-            // write the document to the index
-            indexer.updateResource(writer, res.getRootPath(), doc);
+        if (m_startedCounter == 0) {
+            m_startTime = System.currentTimeMillis();
         }
-        if ((m_startedCounter % m_maxModificationsBeforeCommit) == 0) {
+
+        I_CmsReport report = indexer.getReport();
+        if (report instanceof A_CmsReport) {
+            // the output of the task is written to the report when the document is written to the index
+            report = new CmsBufferedReport((A_CmsReport)report);
+        }
+        CmsObject cms = indexer.getCms();
+        if (cms != null) {
             try {
-                writer.commit();
-            } catch (IOException e) {
-                if (LOG.isWarnEnabled()) {
-                    LOG.warn(Messages.get().getBundle().key(
-                        Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
-                        indexer.getIndex().getName(),
-                        indexer.getIndex().getPath()), e);
-                }
+                // the worker threads must not share the request context
+                cms = OpenCms.initCmsObject(cms);
+            } catch (CmsException e) {
+                LOG.warn(e.getLocalizedMessage(), e);
             }
         }
+        m_startedCounter++;
+        final CmsIndexingTask task = createIndexingTask(cms, res, indexer.getIndex(), m_startedCounter, report);
+        m_pendingDocuments.add(new CmsPendingDocument(indexer, writer, task));
+        final ThreadPoolExecutor executor = m_executor;
+        executor.execute(new Runnable() {
+
+            /**
+             * @see java.lang.Runnable#run()
+             */
+            public void run() {
+
+                try {
+                    task.run();
+                } finally {
+                    if (task.isAbandoned()) {
+                        // the worker thread has been replaced, so reduce the pool size again
+                        resizeExecutor(executor, -1);
+                    }
+                }
+            }
+        });
     }
 
     /**
      * Returns if the indexing manager still have indexing threads.<p>
      * 
+     * All pending documents are written to the index before this method returns.<p>
+     * 
      * @return true if the indexing manager still have indexing threads
      */
     public boolean isRunning() {
 
+        while (!m_pendingDocuments.isEmpty()) {
+            writePendingDocument(m_pendingDocuments.removeFirst());
+        }
+        if (m_executor != null) {
+            // abandoned worker threads finish on their own
+            m_executor.shutdown();
+            m_executor = null;
+        }
+
         if (m_lastLogErrorTime <= 0) {
             m_lastLogErrorTime = System.currentTimeMillis();
             m_lastLogWarnTime = m_lastLogErrorTime;
@@ -196,6 +280,8 @@ public class CmsIndexingThreadManager {
      * (equals to the number of indexed files), the number of returned
      * threads (equals to the number of successfully indexed files),
      * and the number of abandoned threads (hanging threads reaching the timeout).
+     * It also reports the throughput in indexed files per second and
+     * the number of characters of text extracted for the indexed documents.<p>
      * 
      * @param report the report to write the statistics to
      */
@@ -209,12 +295,165 @@ public class CmsIndexingThreadManager {
                     new Integer(m_returnedCounter),
                     new Integer(m_abandonedCounter),
                     report.formatRuntime()});
+            long duration = (m_startedCounter > 0) ? Math.max(System.currentTimeMillis() - m_startTime, 1) : 1;
+            CmsMessageContainer throughput = Messages.get().container(
+                Messages.RPT_SEARCH_INDEXING_THROUGHPUT_4,
+                new Object[] {
+                    new Long((m_startedCounter * 1000L) / duration),
+                    new Long(m_extractedLength),
+                    new Long((m_extractedLength * 1000L) / duration),
+                    new Integer(m_maxThreads)});
 
             report.println(message);
+            report.println(throughput);
             if (!(report instanceof CmsLogReport) && LOG.isInfoEnabled()) {
                 // only write to the log if report is not already a log report
                 LOG.info(message.key());
+                LOG.info(throughput.key());
+            }
+        }
+    }
+
+    /**
+     * Creates the indexing task for a resource.<p>
+     * 
+     * @param cms the OpenCms user context of the task
+     * @param res the resource to index
+     * @param index the index to update the resource in
+     * @param count the report count
+     * @param report the report to write the output to
+     * 
+     * @return the indexing task for the resource
+     */
+    protected CmsIndexingTask createIndexingTask(
+        CmsObject cms,
+        CmsResource res,
+        CmsSearchIndex index,
+        int count,
+        I_CmsReport report) {
+
+        return new CmsIndexingTask(cms, res, index, count, report);
+    }
+
+    /**
+     * Creates the pool of worker threads extracting the documents.<p>
+     * 
+     * @return the pool of worker threads
+     */
+    private ThreadPoolExecutor createExecutor() {
+
+        return new ThreadPoolExecutor(
+            m_maxThreads,
+            m_maxThreads,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<Runnable>(),
+            new ThreadFactory() {
+
+                /** The number of the next worker thread. */
+                private int m_threadNumber;
+
+                /**
+                 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+                 */
+                public synchronized Thread newThread(Runnable runnable) {
+
+                    m_threadNumber++;
+                    Thread thread = new Thread(runnable, "OpenCms: Indexing worker " + m_threadNumber);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+    }
+
+    /**
+     * Changes the number of worker threads of the given pool.<p>
+     * 
+     * @param executor the pool of worker threads
+     * @param delta the number of threads to add, or to remove if negative
+     */
+    private void resizeExecutor(ThreadPoolExecutor executor, int delta) {
+
+        synchronized (executor) {
+            if (delta > 0) {
+                executor.setMaximumPoolSize(executor.getMaximumPoolSize() + delta);
+                executor.setCorePoolSize(executor.getCorePoolSize() + delta);
+            } else {
+                executor.setCorePoolSize(executor.getCorePoolSize() + delta);
+                executor.setMaximumPoolSize(executor.getMaximumPoolSize() + delta);
+            }
+        }
+    }
+
+    /**
+     * Waits for the extraction of the given document and writes it to the index.<p>
+     * 
+     * If the extraction does not finish within the timeout, the document is abandoned.<p>
+     * 
+     * @param pending the pending document
+     */
+    private void writePendingDocument(CmsPendingDocument pending) {
+
+        CmsIndexingTask task = pending.m_task;
+        CmsResource res = task.getResource();
+        boolean finished = false;
+        while (!finished) {
+            long startTime = task.getStartTime();
+            // the timeout starts when a worker thread starts the extraction
+            long wait = (startTime > 0) ? ((startTime + m_timeout) - System.currentTimeMillis()) : m_timeout;
+            if (wait <= 0) {
+                break;
+            }
+            try {
+                finished = task.waitFor(wait);
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }
+
+        if (task.getReport() instanceof CmsBufferedReport) {
+            ((CmsBufferedReport)task.getReport()).flush();
+        }
+        if (!finished && task.abandon()) {
+            // the task has not finished - so it must be marked as an abandoned thread 
+            m_abandonedCounter++;
+            // replace the worker thread which is still busy with the abandoned task
+            resizeExecutor(m_executor, 1);
+            if (LOG.isWarnEnabled()) {
+                LOG.warn(Messages.get().getBundle().key(Messages.LOG_INDEXING_TIMEOUT_1, res.getRootPath()));
+            }
+            I_CmsReport report = pending.m_indexer.getReport();
+            if (report != null) {
+                report.println();
+                report.print(
+                    org.opencms.report.Messages.get().container(org.opencms.report.Messages.RPT_FAILED_0),
+                    I_CmsReport.FORMAT_WARNING);
+                report.println(
+                    Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, res.getRootPath()),
+                    I_CmsReport.FORMAT_WARNING);
+            }
+        } else {
+            // the task finished normally
+            m_returnedCounter++;
+            Document doc = task.getResult();
+            if (doc != null) {
+                // write the document to the index
+                pending.m_indexer.updateResource(pending.m_writer, res.getRootPath(), doc);
+                m_extractedLength += task.getExtractedLength();
+            }
+        }
+        if (((m_returnedCounter + m_abandonedCounter) % m_maxModificationsBeforeCommit) == 0) {
+            try {
+                pending.m_writer.commit();
+            } catch (IOException e) {
+                if (LOG.isWarnEnabled()) {
+                    LOG.warn(Messages.get().getBundle().key(
+                        Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
+                        pending.m_indexer.getIndex().getName(),
+                        pending.m_indexer.getIndex().getPath()), e);
+                }
             }
         }
     }
-}
\ No newline at end of file
+}
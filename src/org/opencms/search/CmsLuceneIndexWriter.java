@@ -31,9 +31,12 @@ import org.opencms.main.CmsLog;
 import org.opencms.search.fields.CmsSearchField;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
@@ -107,6 +110,11 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
                     m_index.getName(),
                     m_index.getPath()));
             }
+            Map<String, String> commitUserData = getCommitUserData();
+            if (commitUserData != null) {
+                // make sure the user data is also stored with the final commit
+                m_indexWriter.commit(commitUserData);
+            }
             m_indexWriter.close();
         } finally {
             if ((dir != null) && IndexWriter.isLocked(dir)) {
@@ -126,12 +134,12 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
                 m_index.getName(),
                 m_index.getPath()));
         }
-        m_indexWriter.commit();
+        m_indexWriter.commit(getCommitUserData());
         m_optimizeCounter++;
         if (m_optimizeCounter >= COMMIT_OPTIMIZE_THRESHOLD) {
             // optimize the search index when the threshold is reached
             optimize();
-            m_indexWriter.commit();
+            m_indexWriter.commit(getCommitUserData());
             m_optimizeCounter = 0;
         }
     }
@@ -153,6 +161,19 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
         m_indexWriter.deleteDocuments(term);
     }
 
+    /**
+     * Opens a near real time index reader that contains all changes made with this index writer, 
+     * including the changes that have not been committed yet.<p>
+     * 
+     * @return a near real time index reader for the changes of this index writer
+     * 
+     * @throws IOException in case the reader could not be opened
+     */
+    public IndexReader getReader() throws IOException {
+
+        return IndexReader.open(m_indexWriter, true);
+    }
+
     /**
      * @see org.opencms.search.I_CmsIndexWriter#optimize()
      */
@@ -186,4 +207,22 @@ public class CmsLuceneIndexWriter implements I_CmsIndexWriter {
         }
         m_indexWriter.updateDocument(pathTerm, document);
     }
+
+    /**
+     * Returns the user data to store with a commit of the index.<p>
+     * 
+     * In case the permissions of the resources are stored in the index, this contains 
+     * the time of the last change of permissions, see {@link CmsSearchIndex#getPermissionsChanged()}.<p>
+     * 
+     * @return the user data to store with a commit, or <code>null</code> to keep the data of the previous commit
+     */
+    protected Map<String, String> getCommitUserData() {
+
+        if ((m_index == null) || !m_index.isIndexingPermissions()) {
+            return null;
+        }
+        Map<String, String> result = new HashMap<String, String>();
+        result.put(CmsSearchIndex.COMMIT_DATA_PERMISSIONS_CHANGED, String.valueOf(m_index.getPermissionsChanged()));
+        return result;
+    }
 }
\ No newline at end of file
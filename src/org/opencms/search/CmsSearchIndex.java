@@ -29,10 +29,12 @@ package org.opencms.search;
 
 import org.opencms.configuration.CmsParameterConfiguration;
 import org.opencms.configuration.I_CmsConfigurationParameterHandler;
+import org.opencms.file.CmsGroup;
 import org.opencms.file.CmsObject;
 import org.opencms.file.CmsPropertyDefinition;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
+import org.opencms.file.CmsUser;
 import org.opencms.i18n.CmsLocaleManager;
 import org.opencms.i18n.CmsMessageContainer;
 import org.opencms.main.CmsException;
@@ -44,6 +46,8 @@ import org.opencms.search.documents.I_CmsDocumentFactory;
 import org.opencms.search.documents.I_CmsTermHighlighter;
 import org.opencms.search.fields.CmsSearchField;
 import org.opencms.search.fields.CmsSearchFieldConfiguration;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsRole;
 import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsStringUtil;
 
@@ -59,6 +63,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.lucene.analysis.Analyzer;
@@ -89,8 +94,10 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeFilter;
 import org.apache.lucene.search.TermsFilter;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopFieldCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.Version;
@@ -142,7 +149,12 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         @Override
         public synchronized IndexReader reopen() throws CorruptIndexException, IOException {
 
-            return m_reader.reopen();
+            IndexReader newReader = m_reader.reopen();
+            if (newReader == m_reader) {
+                // the index has not changed
+                return this;
+            }
+            return new LazyContentReader(newReader);
         }
     }
 
@@ -184,6 +196,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         "30",
         "31"};
 
+    /** The key of the Lucene commit user data that contains the time of the last change of permissions indexed. */
+    public static final String COMMIT_DATA_PERMISSIONS_CHANGED = "opencms.permissionsChanged";
+
     /** Constant for a field list that contains the "meta" field as well as the "content" field. */
     public static final String[] DOC_META_FIELDS = new String[] {
         CmsSearchField.FIELD_META,
@@ -195,6 +210,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** Constant for additional parameter for index content extraction. */
     public static final String EXTRACT_CONTENT = CmsSearchIndex.class.getName() + ".extractContent";
 
+    /** Constant for additional parameter to store the permissions of the resources in the index (default: false). */
+    public static final String INDEX_PERMISSIONS = CmsSearchIndex.class.getName() + ".indexPermissions";
+
     /** Constant for additional parameter for the Lucene index setting. */
     public static final String LUCENE_AUTO_COMMIT = "lucene.AutoCommit";
 
@@ -222,6 +240,15 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** Constant for years max range span in document search. */
     public static final int MAX_YEAR_RANGE = 12;
 
+    /** Constant for additional parameter to set the commit interval for near real time updates (in milliseconds). */
+    public static final String NRT_COMMIT_INTERVAL = CmsSearchIndex.class.getName() + ".nrtCommitInterval";
+
+    /** The default interval for committing near real time updates (300000 msec = 5 min). */
+    public static final long NRT_COMMIT_INTERVAL_DEFAULT = 300000;
+
+    /** Constant for additional parameter to enable near real time updates with a refresh interval (in milliseconds). */
+    public static final String NRT_REFRESH_INTERVAL = CmsSearchIndex.class.getName() + ".nrtRefreshInterval";
+
     /** Constant for additional parameter to enable permission checks (default: true). */
     public static final String PERMISSIONS = CmsSearchIndex.class.getName() + ".checkPermissions";
 
@@ -243,6 +270,15 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** Offline ("offline") index rebuild mode. */
     public static final String REBUILD_MODE_OFFLINE = "offline";
 
+    /** Constant for additional parameter to set the maximum age of cached search results (in seconds). */
+    public static final String RESULT_CACHE_MAX_AGE = CmsSearchIndex.class.getName() + ".resultCacheMaxAge";
+
+    /** The default maximum age of cached search results (in seconds). */
+    public static final int RESULT_CACHE_MAX_AGE_DEFAULT = 300;
+
+    /** Constant for additional parameter to set the maximum number of cached search results, 0 disables the cache. */
+    public static final String RESULT_CACHE_SIZE = CmsSearchIndex.class.getName() + ".resultCacheSize";
+
     /** Constant for additional parameter to enable time range checks (default: true). */
     public static final String TIME_RANGE = CmsSearchIndex.class.getName() + ".checkTimeRange";
 
@@ -301,8 +337,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The excerpt mode for this index. */
     private boolean m_createExcerpt;
 
-    /** Map of display query filters to use. */
-    private Map<String, Filter> m_displayFilters;
+    /** Map of display query filters to use, shared by all concurrent searches. */
+    private volatile Map<String, Filter> m_displayFilters;
 
     /** Document types of folders/channels. */
     private Map<String, List<String>> m_documenttypes;
@@ -319,8 +355,14 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The name of the search field configuration used by this index. */
     private String m_fieldConfigurationName;
 
-    /** The Lucene index searcher to use. */
-    private IndexSearcher m_indexSearcher;
+    /** The Lucene index searcher to use, searches must acquire it with {@link #acquireSearcher()}. */
+    private volatile IndexSearcher m_indexSearcher;
+
+    /** The lock used when the index searcher is acquired or replaced. */
+    private final Object m_indexSearcherLock = new Object();
+
+    /** Indicates if the permissions of the resources are stored in the index. */
+    private boolean m_indexPermissions;
 
     /** The Lucene index writer to use. */
     private I_CmsIndexWriter m_indexWriter;
@@ -346,9 +388,30 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The name of this index. */
     private String m_name;
 
+    /** The interval for committing near real time updates (in milliseconds). */
+    private long m_nrtCommitInterval;
+
+    /** Indicates if the index writer has changes that have not been committed yet. */
+    private volatile boolean m_nrtCommitPending;
+
+    /** The time of the last commit of near real time updates, or of the first change after that commit. */
+    private long m_nrtLastCommit;
+
+    /** The time of the last refresh of the index searcher with near real time updates. */
+    private long m_nrtLastRefresh;
+
+    /** The interval for refreshing the index searcher with near real time updates (in milliseconds), 0 if disabled. */
+    private long m_nrtRefreshInterval;
+
+    /** Indicates if the index writer has changes that are not visible to searches yet. */
+    private volatile boolean m_nrtRefreshPending;
+
     /** The path where this index stores it's data in the "real" file system. */
     private String m_path;
 
+    /** The time of the last change of permissions that may not be reflected in the documents of this index. */
+    private volatile long m_permissionsChanged;
+
     /** The thread priority for a search. */
     private int m_priority;
 
@@ -358,6 +421,15 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     /** The rebuild mode for this index. */
     private String m_rebuild;
 
+    /** The cache for the search results, <code>null</code> if search results are not cached. */
+    private volatile CmsSearchResultCache m_resultCache;
+
+    /** The maximum age of cached search results (in seconds). */
+    private int m_resultCacheMaxAge;
+
+    /** The maximum number of cached search results. */
+    private int m_resultCacheSize;
+
     /** The configured sources for this index. */
     private List<String> m_sourceNames;
 
@@ -379,6 +451,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         m_enabled = true;
         m_priority = -1;
         m_maxHits = MAX_HITS_DEFAULT;
+        m_resultCacheMaxAge = RESULT_CACHE_MAX_AGE_DEFAULT;
+        m_nrtCommitInterval = NRT_COMMIT_INTERVAL_DEFAULT;
     }
 
     /**
@@ -538,6 +612,29 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return result;
     }
 
+    /**
+     * Acquires the current Lucene index searcher of this index for a search operation.<p>
+     * 
+     * The index reader of the returned searcher is reference counted, so it is not closed 
+     * when the index is changed while the search is running. Every searcher acquired with 
+     * this method must be released with {@link #releaseSearcher(IndexSearcher)} after the 
+     * search is finished, usually in a <code>finally</code> block.<p>
+     * 
+     * @return the current Lucene index searcher of this index, or <code>null</code> if no searcher is open
+     * 
+     * @see #releaseSearcher(IndexSearcher)
+     */
+    public IndexSearcher acquireSearcher() {
+
+        synchronized (m_indexSearcherLock) {
+            IndexSearcher searcher = m_indexSearcher;
+            if ((searcher != null) && (searcher.getIndexReader() != null)) {
+                searcher.getIndexReader().incRef();
+            }
+            return searcher;
+        }
+    }
+
     /**
      * Adds a parameter.<p>
      * 
@@ -556,6 +653,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             m_extractContent = Boolean.valueOf(value).booleanValue();
         } else if (BACKUP_REINDEXING.equals(key)) {
             m_backupReindexing = Boolean.valueOf(value).booleanValue();
+        } else if (INDEX_PERMISSIONS.equals(key)) {
+            m_indexPermissions = Boolean.valueOf(value).booleanValue();
         } else if (MAX_HITS.equals(key)) {
             try {
                 m_maxHits = Integer.parseInt(value);
@@ -603,6 +702,32 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             }
         } else if (LUCENE_USE_COMPOUND_FILE.equals(key)) {
             m_luceneUseCompoundFile = Boolean.valueOf(value);
+        } else if (NRT_REFRESH_INTERVAL.equals(key)) {
+            try {
+                m_nrtRefreshInterval = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
+            }
+        } else if (NRT_COMMIT_INTERVAL.equals(key)) {
+            try {
+                m_nrtCommitInterval = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
+            }
+        } else if (RESULT_CACHE_SIZE.equals(key)) {
+            try {
+                m_resultCacheSize = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
+            }
+            initResultCache();
+        } else if (RESULT_CACHE_MAX_AGE.equals(key)) {
+            try {
+                m_resultCacheMaxAge = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.LOG_INVALID_PARAM_3, value, key, getName()));
+            }
+            initResultCache();
         }
     }
 
@@ -697,6 +822,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         if (!isCheckingPermissions()) {
             result.put(PERMISSIONS, String.valueOf(m_checkPermissions));
         }
+        if (isIndexingPermissions()) {
+            result.put(INDEX_PERMISSIONS, String.valueOf(m_indexPermissions));
+        }
         // always write time range check parameter because of logic change in OpenCms 8.0
         result.put(TIME_RANGE, String.valueOf(m_checkTimeRange));
         if (isBackupReindexing()) {
@@ -718,6 +846,18 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         if (m_luceneUseCompoundFile != null) {
             result.put(LUCENE_USE_COMPOUND_FILE, String.valueOf(m_luceneUseCompoundFile));
         }
+        if (isNearRealTime()) {
+            result.put(NRT_REFRESH_INTERVAL, String.valueOf(m_nrtRefreshInterval));
+        }
+        if (m_nrtCommitInterval != NRT_COMMIT_INTERVAL_DEFAULT) {
+            result.put(NRT_COMMIT_INTERVAL, String.valueOf(m_nrtCommitInterval));
+        }
+        if (m_resultCacheSize > 0) {
+            result.put(RESULT_CACHE_SIZE, String.valueOf(m_resultCacheSize));
+        }
+        if (m_resultCacheMaxAge != RESULT_CACHE_MAX_AGE_DEFAULT) {
+            result.put(RESULT_CACHE_MAX_AGE, String.valueOf(m_resultCacheMaxAge));
+        }
         return result;
     }
 
@@ -731,7 +871,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
     public Document getDocument(String rootPath) {
 
         Document result = null;
-        IndexSearcher searcher = getSearcher();
+        IndexSearcher searcher = acquireSearcher();
         if (searcher != null) {
             // search for an exact match on the document root path
             Term pathTerm = new Term(CmsSearchField.FIELD_PATH, rootPath);
@@ -742,6 +882,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 }
             } catch (IOException e) {
                 // ignore, return null and assume document was not found
+            } finally {
+                releaseSearcher(searcher);
             }
         }
         return result;
@@ -825,6 +967,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 try {
                     m_indexWriter.close();
                     m_indexWriter = null;
+                    // all pending near real time updates have been committed with the close
+                    m_nrtCommitPending = false;
                 } catch (IOException e) {
                     // if we can't close the index we are busted!
                     throw new CmsIndexException(Messages.get().container(
@@ -918,6 +1062,31 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_name;
     }
 
+    /**
+     * Returns the interval for committing near real time updates to the index directory (in milliseconds).<p>
+     * 
+     * @return the interval for committing near real time updates
+     * 
+     * @see #isNearRealTime()
+     */
+    public long getNrtCommitInterval() {
+
+        return m_nrtCommitInterval;
+    }
+
+    /**
+     * Returns the interval for exposing near real time updates to searches (in milliseconds), 
+     * or <code>0</code> if near real time updates are disabled.<p>
+     * 
+     * @return the interval for exposing near real time updates to searches
+     * 
+     * @see #isNearRealTime()
+     */
+    public long getNrtRefreshInterval() {
+
+        return m_nrtRefreshInterval;
+    }
+
     /**
      * Returns the path where this index stores it's data in the "real" file system.<p>
      * 
@@ -948,6 +1117,20 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_project;
     }
 
+    /**
+     * Returns the time of the last change of permissions that may not be reflected 
+     * in the documents of this index.<p>
+     * 
+     * The permissions stored in documents indexed before this time are verified 
+     * for every search result, see {@link #isIndexingPermissions()}.<p>
+     * 
+     * @return the time of the last change of permissions
+     */
+    public long getPermissionsChanged() {
+
+        return m_permissionsChanged;
+    }
+
     /**
      * Get the rebuild mode of this index.<p>
      * 
@@ -958,8 +1141,24 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_rebuild;
     }
 
+    /**
+     * Returns the cache for the search results of this index.<p>
+     * 
+     * The cache is enabled with the parameter {@link #RESULT_CACHE_SIZE}.<p>
+     * 
+     * @return the cache for the search results of this index, or <code>null</code> if results are not cached
+     */
+    public CmsSearchResultCache getResultCache() {
+
+        return m_resultCache;
+    }
+
     /**
      * Returns the Lucene index searcher used for this search index.<p>
+     * 
+     * The returned searcher may be replaced and closed at any time in case the index is changed. 
+     * Use {@link #acquireSearcher()} in order to obtain a searcher that stays open 
+     * until the search is finished.<p>
      *
      * @return the Lucene index searcher used for this search index
      */
@@ -1170,6 +1369,40 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_extractContent;
     }
 
+    /**
+     * Returns <code>true</code> if the permissions of the resources are stored in this index.<p>
+     * 
+     * If this is enabled, the principals that are allowed or denied to read a resource are 
+     * indexed with the resource document. Searches then use these fields to filter the results 
+     * for the current user, instead of reading every resource of the result from the VFS.
+     * Only documents that have been indexed before the last change of permissions 
+     * are still checked against the VFS.<p>
+     * 
+     * This has no effect in case permissions are not checked at all, see {@link #isCheckingPermissions()}.<p>
+     * 
+     * @return <code>true</code> if the permissions of the resources are stored in this index
+     */
+    public boolean isIndexingPermissions() {
+
+        return m_indexPermissions;
+    }
+
+    /**
+     * Returns <code>true</code> if this index is updated in near real time mode.<p>
+     * 
+     * In near real time mode, incremental updates are not committed and the index searcher 
+     * is not reopened from the index directory after each update. Instead, the index searcher is refreshed 
+     * with a reader of the long living index writer every {@link #getNrtRefreshInterval()} milliseconds 
+     * in case there are new changes, and the changes are committed every {@link #getNrtCommitInterval()} 
+     * milliseconds.<p>
+     * 
+     * @return <code>true</code> if this index is updated in near real time mode
+     */
+    public boolean isNearRealTime() {
+
+        return m_nrtRefreshInterval > 0;
+    }
+
     /**
      * Returns <code>true</code> if a resource requires read permission to be incuded in the result list.<p>
      * 
@@ -1180,6 +1413,27 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return m_requireViewPermission;
     }
 
+    /**
+     * Releases a Lucene index searcher that has been obtained with {@link #acquireSearcher()}.<p>
+     * 
+     * In case the index searcher has been replaced in the meantime and this was 
+     * the last search using it, the index reader of the searcher is closed.<p>
+     * 
+     * @param searcher the searcher to release, may be <code>null</code>
+     * 
+     * @see #acquireSearcher()
+     */
+    public void releaseSearcher(IndexSearcher searcher) {
+
+        if ((searcher != null) && (searcher.getIndexReader() != null)) {
+            try {
+                searcher.getIndexReader().decRef();
+            } catch (IOException e) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_CLOSE_1, getName()), e);
+            }
+        }
+    }
+
     /**
      * Removes an index source from this search index.<p>
      * 
@@ -1194,12 +1448,19 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      * Performs a search on the index within the given fields.<p>
      * 
      * The result is returned as List with entries of type I_CmsSearchResult.<p>
+     * 
+     * Searches do not block each other, every search uses the index searcher 
+     * that was current when the search started until the search is finished.<p>
+     * 
+     * In case a result cache is configured for this index, the result is cached for the 
+     * search parameters and the permission context of the user, see {@link #getResultCache()}.<p>
+     * 
      * @param cms the current user's Cms object
      * @param params the parameters to use for the search
      * @return the List of results found or an empty list
      * @throws CmsSearchException if something goes wrong
      */
-    public synchronized CmsSearchResultList search(CmsObject cms, CmsSearchParameters params) throws CmsSearchException {
+    public CmsSearchResultList search(CmsObject cms, CmsSearchParameters params) throws CmsSearchException {
 
         long timeTotal = -System.currentTimeMillis();
         long timeLucene;
@@ -1217,6 +1478,13 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
         int previousPriority = Thread.currentThread().getPriority();
 
+        // the result cache must be checked before the searcher is acquired, so that outdated results are not cached
+        CmsSearchResultCache resultCache = m_resultCache;
+        long cacheGeneration = (resultCache != null) ? resultCache.getGeneration() : 0;
+
+        // the searcher is used for the whole search, even if the index is updated in the meantime
+        IndexSearcher searcher = acquireSearcher();
+
         try {
             // copy the user OpenCms context
             CmsObject searchCms = OpenCms.initCmsObject(cms);
@@ -1229,6 +1497,21 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             // change the project     
             searchCms.getRequestContext().setCurrentProject(searchCms.readProject(getProject()));
 
+            // the user, groups and roles are required for the permission filter and the result cache
+            List<String> principals = null;
+            if (isCheckingPermissions() && (isIndexingPermissions() || (resultCache != null))) {
+                principals = getPermissionPrincipals(searchCms);
+            }
+
+            String cacheKey = null;
+            if (resultCache != null) {
+                cacheKey = CmsSearchResultCache.getKey(params, getResultCacheContext(searchCms, principals));
+                CmsSearchResultList cachedResults = resultCache.get(cacheKey, params);
+                if (cachedResults != null) {
+                    return cachedResults;
+                }
+            }
+
             timeLucene = -System.currentTimeMillis();
 
             // several search options are searched using filters
@@ -1248,6 +1531,13 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             // append date created filter
             filter = appendDateCreatedFilter(filter, params.getMinDateCreated(), params.getMaxDateCreated());
 
+            // append the permission filter in case the permissions are stored in the index
+            String permissionsDate = null;
+            if (isCheckingPermissions() && isIndexingPermissions() && (principals != null)) {
+                permissionsDate = DateTools.timeToString(getPermissionsChanged(), DateTools.Resolution.MINUTE);
+                filter = appendPermissionFilter(searchCms, filter, principals, permissionsDate);
+            }
+
             // the search query to use, will be constructed in the next lines 
             Query query = null;
             // store separate fields query for excerpt highlighting  
@@ -1298,7 +1588,7 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                     if (shouldOccur != null) {
                         booleanFieldsQuery.add(shouldOccur, BooleanClause.Occur.MUST);
                     }
-                    fieldsQuery = getSearcher().rewrite(booleanFieldsQuery);
+                    fieldsQuery = searcher.rewrite(booleanFieldsQuery);
                 } else if ((params.getFields() != null) && (params.getFields().size() > 0)) {
                     // no individual field queries have been defined, so use one query for all fields 
                     BooleanQuery booleanFieldsQuery = new BooleanQuery();
@@ -1308,11 +1598,11 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                         QueryParser p = new QueryParser(LUCENE_VERSION, params.getFields().get(i), getAnalyzer());
                         booleanFieldsQuery.add(p.parse(params.getQuery()), BooleanClause.Occur.SHOULD);
                     }
-                    fieldsQuery = getSearcher().rewrite(booleanFieldsQuery);
+                    fieldsQuery = searcher.rewrite(booleanFieldsQuery);
                 } else {
                     // if no fields are provided, just use the "content" field by default
                     QueryParser p = new QueryParser(LUCENE_VERSION, CmsSearchField.FIELD_CONTENT, getAnalyzer());
-                    fieldsQuery = getSearcher().rewrite(p.parse(params.getQuery()));
+                    fieldsQuery = searcher.rewrite(p.parse(params.getQuery()));
                 }
 
                 // finally set the main query to the fields query
@@ -1337,9 +1627,9 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             if (params.isCalculateCategories()) {
                 // USE THIS OPTION WITH CAUTION
                 // this may slow down searched by an order of magnitude
-                categoryCollector = new CmsSearchCategoryCollector(getSearcher());
+                categoryCollector = new CmsSearchCategoryCollector(searcher);
                 // perform a first search to collect the categories
-                getSearcher().search(query, filter, categoryCollector);
+                searcher.search(query, filter, categoryCollector);
                 // store the result
                 searchResults.setCategories(categoryCollector.getCategoryCountResult());
             }
@@ -1347,11 +1637,10 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             // perform the search operation          
             if ((params.getSort() == null) || (params.getSort() == CmsSearchParameters.SORT_DEFAULT)) {
                 // apparently scoring is always enabled by Lucene if no sort order is provided
-                hits = getSearcher().search(query, filter, m_maxHits);
+                hits = searcher.search(query, filter, m_maxHits);
             } else {
                 // if  a sort order is provided, we must check if scoring must be calculated by the searcher
-                prepareSortScoring(m_indexSearcher, params.getSort());
-                hits = getSearcher().search(query, filter, m_maxHits, params.getSort());
+                hits = searchSorted(searcher, query, filter, params.getSort(), isSortScoring(params.getSort()));
             }
 
             timeLucene += System.currentTimeMillis();
@@ -1380,8 +1669,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 int visibleHitCount = hitCount;
                 for (int i = 0, cnt = 0; (i < hitCount) && (cnt < end); i++) {
                     try {
-                        doc = getSearcher().doc(hits.scoreDocs[i].doc);
-                        if ((isInTimeRange(doc, params)) && (hasReadPermission(searchCms, doc))) {
+                        doc = searcher.doc(hits.scoreDocs[i].doc);
+                        if ((isInTimeRange(doc, params)) && (hasReadPermission(searchCms, doc, permissionsDate))) {
                             // user has read permission
                             if (cnt >= start) {
                                 // do not use the resource to obtain the raw content, read it from the lucene document!
@@ -1414,6 +1703,10 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 searchResults.setHitCount(0);
             }
 
+            if (resultCache != null) {
+                resultCache.put(cacheKey, searchResults, params.getParsedQuery(), cacheGeneration);
+            }
+
             timeResultProcessing += System.currentTimeMillis();
         } catch (RuntimeException e) {
             throw new CmsSearchException(Messages.get().container(Messages.ERR_SEARCH_PARAMS_1, params), e);
@@ -1423,6 +1716,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
 
             // re-set thread to previous priority
             Thread.currentThread().setPriority(previousPriority);
+            // release the searcher, this closes the index reader in case the index has been updated during the search
+            releaseSearcher(searcher);
         }
 
         if (LOG.isDebugEnabled()) {
@@ -1753,6 +2048,96 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         return filter;
     }
 
+    /**
+     * Appends a filter to the given filter clause that matches all documents the user 
+     * with the given principals is allowed to read according to the permissions stored in the index.<p>
+     * 
+     * This evaluates the indexed access control entries the same way as 
+     * {@link org.opencms.security.CmsAccessControlList#getPermissions(CmsUser, List, List)}: 
+     * The permissions of all matching principals are combined, denied permissions win, 
+     * and the "all others" entry is used only in case no entry matches.
+     * Documents without indexed permissions and documents indexed up to the given date are 
+     * always matched, these are checked against the VFS in {@link #hasReadPermission(CmsObject, Document, String)}.<p>
+     * 
+     * The original filter parameter is extended and also provided as return value.<p> 
+     * 
+     * @param cms the current OpenCms search context
+     * @param filter the filter to extend
+     * @param principals the ids of the user, the groups and the roles of the user
+     * @param permissionsDate the date of the last change of permissions, as indexed in {@link CmsSearchField#FIELD_PERMISSIONS_DATE} 
+     * 
+     * @return the extended filter clause
+     */
+    protected BooleanFilter appendPermissionFilter(
+        CmsObject cms,
+        BooleanFilter filter,
+        List<String> principals,
+        String permissionsDate) {
+
+        String allOthers = CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID.toString();
+        String userId = cms.getRequestContext().getCurrentUser().getId().toString();
+
+        // one of the principals is allowed and none is denied
+        BooleanFilter principalFilter = new BooleanFilter();
+        principalFilter.add(new FilterClause(
+            getPrincipalFilter(CmsSearchField.FIELD_PERMISSIONS_READ_ALLOWED, principals, userId),
+            BooleanClause.Occur.MUST));
+        principalFilter.add(new FilterClause(
+            getPrincipalFilter(CmsSearchField.FIELD_PERMISSIONS_READ_DENIED, principals, userId),
+            BooleanClause.Occur.MUST_NOT));
+
+        // none of the principals has an entry, but "all others" are allowed
+        BooleanFilter allOthersFilter = new BooleanFilter();
+        allOthersFilter.add(new FilterClause(
+            getPrincipalFilter(CmsSearchField.FIELD_PERMISSIONS_PRINCIPALS, principals, userId),
+            BooleanClause.Occur.MUST_NOT));
+        allOthersFilter.add(new FilterClause(
+            getTermQueryFilter(CmsSearchField.FIELD_PERMISSIONS_READ_ALLOWED, allOthers),
+            BooleanClause.Occur.MUST));
+        allOthersFilter.add(new FilterClause(
+            getTermQueryFilter(CmsSearchField.FIELD_PERMISSIONS_READ_DENIED, allOthers),
+            BooleanClause.Occur.MUST_NOT));
+
+        if (isRequireViewPermission()) {
+            // the view permission is combined the same way as the read permission
+            principalFilter.add(new FilterClause(
+                getPrincipalFilter(CmsSearchField.FIELD_PERMISSIONS_VIEW_ALLOWED, principals, userId),
+                BooleanClause.Occur.MUST));
+            principalFilter.add(new FilterClause(
+                getPrincipalFilter(CmsSearchField.FIELD_PERMISSIONS_VIEW_DENIED, principals, userId),
+                BooleanClause.Occur.MUST_NOT));
+            allOthersFilter.add(new FilterClause(
+                getTermQueryFilter(CmsSearchField.FIELD_PERMISSIONS_VIEW_ALLOWED, allOthers),
+                BooleanClause.Occur.MUST));
+            allOthersFilter.add(new FilterClause(
+                getTermQueryFilter(CmsSearchField.FIELD_PERMISSIONS_VIEW_DENIED, allOthers),
+                BooleanClause.Occur.MUST_NOT));
+        }
+
+        // documents without indexed permissions, these always contain the "all others" principal 
+        BooleanFilter notIndexedFilter = new BooleanFilter();
+        notIndexedFilter.add(new FilterClause(
+            getTermQueryFilter(CmsSearchField.FIELD_PERMISSIONS_PRINCIPALS, allOthers),
+            BooleanClause.Occur.MUST_NOT));
+
+        // documents indexed before the last change of permissions, not cached since the date changes
+        Filter outdatedFilter = new TermRangeFilter(
+            CmsSearchField.FIELD_PERMISSIONS_DATE,
+            null,
+            permissionsDate,
+            true,
+            true);
+
+        BooleanFilter permissionFilter = new BooleanFilter();
+        permissionFilter.add(new FilterClause(principalFilter, BooleanClause.Occur.SHOULD));
+        permissionFilter.add(new FilterClause(allOthersFilter, BooleanClause.Occur.SHOULD));
+        permissionFilter.add(new FilterClause(notIndexedFilter, BooleanClause.Occur.SHOULD));
+        permissionFilter.add(new FilterClause(outdatedFilter, BooleanClause.Occur.SHOULD));
+
+        filter.add(new FilterClause(permissionFilter, BooleanClause.Occur.MUST));
+        return filter;
+    }
+
     /**
      * Appends the a resource type filter to the given filter clause that matches all given resource types.<p>
      * 
@@ -1965,7 +2350,8 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             }
             termsStr = buf.toString();
         }
-        Filter result = m_displayFilters.get((new StringBuffer(64)).append(field).append('|').append(termsStr).toString());
+        String key = (new StringBuffer(64)).append(field).append('|').append(termsStr).toString();
+        Filter result = m_displayFilters.get(key);
         if (result == null) {
             TermsFilter filter = new TermsFilter();
             if (termsList == null) {
@@ -1975,11 +2361,118 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 filter.addTerm(new Term(field, termsList.get(i)));
             }
             result = new CachingWrapperFilter(filter);
-            m_displayFilters.put(field + termsStr, result);
+            m_displayFilters.put(key, result);
         }
         return result;
     }
 
+    /**
+     * Returns the ids of the user, the groups and the roles of the user of the given OpenCms context, 
+     * as used in the permission fields of the index.<p>
+     * 
+     * In case the user can ignore the permissions of some resources, or the groups and roles of the user 
+     * can not be read, <code>null</code> is returned and the permissions must be checked for every result.<p>
+     * 
+     * @param cms the OpenCms user context to get the principals for
+     * 
+     * @return the ids of the principals of the user, or <code>null</code>
+     */
+    protected List<String> getPermissionPrincipals(CmsObject cms) {
+
+        CmsUser user = cms.getRequestContext().getCurrentUser();
+        try {
+            List<String> result = new ArrayList<String>();
+            result.add(user.getId().toString());
+            for (CmsGroup group : cms.getGroupsOfUser(user.getName(), false)) {
+                result.add(group.getId().toString());
+            }
+            if (!user.isGuestUser()) {
+                List<CmsRole> roles = OpenCms.getRoleManager().getRolesOfUser(
+                    cms,
+                    user.getName(),
+                    "",
+                    true,
+                    false,
+                    false);
+                for (CmsRole role : roles) {
+                    for (CmsRole parent = CmsRole.VFS_MANAGER; parent != null; parent = parent.getParentRole()) {
+                        if (parent.getRoleName().equals(role.getRoleName())) {
+                            // users with this role can ignore the permissions in their organizational unit
+                            return null;
+                        }
+                    }
+                    result.add(role.getId().toString());
+                }
+            }
+            // sort the ids so that the cached filters can be reused
+            Collections.sort(result);
+            return result;
+        } catch (CmsException e) {
+            LOG.warn(
+                Messages.get().getBundle().key(Messages.LOG_READ_PERMISSION_PRINCIPALS_FAILED_1, user.getName()),
+                e);
+        }
+        return null;
+    }
+
+    /**
+     * Returns a filter that matches all documents containing one of the given principals in the given field.<p>
+     * 
+     * The term filters of the groups and roles are cached, since these are shared by many users.
+     * The term filter of the current user is not cached, so the number of cached filters 
+     * does not grow with the number of users that search this index.<p>
+     * 
+     * @param field the permission field to use
+     * @param principals the ids of the user, the groups and the roles of the user
+     * @param userId the id of the user
+     * 
+     * @return a filter that matches all documents containing one of the given principals in the given field
+     */
+    protected Filter getPrincipalFilter(String field, List<String> principals, String userId) {
+
+        BooleanFilter result = new BooleanFilter();
+        for (String principal : principals) {
+            Filter principalFilter;
+            if (principal.equals(userId)) {
+                TermsFilter userFilter = new TermsFilter();
+                userFilter.addTerm(new Term(field, principal));
+                principalFilter = userFilter;
+            } else {
+                principalFilter = getTermQueryFilter(field, principal);
+            }
+            result.add(new FilterClause(principalFilter, BooleanClause.Occur.SHOULD));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the permission context of the user for the result cache.<p>
+     * 
+     * In case the permissions are checked by this index, the results are cached per user, since access 
+     * control entries can be set for single users as well as for groups and roles. 
+     * Otherwise all users of a site share the cached results.<p>
+     * 
+     * @param cms the current users OpenCms context
+     * @param principals the ids of the user and the groups and roles of the user, 
+     *      or <code>null</code> if they are not available, see {@link #getPermissionPrincipals(CmsObject)}
+     * 
+     * @return the permission context of the user for the result cache
+     */
+    protected String getResultCacheContext(CmsObject cms, List<String> principals) {
+
+        StringBuffer result = new StringBuffer(128);
+        result.append(cms.getRequestContext().getSiteRoot());
+        if (isCheckingPermissions()) {
+            result.append(':');
+            if (principals != null) {
+                result.append(principals);
+            } else {
+                result.append(cms.getRequestContext().getCurrentUser().getId());
+            }
+        }
+        return result.toString();
+    }
+
     /**
      * Returns a cached Lucene term query filter for the given field and term.<p>
      * 
@@ -2003,6 +2496,28 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      */
     protected boolean hasReadPermission(CmsObject cms, Document doc) {
 
+        return hasReadPermission(cms, doc, null);
+    }
+
+    /**
+     * Checks if the OpenCms resource referenced by the result document can be read 
+     * be the user of the given OpenCms context.<p>
+     * 
+     * In case the search results have already been filtered by the permissions stored in the index, 
+     * the resource is only read from the VFS if the document has been indexed before the last change of permissions. 
+     * Otherwise only the release and expiration date stored in the document is checked.<p>
+     * 
+     * @param cms the OpenCms user context to use for permission testing
+     * @param doc the search result document to check
+     * @param permissionsDate the date of the last change of permissions used to filter the results, 
+     *      or <code>null</code> if the results have not been filtered by permissions
+     * 
+     * @return <code>true</code> if the user has read permissions to the resource
+     * 
+     * @see #appendPermissionFilter(CmsObject, BooleanFilter, List, String)
+     */
+    protected boolean hasReadPermission(CmsObject cms, Document doc, String permissionsDate) {
+
         if (!isCheckingPermissions()) {
             // no permission check is performed at all
             return true;
@@ -2022,6 +2537,22 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             return true;
         }
 
+        if (permissionsDate != null) {
+            Fieldable dateField = doc.getFieldable(CmsSearchField.FIELD_PERMISSIONS_DATE);
+            if ((dateField != null) && (dateField.stringValue().compareTo(permissionsDate) > 0)) {
+                // the permissions have been checked by the filter, just check the release and expiration date
+                Fieldable releasedField = doc.getFieldable(CmsSearchField.FIELD_DATE_RELEASED);
+                Fieldable expiredField = doc.getFieldable(CmsSearchField.FIELD_DATE_EXPIRED);
+                if ((releasedField != null) && (expiredField != null)) {
+                    long time = cms.getRequestContext().getRequestTime();
+                    long released = Long.parseLong(releasedField.stringValue());
+                    long expired = Long.parseLong(expiredField.stringValue());
+                    return ((time > released) && (time < expired))
+                        || (time == CmsResource.DATE_RELEASED_EXPIRED_IGNORE);
+                }
+            }
+        }
+
         // check if the resource exits in the VFS, 
         // this will implicitly check read permission and if the resource was deleted
         String contextPath = cms.getRequestContext().removeSiteRoot(pathField.stringValue());
@@ -2040,25 +2571,20 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      */
     protected synchronized void indexSearcherClose() {
 
-        indexSearcherClose(m_indexSearcher);
+        indexSearcherClose(indexSearcherSwap(null));
     }
 
     /**
      * Closes the given Lucene index searcher.<p>
      * 
+     * The index reader of the searcher is closed as soon as all searches 
+     * that currently use the searcher are finished.<p>
+     * 
      * @param searcher the searcher to close
      */
     protected void indexSearcherClose(IndexSearcher searcher) {
 
-        // in case there is an index searcher available close it
-        if ((searcher != null) && (searcher.getIndexReader() != null)) {
-            try {
-                searcher.getIndexReader().close();
-                searcher.close();
-            } catch (Exception e) {
-                LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_CLOSE_1, getName()), e);
-            }
-        }
+        releaseSearcher(searcher);
     }
 
     /**
@@ -2081,12 +2607,18 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             Directory indexDirectory = FSDirectory.open(new File(path));
             if (IndexReader.indexExists(indexDirectory)) {
                 IndexReader reader = new LazyContentReader(IndexReader.open(indexDirectory));
-                if (m_indexSearcher != null) {
-                    // store old searcher instance to close it later
-                    oldSearcher = m_indexSearcher;
+                if (isIndexingPermissions()) {
+                    // restore the time of the last change of permissions from the index
+                    String permissionsChanged = IndexReader.getCommitUserData(indexDirectory).get(
+                        COMMIT_DATA_PERMISSIONS_CHANGED);
+                    if (permissionsChanged != null) {
+                        updatePermissionsChanged(Long.parseLong(permissionsChanged));
+                    }
                 }
-                m_indexSearcher = new IndexSearcher(reader);
-                m_displayFilters = new HashMap<String, Filter>();
+                // the cached filters belong to the old reader
+                m_displayFilters = new ConcurrentHashMap<String, Filter>();
+                // store old searcher instance to close it later
+                oldSearcher = indexSearcherSwap(new IndexSearcher(reader));
             }
         } catch (IOException e) {
             LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_1, getName()), e);
@@ -2097,6 +2629,40 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         }
     }
 
+    /**
+     * Refreshes the Lucene index searcher for this index with the near real time updates 
+     * of the index writer.<p>
+     * 
+     * The index searcher is only refreshed in case there are updates that are not visible to searches yet, 
+     * and the last refresh is at least {@link #getNrtRefreshInterval()} milliseconds ago.<p>
+     * 
+     * @param force if <code>true</code>, the searcher is refreshed regardless of the refresh interval
+     * 
+     * @see #indexWriterUpdated()
+     */
+    protected synchronized void indexSearcherRefresh(boolean force) {
+
+        long now = System.currentTimeMillis();
+        if (!m_nrtRefreshPending || (!force && ((now - m_nrtLastRefresh) < m_nrtRefreshInterval))) {
+            return;
+        }
+        m_nrtRefreshPending = false;
+        m_nrtLastRefresh = now;
+        if (m_indexWriter instanceof CmsLuceneIndexWriter) {
+            try {
+                IndexReader reader = new LazyContentReader(((CmsLuceneIndexWriter)m_indexWriter).getReader());
+                // searches still running will finish with the old reader
+                indexSearcherClose(indexSearcherSwap(new IndexSearcher(reader)));
+            } catch (Exception e) {
+                LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_REOPEN_1, getName()), e);
+            }
+        } else {
+            // the index writer can not provide a near real time reader, so the changes must be committed first
+            indexWriterCommit(true);
+            indexSearcherUpdate();
+        }
+    }
+
     /**
      * Reopens the Lucene index search reader for this index, required after the index has been changed.<p>
      * 
@@ -2104,17 +2670,50 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      */
     protected synchronized void indexSearcherUpdate() {
 
-        // in case there is an index searcher available close it
-        if ((m_indexSearcher != null) && (m_indexSearcher.getIndexReader() != null)) {
+        // in case there is an index searcher available reopen it
+        IndexSearcher oldSearcher = m_indexSearcher;
+        if ((oldSearcher != null) && (oldSearcher.getIndexReader() != null)) {
             try {
-                IndexReader newReader = m_indexSearcher.getIndexReader().reopen();
-                m_indexSearcher = new IndexSearcher(newReader);
+                IndexReader newReader = oldSearcher.getIndexReader().reopen();
+                if (newReader != oldSearcher.getIndexReader()) {
+                    // the index has changed, searches still running will finish with the old reader
+                    indexSearcherClose(indexSearcherSwap(new IndexSearcher(newReader)));
+                }
             } catch (Exception e) {
                 LOG.error(Messages.get().getBundle().key(Messages.ERR_INDEX_SEARCHER_REOPEN_1, getName()), e);
             }
         }
     }
 
+    /**
+     * Commits the near real time updates of the index writer to the index directory.<p>
+     * 
+     * The updates are only committed in case there are uncommitted updates 
+     * and the first of them has been made at least {@link #getNrtCommitInterval()} milliseconds ago.<p>
+     * 
+     * @param force if <code>true</code>, the updates are committed regardless of the commit interval
+     * 
+     * @see #indexWriterUpdated()
+     */
+    protected synchronized void indexWriterCommit(boolean force) {
+
+        long now = System.currentTimeMillis();
+        if (!m_nrtCommitPending
+            || (m_indexWriter == null)
+            || (!force && ((now - m_nrtLastCommit) < m_nrtCommitInterval))) {
+            return;
+        }
+        m_nrtCommitPending = false;
+        m_nrtLastCommit = now;
+        try {
+            m_indexWriter.commit();
+        } catch (IOException e) {
+            // try again with the next commit
+            m_nrtCommitPending = true;
+            LOG.error(Messages.get().getBundle().key(Messages.LOG_IO_INDEX_WRITER_COMMIT_2, getName(), getPath()), e);
+        }
+    }
+
     /**
      * Creates a new index writer.<p>
      * 
@@ -2214,6 +2813,24 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
         }
     }
 
+    /**
+     * Notifies this index that the index writer has been updated in near real time mode.<p>
+     * 
+     * The updates are neither committed nor visible to searches yet, this is done with 
+     * {@link #indexSearcherRefresh(boolean)} and {@link #indexWriterCommit(boolean)}.<p>
+     * 
+     * @see #isNearRealTime()
+     */
+    protected synchronized void indexWriterUpdated() {
+
+        m_nrtRefreshPending = true;
+        if (!m_nrtCommitPending) {
+            // the commit interval starts with the first uncommitted change
+            m_nrtCommitPending = true;
+            m_nrtLastCommit = System.currentTimeMillis();
+        }
+    }
+
     /**
      * Checks if the document is in the time range specified in the search parameters.<p>
      * 
@@ -2264,10 +2881,11 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
      * searcher is explicitly told so. This methods checks if, based on the given sort, 
      * the score must be calculated.<p> 
      * 
-     * @param searcher the index searcher to prepare 
      * @param sort the sort option to use
+     * 
+     * @return <code>true</code> if the score must be calculated for the given sort
      */
-    protected void prepareSortScoring(IndexSearcher searcher, Sort sort) {
+    protected boolean isSortScoring(Sort sort) {
 
         boolean doScoring = false;
         if (sort != null) {
@@ -2289,6 +2907,23 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
                 }
             }
         }
+        return doScoring;
+    }
+
+    /**
+     * Checks if the score for the results must be calculated based on the provided sort option, 
+     * and prepares the given searcher accordingly.<p>  
+     * 
+     * @param searcher the index searcher to prepare 
+     * @param sort the sort option to use
+     * 
+     * @deprecated this changes the state of the shared index searcher which is not safe for concurrent searches, 
+     *      use {@link #isSortScoring(Sort)} and {@link #searchSorted(IndexSearcher, Query, Filter, Sort, boolean)} instead
+     */
+    @Deprecated
+    protected void prepareSortScoring(IndexSearcher searcher, Sort sort) {
+
+        boolean doScoring = isSortScoring(sort);
         searcher.setDefaultFieldSortScoring(doScoring, doScoring);
     }
 
@@ -2320,4 +2955,88 @@ public class CmsSearchIndex implements I_CmsConfigurationParameterHandler {
             LOG.error(Messages.get().getBundle().key(Messages.LOG_IO_INDEX_BACKUP_REMOVE_2, getName(), path), e);
         }
     }
+
+    /**
+     * Performs a sorted search with the given searcher.<p>
+     * 
+     * In contrast to {@link IndexSearcher#search(Query, Filter, int, Sort)}, this does not depend on 
+     * the score calculation settings of the searcher, which is shared by all concurrent searches.<p>
+     * 
+     * @param searcher the index searcher to use 
+     * @param query the query to search for
+     * @param filter the filter to apply, may be <code>null</code>
+     * @param sort the sort option to use
+     * @param doScoring if <code>true</code>, the score is calculated for the results
+     * 
+     * @return the top documents found, at most {@link #getMaxHits()}
+     * 
+     * @throws IOException in case of errors accessing the index
+     */
+    protected TopDocs searchSorted(IndexSearcher searcher, Query query, Filter filter, Sort sort, boolean doScoring)
+    throws IOException {
+
+        int numHits = Math.max(1, Math.min(getMaxHits(), searcher.maxDoc()));
+        TopFieldCollector collector = TopFieldCollector.create(sort, numHits, true, doScoring, doScoring, false);
+        searcher.search(query, filter, collector);
+        return collector.topDocs();
+    }
+
+    /**
+     * Sets the time of the last change of permissions that may not be reflected 
+     * in the documents of this index, in case it is later than the current one.<p>
+     * 
+     * The time is stored with the next commit of the index, 
+     * so that it is also available after the index is opened again.<p>
+     * 
+     * @param time the time of the change of permissions
+     * 
+     * @see #getPermissionsChanged()
+     */
+    protected synchronized void updatePermissionsChanged(long time) {
+
+        if (time > m_permissionsChanged) {
+            m_permissionsChanged = time;
+            CmsSearchResultCache resultCache = m_resultCache;
+            if (resultCache != null) {
+                // cached results may not reflect the changed permissions
+                resultCache.clear();
+            }
+        }
+    }
+
+    /**
+     * Replaces the current Lucene index searcher of this index with the given searcher.<p>
+     * 
+     * The returned previous searcher must be closed with {@link #indexSearcherClose(IndexSearcher)}.<p>
+     * 
+     * The cached search results are removed, since they may not match the new searcher.<p>
+     * 
+     * @param searcher the new searcher to use, may be <code>null</code>
+     * 
+     * @return the previous searcher, or <code>null</code> if no searcher was open
+     */
+    private IndexSearcher indexSearcherSwap(IndexSearcher searcher) {
+
+        synchronized (m_indexSearcherLock) {
+            IndexSearcher oldSearcher = m_indexSearcher;
+            m_indexSearcher = searcher;
+            CmsSearchResultCache resultCache = m_resultCache;
+            if (resultCache != null) {
+                resultCache.clear();
+            }
+            return oldSearcher;
+        }
+    }
+
+    /**
+     * Initializes the cache for the search results according to the configured size and maximum age.<p>
+     */
+    private void initResultCache() {
+
+        if (m_resultCacheSize > 0) {
+            m_resultCache = new CmsSearchResultCache(m_resultCacheSize, m_resultCacheMaxAge * 1000L);
+        } else {
+            m_resultCache = null;
+        }
+    }
 }
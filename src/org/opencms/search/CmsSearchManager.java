@@ -30,6 +30,7 @@ package org.opencms.search;
 import org.opencms.db.CmsDriverManager;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProject;
 import org.opencms.file.CmsResource;
 import org.opencms.file.CmsResourceFilter;
 import org.opencms.i18n.CmsMessageContainer;
@@ -39,6 +40,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsIllegalStateException;
 import org.opencms.main.CmsLog;
+import org.opencms.main.I_CmsAsyncEventListener;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.report.CmsLogReport;
@@ -81,7 +83,7 @@ import org.apache.lucene.util.Version;
  * 
  * @since 6.0.0 
  */
-public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
+public class CmsSearchManager implements I_CmsScheduledJob, I_CmsAsyncEventListener {
 
     /**
      *  Enumeration class for force unlock types.<p>
@@ -129,6 +131,86 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * The index refresh thread runs periodically and exposes the updates of the indexes 
+     * in near real time mode to searches, and commits them.<p>
+     * 
+     * @see CmsSearchIndex#isNearRealTime()
+     */
+    protected class CmsSearchIndexRefreshThread extends Thread {
+
+        /** Indicates if this thread is still alive. */
+        boolean m_isAlive;
+
+        /**
+         * Constructor.<p>
+         */
+        protected CmsSearchIndexRefreshThread() {
+
+            super("OpenCms: Search Index Refresh");
+        }
+
+        /**
+         * @see java.lang.Thread#run()
+         */
+        @Override
+        public void run() {
+
+            try {
+                while (m_isAlive) {
+                    try {
+                        sleep(getRefreshWaitTime());
+                    } catch (InterruptedException e) {
+                        // continue the thread after interruption, unless it has been shut down
+                        continue;
+                    }
+                    if (m_isAlive) {
+                        updateNearRealTimeIndexes();
+                    }
+                }
+            } finally {
+                // make sure that live status is reset in case of Exceptions
+                m_isAlive = false;
+            }
+        }
+
+        /**
+         * @see java.lang.Thread#start()
+         */
+        @Override
+        public synchronized void start() {
+
+            m_isAlive = true;
+            super.start();
+        }
+
+        /**
+         * Returns the time to wait between two refreshes, which is half of the 
+         * smallest refresh interval of all indexes in near real time mode.<p>
+         * 
+         * @return the time to wait between two refreshes
+         */
+        protected long getRefreshWaitTime() {
+
+            long result = CmsSearchIndex.NRT_COMMIT_INTERVAL_DEFAULT;
+            for (CmsSearchIndex index : getSearchIndexes()) {
+                if (index.isNearRealTime()) {
+                    result = Math.min(result, index.getNrtRefreshInterval() / 2);
+                }
+            }
+            return Math.max(result, MIN_INDEX_REFRESH_WAIT_TIME);
+        }
+
+        /**
+         * Shuts down this index refresh thread.<p>
+         */
+        protected void shutDown() {
+
+            m_isAlive = false;
+            interrupt();
+        }
+    }
+
     /**
      * Handles offline index generation.<p>
      */
@@ -166,6 +248,11 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                         // skip lock & unlock
                         return;
                     }
+                    if ((change != null)
+                        && ((((Integer)change).intValue() & CmsDriverManager.CHANGED_ACCESSCONTROL) > 0)) {
+                        // the permissions of the resource and possibly of all sub resources have changed
+                        updatePermissionsChanged(m_offlineIndexes);
+                    }
                     // a resource has been modified - offline indexes require (re)indexing
                     List<CmsResource> resources = Collections.singletonList((CmsResource)event.getData().get(
                         I_CmsEventListener.KEY_RESOURCE));
@@ -177,7 +264,18 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 case I_CmsEventListener.EVENT_RESOURCE_COPIED:
                 case I_CmsEventListener.EVENT_RESOURCES_MODIFIED:
                     // a list of resources has been modified - offline indexes require (re)indexing
-                    reIndexResources((List<CmsResource>)event.getData().get(I_CmsEventListener.KEY_RESOURCES));
+                    List<CmsResource> modifiedResources = (List<CmsResource>)event.getData().get(
+                        I_CmsEventListener.KEY_RESOURCES);
+                    if (event.getType() == I_CmsEventListener.EVENT_RESOURCE_MOVED) {
+                        for (CmsResource res : modifiedResources) {
+                            if (res.isFolder()) {
+                                // the sub resources of a moved folder may inherit different permissions
+                                updatePermissionsChanged(m_offlineIndexes);
+                                break;
+                            }
+                        }
+                    }
+                    reIndexResources(modifiedResources);
                     break;
                 default:
                     // no operation
@@ -496,6 +594,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** Prefix for Lucene default analyzers package (<code>org.apache.lucene.analysis.</code>). */
     public static final String LUCENE_ANALYZER = "org.apache.lucene.analysis.";
 
+    /** The minimum time the index refresh thread waits between two refreshes (100 msec). */
+    public static final long MIN_INDEX_REFRESH_WAIT_TIME = 100;
+
     /** The log object for this class. */
     protected static final Log LOG = CmsLog.getLog(CmsSearchManager.class);
 
@@ -505,6 +606,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The list of indexes that are configured for offline index mode. */
     protected List<CmsSearchIndex> m_offlineIndexes;
 
+    /** The thread used for refreshing the indexes in near real time mode. */
+    protected CmsSearchIndexRefreshThread m_indexRefreshThread;
+
     /** The thread used of offline indexing. */
     protected CmsSearchOfflineIndexThread m_offlineIndexThread;
 
@@ -520,6 +624,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The max age for extraction results to remain in the cache. */
     private float m_extractionCacheMaxAge;
 
+    /** The max size of the extraction cache in megabytes, if <code>&lt;= 0</code> the cache is not bounded. */
+    private int m_extractionCacheMaxSize;
+
     /** The cache for the extraction results. */
     private CmsExtractionResultCache m_extractionResultCache;
 
@@ -544,6 +651,9 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
     /** The max. char. length of the excerpt in the search result. */
     private int m_maxExcerptLength;
 
+    /** The maximum number of threads extracting documents, 0 to use the number of available processors. */
+    private int m_maxIndexingThreads;
+
     /** The maximum number of modifications before a commit in the search index is triggered. */
     private int m_maxModificationsBeforeCommit;
 
@@ -995,6 +1105,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_extractionCacheMaxAge;
     }
 
+    /**
+     * Returns the maximum size of the text extraction result cache (in megabytes).<p>
+     *
+     * @return the maximum size of the text extraction result cache, or <code>0</code> if the cache is not bounded
+     */
+    public int getExtractionCacheMaxSize() {
+
+        return m_extractionCacheMaxSize;
+    }
+
     /**
      * Returns the search field configuration with the given name.<p>
      * 
@@ -1108,6 +1228,18 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_maxExcerptLength;
     }
 
+    /**
+     * Returns the maximum number of threads extracting documents while indexing.<p>
+     * 
+     * If 0 is returned, the number of available processors is used.<p>
+     *
+     * @return the maximum number of threads extracting documents while indexing
+     */
+    public int getMaxIndexingThreads() {
+
+        return m_maxIndexingThreads;
+    }
+
     /**
      * Returns the maximum number of modifications before a commit in the search index is triggered.<p>
      *
@@ -1128,6 +1260,59 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         return m_offlineUpdateFrequency;
     }
 
+    /**
+     * Returns the number of searches that have been answered from the result caches of all indexes.<p>
+     * 
+     * @return the number of searches that have been answered from the result caches
+     * 
+     * @see CmsSearchIndex#getResultCache()
+     */
+    public long getResultCacheHitCount() {
+
+        long result = 0;
+        for (CmsSearchIndex index : m_indexes) {
+            CmsSearchResultCache resultCache = index.getResultCache();
+            if (resultCache != null) {
+                result += resultCache.getHitCount();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ratio of the searches answered from the result caches of all indexes 
+     * to all searches in indexes with a result cache, or <code>0</code> if no such search has been done yet.<p>
+     * 
+     * @return the hit ratio of the result caches
+     * 
+     * @see CmsSearchIndex#getResultCache()
+     */
+    public float getResultCacheHitRatio() {
+
+        long hits = getResultCacheHitCount();
+        long total = hits + getResultCacheMissCount();
+        return (total > 0) ? ((float)hits / total) : 0f;
+    }
+
+    /**
+     * Returns the number of searches that could not be answered from the result caches of all indexes.<p>
+     * 
+     * @return the number of searches that could not be answered from the result caches
+     * 
+     * @see CmsSearchIndex#getResultCache()
+     */
+    public long getResultCacheMissCount() {
+
+        long result = 0;
+        for (CmsSearchIndex index : m_indexes) {
+            CmsSearchResultCache resultCache = index.getResultCache();
+            if (resultCache != null) {
+                result += resultCache.getMissCount();
+            }
+        }
+        return result;
+    }
+
     /**
      * Returns an unmodifiable list of all configured <code>{@link CmsSearchIndex}</code> instances.<p>
      * 
@@ -1180,7 +1365,8 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         // create the extraction result cache
         m_extractionResultCache = new CmsExtractionResultCache(
             OpenCms.getSystemInfo().getAbsoluteRfsPathRelativeToWebInf(getDirectory()),
-            "/extractCache");
+            "/extractCache",
+            m_extractionCacheMaxSize * 1024L * 1024L);
 
         initializeIndexes();
         initOfflineIndexes();
@@ -1226,6 +1412,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
 
     }
 
+    /**
+     * Publish events are delivered asynchronously, since updating the indexes takes some time.<p>
+     * 
+     * @see org.opencms.main.I_CmsAsyncEventListener#isAsyncDelivery(org.opencms.main.CmsEvent)
+     */
+    public boolean isAsyncDelivery(CmsEvent event) {
+
+        return event.getType() == I_CmsEventListener.EVENT_PUBLISH_PROJECT;
+    }
+
     /**
      * Updates the indexes from as a scheduled job.<p> 
      * 
@@ -1598,6 +1794,36 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum size of the text extraction result cache (in megabytes).<p>
+     * 
+     * If the cache grows beyond this size, the least recently used extraction results are deleted.
+     * A value of <code>0</code> means the size of the cache is not bounded.<p>
+     *
+     * @param extractionCacheMaxSize the maximum size of the text extraction result cache to set
+     */
+    public void setExtractionCacheMaxSize(int extractionCacheMaxSize) {
+
+        m_extractionCacheMaxSize = extractionCacheMaxSize;
+    }
+
+    /**
+     * Sets the maximum size of the text extraction result cache (in megabytes) as a String.<p>
+     *
+     * @param extractionCacheMaxSize the maximum size of the text extraction result cache to set
+     */
+    public void setExtractionCacheMaxSize(String extractionCacheMaxSize) {
+
+        try {
+            setExtractionCacheMaxSize(Integer.parseInt(extractionCacheMaxSize.trim()));
+        } catch (NumberFormatException e) {
+            LOG.error(Messages.get().getBundle().key(
+                Messages.LOG_PARSE_EXTRACTION_CACHE_SIZE_FAILED_1,
+                extractionCacheMaxSize), e);
+            setExtractionCacheMaxSize(0);
+        }
+    }
+
     /**
      * Sets the unlock mode during indexing.<p>
      * 
@@ -1662,6 +1888,36 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Sets the maximum number of threads extracting documents while indexing.<p>
+     * 
+     * If set to 0, the number of available processors is used.<p>
+     *
+     * @param maxIndexingThreads the maximum number of threads extracting documents to set
+     */
+    public void setMaxIndexingThreads(int maxIndexingThreads) {
+
+        m_maxIndexingThreads = maxIndexingThreads;
+    }
+
+    /**
+     * Sets the maximum number of threads extracting documents while indexing as a String.<p>
+     *
+     * @param value the maximum number of threads extracting documents to set
+     */
+    public void setMaxIndexingThreads(String value) {
+
+        try {
+            setMaxIndexingThreads(Integer.parseInt(value));
+        } catch (Exception e) {
+            LOG.error(Messages.get().getBundle().key(
+                Messages.LOG_PARSE_MAX_INDEXING_THREADS_FAILED_2,
+                value,
+                new Integer(Runtime.getRuntime().availableProcessors())), e);
+            setMaxIndexingThreads(0);
+        }
+    }
+
     /**
      * Sets the maximum number of modifications before a commit in the search index is triggered.<p>
      *
@@ -1758,6 +2014,11 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             m_offlineIndexThread.shutDown();
         }
 
+        if (m_indexRefreshThread != null) {
+            // the pending near real time updates are committed when the indexes are shut down
+            m_indexRefreshThread.shutDown();
+        }
+
         if (m_offlineHandler != null) {
             OpenCms.removeCmsEventListener(m_offlineHandler);
         }
@@ -1767,6 +2028,10 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             CmsSearchIndex index = i.next();
             index.shutDown();
         }
+
+        if (m_extractionResultCache != null) {
+            m_extractionResultCache.shutdown();
+        }
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_SHUTDOWN_MANAGER_0));
         }
@@ -1834,7 +2099,7 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
      */
     protected CmsIndexingThreadManager getThreadManager() {
 
-        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit);
+        return new CmsIndexingThreadManager(m_timeout, m_maxModificationsBeforeCommit, m_maxIndexingThreads);
     }
 
     /**
@@ -1954,6 +2219,17 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Starts the thread that refreshes the indexes in near real time mode, if it is not already running.<p>
+     */
+    protected synchronized void startIndexRefreshThread() {
+
+        if ((m_indexRefreshThread == null) || !m_indexRefreshThread.isAlive()) {
+            m_indexRefreshThread = new CmsSearchIndexRefreshThread();
+            m_indexRefreshThread.start();
+        }
+    }
+
     /**
      * Incrementally updates all indexes that have their rebuild mode set to <code>"auto"</code>
      * after resources have been published.<p> 
@@ -1979,9 +2255,14 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
             }
 
             List<CmsPublishedResource> updateResources = new ArrayList<CmsPublishedResource>();
+            boolean folderChanged = false;
             Iterator<CmsPublishedResource> itPubRes = publishedResources.iterator();
             while (itPubRes.hasNext()) {
                 CmsPublishedResource res = itPubRes.next();
+                if (res.isFolder() && res.getState().isChanged()) {
+                    // the permissions inherited from a changed or moved folder may have changed
+                    folderChanged = true;
+                }
                 if (res.isFolder() || res.getState().isUnchanged()) {
                     // folders and unchanged resources don't need to be indexed after publish
                     continue;
@@ -2034,6 +2315,16 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                 }
             }
 
+            if (folderChanged) {
+                List<CmsSearchIndex> onlineIndexes = new ArrayList<CmsSearchIndex>();
+                for (CmsSearchIndex index : m_indexes) {
+                    if (CmsProject.ONLINE_PROJECT_NAME.equals(index.getProject())) {
+                        onlineIndexes.add(index);
+                    }
+                }
+                updatePermissionsChanged(onlineIndexes);
+            }
+
             if (!updateResources.isEmpty()) {
                 // sort the resource to update
                 Collections.sort(updateResources);
@@ -2299,19 +2590,25 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
                     }
                 }
             } finally {
-                // close the index writer
-                if (writer != null) {
-                    try {
-                        writer.commit();
-                    } catch (IOException e) {
-                        LOG.error(Messages.get().getBundle().key(
-                            Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
-                            index.getName(),
-                            index.getPath()), e);
+                if (index.isNearRealTime()) {
+                    // the changes are exposed to searches and committed later by the index refresh thread
+                    index.indexWriterUpdated();
+                    startIndexRefreshThread();
+                } else {
+                    // close the index writer
+                    if (writer != null) {
+                        try {
+                            writer.commit();
+                        } catch (IOException e) {
+                            LOG.error(Messages.get().getBundle().key(
+                                Messages.LOG_IO_INDEX_WRITER_COMMIT_2,
+                                index.getName(),
+                                index.getPath()), e);
+                        }
                     }
+                    // index has changed - initialize the index searcher instance
+                    index.indexSearcherUpdate();
                 }
-                // index has changed - initialize the index searcher instance
-                index.indexSearcherUpdate();
             }
 
             // output finish information on the report
@@ -2354,6 +2651,22 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
     }
 
+    /**
+     * Exposes the updates of all indexes in near real time mode to searches, 
+     * and commits them in case their commit interval has passed.<p>
+     * 
+     * @see CmsSearchIndex#isNearRealTime()
+     */
+    protected synchronized void updateNearRealTimeIndexes() {
+
+        for (CmsSearchIndex index : m_indexes) {
+            if (index.isNearRealTime()) {
+                index.indexSearcherRefresh(false);
+                index.indexWriterCommit(false);
+            }
+        }
+    }
+
     /**
      * Returns the report in the given event data, if <code>null</code>
      * a new log report is used.<p>
@@ -2373,4 +2686,24 @@ public class CmsSearchManager implements I_CmsScheduledJob, I_CmsEventListener {
         }
         return report;
     }
+
+    /**
+     * Sets the time of the last change of permissions of the given indexes to the current time.<p>
+     * 
+     * This is only relevant for indexes that store the permissions of the resources, 
+     * documents indexed before this time will be checked against the VFS in a search.<p>
+     * 
+     * @param indexes the indexes in which the permissions of the resources may have changed
+     * 
+     * @see CmsSearchIndex#isIndexingPermissions()
+     */
+    protected void updatePermissionsChanged(List<CmsSearchIndex> indexes) {
+
+        long now = System.currentTimeMillis();
+        for (CmsSearchIndex index : indexes) {
+            if (index.isIndexingPermissions()) {
+                index.updatePermissionsChanged(now);
+            }
+        }
+    }
 }
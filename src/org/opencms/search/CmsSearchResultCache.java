@@ -0,0 +1,336 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.search.CmsSearchParameters.CmsSearchFieldQuery;
+import org.opencms.util.CmsCollectionsGenericWrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A size limited cache for the results of the searches in a <code>{@link CmsSearchIndex}</code>.<p>
+ * 
+ * The results are cached for the search parameters and the permission context of the user 
+ * that did the search, see {@link #getKey(CmsSearchParameters, String)}. If the index checks permissions,
+ * the permission context contains the id of the user, so the results are not shared between users.<p>
+ * 
+ * The cache is cleared whenever the index searcher is replaced after the index has been updated. 
+ * In order to reflect release and expiration dates that have been reached in the meantime, 
+ * results are also discarded after a maximum age.<p>
+ * 
+ * @since 8.0.4
+ */
+public class CmsSearchResultCache {
+
+    /**
+     * A cached search result.<p>
+     */
+    private static class CmsCachedResult {
+
+        /** The time the result was cached. */
+        private long m_dateCached;
+
+        /** The parsed query of the search. */
+        private String m_parsedQuery;
+
+        /** The search result. */
+        private CmsSearchResultList m_result;
+
+        /**
+         * Creates a new cached search result.<p>
+         * 
+         * @param result the search result
+         * @param parsedQuery the parsed query of the search
+         */
+        CmsCachedResult(CmsSearchResultList result, String parsedQuery) {
+
+            m_result = copyResult(result);
+            m_parsedQuery = parsedQuery;
+            m_dateCached = System.currentTimeMillis();
+        }
+    }
+
+    /** The cached search results. */
+    private Map<String, CmsCachedResult> m_cache;
+
+    /** The generation of the cached results, incremented every time the cache is cleared. */
+    private long m_generation;
+
+    /** The number of cache hits. */
+    private long m_hitCount;
+
+    /** The maximum age of a cached result in milliseconds. */
+    private long m_maxAge;
+
+    /** The maximum number of cached results. */
+    private int m_maxSize;
+
+    /** The number of cache misses. */
+    private long m_missCount;
+
+    /**
+     * Creates a new search result cache.<p>
+     * 
+     * @param maxSize the maximum number of cached results
+     * @param maxAge the maximum age of a cached result in milliseconds
+     */
+    public CmsSearchResultCache(int maxSize, long maxAge) {
+
+        m_maxSize = maxSize;
+        m_maxAge = maxAge;
+        m_cache = CmsCollectionsGenericWrapper.createLRUMap(maxSize);
+    }
+
+    /**
+     * Returns the cache key for the given search parameters and permission context.<p>
+     * 
+     * The key contains all the parameters that are used for a search in the index. 
+     * Lists of search roots, categories, resource types and fields are sorted since their order 
+     * does not change the result of a search.<p>
+     * 
+     * @param params the search parameters
+     * @param context the permission context of the user, e.g. the ids of the user and the groups and roles of the user
+     * 
+     * @return the cache key for the given search parameters and permission context
+     */
+    public static String getKey(CmsSearchParameters params, String context) {
+
+        StringBuffer result = new StringBuffer(256);
+        result.append("context:").append(context).append('\n');
+        if (params.isIgnoreQuery()) {
+            result.append("ignore-query\n");
+        } else if (params.getParsedQuery() != null) {
+            result.append("parsed-query:").append(params.getParsedQuery()).append('\n');
+        } else if (params.getFieldQueries() != null) {
+            for (CmsSearchFieldQuery fq : params.getFieldQueries()) {
+                result.append("field-query:").append(fq.getFieldName()).append(':').append(fq.getOccur());
+                result.append(':').append(fq.getTermOccur()).append(':').append(fq.getSearchTerms()).append('\n');
+            }
+        } else {
+            result.append("query:").append(params.getQuery()).append('\n');
+            appendSorted(result, "fields:", params.getFields());
+        }
+        appendSorted(result, "roots:", params.getRoots());
+        appendSorted(result, "categories:", params.getCategories());
+        appendSorted(result, "types:", params.getResourceTypes());
+        result.append("created:").append(params.getMinDateCreated()).append('-').append(params.getMaxDateCreated());
+        result.append('\n');
+        result.append("lastmodified:").append(params.getMinDateLastModified()).append('-').append(
+            params.getMaxDateLastModified());
+        result.append('\n');
+        result.append("sort:").append(params.getSort()).append('\n');
+        result.append("page:").append(params.getSearchPage()).append('/').append(params.getMatchesPerPage());
+        result.append('\n');
+        if (params.isCalculateCategories()) {
+            result.append("calculate-categories\n");
+        }
+        if (params.isExcerptOnlySearchedFields()) {
+            result.append("excerpt-searched-fields-only\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns a copy of the given search result.<p>
+     * 
+     * @param result the search result to copy
+     * 
+     * @return a copy of the given search result
+     */
+    static CmsSearchResultList copyResult(CmsSearchResultList result) {
+
+        CmsSearchResultList copy = new CmsSearchResultList(result.size());
+        copy.addAll(result);
+        copy.setHitCount(result.getHitCount());
+        if (result.getCategories() != null) {
+            copy.setCategories(new HashMap<String, Integer>(result.getCategories()));
+        }
+        return copy;
+    }
+
+    /**
+     * Appends the given list of values in sorted order to the given key.<p>
+     * 
+     * @param key the key to append the values to
+     * @param name the name of the values
+     * @param values the values to append, may be <code>null</code>
+     */
+    private static void appendSorted(StringBuffer key, String name, List<String> values) {
+
+        if ((values != null) && !values.isEmpty()) {
+            List<String> sorted = new ArrayList<String>(values);
+            Collections.sort(sorted);
+            key.append(name).append(sorted).append('\n');
+        }
+    }
+
+    /**
+     * Removes all cached results.<p>
+     * 
+     * Results of searches that were started before the cache was cleared are not cached anymore, 
+     * see {@link #put(String, CmsSearchResultList, String, long)}.<p>
+     */
+    public synchronized void clear() {
+
+        m_cache.clear();
+        m_generation++;
+    }
+
+    /**
+     * Returns a copy of the cached result for the given key, or <code>null</code> if no result is cached.<p>
+     * 
+     * In case a result is found, the parsed query of the search is set in the given parameters, 
+     * just like a search would do.<p>
+     * 
+     * @param key the cache key, see {@link #getKey(CmsSearchParameters, String)}
+     * @param params the parameters of the current search
+     * 
+     * @return a copy of the cached result for the given key, or <code>null</code> if no result is cached
+     */
+    public CmsSearchResultList get(String key, CmsSearchParameters params) {
+
+        CmsCachedResult cached;
+        synchronized (this) {
+            cached = m_cache.get(key);
+            if ((cached != null) && ((System.currentTimeMillis() - cached.m_dateCached) > m_maxAge)) {
+                m_cache.remove(key);
+                cached = null;
+            }
+            if (cached == null) {
+                m_missCount++;
+                return null;
+            }
+            m_hitCount++;
+        }
+        if (cached.m_parsedQuery != null) {
+            params.setParsedQuery(cached.m_parsedQuery);
+        }
+        return copyResult(cached.m_result);
+    }
+
+    /**
+     * Returns the current generation of the cached results.<p>
+     * 
+     * The generation must be read before a search acquires the index searcher, 
+     * and is required to cache the result of the search.<p>
+     * 
+     * @return the current generation of the cached results
+     */
+    public synchronized long getGeneration() {
+
+        return m_generation;
+    }
+
+    /**
+     * Returns the number of searches that have been answered from this cache.<p>
+     * 
+     * @return the number of searches that have been answered from this cache
+     */
+    public synchronized long getHitCount() {
+
+        return m_hitCount;
+    }
+
+    /**
+     * Returns the ratio of the searches that have been answered from this cache 
+     * to all searches, or <code>0</code> if no search has been done yet.<p>
+     * 
+     * @return the hit ratio of this cache
+     */
+    public synchronized float getHitRatio() {
+
+        long total = m_hitCount + m_missCount;
+        return (total > 0) ? ((float)m_hitCount / total) : 0f;
+    }
+
+    /**
+     * Returns the maximum age of a cached result in milliseconds.<p>
+     * 
+     * @return the maximum age of a cached result in milliseconds
+     */
+    public long getMaxAge() {
+
+        return m_maxAge;
+    }
+
+    /**
+     * Returns the maximum number of cached results.<p>
+     * 
+     * @return the maximum number of cached results
+     */
+    public int getMaxSize() {
+
+        return m_maxSize;
+    }
+
+    /**
+     * Returns the number of searches that could not be answered from this cache.<p>
+     * 
+     * @return the number of searches that could not be answered from this cache
+     */
+    public synchronized long getMissCount() {
+
+        return m_missCount;
+    }
+
+    /**
+     * Returns the number of cached results.<p>
+     * 
+     * @return the number of cached results
+     */
+    public synchronized int getSize() {
+
+        return m_cache.size();
+    }
+
+    /**
+     * Caches the result of a search.<p>
+     * 
+     * The result is not cached in case the cache has been cleared since the given generation 
+     * was read, because then the search may have used an outdated index searcher.<p>
+     * 
+     * @param key the cache key, see {@link #getKey(CmsSearchParameters, String)}
+     * @param result the search result to cache
+     * @param parsedQuery the parsed query of the search
+     * @param generation the generation of the cache when the search was started, see {@link #getGeneration()}
+     */
+    public void put(String key, CmsSearchResultList result, String parsedQuery, long generation) {
+
+        CmsCachedResult cached = new CmsCachedResult(result, parsedQuery);
+        synchronized (this) {
+            if (generation == m_generation) {
+                m_cache.put(key, cached);
+            }
+        }
+    }
+}
@@ -27,6 +27,8 @@
 
 package org.opencms.search.documents;
 
+import org.opencms.cache.CmsDiskCacheIndex;
+import org.opencms.cache.CmsDiskCacheStatistics;
 import org.opencms.cache.CmsVfsDiskCache;
 import org.opencms.file.CmsResource;
 import org.opencms.main.CmsLog;
@@ -57,6 +59,10 @@ import org.apache.commons.logging.Log;
  * project will have a new hash code compared to the online project. If the resource is identical in the online and 
  * the offline project, the generated hash codes will be the same.<p>
  * 
+ * The cache files are distributed over two levels of sub folders named after the first characters of 
+ * the resource id, so that no single folder contains too many files. Optionally the cache is bounded 
+ * by a maximum size, see {@link CmsDiskCacheIndex}.<p>
+ * 
  * @since 6.2.0
  */
 public class CmsExtractionResultCache {
@@ -64,6 +70,9 @@ public class CmsExtractionResultCache {
     /** The log object for this class. */
     private static final Log LOG = CmsLog.getLog(CmsExtractionResultCache.class);
 
+    /** The index of the cache files. */
+    private CmsDiskCacheIndex m_index;
+
     /** The name of the cache base repository folder in the RFS. */
     private String m_rfsRepository;
 
@@ -75,8 +84,24 @@ public class CmsExtractionResultCache {
      */
     public CmsExtractionResultCache(String basepath, String foldername) {
 
+        this(basepath, foldername, -1);
+    }
+
+    /**
+     * Creates a new disk cache bounded by the given maximum size.<p>
+     * 
+     * The least recently used cache files are deleted if the cache grows beyond the maximum size.<p>
+     * 
+     * @param basepath the base path for the cache in the RFS
+     * @param foldername the folder name for this cache, to be used a subfolder for the base folder
+     * @param maxSize the maximum size of the cache in bytes, if <code>&lt;= 0</code> the cache is not bounded
+     */
+    public CmsExtractionResultCache(String basepath, String foldername, long maxSize) {
+
         // normalize the given folder name 
         m_rfsRepository = CmsFileUtil.normalizePath(basepath + foldername + File.separatorChar);
+        m_index = new CmsDiskCacheIndex(m_rfsRepository, maxSize, CmsDiskCacheIndex.POLICY_LRU);
+        m_index.initialize();
     }
 
     /**
@@ -94,26 +119,7 @@ public class CmsExtractionResultCache {
         // perform the cache cleanup
         int count = 0;
         if (basedir.canRead() && basedir.isDirectory()) {
-            File[] files = basedir.listFiles();
-            if (files != null) {
-                for (int i = 0; i < files.length; i++) {
-                    File f = files[i];
-                    if (f.canWrite()) {
-                        if (f.lastModified() < expireDate) {
-                            try {
-                                f.delete();
-                                count++;
-                            } catch (Exception e) {
-                                if (LOG.isWarnEnabled()) {
-                                    LOG.warn(Messages.get().getBundle().key(
-                                        Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
-                                        f.getAbsolutePath()), e);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
+            count = cleanFolder(basedir, expireDate);
         }
         return count;
     }
@@ -133,7 +139,13 @@ public class CmsExtractionResultCache {
         StringBuffer buf = new StringBuffer(m_rfsRepository.length() + 36);
         buf.append(m_rfsRepository);
         buf.append('/');
-        buf.append(resource.getResourceId().toString());
+        // distribute the files over sub folders named after the first characters of the resource id
+        String id = resource.getResourceId().toString();
+        buf.append(id.substring(0, 2));
+        buf.append('/');
+        buf.append(id.substring(2, 4));
+        buf.append('/');
+        buf.append(id);
 
         // check if parameters are provided, if so add them as well
         if (locale != null) {
@@ -164,6 +176,7 @@ public class CmsExtractionResultCache {
         try {
             File f = new File(rfsName);
             if (f.exists()) {
+                m_index.recordHit(f);
                 long age = f.lastModified();
                 if ((System.currentTimeMillis() - age) > 3600000) {
                     // file has not been touched for 1 hour, touch the file with the current date
@@ -176,9 +189,20 @@ public class CmsExtractionResultCache {
             // unable to read content
         }
         // this code can be reached only in case of an error
+        m_index.recordMiss();
         return null;
     }
 
+    /**
+     * Returns a snapshot of the size, hit and miss counters of this cache.<p>
+     * 
+     * @return a snapshot of the size, hit and miss counters of this cache
+     */
+    public CmsDiskCacheStatistics getStatistics() {
+
+        return m_index.getStatistics();
+    }
+
     /**
      * Returns the absolute path of the cache repository in the RFS.<p>
      * 
@@ -201,7 +225,53 @@ public class CmsExtractionResultCache {
 
         byte[] byteContent = content.getBytes();
         if (byteContent != null) {
-            CmsVfsDiskCache.saveFile(rfsName, byteContent);
+            m_index.recordWrite(CmsVfsDiskCache.saveFile(rfsName, byteContent));
+        }
+    }
+
+    /**
+     * Stops the background thread that indexes the cache files and evicts them.<p>
+     */
+    public void shutdown() {
+
+        m_index.shutdown();
+    }
+
+    /**
+     * Removes all expired cache files from the given folder and its sub folders.<p>
+     * 
+     * @param folder the folder to clean
+     * @param expireDate files last modified before this date are deleted
+     * 
+     * @return the number of deleted files
+     */
+    private int cleanFolder(File folder, long expireDate) {
+
+        int count = 0;
+        File[] files = folder.listFiles();
+        if (files != null) {
+            for (int i = 0; i < files.length; i++) {
+                File f = files[i];
+                if (f.isDirectory()) {
+                    count += cleanFolder(f, expireDate);
+                } else if (f.canWrite()) {
+                    if (f.lastModified() < expireDate) {
+                        try {
+                            if (f.delete()) {
+                                m_index.remove(f);
+                            }
+                            count++;
+                        } catch (Exception e) {
+                            if (LOG.isWarnEnabled()) {
+                                LOG.warn(Messages.get().getBundle().key(
+                                    Messages.LOG_EXCERPT_CACHE_DELETE_ERROR_1,
+                                    f.getAbsolutePath()), e);
+                            }
+                        }
+                    }
+                }
+            }
         }
+        return count;
     }
 }
\ No newline at end of file
@@ -65,12 +65,18 @@ public class CmsSearchField {
     /** Name of the field that contains the document creation date for fast lookup (hardcoded). */
     public static final String FIELD_DATE_CREATED_LOOKUP = "created_lookup";
 
+    /** Name of the field that contains the document expiration date (only if permissions are indexed). */
+    public static final String FIELD_DATE_EXPIRED = "expired";
+
     /** Name of the field that contains the document last modification date (hardcoded). */
     public static final String FIELD_DATE_LASTMODIFIED = "lastmodified";
 
     /** Name of the field that contains the document last modification date for fast lookup (hardcoded). */
     public static final String FIELD_DATE_LASTMODIFIED_LOOKUP = "lastmodified_lookup";
 
+    /** Name of the field that contains the document release date (only if permissions are indexed). */
+    public static final String FIELD_DATE_RELEASED = "released";
+
     /** Name of the field that usually contains the value of the "Description" property of the document (optional). */
     public static final String FIELD_DESCRIPTION = "description";
 
@@ -89,6 +95,27 @@ public class CmsSearchField {
     /** Name of the field that contains the document root path in the VFS (hardcoded). */
     public static final String FIELD_PATH = "path";
 
+    /** Name of the field that contains the date when the permissions of the document have been indexed (only if permissions are indexed). */
+    public static final String FIELD_PERMISSIONS_DATE = "permissions_date";
+
+    /** 
+     * Name of the field that contains the ids of all principals with an access control entry 
+     * for the document, as well as the "all others" principal (only if permissions are indexed). 
+     */
+    public static final String FIELD_PERMISSIONS_PRINCIPALS = "permissions_principals";
+
+    /** Name of the field that contains the ids of the principals that are allowed to read the document (only if permissions are indexed). */
+    public static final String FIELD_PERMISSIONS_READ_ALLOWED = "permissions_read_allowed";
+
+    /** Name of the field that contains the ids of the principals that are denied to read the document (only if permissions are indexed). */
+    public static final String FIELD_PERMISSIONS_READ_DENIED = "permissions_read_denied";
+
+    /** Name of the field that contains the ids of the principals that are allowed to view the document (only if permissions are indexed). */
+    public static final String FIELD_PERMISSIONS_VIEW_ALLOWED = "permissions_view_allowed";
+
+    /** Name of the field that contains the ids of the principals that are denied to view the document (only if permissions are indexed). */
+    public static final String FIELD_PERMISSIONS_VIEW_DENIED = "permissions_view_denied";
+
     /** 
      * Name of the field that contains the (optional) document priority, 
      * which can be used to boost the document in the result list (hardcoded). 
@@ -40,7 +40,12 @@ import org.opencms.relations.CmsCategoryService;
 import org.opencms.search.CmsSearchCategoryCollector;
 import org.opencms.search.CmsSearchIndex;
 import org.opencms.search.extractors.I_CmsExtractionResult;
+import org.opencms.security.CmsAccessControlEntry;
+import org.opencms.security.CmsAccessControlList;
+import org.opencms.security.CmsPermissionSet;
+import org.opencms.security.CmsPermissionSetCustom;
 import org.opencms.util.CmsStringUtil;
+import org.opencms.util.CmsUUID;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -327,6 +332,11 @@ public class CmsSearchFieldConfiguration implements Comparable<CmsSearchFieldCon
         // set the document type
         document = appendType(document, cms, resource, content, properties, propertiesSearched);
 
+        if (index.isIndexingPermissions()) {
+            // set the fields for the permissions of the resource
+            document = appendPermissions(document, cms, resource, content, properties, propertiesSearched);
+        }
+
         // set the document boost factor
         document = setBoost(document, cms, resource, content, properties, propertiesSearched);
 
@@ -741,6 +751,113 @@ public class CmsSearchFieldConfiguration implements Comparable<CmsSearchFieldCon
         return document;
     }
 
+    /**
+     * Extends the given document by the fields that contain the permissions of the resource 
+     * and the release and expiration date.<p>
+     * 
+     * For every principal of the resolved access control list of the resource, the principal id 
+     * is added to the fields for the allowed and denied read and view permissions.
+     * The "all others" principal is always added to the principals field, 
+     * this marks the document as containing the permission fields.<p>
+     * 
+     * @param document the document to extend
+     * @param cms the OpenCms context used for building the search index
+     * @param resource the resource that is indexed
+     * @param extractionResult the plain text extraction result from the resource
+     * @param properties the list of all properties directly attached to the resource (not searched)
+     * @param propertiesSearched the list of all searched properties of the resource  
+     * 
+     * @return the document extended by the fields that contain the permissions of the resource
+     * 
+     * @throws CmsException in case the access control list of the resource could not be read
+     */
+    protected Document appendPermissions(
+        Document document,
+        CmsObject cms,
+        CmsResource resource,
+        I_CmsExtractionResult extractionResult,
+        List<CmsProperty> properties,
+        List<CmsProperty> propertiesSearched) throws CmsException {
+
+        // the date must be set before the access control list is read
+        String permissionsDate = DateTools.timeToString(System.currentTimeMillis(), DateTools.Resolution.MINUTE);
+
+        CmsAccessControlList acl;
+        String storedSiteRoot = cms.getRequestContext().getSiteRoot();
+        try {
+            cms.getRequestContext().setSiteRoot("/");
+            acl = cms.getAccessControlList(resource.getRootPath(), false);
+        } finally {
+            cms.getRequestContext().setSiteRoot(storedSiteRoot);
+        }
+
+        String allOthers = CmsAccessControlEntry.PRINCIPAL_ALL_OTHERS_ID.toString();
+        document.add(new Field(
+            CmsSearchField.FIELD_PERMISSIONS_PRINCIPALS,
+            allOthers,
+            Field.Store.NO,
+            Field.Index.NOT_ANALYZED_NO_NORMS));
+        for (Map.Entry<CmsUUID, CmsPermissionSetCustom> entry : acl.getPermissionMap().entrySet()) {
+            String principal = entry.getKey().toString();
+            int allowed = entry.getValue().getAllowedPermissions();
+            int denied = entry.getValue().getDeniedPermissions();
+            if (!allOthers.equals(principal)) {
+                document.add(new Field(
+                    CmsSearchField.FIELD_PERMISSIONS_PRINCIPALS,
+                    principal,
+                    Field.Store.NO,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+            }
+            if ((allowed & CmsPermissionSet.PERMISSION_READ) > 0) {
+                document.add(new Field(
+                    CmsSearchField.FIELD_PERMISSIONS_READ_ALLOWED,
+                    principal,
+                    Field.Store.NO,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+            }
+            if ((denied & CmsPermissionSet.PERMISSION_READ) > 0) {
+                document.add(new Field(
+                    CmsSearchField.FIELD_PERMISSIONS_READ_DENIED,
+                    principal,
+                    Field.Store.NO,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+            }
+            if ((allowed & CmsPermissionSet.PERMISSION_VIEW) > 0) {
+                document.add(new Field(
+                    CmsSearchField.FIELD_PERMISSIONS_VIEW_ALLOWED,
+                    principal,
+                    Field.Store.NO,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+            }
+            if ((denied & CmsPermissionSet.PERMISSION_VIEW) > 0) {
+                document.add(new Field(
+                    CmsSearchField.FIELD_PERMISSIONS_VIEW_DENIED,
+                    principal,
+                    Field.Store.NO,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+            }
+        }
+        document.add(new Field(
+            CmsSearchField.FIELD_PERMISSIONS_DATE,
+            permissionsDate,
+            Field.Store.YES,
+            Field.Index.NOT_ANALYZED_NO_NORMS));
+
+        // the release and expiration date is checked for each result instead of reading the resource
+        document.add(new Field(
+            CmsSearchField.FIELD_DATE_RELEASED,
+            String.valueOf(resource.getDateReleased()),
+            Field.Store.YES,
+            Field.Index.NO));
+        document.add(new Field(
+            CmsSearchField.FIELD_DATE_EXPIRED,
+            String.valueOf(resource.getDateExpired()),
+            Field.Store.YES,
+            Field.Index.NO));
+
+        return document;
+    }
+
     /**
      * Extends the given document by fields for VFS path lookup.<p>
      * 
@@ -124,7 +124,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
     public Document getDocument(CmsUUID structureId) {
 
         Document result = null;
-        IndexSearcher searcher = getSearcher();
+        IndexSearcher searcher = acquireSearcher();
         if (searcher != null) {
             // search for an exact match on the document root path
             Term idTerm = new Term(CmsGallerySearchFieldMapping.FIELD_RESOURCE_STRUCTURE_ID, structureId.toString());
@@ -135,6 +135,8 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
                 }
             } catch (IOException e) {
                 // ignore, return null and assume document was not found
+            } finally {
+                releaseSearcher(searcher);
             }
         }
         return result;
@@ -194,7 +196,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
      * 
      * @throws CmsSearchException if something goes wrong
      */
-    public synchronized CmsGallerySearchResultList searchGallery(CmsObject cms, CmsGallerySearchParameters params)
+    public CmsGallerySearchResultList searchGallery(CmsObject cms, CmsGallerySearchParameters params)
     throws CmsSearchException {
 
         // the hits found during the search
@@ -203,6 +205,9 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
         // storage for the results found
         CmsGallerySearchResultList searchResults = new CmsGallerySearchResultList();
 
+        // the searcher is used for the whole search, even if the index is updated in the meantime
+        IndexSearcher searcher = acquireSearcher();
+
         try {
             // copy the user OpenCms context
             CmsObject searchCms = OpenCms.initCmsObject(cms);
@@ -275,7 +280,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
                     QueryParser p = new QueryParser(CmsSearchIndex.LUCENE_VERSION, field, getAnalyzer());
                     booleanFieldsQuery.add(p.parse(params.getSearchWords()), BooleanClause.Occur.SHOULD);
                 }
-                fieldsQuery = getSearcher().rewrite(booleanFieldsQuery);
+                fieldsQuery = searcher.rewrite(booleanFieldsQuery);
             }
 
             // finally set the main query to the fields query
@@ -288,8 +293,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
             }
 
             // perform the search operation          
-            getSearcher().setDefaultFieldSortScoring(true, true);
-            hits = getSearcher().search(query, filter, getMaxHits(), params.getSort());
+            hits = searchSorted(searcher, query, filter, params.getSort(), true);
 
             if (hits != null) {
                 int hitCount = hits.totalHits > hits.scoreDocs.length ? hits.scoreDocs.length : hits.totalHits;
@@ -315,7 +319,7 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
                 int visibleHitCount = hitCount;
                 for (int i = 0, cnt = 0; (i < hitCount) && (cnt < end); i++) {
                     try {
-                        doc = getSearcher().doc(hits.scoreDocs[i].doc);
+                        doc = searcher.doc(hits.scoreDocs[i].doc);
                         if (hasReadPermission(searchCms, doc)) {
                             // user has read permission
                             if (cnt >= start) {
@@ -359,6 +363,9 @@ public class CmsGallerySearchIndex extends CmsSearchIndex {
             throw new CmsSearchException(Messages.get().container(Messages.ERR_SEARCH_PARAMS_1, params), e);
         } catch (Exception e) {
             throw new CmsSearchException(Messages.get().container(Messages.ERR_SEARCH_PARAMS_1, params), e);
+        } finally {
+            // release the searcher, this closes the index reader in case the index has been updated during the search
+            releaseSearcher(searcher);
         }
 
         return searchResults;
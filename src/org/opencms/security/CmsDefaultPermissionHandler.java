@@ -28,6 +28,7 @@
 package org.opencms.security;
 
 import org.opencms.configuration.CmsSystemConfiguration;
+import org.opencms.db.CmsCacheDependencies;
 import org.opencms.db.CmsCacheSettings;
 import org.opencms.db.CmsDbContext;
 import org.opencms.db.CmsDriverManager;
@@ -43,8 +44,11 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsInitException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.OpenCms;
+import org.opencms.monitor.CmsMemoryMonitor;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.commons.logging.Log;
 
@@ -212,7 +216,16 @@ public class CmsDefaultPermissionHandler implements I_CmsPermissionHandler {
             }
         }
         if (dbc.getProjectId().isNullUUID()) {
-            OpenCms.getMemoryMonitor().cachePermission(cacheKey, result);
+            CmsMemoryMonitor monitor = OpenCms.getMemoryMonitor();
+            if (monitor.isDependencyTracking()) {
+                // the result depends on the inherited permissions and locks, and on the groups of the user
+                List<String> dependencies = new ArrayList<String>();
+                CmsCacheDependencies.addParentPathTags(dependencies, resource.getRootPath());
+                dependencies.add(CmsCacheDependencies.getResourceTag(resource.getResourceId()));
+                dependencies.add(CmsCacheDependencies.getPrincipalTag(dbc.currentUser().getId()));
+                monitor.addCacheDependencies(CmsMemoryMonitor.CacheType.PERMISSION, cacheKey, dependencies);
+            }
+            monitor.cachePermission(cacheKey, result);
         }
 
         return result;
@@ -76,8 +76,8 @@ public final class CmsSiteManagerImpl {
     /** The length of the "/sites/" folder plus 1. */
     private static final int SITES_FOLDER_POS = SITES_FOLDER.length() + 1;
 
-    /** A list of additional site roots, that is site roots that are not below the "/sites/" folder. */
-    private List<String> m_additionalSiteRoots;
+    /** The additional site roots, that is site roots that are not below the "/sites/" folder. */
+    private CmsSiteRootTrie m_additionalSiteRoots;
 
     /** 
      * The list of aliases for the site that is configured at the moment, 
@@ -93,8 +93,8 @@ public final class CmsSiteManagerImpl {
     /** Indicates if the configuration is finalized (frozen). */
     private boolean m_frozen;
 
-    /** List to access the time offsets. */
-    private List<CmsSiteMatcher> m_matchers;
+    /** Maps the configured site matchers to themselves, to access the time offsets. */
+    private Map<CmsSiteMatcher, CmsSiteMatcher> m_matchers;
 
     /** The shared folder name. */
     private String m_sharedFolder;
@@ -123,8 +123,8 @@ public final class CmsSiteManagerImpl {
         m_siteMatcherSites = new HashMap<CmsSiteMatcher, CmsSite>();
         m_siteRootSites = new HashMap<String, CmsSite>();
         m_aliases = new ArrayList<CmsSiteMatcher>();
-        m_matchers = new ArrayList<CmsSiteMatcher>();
-        m_additionalSiteRoots = new ArrayList<String>();
+        m_matchers = new HashMap<CmsSiteMatcher, CmsSiteMatcher>();
+        m_additionalSiteRoots = new CmsSiteRootTrie(Collections.<String> emptyList());
 
         if (CmsLog.INIT.isInfoEnabled()) {
             CmsLog.INIT.info(Messages.get().getBundle().key(Messages.INIT_START_SITE_CONFIG_0));
@@ -610,17 +610,19 @@ public final class CmsSiteManagerImpl {
 
         // set site lists to unmodifiable 
         m_siteMatcherSites = Collections.unmodifiableMap(m_siteMatcherSites);
-        m_matchers = Collections.unmodifiableList(m_matchers);
+        m_matchers = Collections.unmodifiableMap(m_matchers);
         m_siteRoots = Collections.unmodifiableSet(m_siteRootSites.keySet());
 
         // store additional site roots to optimize lookups later
+        List<String> additionalSiteRoots = new ArrayList<String>();
         Iterator<String> j = m_siteRoots.iterator();
         while (j.hasNext()) {
             String root = j.next();
             if (!root.startsWith(SITES_FOLDER)) {
-                m_additionalSiteRoots.add(root);
+                additionalSiteRoots.add(root);
             }
         }
+        m_additionalSiteRoots = new CmsSiteRootTrie(additionalSiteRoots);
 
         // initialization is done, set the frozen flag to true 
         m_frozen = true;
@@ -831,7 +833,7 @@ public final class CmsSiteManagerImpl {
                 Messages.ERR_DUPLICATE_SERVER_NAME_1,
                 matcher.getUrl()));
         }
-        m_matchers.add(matcher);
+        m_matchers.put(matcher, matcher);
         m_siteMatcherSites.put(matcher, site);
     }
 
@@ -846,29 +848,21 @@ public final class CmsSiteManagerImpl {
 
         CmsSiteMatcher matcher = new CmsSiteMatcher(req.getScheme(), req.getServerName(), req.getServerPort());
         // this is needed to get the right configured time offset
-        int index = m_matchers.indexOf(matcher);
-        if (index < 0) {
-            return matcher;
-        }
-        return m_matchers.get(index);
+        CmsSiteMatcher configuredMatcher = m_matchers.get(matcher);
+        return (configuredMatcher != null) ? configuredMatcher : matcher;
     }
 
     /**
-     * Returns <code>true</code> if the given root path matches any of the stored additional sites.<p> 
+     * Returns the site root of the stored additional sites the given root path matches, 
+     * or <code>null</code> if the root path matches none of them.<p> 
      * 
      * @param rootPath the root path to check
      * 
-     * @return <code>true</code> if the given root path matches any of the stored additional sites
+     * @return the matching additional site root, or <code>null</code>
      */
     private String lookupAdditionalSite(String rootPath) {
 
-        for (int i = 0, size = m_additionalSiteRoots.size(); i < size; i++) {
-            String siteRoot = m_additionalSiteRoots.get(i);
-            if (rootPath.startsWith(siteRoot)) {
-                return siteRoot;
-            }
-        }
-        return null;
+        return m_additionalSiteRoots.getSiteRoot(rootPath);
     }
 
     /**
@@ -0,0 +1,162 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.site;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * An immutable path prefix tree of site roots, used to look up the site root of a resource root path.<p>
+ * 
+ * The lookup cost depends only on the depth of the root path, not on the number of site roots.
+ * A site root matches a root path if the root path is equal to the site root, 
+ * or if it starts with the site root followed by a "/". If several site roots match, 
+ * the longest one is returned.<p>
+ * 
+ * @since 8.0.4
+ */
+public final class CmsSiteRootTrie {
+
+    /**
+     * A node of the site root tree.<p>
+     */
+    private static final class CmsSiteRootNode {
+
+        /** The child nodes, with the path segment name as key. */
+        final Map<String, CmsSiteRootNode> m_children = new HashMap<String, CmsSiteRootNode>();
+
+        /** The site root ending at this node, or <code>null</code>. */
+        String m_siteRoot;
+
+        /**
+         * Returns the child node for the given path segment, creating it if required.<p>
+         * 
+         * @param segment the path segment
+         * 
+         * @return the child node for the given path segment
+         */
+        CmsSiteRootNode addChild(String segment) {
+
+            CmsSiteRootNode child = m_children.get(segment);
+            if (child == null) {
+                child = new CmsSiteRootNode();
+                m_children.put(segment, child);
+            }
+            return child;
+        }
+    }
+
+    /** The root node of the tree. */
+    private final CmsSiteRootNode m_root;
+
+    /** The number of site roots in the tree. */
+    private final int m_size;
+
+    /**
+     * Creates a new site root tree for the given site roots.<p>
+     * 
+     * The site roots must have the form <code>/sites/default</code>, 
+     * that means a leading, but no trailing slash. The empty String is the site root of "/".<p>
+     * 
+     * @param siteRoots the site roots to add
+     */
+    public CmsSiteRootTrie(Collection<String> siteRoots) {
+
+        m_root = new CmsSiteRootNode();
+        int size = 0;
+        Iterator<String> i = siteRoots.iterator();
+        while (i.hasNext()) {
+            String siteRoot = i.next();
+            CmsSiteRootNode node = m_root;
+            int pos = 1;
+            int length = siteRoot.length();
+            while (pos <= length) {
+                int next = siteRoot.indexOf('/', pos);
+                if (next < 0) {
+                    next = length;
+                }
+                if (next > pos) {
+                    node = node.addChild(siteRoot.substring(pos, next));
+                }
+                pos = next + 1;
+            }
+            if (node.m_siteRoot == null) {
+                size++;
+            }
+            node.m_siteRoot = siteRoot;
+        }
+        m_size = size;
+    }
+
+    /**
+     * Returns the longest site root matching the given root path,
+     * or <code>null</code> if no site root matches.<p>
+     * 
+     * @param rootPath the root path of a resource
+     * 
+     * @return the longest site root matching the given root path, or <code>null</code> 
+     */
+    public String getSiteRoot(String rootPath) {
+
+        CmsSiteRootNode node = m_root;
+        String result = node.m_siteRoot;
+        if ((rootPath == null) || !rootPath.startsWith("/")) {
+            return result;
+        }
+        int pos = 1;
+        int length = rootPath.length();
+        while (pos < length) {
+            int next = rootPath.indexOf('/', pos);
+            if (next < 0) {
+                next = length;
+            }
+            node = node.m_children.get(rootPath.substring(pos, next));
+            if (node == null) {
+                break;
+            }
+            if (node.m_siteRoot != null) {
+                result = node.m_siteRoot;
+            }
+            pos = next + 1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of site roots in this tree.<p>
+     * 
+     * @return the number of site roots in this tree
+     */
+    public int size() {
+
+        return m_size;
+    }
+}
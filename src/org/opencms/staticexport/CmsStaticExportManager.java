@@ -46,6 +46,7 @@ import org.opencms.main.CmsException;
 import org.opencms.main.CmsIllegalArgumentException;
 import org.opencms.main.CmsLog;
 import org.opencms.main.CmsSystemInfo;
+import org.opencms.main.I_CmsAsyncEventListener;
 import org.opencms.main.I_CmsEventListener;
 import org.opencms.main.OpenCms;
 import org.opencms.report.CmsLogReport;
@@ -86,7 +87,7 @@ import org.apache.commons.logging.Log;
  * 
  * @since 6.0.0 
  */
-public class CmsStaticExportManager implements I_CmsEventListener {
+public class CmsStaticExportManager implements I_CmsAsyncEventListener {
 
     /** Name for the default file. */
     public static final String DEFAULT_FILE = "index.html";
@@ -1682,6 +1683,16 @@ public class CmsStaticExportManager implements I_CmsEventListener {
         }
     }
 
+    /**
+     * Publish events are delivered asynchronously, since exporting the published resources takes some time.<p>
+     * 
+     * @see org.opencms.main.I_CmsAsyncEventListener#isAsyncDelivery(org.opencms.main.CmsEvent)
+     */
+    public boolean isAsyncDelivery(CmsEvent event) {
+
+        return event.getType() == I_CmsEventListener.EVENT_PUBLISH_PROJECT;
+    }
+
     /**
      * Checks if the static export is required for the given VFS resource.<p>
      * 
@@ -46,8 +46,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -118,6 +122,110 @@ public final class CmsFileUtil {
         }
     }
 
+    /**
+     * Copies a range of bytes from the given input stream to the given output stream.<p>
+     * 
+     * Only a small buffer is used, so this method can copy streams larger than the available memory.
+     * None of the streams is closed.<p>
+     * 
+     * @param in the input stream to copy from
+     * @param out the output stream to copy to
+     * @param offset the number of bytes to skip in the input stream before copying
+     * @param length the maximum number of bytes to copy, or <code>-1</code> to copy up to the end of the input stream
+     * 
+     * @return the number of bytes copied
+     * 
+     * @throws IOException if any IO error occurs during the copy operation
+     */
+    public static long copy(InputStream in, OutputStream out, long offset, long length) throws IOException {
+
+        byte[] buf = new byte[8192];
+        while (offset > 0) {
+            long skipped = in.skip(offset);
+            if (skipped <= 0) {
+                // some streams can not skip, so read the bytes to skip
+                int len = in.read(buf, 0, (int)Math.min(buf.length, offset));
+                if (len < 0) {
+                    return 0;
+                }
+                skipped = len;
+            }
+            offset -= skipped;
+        }
+        long copied = 0;
+        while ((length < 0) || (copied < length)) {
+            int max = (length < 0) ? buf.length : (int)Math.min(buf.length, length - copied);
+            int len = in.read(buf, 0, max);
+            if (len < 0) {
+                break;
+            }
+            out.write(buf, 0, len);
+            copied += len;
+        }
+        return copied;
+    }
+
+    /**
+     * Copies a range of bytes from the given file to the given output stream.<p>
+     * 
+     * The bytes are transferred with a file channel, so the operating system can move them to the 
+     * output without copying the file content to the heap. The output stream is not closed.<p>
+     * 
+     * @param file the file to copy from
+     * @param out the output stream to copy to
+     * @param offset the position of the first byte to copy
+     * @param length the maximum number of bytes to copy, or <code>-1</code> to copy up to the end of the file
+     * 
+     * @return the number of bytes copied
+     * 
+     * @throws IOException if any IO error occurs during the copy operation
+     */
+    public static long copy(File file, OutputStream out, long offset, long length) throws IOException {
+
+        FileInputStream in = new FileInputStream(file);
+        try {
+            return copy(in.getChannel(), out, offset, length);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Copies a range of bytes from the given file channel to the given output stream.<p>
+     * 
+     * Use this instead of {@link #copy(File, OutputStream, long, long)} if the file has already been opened, 
+     * e.g. to make sure it can not be removed between checking its size and copying it.
+     * Neither the channel nor the output stream are closed.<p>
+     * 
+     * @param channel the file channel to copy from
+     * @param out the output stream to copy to
+     * @param offset the position of the first byte to copy
+     * @param length the maximum number of bytes to copy, or <code>-1</code> to copy up to the end of the file
+     * 
+     * @return the number of bytes copied
+     * 
+     * @throws IOException if something goes wrong
+     */
+    public static long copy(FileChannel channel, OutputStream out, long offset, long length) throws IOException {
+
+        // the target channel must not be closed, since this would close the output stream
+        WritableByteChannel target = Channels.newChannel(out);
+        long end = channel.size();
+        if ((length >= 0) && ((offset + length) < end)) {
+            end = offset + length;
+        }
+        long position = offset;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                // the file has been truncated while copying
+                break;
+            }
+            position += transferred;
+        }
+        return Math.max(0, position - offset);
+    }
+
     /**
      * Simply version of a 1:1 binary file copy.<p>
      * 
@@ -58,6 +58,7 @@ import org.opencms.repository.I_CmsRepository;
 import org.opencms.repository.I_CmsRepositoryItem;
 import org.opencms.repository.I_CmsRepositorySession;
 import org.opencms.security.CmsSecurityException;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsRequestUtil;
 
 import java.io.BufferedInputStream;
@@ -524,7 +525,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         InputStream resourceInputStream = null;
         if (!item.isCollection()) {
-            resourceInputStream = new ByteArrayInputStream(item.getContent());
+            resourceInputStream = item.getContentStream();
         } else {
             resourceInputStream = is;
         }
@@ -565,15 +566,9 @@ public class CmsWebdavServlet extends HttpServlet {
         IOException exception = null;
         InputStream resourceInputStream = null;
 
-        // Optimization: If the binary content has already been loaded, send
-        // it directly
+        // stream the binary content, to avoid reading large files into memory
         if (!item.isCollection()) {
-            byte[] buffer = item.getContent();
-            if (buffer != null) {
-                ostream.write(buffer, 0, buffer.length);
-                return;
-            }
-            resourceInputStream = new ByteArrayInputStream(item.getContent());
+            resourceInputStream = item.getContentStream();
         } else {
             resourceInputStream = is;
         }
@@ -613,7 +608,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         IOException exception = null;
 
-        InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+        InputStream resourceInputStream = item.getContentStream();
 
         Reader reader = new InputStreamReader(resourceInputStream);
         exception = copyRange(reader, writer, range.getStart(), range.getEnd());
@@ -655,7 +650,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+            InputStream resourceInputStream = item.getContentStream();
 
             Reader reader = new InputStreamReader(resourceInputStream);
             CmsWebdavRange currentRange = ranges.next();
@@ -711,7 +706,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         IOException exception = null;
 
-        InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+        InputStream resourceInputStream = item.getContentStream();
         InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
         exception = copyRange(istream, ostream, range.getStart(), range.getEnd());
 
@@ -752,7 +747,7 @@ public class CmsWebdavServlet extends HttpServlet {
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = new ByteArrayInputStream(item.getContent());
+            InputStream resourceInputStream = item.getContentStream();
             InputStream istream = new BufferedInputStream(resourceInputStream, m_input);
 
             CmsWebdavRange currentRange = ranges.next();
@@ -844,37 +839,12 @@ public class CmsWebdavServlet extends HttpServlet {
         }
 
         try {
-            istream.skip(start);
+            // streams read from the database may skip and read less bytes than requested 
+            CmsFileUtil.copy(istream, ostream, start, (end - start) + 1);
         } catch (IOException e) {
             return e;
         }
-
-        IOException exception = null;
-        long bytesToRead = (end - start) + 1;
-
-        byte[] buffer = new byte[m_input];
-        int len = buffer.length;
-        while ((bytesToRead > 0) && (len >= buffer.length)) {
-            try {
-                len = istream.read(buffer);
-                if (bytesToRead >= len) {
-                    ostream.write(buffer, 0, len);
-                    bytesToRead -= len;
-                } else {
-                    ostream.write(buffer, 0, (int)bytesToRead);
-                    bytesToRead = 0;
-                }
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
-            }
-
-            if (len < buffer.length) {
-                break;
-            }
-        }
-
-        return exception;
+        return null;
     }
 
     /**
@@ -923,38 +893,34 @@ public class CmsWebdavServlet extends HttpServlet {
      */
     protected IOException copyRange(Reader reader, PrintWriter writer, long start, long end) {
 
-        try {
-            reader.skip(start);
-        } catch (IOException e) {
-            return e;
-        }
-
-        IOException exception = null;
-        long bytesToRead = (end - start) + 1;
-
         char[] buffer = new char[m_input];
-        int len = buffer.length;
-        while ((bytesToRead > 0) && (len >= buffer.length)) {
-            try {
-                len = reader.read(buffer);
-                if (bytesToRead >= len) {
-                    writer.write(buffer, 0, len);
-                    bytesToRead -= len;
-                } else {
-                    writer.write(buffer, 0, (int)bytesToRead);
-                    bytesToRead = 0;
+        try {
+            // readers may skip and read less characters than requested, so repeat until done 
+            long toSkip = start;
+            while (toSkip > 0) {
+                long skipped = reader.skip(toSkip);
+                if (skipped <= 0) {
+                    int len = reader.read(buffer, 0, (int)Math.min(buffer.length, toSkip));
+                    if (len < 0) {
+                        return null;
+                    }
+                    skipped = len;
                 }
-            } catch (IOException e) {
-                exception = e;
-                len = -1;
+                toSkip -= skipped;
             }
-
-            if (len < buffer.length) {
-                break;
+            long charsToRead = (end - start) + 1;
+            while (charsToRead > 0) {
+                int len = reader.read(buffer, 0, (int)Math.min(buffer.length, charsToRead));
+                if (len < 0) {
+                    break;
+                }
+                writer.write(buffer, 0, len);
+                charsToRead -= len;
             }
+        } catch (IOException e) {
+            return e;
         }
-
-        return exception;
+        return null;
     }
 
     /**
@@ -2071,6 +2037,9 @@ public class CmsWebdavServlet extends HttpServlet {
 
             result = false;
             resp.setStatus(HttpServletResponse.SC_CONFLICT);
+        } finally {
+            // the content is streamed into the VFS, so the stream is closed only after saving
+            resourceInputStream.close();
         }
 
         // Bugzilla 40326: at this point content file should be safe to delete
@@ -2176,7 +2145,7 @@ public class CmsWebdavServlet extends HttpServlet {
         try {
             I_CmsRepositoryItem item = m_session.getItem(path);
 
-            oldResourceStream = new ByteArrayInputStream(item.getContent());
+            oldResourceStream = item.getContentStream();
         } catch (CmsException e) {
             if (LOG.isErrorEnabled()) {
                 LOG.error(Messages.get().getBundle().key(Messages.LOG_ITEM_NOT_FOUND_1, path), e);
@@ -2186,13 +2155,15 @@ public class CmsWebdavServlet extends HttpServlet {
         // Copy data in oldRevisionContent to contentFile
         if (oldResourceStream != null) {
 
-            int numBytesRead;
-            byte[] copyBuffer = new byte[BUFFER_SIZE];
-            while ((numBytesRead = oldResourceStream.read(copyBuffer)) != -1) {
-                randAccessContentFile.write(copyBuffer, 0, numBytesRead);
+            try {
+                int numBytesRead;
+                byte[] copyBuffer = new byte[BUFFER_SIZE];
+                while ((numBytesRead = oldResourceStream.read(copyBuffer)) != -1) {
+                    randAccessContentFile.write(copyBuffer, 0, numBytesRead);
+                }
+            } finally {
+                oldResourceStream.close();
             }
-
-            oldResourceStream.close();
         }
 
         randAccessContentFile.setLength(range.getLength());
@@ -0,0 +1,210 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+import org.opencms.util.CmsFileUtil;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the index that keeps the disk caches within their size budget.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsDiskCacheIndex extends TestCase {
+
+    /** The size of the test files. */
+    private static final int FILE_SIZE = 100;
+
+    /**
+     * Tests that the least frequently used files are evicted first.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testEvictionLfu() throws Exception {
+
+        File folder = createCacheFolder();
+        try {
+            File[] files = createFiles(folder, 10);
+            CmsDiskCacheIndex index = new CmsDiskCacheIndex(
+                folder.getPath(),
+                10 * FILE_SIZE,
+                CmsDiskCacheIndex.POLICY_LFU);
+            try {
+                index.initialize();
+                waitForSize(index, 10 * FILE_SIZE);
+                for (int i = 0; i < 3; i++) {
+                    index.recordHit(files[i]);
+                }
+                // the new file has been used as seldom as the files 3 to 9, but more recently
+                index.recordWrite(CmsVfsDiskCache.saveFile(folder.getPath() + "/new.dat", new byte[FILE_SIZE]));
+                waitForSize(index, 9 * FILE_SIZE);
+
+                assertEquals(2, index.getStatistics().getEvictions());
+                assertFalse(files[3].exists());
+                assertFalse(files[4].exists());
+                assertTrue(files[0].exists());
+                assertTrue(files[5].exists());
+                assertTrue(new File(folder, "new.dat").exists());
+            } finally {
+                index.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that the least recently used files are evicted first.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testEvictionLru() throws Exception {
+
+        File folder = createCacheFolder();
+        try {
+            File[] files = createFiles(folder, 10);
+            CmsDiskCacheIndex index = new CmsDiskCacheIndex(
+                folder.getPath(),
+                10 * FILE_SIZE,
+                CmsDiskCacheIndex.POLICY_LRU);
+            try {
+                index.initialize();
+                waitForSize(index, 10 * FILE_SIZE);
+                index.recordHit(files[0]);
+                index.recordWrite(CmsVfsDiskCache.saveFile(folder.getPath() + "/new.dat", new byte[FILE_SIZE]));
+                // the repository is reduced to 90% of the budget
+                waitForSize(index, 9 * FILE_SIZE);
+
+                CmsDiskCacheStatistics stats = index.getStatistics();
+                assertEquals(9, stats.getEntries());
+                assertEquals(2, stats.getEvictions());
+                assertTrue(files[0].exists());
+                assertFalse(files[1].exists());
+                assertFalse(files[2].exists());
+                assertTrue(files[3].exists());
+            } finally {
+                index.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests the counters of an unbounded index.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testUnboundedStatistics() throws Exception {
+
+        File folder = createCacheFolder();
+        try {
+            File[] files = createFiles(folder, 2);
+            CmsDiskCacheIndex index = new CmsDiskCacheIndex(folder.getPath(), 0, null);
+            try {
+                index.initialize();
+                assertFalse(index.isBounded());
+                index.recordHit(files[0]);
+                index.recordHit(files[1]);
+                index.recordHit(files[1]);
+                index.recordMiss();
+                index.recordWrite(files[0]);
+
+                CmsDiskCacheStatistics stats = index.getStatistics();
+                assertEquals(-1, stats.getEntries());
+                assertEquals(-1, stats.getSize());
+                assertEquals(-1, stats.getMaxSize());
+                assertEquals(3, stats.getHits());
+                assertEquals(1, stats.getMisses());
+                assertEquals(75, stats.getHitRatio());
+                assertEquals(FILE_SIZE, stats.getWrittenBytes());
+                assertEquals(0, stats.getEvictions());
+            } finally {
+                index.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Creates an empty cache folder in the temporary directory.<p>
+     * 
+     * @return the cache folder
+     */
+    private File createCacheFolder() {
+
+        File folder = new File(System.getProperty("java.io.tmpdir"), "opencms-test-diskcache-" + System.nanoTime());
+        assertTrue(folder.mkdirs());
+        return folder;
+    }
+
+    /**
+     * Creates the given number of files in sub folders of the cache folder, the first file is the oldest.<p>
+     * 
+     * @param folder the cache folder
+     * @param count the number of files to create
+     * 
+     * @return the created files
+     * 
+     * @throws Exception in case the files could not be written
+     */
+    private File[] createFiles(File folder, int count) throws Exception {
+
+        File[] files = new File[count];
+        long time = System.currentTimeMillis() - (count * 60000L);
+        for (int i = 0; i < count; i++) {
+            String name = folder.getPath() + "/" + (i % 2) + "/file" + i + ".dat";
+            files[i] = CmsVfsDiskCache.saveFile(name, new byte[FILE_SIZE]);
+            assertTrue(files[i].setLastModified(time + (i * 60000L)));
+        }
+        // temporary files are not indexed
+        CmsVfsDiskCache.saveFile(folder.getPath() + "/0/~file0.dat.tmp", new byte[FILE_SIZE]);
+        return files;
+    }
+
+    /**
+     * Waits until the background thread of the index has reached the given size.<p>
+     * 
+     * @param index the index
+     * @param size the expected size
+     * 
+     * @throws Exception in case the test is interrupted
+     */
+    private void waitForSize(CmsDiskCacheIndex index, long size) throws Exception {
+
+        for (int i = 0; (i < 100) && (index.getStatistics().getSize() != size); i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(size, index.getStatistics().getSize());
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cache;
+
+import org.opencms.file.CmsResource;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the name based disk cache.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsVfsNameBasedDiskCache extends TestCase {
+
+    /**
+     * Tests that the sub folder of a cache file is removed from its path.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testRemoveSubFolder() throws Exception {
+
+        File folder = new File(System.getProperty("java.io.tmpdir"), "opencms-test-namecache-" + System.nanoTime());
+        assertTrue(folder.mkdirs());
+        CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getPath() + "/", "images");
+        try {
+            long time = System.currentTimeMillis();
+            CmsResource resource = new CmsResource(
+                new CmsUUID(),
+                new CmsUUID(),
+                "/sites/default/images/photo.jpg",
+                0,
+                false,
+                0,
+                CmsUUID.getNullUUID(),
+                CmsResource.STATE_UNCHANGED,
+                time,
+                CmsUUID.getNullUUID(),
+                time,
+                CmsUUID.getNullUUID(),
+                CmsResource.DATE_RELEASED_DEFAULT,
+                CmsResource.DATE_EXPIRED_DEFAULT,
+                1,
+                1000,
+                time,
+                0);
+            String cacheName = cache.getCacheName(resource, "w:100");
+            assertTrue(cacheName.startsWith(cache.getRepositoryPath()));
+            String path = "/" + cacheName.substring(cache.getRepositoryPath().length());
+            assertFalse(path.startsWith("/sites/"));
+            assertTrue(CmsVfsNameBasedDiskCache.removeSubFolder(path).startsWith("/sites/default/images/photo_"));
+        } finally {
+            cache.shutdown();
+            CmsFileUtil.purgeDirectory(folder);
+        }
+
+        // paths in the layout without sub folders are not changed
+        assertEquals("/sites/default/a.jpg", CmsVfsNameBasedDiskCache.removeSubFolder("/sites/default/a.jpg"));
+        assertEquals("/zz/a.jpg", CmsVfsNameBasedDiskCache.removeSubFolder("/zz/a.jpg"));
+        assertEquals("/a1", CmsVfsNameBasedDiskCache.removeSubFolder("/a1"));
+        assertEquals("/a.jpg", CmsVfsNameBasedDiskCache.removeSubFolder("/0f/a.jpg"));
+    }
+}
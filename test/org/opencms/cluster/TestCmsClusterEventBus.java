@@ -0,0 +1,376 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.cluster;
+
+import org.opencms.db.CmsResourceState;
+import org.opencms.file.CmsResource;
+import org.opencms.main.CmsEvent;
+import org.opencms.main.CmsEventManager;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the cluster event bus, using several event managers in the same JVM.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsClusterEventBus extends TestCase {
+
+    /**
+     * Event listener that records all received events.<p>
+     */
+    private static class RecordingListener implements I_CmsEventListener {
+
+        /** The received events. */
+        List<CmsEvent> m_events = Collections.synchronizedList(new ArrayList<CmsEvent>());
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            m_events.add(event);
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsClusterEventBus(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that encoded events can be decoded, and that unsupported values are dropped.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testCodec() throws Exception {
+
+        CmsUUID id = new CmsUUID();
+        CmsResource resource = new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            "/sites/default/index.html",
+            1,
+            false,
+            0,
+            new CmsUUID(),
+            CmsResourceState.STATE_CHANGED,
+            1L,
+            new CmsUUID(),
+            2L,
+            new CmsUUID(),
+            3L,
+            4L,
+            1,
+            100,
+            5L,
+            6);
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_PUBLISHID, id.toString());
+        data.put(I_CmsEventListener.KEY_CHANGE, new Integer(3));
+        data.put("long", new Long(42L));
+        data.put("flag", Boolean.TRUE);
+        data.put("uuid", id);
+        data.put("null", null);
+        data.put(I_CmsEventListener.KEY_RESOURCE, resource);
+        data.put(I_CmsEventListener.KEY_RESOURCES, Arrays.asList(resource, resource));
+        data.put(I_CmsEventListener.KEY_REPORT, new Object());
+        CmsEvent event = new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, data);
+
+        List<byte[]> encoded = new ArrayList<byte[]>();
+        encoded.add(CmsClusterEventCodec.encodeEvent(event));
+        encoded.add(CmsClusterEventCodec.encodeEvent(new CmsEvent(I_CmsEventListener.EVENT_CLEAR_CACHES, null)));
+        List<CmsEvent> decoded = CmsClusterEventCodec.decodeMessage(CmsClusterEventCodec.encodeMessage(
+            "node1",
+            encoded));
+
+        assertEquals(2, decoded.size());
+        CmsEvent result = decoded.get(0);
+        assertEquals(I_CmsEventListener.EVENT_PUBLISH_PROJECT, result.getType());
+        Map<String, Object> resultData = result.getData();
+        assertEquals("node1", resultData.get(I_CmsEventListener.KEY_CLUSTER_NODE));
+        assertEquals(id.toString(), resultData.get(I_CmsEventListener.KEY_PUBLISHID));
+        assertEquals(new Integer(3), resultData.get(I_CmsEventListener.KEY_CHANGE));
+        assertEquals(new Long(42L), resultData.get("long"));
+        assertEquals(Boolean.TRUE, resultData.get("flag"));
+        assertEquals(id, resultData.get("uuid"));
+        assertTrue(resultData.containsKey("null"));
+        assertNull(resultData.get("null"));
+        assertFalse(resultData.containsKey(I_CmsEventListener.KEY_REPORT));
+
+        CmsResource resultResource = (CmsResource)resultData.get(I_CmsEventListener.KEY_RESOURCE);
+        assertEquals(resource.getStructureId(), resultResource.getStructureId());
+        assertEquals(resource.getResourceId(), resultResource.getResourceId());
+        assertEquals(resource.getRootPath(), resultResource.getRootPath());
+        assertEquals(resource.getState(), resultResource.getState());
+        assertEquals(resource.getDateLastModified(), resultResource.getDateLastModified());
+        assertEquals(resource.getLength(), resultResource.getLength());
+        assertEquals(resource.getVersion(), resultResource.getVersion());
+        assertEquals(2, ((List<?>)resultData.get(I_CmsEventListener.KEY_RESOURCES)).size());
+
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, decoded.get(1).getType());
+        assertEquals(1, decoded.get(1).getData().size());
+    }
+
+    /**
+     * Tests that identical events are sent only once per batch.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testCoalescing() throws Exception {
+
+        String channel = nextChannel();
+        CmsEventManager[] managers = new CmsEventManager[2];
+        RecordingListener[] listeners = new RecordingListener[2];
+        CmsClusterEventBus[] buses = new CmsClusterEventBus[2];
+        for (int i = 0; i < 2; i++) {
+            buses[i] = createBus("node" + i, createLoopbackTransport(channel));
+            managers[i] = new CmsEventManager();
+            listeners[i] = new RecordingListener();
+            managers[i].addCmsEventListener(listeners[i]);
+            buses[i].initialize(managers[i], false);
+            managers[i].setClusterEventBus(buses[i]);
+        }
+
+        for (int i = 0; i < 10; i++) {
+            managers[0].fireEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, Collections.<String, Object> singletonMap(
+                "action",
+                new Integer(1)));
+        }
+        managers[0].fireEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, Collections.<String, Object> singletonMap(
+            "action",
+            new Integer(2)));
+        assertEquals(11, listeners[0].m_events.size());
+        buses[0].flush();
+        assertEquals(2, buses[1].poll());
+        assertEquals(2, listeners[1].m_events.size());
+        assertEquals(new Integer(1), listeners[1].m_events.get(0).getData().get("action"));
+        assertEquals(new Integer(2), listeners[1].m_events.get(1).getData().get("action"));
+
+        // a new batch sends the event again
+        managers[0].fireEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, Collections.<String, Object> singletonMap(
+            "action",
+            new Integer(1)));
+        buses[0].flush();
+        assertEquals(1, buses[1].poll());
+        shutDown(buses);
+    }
+
+    /**
+     * Tests distributing events between several nodes using the loopback transport.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testLoopbackTransport() throws Exception {
+
+        String channel = nextChannel();
+        I_CmsClusterTransport[] transports = new I_CmsClusterTransport[3];
+        for (int i = 0; i < transports.length; i++) {
+            transports[i] = createLoopbackTransport(channel);
+        }
+        checkDistribution(transports);
+    }
+
+    /**
+     * Tests distributing events between several nodes using the shared directory transport.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testSharedDirectoryTransport() throws Exception {
+
+        File directory = File.createTempFile("opencms-cluster", "");
+        directory.delete();
+        try {
+            I_CmsClusterTransport[] transports = new I_CmsClusterTransport[3];
+            for (int i = 0; i < transports.length; i++) {
+                transports[i] = new CmsSharedDirectoryClusterTransport();
+                transports[i].addConfigurationParameter(
+                    CmsSharedDirectoryClusterTransport.PARAM_DIRECTORY,
+                    directory.getAbsolutePath());
+            }
+            checkDistribution(transports);
+
+            // expired messages are deleted
+            CmsSharedDirectoryClusterTransport transport = new CmsSharedDirectoryClusterTransport();
+            transport.addConfigurationParameter(
+                CmsSharedDirectoryClusterTransport.PARAM_DIRECTORY,
+                directory.getAbsolutePath());
+            transport.addConfigurationParameter(CmsSharedDirectoryClusterTransport.PARAM_MAX_AGE, "0");
+            transport.initialize("cleaner");
+            assertTrue(directory.list().length > 0);
+            Thread.sleep(10);
+            assertEquals(0, transport.receive().size());
+            assertEquals(0, directory.list().length);
+        } finally {
+            File[] files = directory.listFiles();
+            for (int i = 0; (files != null) && (i < files.length); i++) {
+                files[i].delete();
+            }
+            directory.delete();
+        }
+    }
+
+    /**
+     * Checks that events fired on one node are received by all other nodes exactly once,
+     * and that events which are not distributed or received from other nodes are not sent.<p>
+     * 
+     * @param transports the transports for the nodes
+     * 
+     * @throws Exception if the test fails
+     */
+    private void checkDistribution(I_CmsClusterTransport[] transports) throws Exception {
+
+        int count = transports.length;
+        CmsEventManager[] managers = new CmsEventManager[count];
+        RecordingListener[] listeners = new RecordingListener[count];
+        CmsClusterEventBus[] buses = new CmsClusterEventBus[count];
+        for (int i = 0; i < count; i++) {
+            buses[i] = createBus("node" + i, transports[i]);
+            managers[i] = new CmsEventManager();
+            listeners[i] = new RecordingListener();
+            managers[i].addCmsEventListener(listeners[i], new int[] {
+                I_CmsEventListener.EVENT_CLEAR_CACHES,
+                I_CmsEventListener.EVENT_PUBLISH_PROJECT,
+                I_CmsEventListener.EVENT_LOGIN_USER});
+            buses[i].initialize(managers[i], false);
+            managers[i].setClusterEventBus(buses[i]);
+        }
+
+        CmsUUID publishId = new CmsUUID();
+        Map<String, Object> data = new HashMap<String, Object>();
+        data.put(I_CmsEventListener.KEY_PUBLISHID, publishId.toString());
+        data.put(I_CmsEventListener.KEY_REPORT, new Object());
+        managers[0].fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, data);
+        // not distributed by default
+        managers[0].fireEvent(I_CmsEventListener.EVENT_LOGIN_USER);
+        managers[1].fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        assertEquals(2, listeners[0].m_events.size());
+        assertEquals(1, listeners[1].m_events.size());
+
+        for (int i = 0; i < count; i++) {
+            buses[i].flush();
+        }
+        for (int i = 0; i < count; i++) {
+            buses[i].poll();
+        }
+
+        // node 0 received the event of node 1, but not its own events
+        assertEquals(3, listeners[0].m_events.size());
+        assertEquals(I_CmsEventListener.EVENT_CLEAR_CACHES, listeners[0].m_events.get(2).getType());
+        assertEquals("node1", listeners[0].m_events.get(2).getData().get(I_CmsEventListener.KEY_CLUSTER_NODE));
+        // node 1 received the publish event of node 0
+        assertEquals(2, listeners[1].m_events.size());
+        CmsEvent received = listeners[1].m_events.get(1);
+        assertEquals(I_CmsEventListener.EVENT_PUBLISH_PROJECT, received.getType());
+        assertEquals(publishId.toString(), received.getData().get(I_CmsEventListener.KEY_PUBLISHID));
+        assertEquals("node0", received.getData().get(I_CmsEventListener.KEY_CLUSTER_NODE));
+        assertNull(received.getData().get(I_CmsEventListener.KEY_REPORT));
+        // the other nodes received both events
+        for (int i = 2; i < count; i++) {
+            assertEquals(2, listeners[i].m_events.size());
+        }
+
+        // received events are not sent again, so there are no more events
+        for (int i = 0; i < count; i++) {
+            buses[i].flush();
+        }
+        for (int i = 0; i < count; i++) {
+            assertEquals(0, buses[i].poll());
+        }
+        shutDown(buses);
+    }
+
+    /**
+     * Creates a cluster event bus.<p>
+     * 
+     * @param node the node id
+     * @param transport the transport
+     * 
+     * @return the cluster event bus
+     */
+    private CmsClusterEventBus createBus(String node, I_CmsClusterTransport transport) {
+
+        CmsClusterEventBus bus = new CmsClusterEventBus();
+        bus.addConfigurationParameter(CmsClusterEventBus.PARAM_NODE, node);
+        bus.setTransport(transport);
+        bus.initConfiguration();
+        return bus;
+    }
+
+    /**
+     * Creates a loopback transport.<p>
+     * 
+     * @param channel the channel name
+     * 
+     * @return the loopback transport
+     */
+    private I_CmsClusterTransport createLoopbackTransport(String channel) {
+
+        I_CmsClusterTransport transport = new CmsLoopbackClusterTransport();
+        transport.addConfigurationParameter(CmsLoopbackClusterTransport.PARAM_CHANNEL, channel);
+        return transport;
+    }
+
+    /**
+     * Returns a new unique channel name.<p>
+     * 
+     * @return a new unique channel name
+     */
+    private String nextChannel() {
+
+        return getName() + new CmsUUID().toString();
+    }
+
+    /**
+     * Shuts down the given buses.<p>
+     * 
+     * @param buses the buses to shut down
+     */
+    private void shutDown(CmsClusterEventBus[] buses) {
+
+        for (int i = 0; i < buses.length; i++) {
+            buses[i].shutDown();
+        }
+    }
+}
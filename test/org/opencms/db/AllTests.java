@@ -63,6 +63,9 @@ public final class AllTests {
         suite.addTest(TestQueryProperties.suite());
         suite.addTest(TestPublishHistory.suite());
         suite.addTest(TestSubscriptionManager.suite());
+        suite.addTest(new TestSuite(TestCmsDbStatementCache.class));
+        suite.addTest(TestCmsPublishList.suite());
+        suite.addTest(TestCmsDbPinnedConnections.suite());
         // $JUnit-END$
         return suite;
     }
@@ -0,0 +1,342 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.db.generic.CmsSqlManager;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsRequestContext;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.sql.Connection;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the connections pinned to a database context.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsDbPinnedConnections extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsDbPinnedConnections(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsDbPinnedConnections.class.getName());
+
+        suite.addTest(new TestCmsDbPinnedConnections("testPinning"));
+        suite.addTest(new TestCmsDbPinnedConnections("testReleaseOnClear"));
+        suite.addTest(new TestCmsDbPinnedConnections("testOtherThread"));
+        suite.addTest(new TestCmsDbPinnedConnections("testCheckoutCounting"));
+        suite.addTest(new TestCmsDbPinnedConnections("testLeakDetection"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that the connections taken from the pools are counted in the request context.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testCheckoutCounting() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the counting of pool checkouts");
+
+        CmsSqlManager sqlManager = createSqlManager();
+        CmsRequestContext context = cms.getRequestContext();
+        context.removeAttribute(CmsDbContext.ATTRIBUTE_CONNECTION_CHECKOUTS);
+
+        // a context that does not pin its connections takes a connection from the pool for every call
+        CmsDbContext dbc = new CmsDbContext(context);
+        for (int i = 0; i < 3; i++) {
+            sqlManager.getConnection(dbc).close();
+        }
+        assertEquals(3, dbc.getConnectionCheckouts());
+        dbc.clear();
+        assertEquals(new Integer(3), context.getAttribute(CmsDbContext.ATTRIBUTE_CONNECTION_CHECKOUTS));
+        assertEquals(0, dbc.getConnectionCheckouts());
+
+        // a pinning context takes only one connection from the pool, the counts are added up
+        dbc = new CmsDbContext(context);
+        dbc.pinConnections();
+        for (int i = 0; i < 3; i++) {
+            sqlManager.getConnection(dbc).close();
+        }
+        assertEquals(1, dbc.getConnectionCheckouts());
+        dbc.clear();
+        assertEquals(new Integer(4), context.getAttribute(CmsDbContext.ATTRIBUTE_CONNECTION_CHECKOUTS));
+
+        context.removeAttribute(CmsDbContext.ATTRIBUTE_CONNECTION_CHECKOUTS);
+    }
+
+    /**
+     * Tests that the connections of a context garbage collected without being cleared are returned to the pool.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testLeakDetection() throws Exception {
+
+        echo("Testing the detection of contexts that were not cleared");
+
+        CmsSqlManager sqlManager = createSqlManager();
+        int active = getActiveConnections();
+
+        CmsDbContext leaked = new CmsDbContext();
+        leaked.pinConnections();
+        sqlManager.getConnection(leaked);
+        assertEquals(active + 1, getActiveConnections());
+
+        // act as if the garbage collector had collected the context without it being cleared
+        CmsDbPinnedConnections pinned = leaked.m_pinnedConnections;
+        pinned.clear();
+        assertTrue(pinned.enqueue());
+
+        // the leaked connection is returned the next time a connection is pinned
+        CmsDbContext dbc = new CmsDbContext();
+        dbc.pinConnections();
+        sqlManager.getConnection(dbc);
+        assertEquals(active + 1, getActiveConnections());
+        dbc.clear();
+        assertEquals(active, getActiveConnections());
+        assertFalse(pinned.hasConnections());
+    }
+
+    /**
+     * Tests that other threads using a pinning context get their own connections.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testOtherThread() throws Exception {
+
+        echo("Testing that connections are only pinned for the thread that pinned them");
+
+        final CmsSqlManager sqlManager = createSqlManager();
+        final CmsDbContext dbc = new CmsDbContext();
+        dbc.pinConnections();
+        try {
+            final Connection pinned = sqlManager.getConnection(dbc);
+            final Connection[] other = new Connection[2];
+            final Throwable[] error = new Throwable[1];
+            Thread thread = new Thread() {
+
+                /**
+                 * @see java.lang.Thread#run()
+                 */
+                @Override
+                public void run() {
+
+                    try {
+                        other[0] = sqlManager.getConnection(dbc);
+                        other[1] = sqlManager.getConnection(dbc);
+                        assertNull(dbc.getPinnedConnection(getPoolUrl()));
+                        other[0].close();
+                        other[1].close();
+                    } catch (Throwable e) {
+                        error[0] = e;
+                    }
+                }
+            };
+            thread.start();
+            thread.join(10000);
+            assertNull(error[0]);
+            assertNotSame(pinned, other[0]);
+            assertNotSame(other[0], other[1]);
+            assertSame(pinned, sqlManager.getConnection(dbc));
+        } finally {
+            dbc.clear();
+        }
+    }
+
+    /**
+     * Tests that a pinning context uses the same connection for all calls.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testPinning() throws Exception {
+
+        echo("Testing that a pinning context uses the same connection for all calls");
+
+        CmsSqlManager sqlManager = createSqlManager();
+        int active = getActiveConnections();
+
+        CmsDbContext dbc = new CmsDbContext();
+        assertFalse(dbc.isPinningConnections());
+        dbc.pinConnections();
+        assertTrue(dbc.isPinningConnections());
+        try {
+            assertNull(dbc.getPinnedConnection(getPoolUrl()));
+            Connection con = sqlManager.getConnection(dbc);
+            assertSame(con, dbc.getPinnedConnection(getPoolUrl()));
+            // closing the connection in the driver has no effect
+            con.close();
+            assertFalse(con.isClosed());
+            assertSame(con, sqlManager.getConnection(dbc));
+            assertEquals(active + 1, getActiveConnections());
+        } finally {
+            dbc.clear();
+        }
+        assertFalse(dbc.isPinningConnections());
+        assertEquals(active, getActiveConnections());
+
+        // without pinning every call gets its own connection
+        dbc = new CmsDbContext();
+        Connection con1 = sqlManager.getConnection(dbc);
+        Connection con2 = sqlManager.getConnection(dbc);
+        try {
+            assertNotSame(con1, con2);
+            assertNull(dbc.getPinnedConnection(getPoolUrl()));
+        } finally {
+            con1.close();
+            con2.close();
+            dbc.clear();
+        }
+        assertEquals(active, getActiveConnections());
+    }
+
+    /**
+     * Tests that the pinned connections are returned to the pool when the context is cleared.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testReleaseOnClear() throws Exception {
+
+        echo("Testing that pinned connections are returned to the pool when the context is cleared");
+
+        CmsSqlManager sqlManager = createSqlManager();
+        int active = getActiveConnections();
+
+        CmsDbContext dbc = new CmsDbContext();
+        dbc.pinConnections();
+        Connection con = sqlManager.getConnection(dbc);
+        // an open transaction is rolled back before the connection is returned
+        con.setAutoCommit(false);
+        assertEquals(active + 1, getActiveConnections());
+        dbc.clear();
+        assertEquals(active, getActiveConnections());
+        assertTrue(con.isClosed());
+        assertNull(dbc.getPinnedConnection(getPoolUrl()));
+
+        Connection next = sqlManager.getConnection(new CmsDbContext());
+        try {
+            assertTrue(next.getAutoCommit());
+        } finally {
+            next.close();
+        }
+
+        // releasing the connections also stops pinning
+        dbc = new CmsDbContext();
+        dbc.pinConnections();
+        con = sqlManager.getConnection(dbc);
+        dbc.releaseConnections();
+        assertFalse(dbc.isPinningConnections());
+        assertTrue(con.isClosed());
+        assertEquals(active, getActiveConnections());
+        dbc.clear();
+    }
+
+    /**
+     * Creates a SQL manager for the default pool.<p>
+     * 
+     * @return a SQL manager for the default pool
+     */
+    private CmsSqlManager createSqlManager() {
+
+        CmsSqlManager sqlManager = new CmsSqlManager();
+        sqlManager.init(I_CmsVfsDriver.DRIVER_TYPE_ID, getPoolName());
+        return sqlManager;
+    }
+
+    /**
+     * Returns the number of active connections of the default pool.<p>
+     * 
+     * @return the number of active connections of the default pool
+     * 
+     * @throws Exception if the pool can not be accessed
+     */
+    private int getActiveConnections() throws Exception {
+
+        return OpenCms.getSqlManager().getActiveConnections(getPoolName());
+    }
+
+    /**
+     * Returns the name of the default pool.<p>
+     * 
+     * @return the name of the default pool
+     */
+    private String getPoolName() {
+
+        return CmsDbPool.OPENCMS_URL_PREFIX + OpenCms.getSqlManager().getDefaultDbPoolName();
+    }
+
+    /**
+     * Returns the url of the default pool.<p>
+     * 
+     * @return the url of the default pool
+     */
+    private String getPoolUrl() {
+
+        return CmsDbPool.DBCP_JDBC_URL_PREFIX + getPoolName();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,323 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.dbcp.ConnectionFactory;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the cache for the prepared statements of pooled connections.<p>
+ * 
+ * The physical connections and statements are simple mock objects, which record the calls made on them.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsDbStatementCache extends TestCase {
+
+    /**
+     * A mock physical connection, which records the statements prepared on it.<p>
+     */
+    static class MockConnection implements InvocationHandler {
+
+        /** Indicates if the connection was closed. */
+        boolean m_closed;
+
+        /** The statements prepared on this connection. */
+        List<MockStatement> m_statements = new ArrayList<MockStatement>();
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) {
+
+            String name = method.getName();
+            if ("prepareStatement".equals(name)) {
+                MockStatement statement = new MockStatement((String)args[0]);
+                m_statements.add(statement);
+                return Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class[] {PreparedStatement.class},
+                    statement);
+            }
+            if ("close".equals(name)) {
+                m_closed = true;
+            }
+            return getDefaultValue(method);
+        }
+    }
+
+    /**
+     * A mock physical statement, which records the methods called on it.<p>
+     */
+    static class MockStatement implements InvocationHandler {
+
+        /** The names of the methods called on this statement. */
+        List<String> m_calls = new ArrayList<String>();
+
+        /** Indicates if the statement was closed. */
+        boolean m_closed;
+
+        /** The SQL of this statement. */
+        String m_sql;
+
+        /**
+         * Creates a new mock statement.<p>
+         * 
+         * @param sql the SQL of the statement
+         */
+        MockStatement(String sql) {
+
+            m_sql = sql;
+        }
+
+        /**
+         * @see java.lang.reflect.InvocationHandler#invoke(java.lang.Object, java.lang.reflect.Method, java.lang.Object[])
+         */
+        public Object invoke(Object proxy, Method method, Object[] args) throws SQLException {
+
+            String name = method.getName();
+            if (m_closed && !"isClosed".equals(name)) {
+                throw new SQLException("statement closed: " + m_sql);
+            }
+            m_calls.add(name);
+            if ("close".equals(name)) {
+                m_closed = true;
+            }
+            return getDefaultValue(method);
+        }
+    }
+
+    /**
+     * Returns the default value for the return type of the given method.<p>
+     * 
+     * @param method the method
+     * 
+     * @return the default value for the return type of the method
+     */
+    static Object getDefaultValue(Method method) {
+
+        Class<?> type = method.getReturnType();
+        if (type == Boolean.TYPE) {
+            return Boolean.FALSE;
+        }
+        if (type == Integer.TYPE) {
+            return new Integer(0);
+        }
+        if (type == Long.TYPE) {
+            return new Long(0);
+        }
+        if (type == int[].class) {
+            return new int[0];
+        }
+        return null;
+    }
+
+    /** The mock physical connections created by the factory. */
+    private List<MockConnection> m_connections;
+
+    /**
+     * Tests that closing a connection closes its cached statements.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testCloseConnection() throws Exception {
+
+        CmsDbStatementCache cache = createCache(10);
+        Connection conn = cache.createConnection();
+        PreparedStatement stmt = conn.prepareStatement("A");
+        stmt.close();
+        PreparedStatement open = conn.prepareStatement("B");
+        conn.close();
+
+        MockConnection physical = m_connections.get(0);
+        assertTrue(physical.m_closed);
+        assertTrue(physical.m_statements.get(0).m_closed);
+        // a statement in use when the connection is closed is not cached when it is closed
+        open.close();
+        assertTrue(physical.m_statements.get(1).m_closed);
+
+        // a closed statement can not be used any more, since the physical statement may be used by someone else
+        try {
+            stmt.executeQuery();
+            fail("a closed statement must not be usable");
+        } catch (SQLException e) {
+            // ok
+        }
+        assertTrue(stmt.isClosed());
+    }
+
+    /**
+     * Tests that the least recently used statements are evicted if the cache of a connection is full.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testEviction() throws Exception {
+
+        CmsDbStatementCache cache = createCache(2);
+        Connection conn = cache.createConnection();
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("B").close();
+        // use A again, so B is the least recently used statement
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("C").close();
+
+        List<MockStatement> statements = m_connections.get(0).m_statements;
+        assertEquals(3, statements.size());
+        assertFalse(statements.get(0).m_closed);
+        assertTrue(statements.get(1).m_closed);
+        assertFalse(statements.get(2).m_closed);
+        assertEquals(1, cache.getEvictions());
+
+        // B has to be prepared again
+        conn.prepareStatement("B").close();
+        assertEquals(4, statements.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(4, cache.getMisses());
+    }
+
+    /**
+     * Tests that statements with changed settings are not cached.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testModifiedStatement() throws Exception {
+
+        CmsDbStatementCache cache = createCache(10);
+        Connection conn = cache.createConnection();
+        PreparedStatement stmt = conn.prepareStatement("A");
+        // this is done by the MySQL SQL manager for streaming queries
+        stmt.setFetchSize(Integer.MIN_VALUE);
+        stmt.close();
+
+        List<MockStatement> statements = m_connections.get(0).m_statements;
+        assertTrue(statements.get(0).m_closed);
+        conn.prepareStatement("A").close();
+        assertEquals(2, statements.size());
+        assertFalse(statements.get(1).m_calls.contains("setFetchSize"));
+        assertEquals(0, cache.getHits());
+    }
+
+    /**
+     * Tests that the state of a statement is reset before it is cached.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testResetState() throws Exception {
+
+        CmsDbStatementCache cache = createCache(10);
+        Connection conn = cache.createConnection();
+        PreparedStatement stmt = conn.prepareStatement("A");
+        stmt.setString(1, "value");
+        stmt.addBatch();
+        stmt.close();
+
+        MockStatement physical = m_connections.get(0).m_statements.get(0);
+        assertFalse(physical.m_closed);
+        assertTrue(physical.m_calls.contains("clearParameters"));
+        assertTrue(physical.m_calls.contains("clearWarnings"));
+        // the pending rows of an aborted batch must not be executed by the next user
+        assertTrue(physical.m_calls.contains("clearBatch"));
+    }
+
+    /**
+     * Tests that closed statements are reused, but never handed out twice at the same time.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testReuse() throws Exception {
+
+        CmsDbStatementCache cache = createCache(10);
+        Connection conn = cache.createConnection();
+        conn.prepareStatement("A").close();
+        conn.prepareStatement("A").close();
+        assertEquals(1, m_connections.get(0).m_statements.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // nested queries with the same SQL get their own statement
+        PreparedStatement outer = conn.prepareStatement("A");
+        PreparedStatement inner = conn.prepareStatement("A");
+        assertEquals(2, m_connections.get(0).m_statements.size());
+        inner.close();
+        outer.close();
+        // only one statement per SQL is kept, the statement closed last is closed physically
+        assertFalse(m_connections.get(0).m_statements.get(1).m_closed);
+        assertTrue(m_connections.get(0).m_statements.get(0).m_closed);
+
+        // each physical connection has its own cache
+        Connection other = cache.createConnection();
+        other.prepareStatement("A").close();
+        assertEquals(1, m_connections.get(1).m_statements.size());
+    }
+
+    /**
+     * @see junit.framework.TestCase#setUp()
+     */
+    @Override
+    protected void setUp() {
+
+        m_connections = new ArrayList<MockConnection>();
+    }
+
+    /**
+     * Creates a statement cache for mock connections.<p>
+     * 
+     * @param maxSize the maximum number of cached statements per connection
+     * 
+     * @return the statement cache
+     */
+    private CmsDbStatementCache createCache(int maxSize) {
+
+        return new CmsDbStatementCache("test", new ConnectionFactory() {
+
+            /**
+             * @see org.apache.commons.dbcp.ConnectionFactory#createConnection()
+             */
+            public Connection createConnection() {
+
+                MockConnection connection = new MockConnection();
+                m_connections.add(connection);
+                return (Connection)Proxy.newProxyInstance(
+                    getClass().getClassLoader(),
+                    new Class[] {Connection.class},
+                    connection);
+            }
+        }, maxSize);
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.db;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the lookups of the publish list and the filtering of the resources to publish.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsPublishList extends OpenCmsTestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsPublishList(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsPublishList.class.getName());
+
+        suite.addTest(new TestCmsPublishList("testAddDuplicates"));
+        suite.addTest(new TestCmsPublishList("testAddSiblings"));
+        suite.addTest(new TestCmsPublishList("testRemove"));
+        suite.addTest(new TestCmsPublishList("testFilterNewFolders"));
+        suite.addTest(new TestCmsPublishList("testFilterSiblings"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that a resource is added only once, even if it is added as another instance.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testAddDuplicates() throws Exception {
+
+        echo("Testing that resources are added to the publish list only once");
+
+        CmsResource file = createResource(new CmsUUID(), new CmsUUID(), "/test/file.txt", false, false);
+        CmsResource folder = createResource(new CmsUUID(), new CmsUUID(), "/test/", true, false);
+        CmsResource deletedFolder = createResource(new CmsUUID(), new CmsUUID(), "/deleted/", true, true);
+
+        CmsPublishList publishList = new CmsPublishList(Collections.<CmsResource> emptyList(), false);
+        publishList.add(file, true);
+        publishList.add(folder, true);
+        publishList.add(deletedFolder, true);
+        // the same resources again, read a second time
+        publishList.add(copyResource(file), true);
+        publishList.add(copyResource(folder), true);
+        publishList.add(copyResource(deletedFolder), true);
+
+        assertEquals(Collections.singletonList(file), publishList.getFileList());
+        assertEquals(Collections.singletonList(folder), publishList.getFolderList());
+        assertEquals(Collections.singletonList(deletedFolder), publishList.getDeletedFolderList());
+        assertTrue(publishList.containsResource(copyResource(file)));
+        assertTrue(publishList.containsResource(copyResource(folder)));
+        assertTrue(publishList.containsResource(copyResource(deletedFolder)));
+        assertFalse(publishList.containsResource(createResource(
+            new CmsUUID(),
+            file.getResourceId(),
+            file.getRootPath(),
+            false,
+            false)));
+    }
+
+    /**
+     * Tests that siblings are added to the publish list as separate resources.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testAddSiblings() throws Exception {
+
+        echo("Testing that siblings are added to the publish list as separate resources");
+
+        CmsUUID resourceId = new CmsUUID();
+        CmsResource file = createResource(new CmsUUID(), resourceId, "/test/file.txt", false, false);
+        CmsResource sibling = createResource(new CmsUUID(), resourceId, "/test/sibling.txt", false, false);
+
+        CmsPublishList publishList = new CmsPublishList(Collections.<CmsResource> emptyList(), true);
+        publishList.add(file, true);
+        publishList.add(sibling, true);
+        publishList.add(sibling, true);
+
+        List<CmsResource> expected = new ArrayList<CmsResource>();
+        expected.add(file);
+        expected.add(sibling);
+        assertEquals(expected, publishList.getFileList());
+        assertTrue(publishList.containsResource(file));
+        assertTrue(publishList.containsResource(sibling));
+    }
+
+    /**
+     * Tests the filtering of resources below new folders.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testFilterNewFolders() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the filtering of resources below new folders");
+
+        String folder = "/folder_publishlist/";
+        String subfolder = folder + "sub/";
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(subfolder, CmsResourceTypeFolder.getStaticTypeId());
+        List<String> files = new ArrayList<String>();
+        for (int i = 0; i < 5; i++) {
+            files.add(folder + "file" + i + ".txt");
+            files.add(subfolder + "file" + i + ".txt");
+        }
+        for (String file : files) {
+            cms.createResource(file, CmsResourceTypePlain.getStaticTypeId(), file.getBytes(), null);
+        }
+
+        // the new sub folder is only published because its new parent folder is published, too
+        CmsPublishList publishList = OpenCms.getPublishManager().getPublishList(
+            cms,
+            cms.readResource(folder),
+            false);
+        assertEquals(2, publishList.getFolderList().size());
+        assertTrue(publishList.containsResource(cms.readResource(folder)));
+        assertTrue(publishList.containsResource(cms.readResource(subfolder)));
+        assertEquals(files.size(), publishList.getFileList().size());
+        assertEquals(files.size(), getStructureIds(publishList.getFileList()).size());
+        for (String file : files) {
+            assertTrue(publishList.containsResource(cms.readResource(file)));
+        }
+
+        // clean up
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+    }
+
+    /**
+     * Tests the filtering of siblings, which are only published if their parent folder is available online.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testFilterSiblings() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing the filtering of siblings");
+
+        String folder = "/folder_siblings/";
+        String newFolder = "/folder_siblings_new/";
+        String file = folder + "file.txt";
+        String sibling = folder + "sibling.txt";
+        String onlineSibling = "/folder1/sibling_publishlist.txt";
+        String newSibling = newFolder + "sibling.txt";
+
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(newFolder, CmsResourceTypeFolder.getStaticTypeId());
+        cms.createResource(file, CmsResourceTypePlain.getStaticTypeId(), "sibling".getBytes(), null);
+        cms.copyResource(file, sibling, CmsResource.COPY_AS_SIBLING);
+        cms.copyResource(file, onlineSibling, CmsResource.COPY_AS_SIBLING);
+        cms.copyResource(file, newSibling, CmsResource.COPY_AS_SIBLING);
+
+        CmsPublishList publishList = OpenCms.getPublishManager().getPublishList(
+            cms,
+            cms.readResource(folder),
+            true);
+        // every sibling once, except the one in the new folder, which is not published
+        List<CmsResource> fileList = publishList.getFileList();
+        assertEquals(3, fileList.size());
+        assertEquals(3, getStructureIds(fileList).size());
+        assertTrue(publishList.containsResource(cms.readResource(file)));
+        assertTrue(publishList.containsResource(cms.readResource(sibling)));
+        assertTrue(publishList.containsResource(cms.readResource(onlineSibling)));
+        assertFalse(publishList.containsResource(cms.readResource(newSibling)));
+
+        // clean up
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+    }
+
+    /**
+     * Tests the removal of resources from the publish list.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testRemove() throws Exception {
+
+        echo("Testing the removal of resources from the publish list");
+
+        CmsResource file = createResource(new CmsUUID(), new CmsUUID(), "/test/file.txt", false, false);
+        CmsResource folder = createResource(new CmsUUID(), new CmsUUID(), "/test/", true, false);
+
+        CmsPublishList publishList = new CmsPublishList(Collections.<CmsResource> emptyList(), false);
+        publishList.add(file, true);
+        publishList.add(folder, true);
+
+        assertTrue(publishList.remove(copyResource(file)));
+        assertFalse(publishList.remove(file));
+        assertFalse(publishList.containsResource(file));
+        assertTrue(publishList.getFileList().isEmpty());
+        assertEquals(Collections.singletonList(folder), publishList.getFolderList());
+
+        // a removed resource can be added again
+        publishList.add(file, true);
+        assertEquals(Collections.singletonList(file), publishList.getFileList());
+        assertTrue(publishList.containsResource(file));
+    }
+
+    /**
+     * Returns another instance of the given resource.<p>
+     * 
+     * @param resource the resource
+     * 
+     * @return another instance of the given resource
+     */
+    private CmsResource copyResource(CmsResource resource) {
+
+        return createResource(
+            resource.getStructureId(),
+            resource.getResourceId(),
+            resource.getRootPath(),
+            resource.isFolder(),
+            resource.getState().isDeleted());
+    }
+
+    /**
+     * Creates a changed resource.<p>
+     * 
+     * @param structureId the structure id of the resource
+     * @param resourceId the resource id of the resource
+     * @param rootPath the root path of the resource
+     * @param isFolder if the resource is a folder
+     * @param isDeleted if the resource is deleted
+     * 
+     * @return the resource
+     */
+    private CmsResource createResource(
+        CmsUUID structureId,
+        CmsUUID resourceId,
+        String rootPath,
+        boolean isFolder,
+        boolean isDeleted) {
+
+        long date = 1300000000000L;
+        return new CmsResource(
+            structureId,
+            resourceId,
+            rootPath,
+            isFolder ? CmsResourceTypeFolder.getStaticTypeId() : CmsResourceTypePlain.getStaticTypeId(),
+            isFolder,
+            0,
+            CmsUUID.getNullUUID(),
+            isDeleted ? CmsResource.STATE_DELETED : CmsResource.STATE_CHANGED,
+            date,
+            CmsUUID.getNullUUID(),
+            date,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            isFolder ? -1 : 0,
+            date,
+            0);
+    }
+
+    /**
+     * Returns the structure ids of the given resources.<p>
+     * 
+     * @param resources the resources
+     * 
+     * @return the structure ids of the given resources
+     */
+    private Set<CmsUUID> getStructureIds(List<CmsResource> resources) {
+
+        Set<CmsUUID> result = new HashSet<CmsUUID>();
+        for (CmsResource resource : resources) {
+            result.add(resource.getStructureId());
+        }
+        return result;
+    }
+}
\ No newline at end of file
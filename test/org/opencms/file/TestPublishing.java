@@ -30,6 +30,7 @@ package org.opencms.file;
 import org.opencms.db.CmsPublishList;
 import org.opencms.db.CmsPublishedResource;
 import org.opencms.db.CmsResourceState;
+import org.opencms.db.generic.CmsProjectDriver;
 import org.opencms.file.history.CmsHistoryFile;
 import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.file.types.CmsResourceTypeImage;
@@ -112,6 +113,7 @@ public class TestPublishing extends OpenCmsTestCase {
         suite.addTest(new TestPublishing("testPublishDeletedSiblings"));
         suite.addTest(new TestPublishing("testPublishDeletedSiblings2"));
         suite.addTest(new TestPublishing("testPublishReplacedFile"));
+        suite.addTest(new TestPublishing("testPublishProjectInBatches"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -1445,6 +1447,63 @@ public class TestPublishing extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests publishing a project with more resources than are reset with a single batch, including siblings.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testPublishProjectInBatches() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing publishing a project with more resources than the publish batch size");
+
+        String folder = "/batchfolder/";
+        int count = CmsProjectDriver.PUBLISH_BATCH_SIZE + 10;
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+        for (int i = 0; i < count; i++) {
+            String file = folder + "file" + i + ".txt";
+            cms.createResource(file, CmsResourceTypePlain.getStaticTypeId(), ("content " + i).getBytes(), null);
+            cms.writePropertyObject(file, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "title " + i, "shared "
+                + i));
+            if ((i % 10) == 0) {
+                cms.createSibling(file, folder + "sibling" + i + ".txt", null);
+            }
+        }
+        cms.unlockResource(folder);
+
+        OpenCms.getPublishManager().publishProject(cms);
+        OpenCms.getPublishManager().waitWhileRunning();
+
+        // all published resources must have been reset to unchanged
+        List resources = cms.readResources(folder, CmsResourceFilter.ALL);
+        assertEquals(count + (count / 10), resources.size());
+        for (int i = 0; i < resources.size(); i++) {
+            CmsResource resource = (CmsResource)resources.get(i);
+            assertEquals(resource.getRootPath(), CmsResource.STATE_UNCHANGED, resource.getState());
+        }
+        assertEquals(CmsResource.STATE_UNCHANGED, cms.readResource(folder).getState());
+
+        // the properties must have been written online exactly once
+        CmsProject offlineProject = cms.getRequestContext().getCurrentProject();
+        cms.getRequestContext().setCurrentProject(cms.readProject(CmsProject.ONLINE_PROJECT_ID));
+        try {
+            for (int i = 0; i < count; i++) {
+                String file = folder + "file" + i + ".txt";
+                CmsProperty title = cms.readPropertyObject(file, CmsPropertyDefinition.PROPERTY_TITLE, false);
+                assertEquals("title " + i, title.getStructureValue());
+                assertEquals("shared " + i, title.getResourceValue());
+                if ((i % 10) == 0) {
+                    String sibling = folder + "sibling" + i + ".txt";
+                    title = cms.readPropertyObject(sibling, CmsPropertyDefinition.PROPERTY_TITLE, false);
+                    assertNull(title.getStructureValue());
+                    assertEquals("shared " + i, title.getResourceValue());
+                }
+            }
+        } finally {
+            cms.getRequestContext().setCurrentProject(offlineProject);
+        }
+    }
+
     /**
      * Tests publishing resources within a distinct project.<p>
      * 
@@ -31,8 +31,13 @@ import org.opencms.main.CmsException;
 import org.opencms.main.OpenCms;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
 import org.opencms.util.CmsUUID;
 
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -74,6 +79,7 @@ public class TestReadResource extends OpenCmsTestCase {
         suite.addTest(new TestReadResource("testReadWithResourceID"));
         suite.addTest(new TestReadResource("testReadWithWrongResourceID"));
         suite.addTest(new TestReadResource("testReadFileWithResourceID"));
+        suite.addTest(new TestReadResource("testReadContentStream"));
 
         TestSetup wrapper = new TestSetup(suite) {
 
@@ -340,6 +346,52 @@ public class TestReadResource extends OpenCmsTestCase {
         }
     }
 
+    /**
+     * Tests reading the content of a file as a stream.<p>
+     *
+     * @throws Throwable if something is wrong
+     */
+    public void testReadContentStream() throws Throwable {
+
+        String path = "/folder1/image1.gif";
+        CmsObject cms = getCmsObject();
+        echo("Testing reading the content of a file as a stream");
+
+        CmsResource resource = cms.readResource(path);
+        byte[] content = cms.readFile(resource).getContents();
+        assertEquals(resource.getLength(), content.length);
+
+        InputStream in = cms.readContentStream(resource);
+        try {
+            byte[] streamed = CmsFileUtil.readFully(in, false);
+            assertTrue(Arrays.equals(content, streamed));
+        } finally {
+            in.close();
+        }
+
+        // read a range of the content from the online project 
+        CmsObject online = getCmsObject();
+        online.getRequestContext().setCurrentProject(online.readProject(CmsProject.ONLINE_PROJECT_ID));
+        in = online.readContentStream(online.readResource(path));
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(10, CmsFileUtil.copy(in, out, 20, 10));
+            byte[] range = new byte[10];
+            System.arraycopy(content, 20, range, 0, 10);
+            assertTrue(Arrays.equals(range, out.toByteArray()));
+        } finally {
+            in.close();
+        }
+
+        // folders have no content
+        try {
+            cms.readContentStream(cms.readResource("/folder1/"));
+            fail("the content of a folder could be read");
+        } catch (CmsException e) {
+            // expected
+        }
+    }
+
     /**
      * Test readFile with the structure id.<p>
      *
@@ -27,14 +27,18 @@
 
 package org.opencms.file;
 
+import org.opencms.file.types.CmsResourceTypeBinary;
 import org.opencms.file.types.CmsResourceTypeJsp;
 import org.opencms.file.types.CmsResourceTypePlain;
 import org.opencms.lock.CmsLockType;
+import org.opencms.main.CmsException;
 import org.opencms.security.CmsSecurityException;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 import org.opencms.test.OpenCmsTestResourceFilter;
 
+import java.io.ByteArrayInputStream;
+
 import junit.extensions.TestSetup;
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -67,6 +71,7 @@ public class TestReplace extends OpenCmsTestCase {
         suite.setName(TestReplace.class.getName());
 
         suite.addTest(new TestReplace("testReplaceResourceContent"));
+        suite.addTest(new TestReplace("testReplaceResourceContentStream"));
         suite.addTest(new TestReplace("testReplaceResourceJsp"));
 
         TestSetup wrapper = new TestSetup(suite) {
@@ -122,6 +127,93 @@ public class TestReplace extends OpenCmsTestCase {
         assertFilter(cms, path, OpenCmsTestResourceFilter.FILTER_REPLACERESOURCE);
     }
 
+    /**
+     * Tests the "create resource" and "replace resource" operations with content read from a stream.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testReplaceResourceContentStream() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing creation and replacement of file content from a stream");
+
+        String path = "/types/streamed.bin";
+        byte[] content = new byte[100000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte)i;
+        }
+
+        // create with unknown length, the content is spooled
+        CmsResource resource = cms.createResource(
+            path,
+            CmsResourceTypeBinary.getStaticTypeId(),
+            new ByteArrayInputStream(content),
+            -1,
+            null);
+        assertEquals(content.length, resource.getLength());
+        assertState(cms, path, CmsResource.STATE_NEW);
+        assertLock(cms, path, CmsLockType.EXCLUSIVE);
+        assertContent(cms, path, content);
+
+        // replace with known length
+        byte[] newContent = "Hello this is the new content".getBytes();
+        long timestamp = System.currentTimeMillis();
+        cms.replaceResource(
+            path,
+            CmsResourceTypeBinary.getStaticTypeId(),
+            new ByteArrayInputStream(newContent),
+            newContent.length,
+            null);
+        assertState(cms, path, CmsResource.STATE_NEW);
+        assertDateLastModifiedAfter(cms, path, timestamp);
+        assertContent(cms, path, newContent);
+        assertEquals(newContent.length, cms.readResource(path).getLength());
+
+        // a stream shorter than the announced length must be rejected
+        CmsResource before = cms.readResource(path);
+        try {
+            cms.replaceResource(
+                path,
+                CmsResourceTypeBinary.getStaticTypeId(),
+                new ByteArrayInputStream(content),
+                content.length + 10,
+                null);
+            fail("replaceResource with a truncated stream should fail");
+        } catch (CmsException e) {
+            // ok
+        }
+        // the old content and length must still be intact
+        assertContent(cms, path, newContent);
+        assertEquals(newContent.length, cms.readResource(path).getLength());
+        assertEquals(before.getDateLastModified(), cms.readResource(path).getDateLastModified());
+
+        // a resource created from a truncated stream must not be left behind
+        String truncatedPath = "/types/truncated.bin";
+        try {
+            cms.createResource(
+                truncatedPath,
+                CmsResourceTypeBinary.getStaticTypeId(),
+                new ByteArrayInputStream(content),
+                content.length + 10,
+                null);
+            fail("createResource with a truncated stream should fail");
+        } catch (CmsException e) {
+            // ok
+        }
+        assertFalse(cms.existsResource(truncatedPath, CmsResourceFilter.ALL));
+
+        // replacing with a type that needs the content falls back to reading it into memory
+        String contentStr = "Hello this is plain text";
+        cms.replaceResource(
+            path,
+            CmsResourceTypePlain.getStaticTypeId(),
+            new ByteArrayInputStream(contentStr.getBytes()),
+            -1,
+            null);
+        assertType(cms, path, CmsResourceTypePlain.getStaticTypeId());
+        assertContent(cms, path, contentStr.getBytes());
+    }
+
     /**
      * Tests the "replace resource" operation for jsp without permissions.<p>
      * 
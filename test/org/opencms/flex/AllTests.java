@@ -60,6 +60,7 @@ public final class AllTests {
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsFlexCacheEntry.class));
         suite.addTest(TestCmsFlexResponse.suite());
+        suite.addTest(TestCmsFlexCache.suite());
         //$JUnit-END$
         return suite;
     }
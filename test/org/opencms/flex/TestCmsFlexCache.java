@@ -0,0 +1,613 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.flex;
+
+import org.opencms.main.CmsEvent;
+import org.opencms.main.I_CmsEventListener;
+import org.opencms.main.OpenCms;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/** 
+ * Unit tests for the {@link CmsFlexCache}.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsFlexCache extends OpenCmsTestCase {
+
+    /** The maximum number of keys in the test caches. */
+    private static final int MAX_KEYS = 64;
+
+    /** The resource name of the test entries. */
+    private static final String RESOURCE = "/system/test/index.jsp";
+
+    /** The variation of the test entries. */
+    private static final String VARIATION = "always";
+
+    /** Another variation of the test entries. */
+    private static final String VARIATION2 = "always;uri=(/index.html)";
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsFlexCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsFlexCache.class.getName());
+
+        suite.addTest(new TestCmsFlexCache("testConcurrentMisses"));
+        suite.addTest(new TestCmsFlexCache("testWaitTimeout"));
+        suite.addTest(new TestCmsFlexCache("testFailedRender"));
+        suite.addTest(new TestCmsFlexCache("testExpiredEntry"));
+        suite.addTest(new TestCmsFlexCache("testClearRenders"));
+        suite.addTest(new TestCmsFlexCache("testStaleWhileRevalidate"));
+        suite.addTest(new TestCmsFlexCache("testRevalidationLimit"));
+        suite.addTest(new TestCmsFlexCache("testAbandonedRevalidation"));
+        suite.addTest(new TestCmsFlexCache("testMaxStaleness"));
+        suite.addTest(new TestCmsFlexCache("testNonBlockingLookup"));
+        suite.addTest(new TestCmsFlexCache("testKeyRelease"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that a revalidation that is never claimed does not block later revalidations.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testAbandonedRevalidation() throws Exception {
+
+        echo("Testing that a revalidation that is never claimed does not block later revalidations");
+        CmsFlexCache cache = createCache(0, false, 60000, 1);
+        try {
+            String resource = getResourceName();
+            putEntry(cache, VARIATION);
+            putEntry(cache, VARIATION2);
+            publish(cache);
+
+            // requests in forward mode or failing before the claim never claim the revalidation
+            for (int i = 0; i < 10; i++) {
+                assertNull(cache.get(resource, VARIATION));
+            }
+            assertEquals(0, cache.getRevalidationCount());
+            // the other variation is still revalidated by the next request
+            assertNull(cache.get(resource, VARIATION2));
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION2);
+            assertNotNull(render);
+            assertTrue(render.m_revalidation);
+            cache.releaseRender(resource, VARIATION2, render);
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that clearing the cache removes the renders in progress.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testClearRenders() throws Exception {
+
+        echo("Testing that clearing the cache removes the renders in progress");
+        CmsFlexCache cache = createCache(10000, true);
+        try {
+            String resource = getResourceName();
+            CmsFlexCacheEntry entry = putEntry(cache);
+            entry.setDateExpires(System.currentTimeMillis() - 1);
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            assertSame(entry, cache.waitForRender(resource, VARIATION));
+
+            Map<String, Object> data = new HashMap<String, Object>();
+            data.put("action", new Integer(CmsFlexCache.CLEAR_ENTRIES));
+            cache.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_FLEX_CACHE_CLEAR, data));
+
+            // the cleared render must neither deliver its expired entry nor block a new render
+            assertNull(cache.waitForRender(resource, VARIATION));
+            CmsFlexCache.CmsFlexRender newRender = cache.claimRender(resource, VARIATION);
+            assertNotNull(newRender);
+
+            // releasing the cleared render must not release the new render
+            cache.releaseRender(resource, VARIATION, render);
+            assertNull(cache.claimRender(resource, VARIATION));
+            cache.releaseRender(resource, VARIATION, newRender);
+            CmsFlexCache.CmsFlexRender thirdRender = cache.claimRender(resource, VARIATION);
+            assertNotNull(thirdRender);
+            cache.releaseRender(resource, VARIATION, thirdRender);
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that concurrent cache misses for the same entry are rendered only once.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testConcurrentMisses() throws Exception {
+
+        echo("Testing that concurrent cache misses for the same entry are rendered only once");
+        final CmsFlexCache cache = createCache(10000, false);
+        try {
+            final String resource = getResourceName();
+            final int count = 8;
+            final CountDownLatch start = new CountDownLatch(1);
+            final AtomicInteger renders = new AtomicInteger();
+            final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+            Thread[] threads = new Thread[count];
+            for (int i = 0; i < count; i++) {
+                threads[i] = new Thread() {
+
+                    @Override
+                    public void run() {
+
+                        try {
+                            start.await();
+                            CmsFlexCacheEntry entry = cache.get(resource, VARIATION);
+                            if (entry == null) {
+                                CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+                                if (render != null) {
+                                    try {
+                                        renders.incrementAndGet();
+                                        Thread.sleep(500);
+                                        entry = putEntry(cache);
+                                    } finally {
+                                        cache.releaseRender(resource, VARIATION, render);
+                                    }
+                                } else {
+                                    entry = cache.waitForRender(resource, VARIATION);
+                                }
+                            }
+                            results.add(entry);
+                        } catch (Throwable t) {
+                            results.add(t);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            start.countDown();
+            for (int i = 0; i < count; i++) {
+                threads[i].join(10000);
+            }
+
+            assertEquals(1, renders.get());
+            assertEquals(1, cache.getRenderCount());
+            assertEquals(0, cache.getRenderTimeoutCount());
+            assertEquals(count, results.size());
+            Object entry = results.get(0);
+            assertTrue(entry instanceof CmsFlexCacheEntry);
+            for (int i = 1; i < count; i++) {
+                assertSame(entry, results.get(i));
+            }
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that an expired entry is served only while it is rendered again.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testExpiredEntry() throws Exception {
+
+        echo("Testing that an expired entry is served only while it is rendered again");
+        CmsFlexCache cache = createCache(10000, true);
+        try {
+            String resource = getResourceName();
+            CmsFlexCacheEntry entry = putEntry(cache);
+            entry.setDateExpires(System.currentTimeMillis() - 1);
+            assertNull(cache.get(resource, VARIATION));
+            // without a render in progress, the expired entry is not served
+            assertNull(cache.waitForRender(resource, VARIATION));
+
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            assertSame(entry, cache.waitForRender(resource, VARIATION));
+            assertEquals(1, cache.getStaleHitCount());
+
+            // a failed render releases the expired entry
+            cache.releaseRender(resource, VARIATION, render);
+            assertNull(cache.waitForRender(resource, VARIATION));
+            assertEquals(1, cache.getStaleHitCount());
+
+            // a successful render replaces the expired entry
+            render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            CmsFlexCacheEntry newEntry = putEntry(cache);
+            cache.releaseRender(resource, VARIATION, render);
+            assertSame(newEntry, cache.get(resource, VARIATION));
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that the least recently used keys are released together with their entries.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testKeyRelease() throws Exception {
+
+        echo("Testing that the least recently used keys are released together with their entries");
+        CmsFlexCache cache = createCache(0, false);
+        try {
+            String hot = CmsFlexCacheKey.getKeyName("/system/test/hot.jsp", true);
+            CmsFlexCacheEntry hotEntry = new CmsFlexCacheEntry();
+            hotEntry.complete();
+            cache.put(new CmsFlexCacheKey("/system/test/hot.jsp", "always", true), hotEntry, VARIATION);
+            for (int i = 0; i < (2 * MAX_KEYS); i++) {
+                // make sure the access times differ
+                Thread.sleep(2);
+                CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+                entry.complete();
+                cache.put(new CmsFlexCacheKey("/system/test/page" + i + ".jsp", "always", true), entry, VARIATION);
+                assertTrue(cache.keySize() <= MAX_KEYS);
+                // keep the hot key recently used
+                assertNotNull(cache.getKey(hot));
+            }
+            assertSame(hotEntry, cache.get(hot, VARIATION));
+            // the oldest keys have been released, the newest are still cached
+            assertNull(cache.getKey(CmsFlexCacheKey.getKeyName("/system/test/page0.jsp", true)));
+            String newest = CmsFlexCacheKey.getKeyName("/system/test/page" + ((2 * MAX_KEYS) - 1) + ".jsp", true);
+            assertNotNull(cache.get(newest, VARIATION));
+            // the entries of the released keys have been removed from the LRU cache
+            assertEquals(cache.keySize(), cache.size());
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that stale entries are not served longer than the maximum staleness.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testMaxStaleness() throws Exception {
+
+        echo("Testing that stale entries are not served longer than the maximum staleness");
+        CmsFlexCache cache = createCache(0, false, 50, 4);
+        try {
+            String resource = getResourceName();
+            putEntry(cache, VARIATION);
+            publish(cache);
+            Thread.sleep(100);
+
+            assertNull(cache.get(resource, VARIATION));
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            assertNull(render.m_stale);
+            assertFalse(render.m_revalidation);
+            // no stale entry and no single flight rendering, so concurrent requests do not wait
+            long start = System.currentTimeMillis();
+            assertNull(cache.waitForRender(resource, VARIATION));
+            assertTrue((System.currentTimeMillis() - start) < 1000);
+            assertEquals(0, cache.getRenderTimeoutCount());
+            cache.releaseRender(resource, VARIATION, render);
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that a failed render wakes up the waiting requests.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testFailedRender() throws Exception {
+
+        echo("Testing that a failed render wakes up the waiting requests");
+        final CmsFlexCache cache = createCache(60000, false);
+        try {
+            final String resource = getResourceName();
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+            Thread waiter = new Thread() {
+
+                @Override
+                public void run() {
+
+                    results.add(String.valueOf(cache.waitForRender(resource, VARIATION)));
+                }
+            };
+            long start = System.currentTimeMillis();
+            waiter.start();
+            Thread.sleep(200);
+            // the render failed without putting an entry, the dispatcher releases it in a finally block
+            cache.releaseRender(resource, VARIATION, render);
+            waiter.join(10000);
+
+            assertFalse(waiter.isAlive());
+            assertTrue((System.currentTimeMillis() - start) < 10000);
+            assertEquals(Collections.singletonList("null"), results);
+            assertEquals(0, cache.getRenderTimeoutCount());
+
+            // the failed render must not block later renders
+            render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            cache.releaseRender(resource, VARIATION, render);
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that cache lookups are not blocked while the cache is cleared.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testNonBlockingLookup() throws Exception {
+
+        echo("Testing that cache lookups are not blocked while the cache is cleared");
+        final CmsFlexCache cache = createCache(0, false);
+        try {
+            final String resource = getResourceName();
+            final CmsFlexCacheEntry entry = putEntry(cache);
+            final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+            Thread reader = new Thread() {
+
+                @Override
+                public void run() {
+
+                    results.add(cache.getKey(resource));
+                    results.add(cache.get(resource, VARIATION));
+                    results.add(putEntry(cache, VARIATION2));
+                }
+            };
+            // the cache clear operations hold the monitor of the cache
+            synchronized (cache) {
+                reader.start();
+                reader.join(10000);
+                assertFalse(reader.isAlive());
+            }
+            assertEquals(3, results.size());
+            assertNotNull(results.get(0));
+            assertSame(entry, results.get(1));
+            assertSame(results.get(2), cache.get(resource, VARIATION2));
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that the number of concurrent revalidations is limited.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testRevalidationLimit() throws Exception {
+
+        echo("Testing that the number of concurrent revalidations is limited");
+        CmsFlexCache cache = createCache(0, false, 60000, 1);
+        try {
+            String resource = getResourceName();
+            putEntry(cache, VARIATION);
+            CmsFlexCacheEntry entry2 = putEntry(cache, VARIATION2);
+            publish(cache);
+
+            assertNull(cache.get(resource, VARIATION));
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            // the limit is reached, so the other variation is served stale
+            assertSame(entry2, cache.get(resource, VARIATION2));
+
+            cache.releaseRender(resource, VARIATION, render);
+            assertNull(cache.get(resource, VARIATION2));
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that stale entries are served after a publish while they are rendered again.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testStaleWhileRevalidate() throws Exception {
+
+        echo("Testing that stale entries are served after a publish while they are rendered again");
+        CmsFlexCache cache = createCache(0, false, 60000, 4);
+        try {
+            assertFalse(cache.isSingleFlight());
+            assertTrue(cache.isStaleWhileRevalidate());
+            String resource = getResourceName();
+            CmsFlexCacheEntry entry = putEntry(cache, VARIATION);
+            assertSame(entry, cache.get(resource, VARIATION));
+            publish(cache);
+            assertTrue(entry.isStale());
+
+            // the first request renders the entry again, concurrent requests get the stale entry
+            assertNull(cache.get(resource, VARIATION));
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            assertTrue(render.m_revalidation);
+            assertEquals(1, cache.getRevalidationCount());
+            assertSame(entry, cache.get(resource, VARIATION));
+            assertNull(cache.claimRender(resource, VARIATION));
+            assertSame(entry, cache.waitForRender(resource, VARIATION));
+
+            CmsFlexCacheEntry newEntry = putEntry(cache, VARIATION);
+            cache.releaseRender(resource, VARIATION, render);
+            assertSame(newEntry, cache.get(resource, VARIATION));
+            assertFalse(newEntry.isStale());
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Tests that a request stops waiting for a concurrent render after the timeout.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testWaitTimeout() throws Exception {
+
+        echo("Testing that a request stops waiting for a concurrent render after the timeout");
+        CmsFlexCache cache = createCache(100, false);
+        try {
+            String resource = getResourceName();
+            CmsFlexCache.CmsFlexRender render = cache.claimRender(resource, VARIATION);
+            assertNotNull(render);
+            assertNull(cache.claimRender(resource, VARIATION));
+            long start = System.currentTimeMillis();
+            assertNull(cache.waitForRender(resource, VARIATION));
+            assertTrue((System.currentTimeMillis() - start) >= 90);
+            assertEquals(1, cache.getRenderTimeoutCount());
+            cache.releaseRender(resource, VARIATION, render);
+        } finally {
+            OpenCms.removeCmsEventListener(cache);
+        }
+    }
+
+    /**
+     * Creates an enabled flex cache for the online project.<p>
+     * 
+     * @param timeout the single flight timeout
+     * @param stale if expired entries are served during a render
+     * 
+     * @return the created flex cache
+     */
+    private CmsFlexCache createCache(long timeout, boolean stale) {
+
+        return createCache(timeout, stale, 0, CmsFlexCacheConfiguration.DEFAULT_MAX_REVALIDATIONS);
+    }
+
+    /**
+     * Creates an enabled flex cache for the online project that may serve stale entries after a publish.<p>
+     * 
+     * @param timeout the single flight timeout
+     * @param stale if expired entries are served during a render
+     * @param maxStaleness the maximum time a stale entry is served after a publish
+     * @param maxRevalidations the maximum number of concurrent revalidations
+     * 
+     * @return the created flex cache
+     */
+    private CmsFlexCache createCache(long timeout, boolean stale, long maxStaleness, int maxRevalidations) {
+
+        CmsFlexCacheConfiguration configuration = new CmsFlexCacheConfiguration();
+        configuration.setCacheEnabled(true);
+        configuration.setMaxCacheBytes(1000000);
+        configuration.setAvgCacheBytes(500000);
+        configuration.setMaxEntryBytes(100000);
+        configuration.setMaxKeys(MAX_KEYS);
+        configuration.setSingleFlight(String.valueOf(timeout), String.valueOf(stale));
+        configuration.setStaleWhileRevalidate(String.valueOf(maxStaleness), String.valueOf(maxRevalidations));
+        return new CmsFlexCache(configuration);
+    }
+
+    /**
+     * Returns the cache resource name of the test entries.<p>
+     * 
+     * @return the cache resource name of the test entries
+     */
+    private String getResourceName() {
+
+        return CmsFlexCacheKey.getKeyName(RESOURCE, true);
+    }
+
+    /**
+     * Sends a publish event to the given cache.<p>
+     * 
+     * @param cache the cache
+     */
+    private void publish(CmsFlexCache cache) {
+
+        cache.cmsEvent(new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, new HashMap<String, Object>()));
+    }
+
+    /**
+     * Puts a new entry for the test resource in the cache.<p>
+     * 
+     * @param cache the cache
+     * 
+     * @return the new entry
+     */
+    private CmsFlexCacheEntry putEntry(CmsFlexCache cache) {
+
+        return putEntry(cache, VARIATION);
+    }
+
+    /**
+     * Puts a new entry for the given variation of the test resource in the cache.<p>
+     * 
+     * @param cache the cache
+     * @param variation the variation of the entry
+     * 
+     * @return the new entry
+     */
+    private CmsFlexCacheEntry putEntry(CmsFlexCache cache, String variation) {
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.complete();
+        assertTrue(cache.put(new CmsFlexCacheKey(RESOURCE, "always", true), entry, variation));
+        return entry;
+    }
+}
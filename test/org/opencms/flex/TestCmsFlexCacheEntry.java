@@ -27,6 +27,16 @@
 
 package org.opencms.flex;
 
+import org.opencms.cache.I_CmsLruCacheObject;
+import org.opencms.monitor.CmsMemoryMonitor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import junit.framework.TestCase;
 
 /**
@@ -44,6 +54,97 @@ public class TestCmsFlexCacheEntry extends TestCase {
         super(arg0);
     }
 
+    /**
+     * Tests marking an entry as stale.<p>
+     */
+    public void testMarkStale() {
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.complete();
+        assertFalse(entry.isStale());
+        assertEquals(0, entry.getStaleSince());
+
+        entry.markStale(1000);
+        assertTrue(entry.isStale());
+        assertEquals(1000, entry.getStaleSince());
+
+        // marking again must not change the time the entry became stale
+        entry.markStale(2000);
+        assertEquals(1000, entry.getStaleSince());
+    }
+
+    /**
+     * Tests off-heap storage of the cached output.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testOffHeapStorage() throws Exception {
+
+        byte[] first = new byte[CmsFlexCacheEntry.OFFHEAP_MIN_SIZE];
+        Arrays.fill(first, (byte)'a');
+        byte[] second = "second".getBytes();
+
+        CmsFlexCacheEntry entry = new CmsFlexCacheEntry();
+        entry.add(first);
+        entry.add("/include.jsp", null, null);
+        entry.add(second);
+        int heapCosts = entry.getLruCacheCosts();
+        entry.complete(true);
+
+        List<Object> elements = entry.elements();
+        assertEquals(5, elements.size());
+        assertTrue(elements.get(0) instanceof ByteBuffer);
+        assertEquals("/include.jsp", elements.get(1));
+        assertTrue(elements.get(4) instanceof ByteBuffer);
+        assertTrue(((ByteBuffer)elements.get(0)).isDirect());
+        assertTrue(((ByteBuffer)elements.get(0)).isReadOnly());
+
+        // the costs must now contain the exact off-heap size instead of the estimated array sizes
+        int offHeapCosts = entry.getLruCacheCosts();
+        assertTrue(offHeapCosts < heapCosts);
+        assertEquals(
+            heapCosts - offHeapCosts,
+            CmsMemoryMonitor.getMemorySize(first)
+                + CmsMemoryMonitor.getMemorySize(second)
+                - (first.length + second.length));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CmsFlexCacheEntry.write((ByteBuffer)elements.get(0), out);
+        assertTrue(Arrays.equals(first, out.toByteArray()));
+        // writing must not change the state of the shared segment
+        out.reset();
+        CmsFlexCacheEntry.write((ByteBuffer)elements.get(0), out);
+        assertTrue(Arrays.equals(first, out.toByteArray()));
+        assertTrue(Arrays.equals(second, CmsFlexCacheEntry.getBytes((ByteBuffer)elements.get(4))));
+
+        // small entries remain on the heap
+        CmsFlexCacheEntry small = new CmsFlexCacheEntry();
+        small.add(second);
+        small.complete(true);
+        assertTrue(small.elements().get(0) instanceof byte[]);
+    }
+
+    /**
+     * Tests that removing a replaced entry from the LRU cache does not remove the newer entry.<p>
+     */
+    public void testRemoveReplacedEntry() {
+
+        Map<String, I_CmsLruCacheObject> variations = new ConcurrentHashMap<String, I_CmsLruCacheObject>();
+        CmsFlexCacheEntry oldEntry = new CmsFlexCacheEntry();
+        oldEntry.setVariationData("variation", variations);
+        variations.put("variation", oldEntry);
+
+        CmsFlexCacheEntry newEntry = new CmsFlexCacheEntry();
+        newEntry.setVariationData("variation", variations);
+        variations.put("variation", newEntry);
+
+        oldEntry.removeFromLruCache();
+        assertSame(newEntry, variations.get("variation"));
+
+        newEntry.removeFromLruCache();
+        assertTrue(variations.isEmpty());
+    }
+
     /**
      * Tests the method getAbsoluteUri.<p>
      */
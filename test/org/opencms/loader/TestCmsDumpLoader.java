@@ -0,0 +1,412 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.loader;
+
+import org.opencms.file.CmsResource;
+import org.opencms.test.OpenCmsTestServletRequest;
+import org.opencms.test.OpenCmsTestServletResponse;
+import org.opencms.util.CmsRequestUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the byte range handling of the OpenCms dump loader.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsDumpLoader extends TestCase {
+
+    /**
+     * A request that only provides the headers set for the test.<p>
+     */
+    private static class TestRequest extends OpenCmsTestServletRequest {
+
+        private Map<String, String> m_headers = new HashMap<String, String>();
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletRequest#getDateHeader(java.lang.String)
+         */
+        @Override
+        public long getDateHeader(String name) {
+
+            String value = m_headers.get(name);
+            if (value == null) {
+                return -1;
+            }
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(value);
+            }
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletRequest#getHeader(java.lang.String)
+         */
+        @Override
+        public String getHeader(String name) {
+
+            return m_headers.get(name);
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletRequest#getSession(boolean)
+         */
+        @Override
+        public HttpSession getSession(boolean create) {
+
+            // no session means no workplace user
+            return null;
+        }
+
+        /**
+         * Sets a header for the test.<p>
+         * 
+         * @param name the header name
+         * @param value the header value
+         */
+        public void setHeader(String name, String value) {
+
+            m_headers.put(name, value);
+        }
+    }
+
+    /**
+     * A response that records the status, the headers and the content.<p>
+     */
+    private static class TestResponse extends OpenCmsTestServletResponse {
+
+        private ByteArrayOutputStream m_content = new ByteArrayOutputStream();
+
+        private Map<String, String> m_headers = new HashMap<String, String>();
+
+        private int m_status;
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletResponse#containsHeader(java.lang.String)
+         */
+        @Override
+        public boolean containsHeader(String name) {
+
+            return m_headers.containsKey(name);
+        }
+
+        /**
+         * Returns the content written to the response.<p>
+         * 
+         * @return the content written to the response
+         */
+        public byte[] getContent() {
+
+            return m_content.toByteArray();
+        }
+
+        /**
+         * Returns the value of the given header.<p>
+         * 
+         * @param name the header name
+         * 
+         * @return the value of the given header
+         */
+        public String getHeader(String name) {
+
+            return m_headers.get(name);
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletResponse#getOutputStream()
+         */
+        @Override
+        public ServletOutputStream getOutputStream() {
+
+            return new ServletOutputStream() {
+
+                @Override
+                public void write(int b) {
+
+                    m_content.write(b);
+                }
+            };
+        }
+
+        /**
+         * Returns the status of the response.<p>
+         * 
+         * @return the status of the response
+         */
+        public int getStatus() {
+
+            return m_status;
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletResponse#setContentLength(int)
+         */
+        @Override
+        public void setContentLength(int length) {
+
+            m_headers.put(CmsRequestUtil.HEADER_CONTENT_LENGTH, String.valueOf(length));
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletResponse#setDateHeader(java.lang.String, long)
+         */
+        @Override
+        public void setDateHeader(String name, long date) {
+
+            m_headers.put(name, String.valueOf(date));
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletResponse#setHeader(java.lang.String, java.lang.String)
+         */
+        @Override
+        public void setHeader(String name, String value) {
+
+            m_headers.put(name, value);
+        }
+
+        /**
+         * @see org.opencms.test.OpenCmsTestServletResponse#setStatus(int)
+         */
+        @Override
+        public void setStatus(int status) {
+
+            m_status = status;
+        }
+    }
+
+    /** The last modification date of the test resource. */
+    private static final long DATE_LAST_MODIFIED = 1300000000000L;
+
+    /**
+     * Tests the ranges that are answered with the full content.<p>
+     */
+    public void testFullContent() {
+
+        CmsDumpLoader loader = new CmsDumpLoader();
+        CmsResource resource = createResource(1000);
+
+        assertNull(loader.getRequestedRange(resource, createRequest(null)));
+        assertNull(loader.getRequestedRange(resource, createRequest("items=0-10")));
+        assertNull(loader.getRequestedRange(resource, createRequest("bytes=0-10,20-30")));
+        assertNull(loader.getRequestedRange(resource, createRequest("bytes=20-10")));
+        assertNull(loader.getRequestedRange(resource, createRequest("bytes=a-10")));
+
+        // the client has another version of the resource
+        TestRequest req = createRequest("bytes=0-10");
+        req.setHeader(CmsRequestUtil.HEADER_IF_RANGE, String.valueOf(DATE_LAST_MODIFIED - 5000));
+        assertNull(loader.getRequestedRange(resource, req));
+
+        // the client sent an entity tag
+        req = createRequest("bytes=0-10");
+        req.setHeader(CmsRequestUtil.HEADER_IF_RANGE, "\"1000-1\"");
+        assertNull(loader.getRequestedRange(resource, req));
+    }
+
+    /**
+     * Tests sending a file from the RFS as the content of a resource.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testLoadFile() throws Exception {
+
+        CmsDumpLoader loader = new CmsDumpLoader();
+        CmsResource resource = createResource(10);
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte)i;
+        }
+        File file = File.createTempFile("opencms-test-", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            String etag = loader.getETag(file, file.length());
+
+            // the full content, the length is taken from the file
+            TestResponse res = new TestResponse();
+            assertTrue(loader.loadFile(null, resource, file, createRequest(null), res));
+            assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+            assertEquals("1000", res.getHeader(CmsRequestUtil.HEADER_CONTENT_LENGTH));
+            assertEquals(etag, res.getHeader(CmsRequestUtil.HEADER_ETAG));
+            assertEquals(String.valueOf(DATE_LAST_MODIFIED), res.getHeader(CmsRequestUtil.HEADER_LAST_MODIFIED));
+            assertTrue(Arrays.equals(data, res.getContent()));
+
+            // a range of the content
+            res = new TestResponse();
+            loader.loadFile(null, resource, file, createRequest("bytes=100-109"), res);
+            assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, res.getStatus());
+            assertEquals("bytes 100-109/1000", res.getHeader(CmsRequestUtil.HEADER_CONTENT_RANGE));
+            assertEquals(10, res.getContent().length);
+            assertEquals((byte)100, res.getContent()[0]);
+
+            // the client already has this version of the file
+            TestRequest req = createRequest(null);
+            req.setHeader(CmsRequestUtil.HEADER_IF_NONE_MATCH, "\"other\", " + etag);
+            res = new TestResponse();
+            loader.loadFile(null, resource, file, req, res);
+            assertEquals(HttpServletResponse.SC_NOT_MODIFIED, res.getStatus());
+            assertEquals(0, res.getContent().length);
+
+            // the client has another version of the file
+            req = createRequest("bytes=100-109");
+            req.setHeader(CmsRequestUtil.HEADER_IF_RANGE, "\"other\"");
+            res = new TestResponse();
+            loader.loadFile(null, resource, file, req, res);
+            assertEquals(HttpServletResponse.SC_OK, res.getStatus());
+            assertEquals(1000, res.getContent().length);
+        } finally {
+            file.delete();
+        }
+
+        // the file has been removed, e.g. by a disk cache eviction, so no header must be set
+        TestResponse res = new TestResponse();
+        assertFalse(loader.loadFile(null, resource, file, createRequest(null), res));
+        assertEquals(0, res.getStatus());
+        assertNull(res.getHeader(CmsRequestUtil.HEADER_CONTENT_LENGTH));
+        assertNull(res.getHeader(CmsRequestUtil.HEADER_ETAG));
+        assertEquals(0, res.getContent().length);
+    }
+
+    /**
+     * Tests the ranges that can be delivered.<p>
+     */
+    public void testRanges() {
+
+        CmsDumpLoader loader = new CmsDumpLoader();
+        CmsResource resource = createResource(1000);
+
+        assertRange(0, 9, loader.getRequestedRange(resource, createRequest("bytes=0-9")));
+        assertRange(500, 999, loader.getRequestedRange(resource, createRequest("bytes=500-")));
+        assertRange(500, 999, loader.getRequestedRange(resource, createRequest("bytes=500-5000")));
+        assertRange(900, 999, loader.getRequestedRange(resource, createRequest("bytes=-100")));
+        assertRange(0, 999, loader.getRequestedRange(resource, createRequest("bytes=-5000")));
+
+        // the client has the current version of the resource
+        TestRequest req = createRequest("bytes=0-9");
+        req.setHeader(CmsRequestUtil.HEADER_IF_RANGE, String.valueOf(DATE_LAST_MODIFIED));
+        assertRange(0, 9, loader.getRequestedRange(resource, req));
+
+        // the client has the current version of the content, identified by its entity tag
+        req = createRequest("bytes=0-9");
+        req.setHeader(CmsRequestUtil.HEADER_IF_RANGE, "\"1000-1\"");
+        assertRange(0, 9, loader.getRequestedRange(req, 1000, DATE_LAST_MODIFIED, "\"1000-1\""));
+        req.setHeader(CmsRequestUtil.HEADER_IF_RANGE, "W/\"1000-1\"");
+        assertNull(loader.getRequestedRange(req, 1000, DATE_LAST_MODIFIED, "\"1000-1\""));
+    }
+
+    /**
+     * Tests the ranges that can not be satisfied.<p>
+     */
+    public void testUnsatisfiableRanges() {
+
+        CmsDumpLoader loader = new CmsDumpLoader();
+        CmsResource resource = createResource(1000);
+
+        assertEquals(1000, loader.getRequestedRange(resource, createRequest("bytes=1000-"))[0]);
+        assertEquals(1000, loader.getRequestedRange(resource, createRequest("bytes=2000-3000"))[0]);
+        assertEquals(1000, loader.getRequestedRange(resource, createRequest("bytes=-0"))[0]);
+    }
+
+    /**
+     * Asserts that the given range has the expected bounds.<p>
+     * 
+     * @param start the expected first position
+     * @param end the expected last position
+     * @param range the range to check
+     */
+    private void assertRange(long start, long end, long[] range) {
+
+        assertNotNull(range);
+        assertEquals(start, range[0]);
+        assertEquals(end, range[1]);
+    }
+
+    /**
+     * Creates a request with the given range header.<p>
+     * 
+     * @param range the range header, or <code>null</code>
+     * 
+     * @return the request
+     */
+    private TestRequest createRequest(String range) {
+
+        TestRequest req = new TestRequest();
+        if (range != null) {
+            req.setHeader(CmsRequestUtil.HEADER_RANGE, range);
+        }
+        return req;
+    }
+
+    /**
+     * Creates a file resource with the given length.<p>
+     * 
+     * @param length the length of the resource
+     * 
+     * @return the resource
+     */
+    private CmsResource createResource(int length) {
+
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            "/test.bin",
+            1,
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            DATE_LAST_MODIFIED,
+            CmsUUID.getNullUUID(),
+            DATE_LAST_MODIFIED,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            length,
+            DATE_LAST_MODIFIED,
+            0);
+    }
+}
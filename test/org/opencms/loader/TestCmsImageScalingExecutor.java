@@ -0,0 +1,723 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.loader;
+
+import org.opencms.cache.CmsVfsNameBasedDiskCache;
+import org.opencms.file.CmsFile;
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeImage;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+import org.opencms.util.CmsFileUtil;
+import org.opencms.util.CmsUUID;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Tests the executor that scales images for the image loader.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsImageScalingExecutor extends OpenCmsTestCase {
+
+    /**
+     * Requests a scaled image in a separate thread.<p>
+     */
+    private static class CmsScalingRequest extends Thread {
+
+        /** The OpenCms context of the request. */
+        private CmsObject m_cms;
+
+        /** The error of the request. */
+        private Throwable m_error;
+
+        /** The executor to request the image from. */
+        private CmsImageScalingExecutor m_executor;
+
+        /** The image resource. */
+        private CmsResource m_resource;
+
+        /** The disk cache file returned for the request. */
+        private File m_result;
+
+        /** The image scaler to use. */
+        private CmsImageScaler m_scaler;
+
+        /**
+         * Creates a new request.<p>
+         * 
+         * @param executor the executor to request the image from
+         * @param cms the OpenCms context of the request
+         * @param resource the image resource
+         * @param scaler the image scaler to use
+         */
+        protected CmsScalingRequest(
+            CmsImageScalingExecutor executor,
+            CmsObject cms,
+            CmsResource resource,
+            CmsImageScaler scaler) {
+
+            m_executor = executor;
+            m_cms = cms;
+            m_resource = resource;
+            m_scaler = scaler;
+        }
+
+        /**
+         * @see java.lang.Thread#run()
+         */
+        @Override
+        public void run() {
+
+            try {
+                m_result = m_executor.getScaledImageFile(m_cms, m_resource, m_scaler);
+            } catch (Throwable e) {
+                m_error = e;
+            }
+        }
+
+        /**
+         * Returns the error of the request.<p>
+         * 
+         * @return the error of the request, or <code>null</code> 
+         */
+        protected Throwable getError() {
+
+            return m_error;
+        }
+
+        /**
+         * Returns the disk cache file returned for the request.<p>
+         * 
+         * @return the disk cache file returned for the request, or <code>null</code>
+         */
+        protected File getResult() {
+
+            return m_result;
+        }
+    }
+
+    /**
+     * Counts the images scaled at the same time, and blocks the scaling until it is released.<p>
+     */
+    private static class CmsScalingMonitor {
+
+        /** The number of images scaled so far. */
+        private AtomicInteger m_calls = new AtomicInteger();
+
+        /** The error thrown by the scaling. */
+        private volatile RuntimeException m_error;
+
+        /** Blocks the scaling until it is released. */
+        private CountDownLatch m_gate = new CountDownLatch(1);
+
+        /** The maximum number of images scaled at the same time. */
+        private AtomicInteger m_maxRunning = new AtomicInteger();
+
+        /** The number of images currently scaled. */
+        private AtomicInteger m_running = new AtomicInteger();
+
+        /**
+         * Returns the number of images scaled so far.<p>
+         * 
+         * @return the number of images scaled so far
+         */
+        protected int getCalls() {
+
+            return m_calls.get();
+        }
+
+        /**
+         * Returns the maximum number of images scaled at the same time.<p>
+         * 
+         * @return the maximum number of images scaled at the same time
+         */
+        protected int getMaxRunning() {
+
+            return m_maxRunning.get();
+        }
+
+        /**
+         * Returns the number of images currently scaled.<p>
+         * 
+         * @return the number of images currently scaled
+         */
+        protected int getRunning() {
+
+            return m_running.get();
+        }
+
+        /**
+         * Releases the scaling.<p>
+         */
+        protected void release() {
+
+            m_gate.countDown();
+        }
+
+        /**
+         * "Scales" an image, after the scaling has been released.<p>
+         * 
+         * @return the scaled image
+         */
+        protected byte[] scale() {
+
+            m_calls.incrementAndGet();
+            int running = m_running.incrementAndGet();
+            synchronized (m_maxRunning) {
+                m_maxRunning.set(Math.max(m_maxRunning.get(), running));
+            }
+            try {
+                m_gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                m_running.decrementAndGet();
+            }
+            if (m_error != null) {
+                throw m_error;
+            }
+            return new byte[] {1, 2, 3};
+        }
+
+        /**
+         * Sets the error thrown by the scaling.<p>
+         * 
+         * @param error the error thrown by the scaling, or <code>null</code>
+         */
+        protected void setError(RuntimeException error) {
+
+            m_error = error;
+        }
+    }
+
+    /**
+     * An image scaler that uses a {@link CmsScalingMonitor} instead of scaling the image.<p>
+     */
+    private static class CmsTestImageScaler extends CmsImageScaler {
+
+        /** The monitor that "scales" the images. */
+        private CmsScalingMonitor m_monitor;
+
+        /**
+         * Creates a new image scaler.<p>
+         * 
+         * @param parameters the scale parameters
+         * @param monitor the monitor that "scales" the images
+         */
+        protected CmsTestImageScaler(String parameters, CmsScalingMonitor monitor) {
+
+            super(parameters);
+            m_monitor = monitor;
+        }
+
+        /**
+         * @see org.opencms.loader.CmsImageScaler#scaleImage(org.opencms.file.CmsFile)
+         */
+        @Override
+        public byte[] scaleImage(CmsFile file) {
+
+            return m_monitor.scale();
+        }
+    }
+
+    /** The maximum time to wait for the scaling threads, in milliseconds. */
+    private static final long TIMEOUT = 10000;
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsImageScalingExecutor(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsImageScalingExecutor.class.getName());
+
+        suite.addTest(new TestCmsImageScalingExecutor("testCachedVersion"));
+        suite.addTest(new TestCmsImageScalingExecutor("testMemoryCost"));
+        suite.addTest(new TestCmsImageScalingExecutor("testCoalescing"));
+        suite.addTest(new TestCmsImageScalingExecutor("testErrorPropagation"));
+        suite.addTest(new TestCmsImageScalingExecutor("testThreadLimit"));
+        suite.addTest(new TestCmsImageScalingExecutor("testMemoryLimit"));
+        suite.addTest(new TestCmsImageScalingExecutor("testPregenerate"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that cached versions are returned without scaling the image again.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testCachedVersion() throws Exception {
+
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 2, 16);
+            try {
+                CmsResource resource = createResource("/test/img_01.jpg", 1000);
+                CmsImageScaler scaler = new CmsImageScaler("w:100,h:75");
+                String cacheName = cache.getCacheName(resource, scaler.toString());
+                File cached = cache.saveCacheFile(cacheName, new byte[] {1, 2, 3});
+
+                // no OpenCms context is required, since the image is not read from the VFS
+                File file = executor.getScaledImageFile(null, resource, scaler);
+                assertEquals(cached, file);
+                assertEquals(3, file.length());
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that concurrent requests for the same scaled version are coalesced.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testCoalescing() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that concurrent requests for the same scaled version are coalesced");
+
+        CmsResource resource = cms.readResource("/folder1/image1.gif");
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 2, 16);
+            try {
+                CmsScalingMonitor monitor = new CmsScalingMonitor();
+                CmsImageScaler scaler = new CmsTestImageScaler("w:100,h:75", monitor);
+                List<CmsScalingRequest> requests = startRequests(executor, cms, resource, scaler, scaler, scaler);
+                // all requests wait for the same job
+                waitForRunning(monitor, 1);
+                waitForWaiting(requests);
+                monitor.release();
+                joinRequests(requests);
+
+                assertEquals(1, monitor.getCalls());
+                File file = cache.getCacheFile(cache.getCacheName(resource, scaler.toString()));
+                assertNotNull(file);
+                for (CmsScalingRequest request : requests) {
+                    assertNull(request.getError());
+                    assertEquals(file, request.getResult());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that a scaling error is thrown for all requests waiting for the scaling job.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testErrorPropagation() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that a scaling error is thrown for all waiting requests");
+
+        CmsResource resource = cms.readResource("/folder1/image1.gif");
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 2, 16);
+            try {
+                CmsScalingMonitor monitor = new CmsScalingMonitor();
+                RuntimeException error = new IllegalStateException("scaling failed");
+                monitor.setError(error);
+                CmsImageScaler scaler = new CmsTestImageScaler("w:100,h:75", monitor);
+                List<CmsScalingRequest> requests = startRequests(executor, cms, resource, scaler, scaler);
+                waitForRunning(monitor, 1);
+                waitForWaiting(requests);
+                monitor.release();
+                joinRequests(requests);
+
+                assertEquals(1, monitor.getCalls());
+                for (CmsScalingRequest request : requests) {
+                    assertSame(error, request.getError());
+                    assertNull(request.getResult());
+                }
+                assertNull(cache.getCacheFile(cache.getCacheName(resource, scaler.toString())));
+
+                // the failed job has been removed, so the next request scales the image again
+                monitor.setError(null);
+                File file = executor.getScaledImageFile(cms, resource, scaler);
+                assertEquals(2, monitor.getCalls());
+                assertEquals(3, file.length());
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests the calculation of the memory required to scale an image.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testMemoryCost() throws Exception {
+
+        // an image of 800 x 600 pixel
+        String img01 = "org/opencms/loader/img_01.jpg";
+        byte[] content = CmsFileUtil.readFile(img01);
+        CmsImageScaler scaler = new CmsImageScaler("w:640,h:480");
+
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 1, 16);
+            try {
+                long bytes = content.length + (4L * ((2L * 800 * 600) + (640 * 480)));
+                assertEquals((bytes + 1023) / 1024, executor.getMemoryCost(content, scaler));
+
+                // content that is no image only costs its own size
+                byte[] noImage = new byte[5000];
+                assertEquals(5, executor.getMemoryCost(noImage, scaler));
+            } finally {
+                executor.shutdown();
+            }
+
+            // the cost is limited to the memory budget
+            executor = new CmsImageScalingExecutor(cache, 1, 1);
+            try {
+                assertEquals(1024, executor.getMemoryCost(content, scaler));
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that the memory budget limits the number of images scaled at the same time.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testMemoryLimit() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the memory budget limits the number of images scaled at the same time");
+
+        CmsResource resource = cms.readResource("/folder1/image1.gif");
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            // enough threads, but the budget of 1 MB only fits one of the 400 x 400 pixel target images 
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 4, 1);
+            try {
+                CmsScalingMonitor monitor = new CmsScalingMonitor();
+                List<CmsScalingRequest> requests = startRequests(
+                    executor,
+                    cms,
+                    resource,
+                    new CmsTestImageScaler("w:400,h:400", monitor),
+                    new CmsTestImageScaler("w:400,h:401", monitor),
+                    new CmsTestImageScaler("w:401,h:400", monitor));
+                waitForRunning(monitor, 1);
+                Thread.sleep(200);
+                assertEquals(1, monitor.getRunning());
+                monitor.release();
+                joinRequests(requests);
+
+                assertEquals(3, monitor.getCalls());
+                assertEquals(1, monitor.getMaxRunning());
+                for (CmsScalingRequest request : requests) {
+                    assertNull(request.getError());
+                    assertNotNull(request.getResult());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that scaled versions are pre-generated in the background.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testPregenerate() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that scaled versions are pre-generated in the background");
+
+        CmsResource resource = cms.readResource("/folder1/image1.gif");
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 2, 16);
+            try {
+                CmsScalingMonitor monitor = new CmsScalingMonitor();
+                CmsImageScaler scaler1 = new CmsTestImageScaler("w:100,h:75", monitor);
+                CmsImageScaler scaler2 = new CmsTestImageScaler("w:50,h:40", monitor);
+                List<CmsImageScaler> scalers = Arrays.asList(scaler1, scaler2);
+
+                // the calling thread does not wait for the scaling
+                executor.pregenerate(cms, Collections.singletonList(resource), scalers);
+                waitForRunning(monitor, 1);
+                assertNull(cache.getCacheFile(cache.getCacheName(resource, scaler1.toString())));
+
+                // the versions are scaled one after the other
+                monitor.release();
+                long timeout = System.currentTimeMillis() + TIMEOUT;
+                while ((cache.getCacheFile(cache.getCacheName(resource, scaler2.toString())) == null)
+                    && (System.currentTimeMillis() < timeout)) {
+                    Thread.sleep(10);
+                }
+                assertNotNull(cache.getCacheFile(cache.getCacheName(resource, scaler1.toString())));
+                assertNotNull(cache.getCacheFile(cache.getCacheName(resource, scaler2.toString())));
+                assertEquals(2, monitor.getCalls());
+                assertEquals(1, monitor.getMaxRunning());
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Tests that the number of threads limits the number of images scaled at the same time.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testThreadLimit() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing that the number of threads limits the number of images scaled at the same time");
+
+        CmsResource resource = cms.readResource("/folder1/image1.gif");
+        File folder = createCacheFolder();
+        try {
+            CmsVfsNameBasedDiskCache cache = new CmsVfsNameBasedDiskCache(folder.getAbsolutePath(), "/images");
+            CmsImageScalingExecutor executor = new CmsImageScalingExecutor(cache, 2, 64);
+            try {
+                CmsScalingMonitor monitor = new CmsScalingMonitor();
+                List<CmsScalingRequest> requests = startRequests(
+                    executor,
+                    cms,
+                    resource,
+                    new CmsTestImageScaler("w:10,h:10", monitor),
+                    new CmsTestImageScaler("w:20,h:20", monitor),
+                    new CmsTestImageScaler("w:30,h:30", monitor),
+                    new CmsTestImageScaler("w:40,h:40", monitor));
+                waitForRunning(monitor, 2);
+                Thread.sleep(200);
+                assertEquals(2, monitor.getRunning());
+                monitor.release();
+                joinRequests(requests);
+
+                assertEquals(4, monitor.getCalls());
+                assertEquals(2, monitor.getMaxRunning());
+                for (CmsScalingRequest request : requests) {
+                    assertNull(request.getError());
+                    assertNotNull(request.getResult());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        } finally {
+            CmsFileUtil.purgeDirectory(folder);
+        }
+    }
+
+    /**
+     * Creates an empty folder for the disk cache.<p>
+     * 
+     * @return the folder for the disk cache
+     * 
+     * @throws Exception in case the folder can not be created
+     */
+    private File createCacheFolder() throws Exception {
+
+        File folder = File.createTempFile("opencms-test-", "");
+        folder.delete();
+        folder.mkdirs();
+        return folder;
+    }
+
+    /**
+     * Creates a file resource with the given path and length.<p>
+     * 
+     * @param rootPath the root path of the resource
+     * @param length the length of the resource
+     * 
+     * @return the resource
+     */
+    private CmsResource createResource(String rootPath, int length) {
+
+        long date = 1300000000000L;
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            rootPath,
+            CmsResourceTypeImage.getStaticTypeId(),
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            date,
+            CmsUUID.getNullUUID(),
+            date,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            length,
+            date,
+            0);
+    }
+
+    /**
+     * Waits until the given requests are finished.<p>
+     * 
+     * @param requests the requests
+     * 
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    private void joinRequests(List<CmsScalingRequest> requests) throws InterruptedException {
+
+        for (CmsScalingRequest request : requests) {
+            request.join(TIMEOUT);
+            assertFalse(request.isAlive());
+        }
+    }
+
+    /**
+     * Starts a request for every given image scaler.<p>
+     * 
+     * @param executor the executor to request the images from
+     * @param cms the OpenCms context of the requests
+     * @param resource the image resource
+     * @param scalers the image scalers to use
+     * 
+     * @return the started requests
+     */
+    private List<CmsScalingRequest> startRequests(
+        CmsImageScalingExecutor executor,
+        CmsObject cms,
+        CmsResource resource,
+        CmsImageScaler... scalers) {
+
+        List<CmsScalingRequest> requests = new ArrayList<CmsScalingRequest>();
+        for (CmsImageScaler scaler : scalers) {
+            CmsScalingRequest request = new CmsScalingRequest(executor, cms, resource, scaler);
+            request.start();
+            requests.add(request);
+        }
+        return requests;
+    }
+
+    /**
+     * Waits until the given number of images is scaled at the same time.<p>
+     * 
+     * @param monitor the monitor that "scales" the images
+     * @param running the number of images scaled at the same time
+     * 
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    private void waitForRunning(CmsScalingMonitor monitor, int running) throws InterruptedException {
+
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while ((monitor.getRunning() < running) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(10);
+        }
+        assertEquals(running, monitor.getRunning());
+    }
+
+    /**
+     * Waits until all given requests wait for their scaling job.<p>
+     * 
+     * @param requests the requests
+     * 
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    private void waitForWaiting(List<CmsScalingRequest> requests) throws InterruptedException {
+
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        for (CmsScalingRequest request : requests) {
+            while ((request.getState() != Thread.State.WAITING) && (System.currentTimeMillis() < timeout)) {
+                Thread.sleep(10);
+            }
+            assertEquals(Thread.State.WAITING, request.getState());
+        }
+    }
+}
\ No newline at end of file
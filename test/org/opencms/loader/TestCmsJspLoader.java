@@ -0,0 +1,182 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the locks the JSP loader uses to update the JSP files in the real FS.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsJspLoader extends TestCase {
+
+    /**
+     * Tests that threads updating the same JSP file exclude each other, while the locks are removed afterwards.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testConcurrentLocks() throws Exception {
+
+        final int files = 4;
+        final AtomicInteger[] inside = new AtomicInteger[files];
+        for (int i = 0; i < files; i++) {
+            inside[i] = new AtomicInteger();
+        }
+        final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    for (int i = 0; i < 2000; i++) {
+                        int file = i % files;
+                        String path = "/jsp/concurrent" + file + ".jsp";
+                        ReentrantLock lock = CmsJspLoader.lockProcessingFile(path, 10000);
+                        if (lock == null) {
+                            errors.add("timeout for " + path);
+                            continue;
+                        }
+                        try {
+                            if (inside[file].incrementAndGet() != 1) {
+                                errors.add("concurrent update of " + path);
+                            }
+                            Thread.yield();
+                            inside[file].decrementAndGet();
+                        } finally {
+                            CmsJspLoader.unlockProcessingFile(path, lock);
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join(60000);
+        }
+        assertEquals(Collections.EMPTY_LIST, errors);
+        assertEquals(0, CmsJspLoader.getProcessingFileCount());
+    }
+
+    /**
+     * Tests that a thread waiting for the lock of a JSP file gets the same lock.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testLockHandover() throws Exception {
+
+        final String path = "/jsp/handover.jsp";
+        ReentrantLock lock = CmsJspLoader.lockProcessingFile(path, 1000);
+        assertNotNull(lock);
+        final List<ReentrantLock> acquired = Collections.synchronizedList(new ArrayList<ReentrantLock>());
+        Thread waiter = new Thread() {
+
+            @Override
+            public void run() {
+
+                ReentrantLock waiterLock = CmsJspLoader.lockProcessingFile(path, 10000);
+                acquired.add(waiterLock);
+                if (waiterLock != null) {
+                    CmsJspLoader.unlockProcessingFile(path, waiterLock);
+                }
+            }
+        };
+        waiter.start();
+        long end = System.currentTimeMillis() + 10000;
+        while (!lock.hasQueuedThreads() && (System.currentTimeMillis() < end)) {
+            Thread.sleep(10);
+        }
+        assertTrue(lock.hasQueuedThreads());
+        CmsJspLoader.unlockProcessingFile(path, lock);
+        waiter.join(10000);
+
+        assertEquals(1, acquired.size());
+        assertSame(lock, acquired.get(0));
+        assertEquals(0, CmsJspLoader.getProcessingFileCount());
+    }
+
+    /**
+     * Tests that the locks are removed after the JSP files have been updated.<p>
+     */
+    public void testLocksRemoved() {
+
+        for (int i = 0; i < 1000; i++) {
+            String path = "/jsp/page" + i + ".jsp";
+            ReentrantLock lock = CmsJspLoader.lockProcessingFile(path, 1000);
+            assertNotNull(lock);
+            assertEquals(1, CmsJspLoader.getProcessingFileCount());
+            CmsJspLoader.unlockProcessingFile(path, lock);
+        }
+        assertEquals(0, CmsJspLoader.getProcessingFileCount());
+
+        // a nested update of the same file keeps the lock until the outer update is finished
+        String path = "/jsp/nested.jsp";
+        ReentrantLock outer = CmsJspLoader.lockProcessingFile(path, 1000);
+        ReentrantLock inner = CmsJspLoader.lockProcessingFile(path, 1000);
+        assertSame(outer, inner);
+        CmsJspLoader.unlockProcessingFile(path, inner);
+        assertEquals(1, CmsJspLoader.getProcessingFileCount());
+        CmsJspLoader.unlockProcessingFile(path, outer);
+        assertEquals(0, CmsJspLoader.getProcessingFileCount());
+    }
+
+    /**
+     * Tests that a thread gives up waiting for the lock of a JSP file after the timeout.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testLockTimeout() throws Exception {
+
+        final String path = "/jsp/timeout.jsp";
+        ReentrantLock lock = CmsJspLoader.lockProcessingFile(path, 1000);
+        assertNotNull(lock);
+        final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+        Thread waiter = new Thread() {
+
+            @Override
+            public void run() {
+
+                results.add(String.valueOf(CmsJspLoader.lockProcessingFile(path, 100)));
+            }
+        };
+        waiter.start();
+        waiter.join(10000);
+        assertEquals(Collections.singletonList("null"), results);
+        CmsJspLoader.unlockProcessingFile(path, lock);
+        assertEquals(0, CmsJspLoader.getProcessingFileCount());
+    }
+}
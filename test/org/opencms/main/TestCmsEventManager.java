@@ -0,0 +1,223 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.main;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the synchronous and asynchronous event delivery of the event manager.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsEventManager extends TestCase {
+
+    /**
+     * Asynchronous listener recording the received events.<p>
+     */
+    private static class AsyncListener implements I_CmsAsyncEventListener {
+
+        /** Latch the listener waits for before processing an event, may be <code>null</code>. */
+        CountDownLatch m_block;
+
+        /** The received events. */
+        List<CmsEvent> m_events = Collections.synchronizedList(new ArrayList<CmsEvent>());
+
+        /** The threads which delivered the events. */
+        List<Thread> m_threads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            if (m_block != null) {
+                try {
+                    m_block.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+            m_threads.add(Thread.currentThread());
+            m_events.add(event);
+        }
+
+        /**
+         * @see org.opencms.main.I_CmsAsyncEventListener#isAsyncDelivery(org.opencms.main.CmsEvent)
+         */
+        public boolean isAsyncDelivery(CmsEvent event) {
+
+            return event.getType() != I_CmsEventListener.EVENT_CLEAR_CACHES;
+        }
+    }
+
+    /**
+     * Synchronous listener recording the received events.<p>
+     */
+    private static class SyncListener implements I_CmsEventListener {
+
+        /** The received events. */
+        List<CmsEvent> m_events = Collections.synchronizedList(new ArrayList<CmsEvent>());
+
+        /**
+         * @see org.opencms.main.I_CmsEventListener#cmsEvent(org.opencms.main.CmsEvent)
+         */
+        public void cmsEvent(CmsEvent event) {
+
+            m_events.add(event);
+        }
+    }
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsEventManager(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests asynchronous delivery, ordering and waiting for the queued events.<p>
+     */
+    public void testAsyncDelivery() {
+
+        CmsEventManager manager = new CmsEventManager();
+        manager.setAsyncDispatch(4, 1000);
+        AsyncListener[] asyncListeners = new AsyncListener[3];
+        for (int i = 0; i < asyncListeners.length; i++) {
+            asyncListeners[i] = new AsyncListener();
+            manager.addCmsEventListener(asyncListeners[i]);
+        }
+        asyncListeners[0].m_block = new CountDownLatch(1);
+        SyncListener syncListener = new SyncListener();
+        manager.addCmsEventListener(syncListener);
+
+        for (int i = 0; i < 500; i++) {
+            manager.fireEvent(new CmsEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT, Collections.<String, Object> singletonMap(
+                "count",
+                new Integer(i))));
+        }
+        // the synchronous listener is not blocked by the asynchronous listener
+        assertEquals(500, syncListener.m_events.size());
+        assertFalse(manager.waitForAsyncEvents(50));
+        asyncListeners[0].m_block.countDown();
+        assertTrue(manager.waitForAsyncEvents(0));
+
+        for (int i = 0; i < asyncListeners.length; i++) {
+            assertEquals(500, asyncListeners[i].m_events.size());
+            for (int j = 0; j < 500; j++) {
+                // events are delivered in order
+                assertEquals(new Integer(j), asyncListeners[i].m_events.get(j).getData().get("count"));
+                assertNotSame(Thread.currentThread(), asyncListeners[i].m_threads.get(j));
+            }
+        }
+
+        // events can also be delivered synchronously to asynchronous listeners
+        manager.fireEvent(I_CmsEventListener.EVENT_CLEAR_CACHES);
+        assertEquals(501, asyncListeners[1].m_events.size());
+        assertSame(Thread.currentThread(), asyncListeners[1].m_threads.get(500));
+
+        CmsEventListenerStatistics statistics = manager.getListenerStatistics().get(asyncListeners[0]);
+        assertEquals(501, statistics.getCount());
+        assertEquals(500, statistics.getAsyncCount());
+        assertEquals(0, statistics.getErrorCount());
+        assertEquals(501, manager.getListenerStatistics().get(syncListener).getCount());
+        manager.shutDown();
+    }
+
+    /**
+     * Tests that a full queue blocks the thread firing the event instead of dropping events.<p>
+     */
+    public void testFullQueue() {
+
+        CmsEventManager manager = new CmsEventManager();
+        manager.setAsyncDispatch(1, 2);
+        AsyncListener listener = new AsyncListener();
+        listener.m_block = new CountDownLatch(1);
+        manager.addCmsEventListener(listener);
+
+        final CmsEventManager finalManager = manager;
+        Thread firing = new Thread() {
+
+            @Override
+            public void run() {
+
+                for (int i = 0; i < 10; i++) {
+                    finalManager.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+                }
+            }
+        };
+        firing.start();
+        try {
+            firing.join(200);
+            // one event is being delivered, two are queued
+            assertTrue(firing.isAlive());
+            listener.m_block.countDown();
+            firing.join(10000);
+        } catch (InterruptedException e) {
+            fail();
+        }
+        assertFalse(firing.isAlive());
+        assertTrue(manager.waitForAsyncEvents(10000));
+        assertEquals(10, listener.m_events.size());
+        manager.shutDown();
+    }
+
+    /**
+     * Tests that all events are delivered synchronously if asynchronous delivery is disabled or shut down.<p>
+     */
+    public void testSyncFallback() {
+
+        CmsEventManager manager = new CmsEventManager();
+        manager.setAsyncDispatch(0, 10);
+        AsyncListener listener = new AsyncListener();
+        manager.addCmsEventListener(listener);
+        manager.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+        assertEquals(1, listener.m_events.size());
+        assertSame(Thread.currentThread(), listener.m_threads.get(0));
+
+        manager = new CmsEventManager();
+        manager.setAsyncDispatch(1, 10);
+        listener = new AsyncListener();
+        manager.addCmsEventListener(listener);
+        manager.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+        manager.shutDown();
+        assertEquals(1, listener.m_events.size());
+        manager.fireEvent(I_CmsEventListener.EVENT_PUBLISH_PROJECT);
+        assertEquals(2, listener.m_events.size());
+        assertSame(Thread.currentThread(), listener.m_threads.get(1));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import org.opencms.db.CmsCacheDependencies;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the dependency index used for key based invalidation of the memory monitor caches.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsCacheDependencyIndex extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsCacheDependencyIndex(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that only the keys depending on the invalidated tags are returned.<p>
+     */
+    public void testInvalidation() {
+
+        CmsCacheDependencyIndex index = new CmsCacheDependencyIndex(100);
+        assertTrue(index.addDependencies("k1", Arrays.asList("a", "b")));
+        assertTrue(index.addDependencies("k2", Arrays.asList("b", "c")));
+        assertTrue(index.addDependencies("k3", Arrays.asList("d")));
+        assertEquals(5, index.size());
+
+        Set<String> keys = index.removeDependentKeys(Collections.singletonList("b"));
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("k1"));
+        assertTrue(keys.contains("k2"));
+        assertEquals(3, index.size());
+
+        // the tag has been removed
+        assertTrue(index.removeDependentKeys(Collections.singletonList("b")).isEmpty());
+
+        keys = index.removeDependentKeys(Arrays.asList("c", "d", "x"));
+        assertEquals(2, keys.size());
+        assertTrue(keys.contains("k2"));
+        assertTrue(keys.contains("k3"));
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.removeDependentKeys(Collections.singletonList("a")).isEmpty());
+    }
+
+    /**
+     * Tests that the index reports when it has grown beyond its limit.<p>
+     */
+    public void testLimit() {
+
+        CmsCacheDependencyIndex index = new CmsCacheDependencyIndex(3);
+        assertTrue(index.addDependencies("k1", Arrays.asList("a", "b")));
+        // adding the same pair twice does not count
+        assertTrue(index.addDependencies("k1", Arrays.asList("a")));
+        assertTrue(index.addDependencies("k2", Arrays.asList("a")));
+        assertFalse(index.addDependencies("k3", Arrays.asList("a")));
+    }
+
+    /**
+     * Tests the tags of a changed resource match the tags of the cache entries depending on it.<p>
+     */
+    public void testResourceTags() {
+
+        CmsUUID resourceId = new CmsUUID();
+        CmsCacheDependencyIndex index = new CmsCacheDependencyIndex(100);
+
+        // a permission check on a resource below the changed folder
+        List<String> dependencies = new ArrayList<String>();
+        CmsCacheDependencies.addParentPathTags(dependencies, "/sites/default/folder/sub/index.html");
+        index.addDependencies("permission", dependencies);
+
+        // a resource list of a folder containing the changed folder
+        index.addDependencies("list", Collections.singletonList(CmsCacheDependencies.getTreeTag("/sites/default/")));
+
+        // a resource list of an unrelated folder
+        dependencies = new ArrayList<String>();
+        dependencies.add(CmsCacheDependencies.getTreeTag("/sites/other/"));
+        CmsCacheDependencies.addParentPathTags(dependencies, "/sites/other/");
+        index.addDependencies("other", dependencies);
+
+        // a resource with the same resource id
+        index.addDependencies("sibling", Collections.singletonList(CmsCacheDependencies.getResourceTag(resourceId)));
+
+        // the tags of the changed folder
+        List<String> changed = new ArrayList<String>();
+        changed.add(CmsCacheDependencies.getPathTag("/sites/default/folder/"));
+        changed.add(CmsCacheDependencies.getResourceTag(resourceId));
+        CmsCacheDependencies.addParentTreeTags(changed, "/sites/default/folder");
+
+        Set<String> keys = index.removeDependentKeys(changed);
+        assertEquals(3, keys.size());
+        assertTrue(keys.contains("permission"));
+        assertTrue(keys.contains("list"));
+        assertTrue(keys.contains("sibling"));
+        assertFalse(keys.contains("other"));
+    }
+}
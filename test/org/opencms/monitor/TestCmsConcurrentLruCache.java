@@ -0,0 +1,178 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.monitor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for the concurrent LRU cache used by the memory monitor.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsConcurrentLruCache extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsConcurrentLruCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the basic cache operations.<p>
+     */
+    public void testBasicOperations() {
+
+        CmsConcurrentLruCache<String> cache = new CmsConcurrentLruCache<String>("test", 10);
+        assertNull(cache.get("a"));
+        cache.put("a", "A");
+        cache.put("b", "B");
+        assertEquals("A", cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals(2, cache.size());
+
+        cache.put("a", "AA");
+        assertEquals("AA", cache.get("a"));
+        assertEquals(2, cache.size());
+
+        assertEquals("AA", cache.remove("a"));
+        assertNull(cache.remove("a"));
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertTrue(cache.getKeys().isEmpty());
+        assertTrue(cache.getValues().isEmpty());
+    }
+
+    /**
+     * Tests that concurrent readers and writers never exceed the size limit by more than the number of writers.<p>
+     * 
+     * @throws Exception if something goes wrong
+     */
+    public void testConcurrentAccess() throws Exception {
+
+        final int maxSize = 500;
+        final int threadCount = 8;
+        final CmsConcurrentLruCache<Integer> cache = new CmsConcurrentLruCache<Integer>("test", maxSize);
+        final List<Throwable> errors = new ArrayList<Throwable>();
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t = 0; t < threadCount; t++) {
+            final int offset = t;
+            Thread thread = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String key = Integer.toString((i * 7 + offset) % 2000);
+                            Integer value = cache.get(key);
+                            if (value == null) {
+                                cache.put(key, Integer.valueOf(key));
+                            } else {
+                                assertEquals(key, value.toString());
+                            }
+                        }
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertTrue("Cache size " + cache.size() + " exceeds limit", cache.size() <= (maxSize + threadCount));
+        CmsCacheStatistics stats = cache.getStatistics();
+        assertEquals(threadCount * 20000, stats.getHits() + stats.getMisses());
+        assertTrue(stats.getEvictions() > 0);
+    }
+
+    /**
+     * Tests that the least recently used entries are evicted first.<p>
+     */
+    public void testEviction() {
+
+        CmsConcurrentLruCache<String> cache = new CmsConcurrentLruCache<String>("test", 100);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertEquals(100, cache.size());
+
+        // touch the first 10 entries, so they are the most recently used ones
+        for (int i = 0; i < 10; i++) {
+            assertNotNull(cache.get("key" + i));
+        }
+        cache.put("new", "new");
+
+        // the cache must have been reduced to the low water mark
+        assertEquals((100 * CmsConcurrentLruCache.EVICTION_LOW_WATER_MARK) / 100, cache.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals("value" + i, cache.get("key" + i));
+        }
+        assertEquals("new", cache.get("new"));
+        // the oldest untouched entry must be gone
+        assertNull(cache.get("key10"));
+        assertEquals(11, cache.getStatistics().getEvictions());
+    }
+
+    /**
+     * Tests the hit and miss counters.<p>
+     */
+    public void testStatistics() {
+
+        CmsConcurrentLruCache<String> cache = new CmsConcurrentLruCache<String>("test", -1);
+        assertEquals(-1, cache.getMaxSize());
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+
+        CmsCacheStatistics stats = cache.getStatistics();
+        assertEquals(3, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(75, stats.getHitRatio());
+        assertEquals(0, stats.getEvictions());
+        assertEquals(1, stats.getSize());
+    }
+}
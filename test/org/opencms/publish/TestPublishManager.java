@@ -28,20 +28,33 @@
 package org.opencms.publish;
 
 import org.opencms.db.CmsLoginMessage;
+import org.opencms.db.CmsPublishList;
 import org.opencms.file.CmsObject;
+import org.opencms.file.CmsProperty;
+import org.opencms.file.CmsPropertyDefinition;
 import org.opencms.file.CmsResource;
+import org.opencms.file.history.I_CmsHistoryResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
 import org.opencms.lock.CmsLockException;
 import org.opencms.lock.CmsLockType;
+import org.opencms.main.CmsException;
 import org.opencms.main.CmsContextInfo;
 import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
 import org.opencms.security.CmsPermissionSet;
 import org.opencms.security.CmsSecurityException;
 import org.opencms.security.I_CmsPrincipal;
 import org.opencms.test.OpenCmsTestCase;
 import org.opencms.test.OpenCmsTestProperties;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.extensions.TestSetup;
 import junit.framework.Test;
@@ -79,6 +92,7 @@ public class TestPublishManager extends OpenCmsTestCase {
         suite.addTest(new TestPublishManager("testRunning"));
         suite.addTest(new TestPublishManager("testStop"));
         suite.addTest(new TestPublishManager("testListener"));
+        suite.addTest(new TestPublishManager("testConcurrentJobs"));
         suite.addTest(new TestPublishManager("testInitialization1"));
         suite.addTest(new TestPublishManager("testInitialization2"));
 
@@ -182,6 +196,140 @@ public class TestPublishManager extends OpenCmsTestCase {
         OpenCms.getPublishManager().waitWhileRunning();
     }
 
+    /**
+     * Tests which publish jobs are allowed to be published at the same time.<p>
+     * 
+     * @throws Throwable if something goes wrong
+     */
+    public void testConcurrentJobs() throws Throwable {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing which publish jobs are allowed to be published at the same time");
+
+        String source = "/folder2/subfolder21/image1.gif";
+        String destination1 = "/folder1/image1_concurrent1.gif";
+        String destination2 = "/folder2/image1_concurrent2.gif";
+        String destination3 = "/folder2/image1_concurrent3.gif";
+        String folder = "/folder1/subfolder_concurrent/";
+        String destination4 = folder + "image1_concurrent4.gif";
+
+        cms.copyResource(source, destination1, CmsResource.COPY_AS_NEW);
+        cms.copyResource(source, destination2, CmsResource.COPY_AS_NEW);
+        cms.copyResource(destination2, destination3, CmsResource.COPY_AS_SIBLING);
+        cms.createResource(folder, CmsResourceTypeFolder.getStaticTypeId());
+
+        CmsPublishManager publishManager = OpenCms.getPublishManager();
+        // publish the new folder first, a resource in a new folder can not be published directly
+        publishManager.publishProject(
+            cms,
+            new CmsShellReport(cms.getRequestContext().getLocale()),
+            publishManager.getPublishList(
+                cms,
+                Collections.singletonList(cms.readResource(folder)),
+                false,
+                false));
+        publishManager.waitWhileRunning();
+        cms.copyResource(source, destination4, CmsResource.COPY_AS_NEW);
+        cms.lockResource(folder);
+        cms.writePropertyObject(folder, new CmsProperty(CmsPropertyDefinition.PROPERTY_TITLE, "concurrent", null));
+
+        CmsPublishList publishList1 = publishManager.getPublishList(cms, cms.readResource(destination1), false);
+        CmsPublishList publishList2 = publishManager.getPublishList(cms, cms.readResource(destination2), false);
+        CmsPublishList publishList3 = publishManager.getPublishList(cms, cms.readResource(destination3), false);
+        CmsPublishList publishList4 = publishManager.getPublishList(cms, cms.readResource(destination4), false);
+        CmsPublishList folderList = publishManager.getPublishList(cms, cms.readResource(folder), false);
+        CmsPublishList folderOnlyList = publishManager.getPublishList(
+            cms,
+            Collections.singletonList(cms.readResource(folder)),
+            false,
+            false);
+
+        // unrelated resources
+        assertFalse(publishList1.intersects(publishList2));
+        assertFalse(publishList2.intersects(publishList1));
+        assertFalse(publishList1.intersects(folderList));
+        // siblings
+        assertTrue(publishList2.intersects(publishList3));
+        assertTrue(publishList3.intersects(publishList2));
+        // a folder and a resource below it
+        assertTrue(folderList.intersects(publishList4));
+        assertTrue(publishList4.intersects(folderList));
+        assertTrue(folderOnlyList.intersects(publishList4));
+        assertTrue(publishList4.intersects(folderOnlyList));
+
+        // enqueue unrelated and related jobs, they have to be published in any case
+        publishManager.stopPublishing();
+        // the configuration is frozen, so allow more than one running job by initializing the engine again
+        publishManager.getEngine().initialize(
+            cms,
+            publishManager.isPublishQueuePersistanceEnabled(),
+            publishManager.getPublishQueueShutdowntime(),
+            3);
+        // every started job waits until a second job has been started, this only succeeds if they overlap
+        final CountDownLatch started = new CountDownLatch(2);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        I_CmsPublishEventListener listener = new CmsPublishEventAdapter() {
+
+            @Override
+            public void onFinish(CmsPublishJobRunning publishJob) {
+
+                running.decrementAndGet();
+            }
+
+            @Override
+            public void onStart(CmsPublishJobEnqueued publishJob) {
+
+                int current = running.incrementAndGet();
+                synchronized (maxRunning) {
+                    maxRunning.set(Math.max(maxRunning.get(), current));
+                }
+                started.countDown();
+                try {
+                    started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        publishManager.addPublishListener(listener);
+        try {
+            publishManager.publishProject(cms, new CmsShellReport(cms.getRequestContext().getLocale()), publishList1);
+            publishManager.publishProject(cms, new CmsShellReport(cms.getRequestContext().getLocale()), folderList);
+            publishManager.publishProject(cms, new CmsShellReport(cms.getRequestContext().getLocale()), publishList2);
+            publishManager.startPublishing();
+            publishManager.waitWhileRunning();
+        } finally {
+            publishManager.removePublishListener(listener);
+            publishManager.stopPublishing();
+            publishManager.getEngine().initialize(
+                cms,
+                publishManager.isPublishQueuePersistanceEnabled(),
+                publishManager.getPublishQueueShutdowntime(),
+                publishManager.getPublishQueueMaxConcurrentJobs());
+            publishManager.startPublishing();
+        }
+        assertTrue(publishManager.getRunningPublishJobs().isEmpty());
+        assertEquals(0, started.getCount());
+        assertTrue(maxRunning.get() > 1);
+
+        // every job got its own publish tag
+        Set<Integer> publishTags = new HashSet<Integer>();
+        publishTags.add(new Integer(getPublishTag(cms, destination1)));
+        publishTags.add(new Integer(getPublishTag(cms, destination2)));
+        publishTags.add(new Integer(getPublishTag(cms, destination4)));
+        assertEquals(3, publishTags.size());
+
+        assertState(cms, destination1, CmsResource.STATE_UNCHANGED);
+        assertState(cms, destination2, CmsResource.STATE_UNCHANGED);
+        assertState(cms, folder, CmsResource.STATE_UNCHANGED);
+        assertState(cms, destination4, CmsResource.STATE_UNCHANGED);
+
+        // clean up
+        publishManager.publishProject(cms);
+        publishManager.waitWhileRunning();
+    }
+
     /**
      * Tests the reinitialization of the publish manager/engine.<p> 
      * 
@@ -618,4 +766,24 @@ public class TestPublishManager extends OpenCmsTestCase {
         OpenCms.getPublishManager().publishProject(cms);
         OpenCms.getPublishManager().waitWhileRunning();
     }
+
+    /**
+     * Returns the publish tag of the last published version of the given resource.<p>
+     * 
+     * @param cms the cms context
+     * @param resourceName the name of the resource
+     * 
+     * @return the publish tag of the last published version
+     * 
+     * @throws CmsException if something goes wrong
+     */
+    private int getPublishTag(CmsObject cms, String resourceName) throws CmsException {
+
+        int publishTag = 0;
+        Iterator<I_CmsHistoryResource> itVersions = cms.readAllAvailableVersions(resourceName).iterator();
+        while (itVersions.hasNext()) {
+            publishTag = Math.max(publishTag, itVersions.next().getPublishTag());
+        }
+        return publishTag;
+    }
 }
\ No newline at end of file
@@ -59,11 +59,16 @@ public final class AllTests {
         OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
         //$JUnit-BEGIN$
         suite.addTest(new TestSuite(TestCmsSearchUtils.class));
+        suite.addTest(new TestSuite(TestCmsSearchResultCache.class));
+        suite.addTest(new TestSuite(TestCmsIndexingThreadManager.class));
         suite.addTest(TestCmsSearch.suite());
         suite.addTest(TestCmsSearchFields.suite());
         suite.addTest(TestCmsSearchInDocuments.suite());
         suite.addTest(TestCmsSearchAdvancedFeatures.suite());
         suite.addTest(TestCmsSearchOffline.suite());
+        suite.addTest(TestCmsSearchConcurrency.suite());
+        suite.addTest(TestCmsSearchIndexedPermissions.suite());
+        suite.addTest(TestCmsSearchNearRealTime.suite());
         //$JUnit-END$
         return suite;
     }
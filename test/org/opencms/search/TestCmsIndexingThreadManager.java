@@ -0,0 +1,471 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.CmsException;
+import org.opencms.report.CmsStringBufferReport;
+import org.opencms.report.I_CmsReport;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.util.CmsUUID;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the parallel extraction of search documents by the indexing thread manager.<p>
+ * 
+ * The documents are "extracted" by test tasks, which are controlled by the test.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsIndexingThreadManager extends TestCase {
+
+    /**
+     * Controls the extraction of the test documents, and counts the running extractions.<p>
+     */
+    static class CmsExtractionControl {
+
+        /** The number of created indexing tasks. */
+        AtomicInteger m_created = new AtomicInteger();
+
+        /** The delays of the extractions, by root path. */
+        Map<String, Long> m_delays = Collections.synchronizedMap(new HashMap<String, Long>());
+
+        /** Blocks the extractions until they are released. */
+        CountDownLatch m_gate = new CountDownLatch(1);
+
+        /** The root paths of the resources whose extraction hangs until it is interrupted. */
+        Set<String> m_hanging = Collections.synchronizedSet(new HashSet<String>());
+
+        /** The number of interrupted extractions. */
+        AtomicInteger m_interrupted = new AtomicInteger();
+
+        /** The maximum number of extractions running at the same time. */
+        AtomicInteger m_maxRunning = new AtomicInteger();
+
+        /** The number of running extractions. */
+        AtomicInteger m_running = new AtomicInteger();
+
+        /**
+         * "Extracts" the document for the given resource.<p>
+         * 
+         * @param res the resource
+         * @param report the report to write the output to
+         * 
+         * @return the document for the resource, or <code>null</code> if the extraction was interrupted
+         */
+        Document extract(CmsResource res, I_CmsReport report) {
+
+            String rootPath = res.getRootPath();
+            report.println(org.opencms.report.Messages.get().container(
+                org.opencms.report.Messages.RPT_ARGUMENT_1,
+                "begin " + rootPath));
+            int running = m_running.incrementAndGet();
+            synchronized (m_maxRunning) {
+                m_maxRunning.set(Math.max(m_maxRunning.get(), running));
+            }
+            try {
+                if (m_hanging.contains(rootPath)) {
+                    Thread.sleep(TIMEOUT);
+                } else {
+                    m_gate.await(TIMEOUT, TimeUnit.MILLISECONDS);
+                    Long delay = m_delays.get(rootPath);
+                    if (delay != null) {
+                        Thread.sleep(delay.longValue());
+                    }
+                }
+            } catch (InterruptedException e) {
+                m_interrupted.incrementAndGet();
+                return null;
+            } finally {
+                m_running.decrementAndGet();
+            }
+            report.println(org.opencms.report.Messages.get().container(
+                org.opencms.report.Messages.RPT_ARGUMENT_1,
+                "end " + rootPath));
+            Document doc = new Document();
+            doc.add(new Field(CmsSearchField.FIELD_CONTENT, rootPath, Field.Store.YES, Field.Index.ANALYZED));
+            doc.add(new Field(CmsSearchField.FIELD_CONTENT_BLOB, new byte[100]));
+            return doc;
+        }
+    }
+
+    /**
+     * An index writer that counts the commits.<p>
+     */
+    static class CmsTestIndexWriter implements I_CmsIndexWriter {
+
+        /** The number of commits. */
+        int m_commits;
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#close()
+         */
+        public void close() {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#commit()
+         */
+        public void commit() {
+
+            m_commits++;
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#deleteDocuments(java.lang.String)
+         */
+        public void deleteDocuments(String rootPath) {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#optimize()
+         */
+        public void optimize() {
+
+            // noop
+        }
+
+        /**
+         * @see org.opencms.search.I_CmsIndexWriter#updateDocument(java.lang.String, org.apache.lucene.document.Document)
+         */
+        public void updateDocument(String rootPath, Document document) {
+
+            // noop
+        }
+    }
+
+    /**
+     * A VFS indexer that records the documents written to the index.<p>
+     */
+    static class CmsTestIndexer extends CmsVfsIndexer {
+
+        /** The root paths of the documents written to the index, in the order they were written. */
+        List<String> m_written = new ArrayList<String>();
+
+        /**
+         * Creates a new test indexer.<p>
+         * 
+         * @param report the report to write the output to
+         */
+        CmsTestIndexer(I_CmsReport report) {
+
+            m_report = report;
+            m_index = new CmsSearchIndex();
+        }
+
+        /**
+         * @see org.opencms.search.CmsVfsIndexer#updateResource(org.opencms.search.I_CmsIndexWriter, java.lang.String, org.apache.lucene.document.Document)
+         */
+        @Override
+        protected void updateResource(I_CmsIndexWriter indexWriter, String rootPath, Document doc) {
+
+            m_written.add(rootPath);
+        }
+    }
+
+    /**
+     * A thread manager that creates indexing tasks controlled by the test.<p>
+     */
+    static class CmsTestThreadManager extends CmsIndexingThreadManager {
+
+        /** The control for the extractions. */
+        CmsExtractionControl m_control;
+
+        /**
+         * Creates a new test thread manager.<p>
+         * 
+         * @param timeout timeout after a thread is abandoned
+         * @param maxThreads the number of worker threads extracting documents
+         * @param control the control for the extractions
+         */
+        CmsTestThreadManager(long timeout, int maxThreads, CmsExtractionControl control) {
+
+            super(timeout, 100, maxThreads);
+            m_control = control;
+        }
+
+        /**
+         * @see org.opencms.search.CmsIndexingThreadManager#createIndexingTask(org.opencms.file.CmsObject, org.opencms.file.CmsResource, org.opencms.search.CmsSearchIndex, int, org.opencms.report.I_CmsReport)
+         */
+        @Override
+        protected CmsIndexingTask createIndexingTask(
+            CmsObject cms,
+            CmsResource res,
+            CmsSearchIndex index,
+            int count,
+            I_CmsReport report) {
+
+            m_control.m_created.incrementAndGet();
+            return new CmsIndexingTask(cms, res, index, count, report) {
+
+                /**
+                 * @see org.opencms.search.CmsIndexingTask#createIndexDocument(org.opencms.file.CmsObject, org.opencms.file.CmsResource, org.opencms.search.CmsSearchIndex, int, org.opencms.report.I_CmsReport)
+                 */
+                @Override
+                protected Document createIndexDocument(
+                    CmsObject taskCms,
+                    CmsResource taskRes,
+                    CmsSearchIndex taskIndex,
+                    int taskCount,
+                    I_CmsReport taskReport) throws CmsException {
+
+                    return m_control.extract(taskRes, taskReport);
+                }
+            };
+        }
+    }
+
+    /** The maximum time to wait for the worker threads, in milliseconds. */
+    static final long TIMEOUT = 10000;
+
+    /**
+     * Tests that the number of worker threads and the number of pending documents are bounded.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testBoundedPool() throws Exception {
+
+        final CmsExtractionControl control = new CmsExtractionControl();
+        final CmsTestThreadManager manager = new CmsTestThreadManager(TIMEOUT, 2, control);
+        final CmsTestIndexer indexer = new CmsTestIndexer(new CmsStringBufferReport(Locale.ENGLISH));
+        final CmsTestIndexWriter writer = new CmsTestIndexWriter();
+
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < 4; i++) {
+            paths.add("/test/file" + i + ".txt");
+            manager.createIndexingThread(indexer, writer, createResource(paths.get(i)));
+        }
+        // only two documents are extracted at the same time
+        waitForRunning(control, 2);
+        Thread.sleep(200);
+        assertEquals(2, control.m_running.get());
+
+        // adding another resource blocks, since two pending documents per worker thread are allowed
+        paths.add("/test/file4.txt");
+        Thread adder = new Thread() {
+
+            /**
+             * @see java.lang.Thread#run()
+             */
+            @Override
+            public void run() {
+
+                manager.createIndexingThread(indexer, writer, createResource("/test/file4.txt"));
+            }
+        };
+        adder.start();
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while ((adder.getState() != Thread.State.TIMED_WAITING) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(10);
+        }
+        assertEquals(Thread.State.TIMED_WAITING, adder.getState());
+        assertEquals(4, control.m_created.get());
+
+        control.m_gate.countDown();
+        adder.join(TIMEOUT);
+        assertFalse(adder.isAlive());
+        assertFalse(manager.isRunning());
+
+        assertEquals(5, control.m_created.get());
+        assertEquals(2, control.m_maxRunning.get());
+        // the documents are written in the order the resources were added
+        assertEquals(paths, indexer.m_written);
+    }
+
+    /**
+     * Tests that the number of characters of the extracted text is counted.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testExtractedLength() throws Exception {
+
+        CmsExtractionControl control = new CmsExtractionControl();
+        control.m_gate.countDown();
+        CmsTestThreadManager manager = new CmsTestThreadManager(TIMEOUT, 2, control);
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsTestIndexer indexer = new CmsTestIndexer(report);
+
+        // the resources are larger than the text, the binary fields are not counted
+        String path = "/test/file.txt";
+        CmsIndexingTask task = manager.createIndexingTask(null, createResource(path), indexer.getIndex(), 1, report);
+        assertEquals(0, task.getExtractedLength());
+        task.run();
+        assertEquals(path.length(), task.getExtractedLength());
+
+        String path2 = "/test/file2.txt";
+        manager.createIndexingThread(indexer, new CmsTestIndexWriter(), createResource(path));
+        manager.createIndexingThread(indexer, new CmsTestIndexWriter(), createResource(path2));
+        assertFalse(manager.isRunning());
+        manager.reportStatistics(report);
+        int length = path.length() + path2.length();
+        assertTrue(report.toString(), report.toString().contains(", " + length + " characters of text extracted"));
+    }
+
+    /**
+     * Tests that the report output of the documents is written in the order the resources were added.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testReportOrder() throws Exception {
+
+        CmsExtractionControl control = new CmsExtractionControl();
+        CmsTestThreadManager manager = new CmsTestThreadManager(TIMEOUT, 3, control);
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsTestIndexer indexer = new CmsTestIndexer(report);
+        CmsTestIndexWriter writer = new CmsTestIndexWriter();
+
+        // the documents are extracted in parallel, and finish in the reverse order
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            String path = "/test/file" + i + ".txt";
+            paths.add(path);
+            control.m_delays.put(path, new Long((2 - i) * 200L));
+            manager.createIndexingThread(indexer, writer, createResource(path));
+        }
+        waitForRunning(control, 3);
+        control.m_gate.countDown();
+        assertFalse(manager.isRunning());
+
+        assertEquals(paths, indexer.m_written);
+        String output = report.toString();
+        int pos = 0;
+        for (String path : paths) {
+            int begin = output.indexOf("begin " + path);
+            int end = output.indexOf("end " + path);
+            assertTrue(output, begin >= pos);
+            assertTrue(output, end > begin);
+            pos = end;
+        }
+    }
+
+    /**
+     * Tests that a document is abandoned if the extraction does not finish within the timeout.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testTimeout() throws Exception {
+
+        CmsExtractionControl control = new CmsExtractionControl();
+        control.m_gate.countDown();
+        String hanging = "/test/hanging.txt";
+        String path = "/test/file.txt";
+        control.m_hanging.add(hanging);
+        // a single worker thread, which is replaced when the hanging document is abandoned
+        CmsTestThreadManager manager = new CmsTestThreadManager(300, 1, control);
+        CmsStringBufferReport report = new CmsStringBufferReport(Locale.ENGLISH);
+        CmsTestIndexer indexer = new CmsTestIndexer(report);
+
+        long start = System.currentTimeMillis();
+        manager.createIndexingThread(indexer, new CmsTestIndexWriter(), createResource(hanging));
+        manager.createIndexingThread(indexer, new CmsTestIndexWriter(), createResource(path));
+        assertFalse(manager.isRunning());
+        assertTrue(System.currentTimeMillis() - start < TIMEOUT);
+
+        assertEquals(Collections.singletonList(path), indexer.m_written);
+        assertTrue(report.toString(), report.toString().contains(
+            Messages.get().container(Messages.RPT_SEARCH_INDEXING_TIMEOUT_1, hanging).key(Locale.ENGLISH)));
+
+        // the worker thread of the abandoned document has been interrupted
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while ((control.m_interrupted.get() == 0) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, control.m_interrupted.get());
+    }
+
+    /**
+     * Creates a file resource with the given path.<p>
+     * 
+     * @param rootPath the root path of the resource
+     * 
+     * @return the resource
+     */
+    CmsResource createResource(String rootPath) {
+
+        long date = 1300000000000L;
+        return new CmsResource(
+            new CmsUUID(),
+            new CmsUUID(),
+            rootPath,
+            CmsResourceTypePlain.getStaticTypeId(),
+            false,
+            0,
+            CmsUUID.getNullUUID(),
+            CmsResource.STATE_UNCHANGED,
+            date,
+            CmsUUID.getNullUUID(),
+            date,
+            CmsUUID.getNullUUID(),
+            CmsResource.DATE_RELEASED_DEFAULT,
+            CmsResource.DATE_EXPIRED_DEFAULT,
+            1,
+            100000,
+            date,
+            0);
+    }
+
+    /**
+     * Waits until the given number of extractions is running at the same time.<p>
+     * 
+     * @param control the control for the extractions
+     * @param running the number of extractions running at the same time
+     * 
+     * @throws InterruptedException if the test thread is interrupted
+     */
+    private void waitForRunning(CmsExtractionControl control, int running) throws InterruptedException {
+
+        long timeout = System.currentTimeMillis() + TIMEOUT;
+        while ((control.m_running.get() < running) && (System.currentTimeMillis() < timeout)) {
+            Thread.sleep(10);
+        }
+        assertEquals(running, control.m_running.get());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,250 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.file.CmsObject;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.report.I_CmsReport;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for concurrent searches in a search index.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsSearchConcurrency extends OpenCmsTestCase {
+
+    /** Number of searches performed by each thread. */
+    private static final int SEARCHES_PER_THREAD = 200;
+
+    /** Number of concurrent search threads. */
+    private static final int THREAD_COUNT = 8;
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchConcurrency(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsSearchConcurrency.class.getName());
+
+        suite.addTest(new TestCmsSearchConcurrency("testRebuildIndex"));
+        suite.addTest(new TestCmsSearchConcurrency("testConcurrentSearch"));
+        suite.addTest(new TestCmsSearchConcurrency("testConcurrentSearchWithReopen"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that concurrent searches return the same results as a single search, and reports the throughput.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testConcurrentSearch() throws Exception {
+
+        echo("Testing concurrent searches in the search index");
+
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(TestCmsSearch.INDEX_OFFLINE);
+        int expected = search(index, getCmsObject());
+        assertTrue(expected > 0);
+
+        // single thread base line
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < SEARCHES_PER_THREAD; i++) {
+            assertEquals(expected, search(index, getCmsObject()));
+        }
+        time = System.currentTimeMillis() - time;
+        echo("1 thread performed " + SEARCHES_PER_THREAD + " searches in " + time + " ms");
+
+        List<Throwable> errors = runSearchThreads(index, expected, false);
+        assertEquals(Collections.EMPTY_LIST, errors);
+    }
+
+    /**
+     * Tests that concurrent searches are not disturbed when the index searcher is reopened.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testConcurrentSearchWithReopen() throws Exception {
+
+        echo("Testing concurrent searches in the search index while the searcher is reopened");
+
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(TestCmsSearch.INDEX_OFFLINE);
+        int expected = search(index, getCmsObject());
+
+        List<Throwable> errors = runSearchThreads(index, expected, true);
+        assertEquals(Collections.EMPTY_LIST, errors);
+        // the index must still be usable after all searchers have been replaced
+        assertEquals(expected, search(index, getCmsObject()));
+    }
+
+    /**
+     * Rebuilds the search index used for the tests.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testRebuildIndex() throws Exception {
+
+        I_CmsReport report = new CmsShellReport(Locale.ENGLISH);
+        OpenCms.getSearchManager().rebuildIndex(TestCmsSearch.INDEX_OFFLINE, report);
+        assertNotNull(OpenCms.getSearchManager().getIndex(TestCmsSearch.INDEX_OFFLINE).getSearcher());
+    }
+
+    /**
+     * Runs the concurrent searches in several threads.<p>
+     * 
+     * @param index the index to search in
+     * @param expected the expected number of results for each search
+     * @param reopen if <code>true</code>, the index searcher is reopened while the searches are running 
+     * 
+     * @return the errors that occurred during the searches
+     * 
+     * @throws Exception if something goes wrong
+     */
+    private List<Throwable> runSearchThreads(final CmsSearchIndex index, final int expected, boolean reopen)
+    throws Exception {
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final CmsObject cms = getCmsObject();
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+
+                    try {
+                        CmsObject searchCms = OpenCms.initCmsObject(cms);
+                        for (int j = 0; j < SEARCHES_PER_THREAD; j++) {
+                            int count = search(index, searchCms);
+                            if (count != expected) {
+                                errors.add(new AssertionError("Expected " + expected + " results but got " + count));
+                            }
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+        }
+
+        long time = System.currentTimeMillis();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i].start();
+        }
+        if (reopen) {
+            // replace the index searcher while the searches are running
+            boolean running = true;
+            for (int i = 0; running; i++) {
+                if ((i % 2) == 0) {
+                    index.indexSearcherOpen(index.getPath());
+                } else {
+                    index.indexSearcherUpdate();
+                }
+                running = false;
+                for (int j = 0; j < THREAD_COUNT; j++) {
+                    running |= threads[j].isAlive();
+                }
+            }
+        }
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i].join();
+        }
+        time = System.currentTimeMillis() - time;
+
+        int searches = THREAD_COUNT * SEARCHES_PER_THREAD;
+        echo(THREAD_COUNT
+            + " threads performed "
+            + searches
+            + " searches in "
+            + time
+            + " ms ("
+            + ((searches * 1000L) / Math.max(1, time))
+            + " searches per second)");
+        return errors;
+    }
+
+    /**
+     * Performs a search for a term contained in many documents of the test data.<p>
+     * 
+     * @param index the index to search in
+     * @param cms the OpenCms user context to use
+     * 
+     * @return the number of results found
+     * 
+     * @throws Exception if the search fails
+     */
+    private int search(CmsSearchIndex index, CmsObject cms) throws Exception {
+
+        CmsSearchParameters params = new CmsSearchParameters("OpenCms");
+        params.setMatchesPerPage(10);
+        CmsSearchResultList result = index.search(cms, params);
+        return result.getHitCount();
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.file.CmsObject;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.security.I_CmsPrincipal;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Unit test for searching with the permissions stored in the search index.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsSearchIndexedPermissions extends OpenCmsTestCase {
+
+    /** The folder used to test the permissions. */
+    private static final String FOLDER = "/xmlcontent/";
+
+    /** The folder used to test the permissions of a single user. */
+    private static final String USER_FOLDER = "/folder1/subfolder12/";
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchIndexedPermissions(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsSearchIndexedPermissions.class.getName());
+
+        suite.addTest(new TestCmsSearchIndexedPermissions("testSearchWithIndexedPermissions"));
+        suite.addTest(new TestCmsSearchIndexedPermissions("testSearchAfterPermissionChange"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that documents indexed before a change of permissions are checked against the VFS.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testSearchAfterPermissionChange() throws Exception {
+
+        echo("Testing search with indexed permissions after a change of permissions");
+
+        CmsObject cms = getCmsObject();
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(TestCmsSearch.INDEX_OFFLINE);
+
+        // remove the entry that denies access to the folder without updating the index
+        cms.lockResource(FOLDER);
+        cms.rmacc(FOLDER, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers());
+        cms.unlockResource(FOLDER);
+        // the search manager does this for offline indexes when the permissions are changed
+        index.updatePermissionsChanged(System.currentTimeMillis());
+
+        CmsObject userCms = getUserCmsObject(cms);
+        List<String> paths = search(index, userCms);
+        assertTrue(containsFolder(paths, FOLDER));
+        assertEquals(searchWithoutIndexedPermissions(index, userCms), paths);
+    }
+
+    /**
+     * Tests that a search with the permissions stored in the index has the same result 
+     * as a search that checks the permissions of every result.<p>
+     * 
+     * @throws Exception if the test fails
+     */
+    public void testSearchWithIndexedPermissions() throws Exception {
+
+        echo("Testing search with indexed permissions");
+
+        CmsObject cms = getCmsObject();
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(TestCmsSearch.INDEX_OFFLINE);
+        index.addConfigurationParameter(CmsSearchIndex.INDEX_PERMISSIONS, "true");
+
+        cms.createUser("permtest", "permtest", "", null);
+        cms.addUserToGroup("permtest", OpenCms.getDefaultUsers().getGroupUsers());
+
+        // deny access to the folder for all users
+        cms.lockResource(FOLDER);
+        cms.chacc(FOLDER, I_CmsPrincipal.PRINCIPAL_GROUP, OpenCms.getDefaultUsers().getGroupUsers(), "-r");
+        cms.unlockResource(FOLDER);
+        // deny access to another folder for the test user only
+        cms.lockResource(USER_FOLDER);
+        cms.chacc(USER_FOLDER, I_CmsPrincipal.PRINCIPAL_USER, "permtest", "-r");
+        cms.unlockResource(USER_FOLDER);
+
+        OpenCms.getSearchManager().rebuildIndex(TestCmsSearch.INDEX_OFFLINE, new CmsShellReport(Locale.ENGLISH));
+
+        // the administrator can read everything
+        List<String> paths = search(index, cms);
+        assertTrue(containsFolder(paths, FOLDER));
+        assertTrue(containsFolder(paths, USER_FOLDER));
+        assertEquals(searchWithoutIndexedPermissions(index, cms), paths);
+
+        // the user must not see the documents in the folders
+        CmsObject userCms = getUserCmsObject(cms);
+        paths = search(index, userCms);
+        assertFalse(paths.isEmpty());
+        assertFalse(containsFolder(paths, FOLDER));
+        assertFalse(containsFolder(paths, USER_FOLDER));
+        assertEquals(searchWithoutIndexedPermissions(index, userCms), paths);
+    }
+
+    /**
+     * Checks if one of the given paths is in the given folder.<p>
+     * 
+     * @param paths the paths to check
+     * @param folder the site path of the folder
+     * 
+     * @return <code>true</code> if one of the given paths is in the given folder
+     */
+    private boolean containsFolder(List<String> paths, String folder) {
+
+        for (String path : paths) {
+            if (path.startsWith("/sites/default" + folder)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns an OpenCms context for the test user in the offline project.<p>
+     * 
+     * @param cms the OpenCms context of the administrator
+     * 
+     * @return an OpenCms context for the test user
+     * 
+     * @throws Exception if something goes wrong
+     */
+    private CmsObject getUserCmsObject(CmsObject cms) throws Exception {
+
+        CmsObject userCms = OpenCms.initCmsObject(cms);
+        userCms.loginUser("permtest", "permtest");
+        userCms.getRequestContext().setCurrentProject(cms.readProject("Offline"));
+        return userCms;
+    }
+
+    /**
+     * Searches for a term contained in many documents of the test data.<p>
+     * 
+     * @param index the index to search in
+     * @param cms the OpenCms user context to use
+     * 
+     * @return the root paths of the documents found
+     * 
+     * @throws Exception if the search fails
+     */
+    private List<String> search(CmsSearchIndex index, CmsObject cms) throws Exception {
+
+        List<String> result = new ArrayList<String>();
+        for (CmsSearchResult searchResult : index.search(cms, new CmsSearchParameters("OpenCms"))) {
+            result.add(searchResult.getPath());
+        }
+        return result;
+    }
+
+    /**
+     * Searches the index with the permissions checked for every result.<p>
+     * 
+     * @param index the index to search in
+     * @param cms the OpenCms user context to use
+     * 
+     * @return the root paths of the documents found
+     * 
+     * @throws Exception if the search fails
+     */
+    private List<String> searchWithoutIndexedPermissions(CmsSearchIndex index, CmsObject cms) throws Exception {
+
+        index.addConfigurationParameter(CmsSearchIndex.INDEX_PERMISSIONS, "false");
+        try {
+            return search(index, cms);
+        } finally {
+            index.addConfigurationParameter(CmsSearchIndex.INDEX_PERMISSIONS, "true");
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import org.opencms.file.CmsObject;
+import org.opencms.file.CmsResource;
+import org.opencms.file.types.CmsResourceTypeFolder;
+import org.opencms.file.types.CmsResourceTypePlain;
+import org.opencms.main.OpenCms;
+import org.opencms.report.CmsShellReport;
+import org.opencms.search.fields.CmsSearchField;
+import org.opencms.test.OpenCmsTestCase;
+import org.opencms.test.OpenCmsTestProperties;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+
+import junit.extensions.TestSetup;
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermDocs;
+import org.apache.lucene.store.FSDirectory;
+
+/**
+ * Unit test for indexes that are updated in near real time mode.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsSearchNearRealTime extends OpenCmsTestCase {
+
+    /** Name of the search index created using API. */
+    public static final String INDEX_NRT = "Near Real Time Index";
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchNearRealTime(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Test suite for this test class.<p>
+     * 
+     * @return the test suite
+     */
+    public static Test suite() {
+
+        OpenCmsTestProperties.initialize(org.opencms.test.AllTests.TEST_PROPERTIES_PATH);
+
+        TestSuite suite = new TestSuite();
+        suite.setName(TestCmsSearchNearRealTime.class.getName());
+
+        suite.addTest(new TestCmsSearchNearRealTime("testSearchIndexSetup"));
+        suite.addTest(new TestCmsSearchNearRealTime("testIndexUpdateWithoutCommit"));
+
+        TestSetup wrapper = new TestSetup(suite) {
+
+            @Override
+            protected void setUp() {
+
+                setupOpenCms("simpletest", "/");
+                OpenCms.getSearchManager().setOfflineUpdateFrequency(1000);
+            }
+
+            @Override
+            protected void tearDown() {
+
+                removeOpenCms();
+            }
+        };
+
+        return wrapper;
+    }
+
+    /**
+     * Tests that updates are visible to searches before they are committed.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testIndexUpdateWithoutCommit() throws Exception {
+
+        CmsObject cms = getCmsObject();
+        echo("Testing near real time index update after creation of a resource");
+
+        CmsSearchIndex index = OpenCms.getSearchManager().getIndex(INDEX_NRT);
+
+        cms.createResource("/nrt/", CmsResourceTypeFolder.RESOURCE_TYPE_ID, null, null);
+        cms.unlockResource("/nrt/");
+        String fileName = "/nrt/test.txt";
+        cms.createResource(fileName, CmsResourceTypePlain.getStaticTypeId(), "NearRealTimeEgg".getBytes(), null);
+
+        // wait for the offline index and the refresh of the index searcher
+        Thread.sleep((OpenCms.getSearchManager().getOfflineUpdateFrequency() * 2) + index.getNrtRefreshInterval());
+
+        List<CmsSearchResult> results = index.search(cms, new CmsSearchParameters("NearRealTimeEgg"));
+        assertEquals(1, results.size());
+        assertEquals("/sites/default/nrt/test.txt", results.get(0).getPath());
+
+        // the update has not been committed yet
+        String rootPath = cms.getRequestContext().addSiteRoot(fileName);
+        assertFalse(isCommitted(index, rootPath));
+
+        index.indexWriterCommit(true);
+        assertTrue(isCommitted(index, rootPath));
+
+        // delete the resource
+        cms.lockResource(fileName);
+        cms.deleteResource(fileName, CmsResource.DELETE_PRESERVE_SIBLINGS);
+
+        Thread.sleep((OpenCms.getSearchManager().getOfflineUpdateFrequency() * 2) + index.getNrtRefreshInterval());
+        results = index.search(cms, new CmsSearchParameters("NearRealTimeEgg"));
+        assertEquals(0, results.size());
+        // the deletion has not been committed yet
+        assertTrue(isCommitted(index, rootPath));
+    }
+
+    /**
+     * Creates a new search index in near real time mode for this test.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testSearchIndexSetup() throws Exception {
+
+        CmsSearchIndex searchIndex = new CmsSearchIndex(INDEX_NRT);
+        searchIndex.setProjectName("Offline");
+        searchIndex.setLocale(Locale.ENGLISH);
+        searchIndex.setRebuildMode(CmsSearchIndex.REBUILD_MODE_OFFLINE);
+        searchIndex.addConfigurationParameter(CmsSearchIndex.NRT_REFRESH_INTERVAL, "500");
+        searchIndex.addConfigurationParameter(CmsSearchIndex.NRT_COMMIT_INTERVAL, "3600000");
+        // available pre-configured in the test configuration files opencms-search.xml
+        searchIndex.addSourceName("source1");
+
+        searchIndex.initialize();
+        OpenCms.getSearchManager().addSearchIndex(searchIndex);
+        OpenCms.getSearchManager().rebuildIndex(INDEX_NRT, new CmsShellReport(Locale.ENGLISH));
+
+        assertTrue(searchIndex.isNearRealTime());
+        List<CmsSearchResult> results = searchIndex.search(getCmsObject(), new CmsSearchParameters(">>SearchEgg1<<"));
+        assertEquals(1, results.size());
+    }
+
+    /**
+     * Checks if the document with the given root path is contained in the last commit of the given index.<p>
+     * 
+     * @param index the index to check
+     * @param rootPath the root path of the document
+     * 
+     * @return <code>true</code> if the document is contained in the last commit of the index
+     * 
+     * @throws Exception if reading the index fails
+     */
+    private boolean isCommitted(CmsSearchIndex index, String rootPath) throws Exception {
+
+        IndexReader reader = IndexReader.open(FSDirectory.open(new File(index.getPath())));
+        try {
+            // deleted documents are skipped by the term docs
+            TermDocs termDocs = reader.termDocs(new Term(CmsSearchField.FIELD_PATH, rootPath));
+            try {
+                return termDocs.next();
+            } finally {
+                termDocs.close();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.search;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the search result cache, which doesn't require an OpenCms context.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsSearchResultCache extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSearchResultCache(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests that results of searches started before the cache was cleared are not cached.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testClear() throws Exception {
+
+        CmsSearchResultCache cache = new CmsSearchResultCache(10, 60000);
+        CmsSearchParameters params = new CmsSearchParameters("OpenCms");
+        String key = CmsSearchResultCache.getKey(params, "context");
+
+        long generation = cache.getGeneration();
+        cache.put(key, createResult(5), null, generation);
+        assertNotNull(cache.get(key, params));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertNull(cache.get(key, params));
+
+        // a search that was started before the cache was cleared
+        cache.put(key, createResult(5), null, generation);
+        assertNull(cache.get(key, params));
+
+        cache.put(key, createResult(5), null, cache.getGeneration());
+        assertNotNull(cache.get(key, params));
+    }
+
+    /**
+     * Tests the hit and miss statistics as well as the size limit of the cache.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testHitCountAndSize() throws Exception {
+
+        CmsSearchResultCache cache = new CmsSearchResultCache(2, 60000);
+        assertEquals(0f, cache.getHitRatio(), 0f);
+
+        for (int i = 0; i < 3; i++) {
+            CmsSearchParameters params = new CmsSearchParameters("query" + i);
+            String key = CmsSearchResultCache.getKey(params, "context");
+            assertNull(cache.get(key, params));
+            cache.put(key, createResult(i), null, cache.getGeneration());
+        }
+        assertEquals(2, cache.getSize());
+
+        // the least recently used result has been removed
+        CmsSearchParameters params = new CmsSearchParameters("query0");
+        assertNull(cache.get(CmsSearchResultCache.getKey(params, "context"), params));
+        params = new CmsSearchParameters("query2");
+        CmsSearchResultList result = cache.get(CmsSearchResultCache.getKey(params, "context"), params);
+        assertNotNull(result);
+        assertEquals(2, result.getHitCount());
+
+        assertEquals(1, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+        assertEquals(0.2f, cache.getHitRatio(), 0.001f);
+    }
+
+    /**
+     * Tests the generation of the cache keys.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testKey() throws Exception {
+
+        CmsSearchParameters params1 = new CmsSearchParameters("OpenCms");
+        params1.setRoots(Arrays.asList("/sites/default/a/", "/sites/default/b/"));
+        CmsSearchParameters params2 = new CmsSearchParameters("OpenCms");
+        params2.setRoots(Arrays.asList("/sites/default/b/", "/sites/default/a/"));
+
+        // the order of the search roots does not matter
+        assertEquals(CmsSearchResultCache.getKey(params1, "context"), CmsSearchResultCache.getKey(params2, "context"));
+        // the permission context does matter
+        assertFalse(CmsSearchResultCache.getKey(params1, "context").equals(
+            CmsSearchResultCache.getKey(params1, "other")));
+
+        // the result page does matter
+        params2.setSearchPage(2);
+        assertFalse(CmsSearchResultCache.getKey(params1, "context").equals(
+            CmsSearchResultCache.getKey(params2, "context")));
+        params2.setSearchPage(params1.getSearchPage());
+
+        // the sort order does matter
+        params2.setSort(CmsSearchParameters.SORT_TITLE);
+        assertFalse(CmsSearchResultCache.getKey(params1, "context").equals(
+            CmsSearchResultCache.getKey(params2, "context")));
+    }
+
+    /**
+     * Tests that cached results expire and that they can not be changed from outside.<p>
+     * 
+     * @throws Exception in case the test fails
+     */
+    public void testMaxAgeAndCopy() throws Exception {
+
+        CmsSearchResultCache cache = new CmsSearchResultCache(10, 60000);
+        CmsSearchParameters params = new CmsSearchParameters("OpenCms");
+        String key = CmsSearchResultCache.getKey(params, "context");
+
+        CmsSearchResultList result = createResult(3);
+        cache.put(key, result, "content:opencms", cache.getGeneration());
+        result.setHitCount(10);
+
+        CmsSearchResultList cached = cache.get(key, params);
+        assertEquals(3, cached.getHitCount());
+        assertEquals("content:opencms", params.getParsedQuery());
+        cached.setHitCount(10);
+        assertEquals(3, cache.get(key, params).getHitCount());
+
+        cache = new CmsSearchResultCache(10, 0);
+        cache.put(key, result, null, cache.getGeneration());
+        Thread.sleep(10);
+        assertNull(cache.get(key, params));
+        assertEquals(0, cache.getSize());
+    }
+
+    /**
+     * Creates an empty search result with the given hit count.<p>
+     * 
+     * @param hitCount the hit count
+     * 
+     * @return an empty search result with the given hit count
+     */
+    private CmsSearchResultList createResult(int hitCount) {
+
+        CmsSearchResultList result = new CmsSearchResultList();
+        result.setHitCount(hitCount);
+        return result;
+    }
+}
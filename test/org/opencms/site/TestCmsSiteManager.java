@@ -0,0 +1,218 @@
+/*
+ * This library is part of OpenCms -
+ * the Open Source Content Management System
+ *
+ * Copyright (c) Alkacon Software GmbH (http://www.alkacon.com)
+ *
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 2.1 of the License, or (at your option) any later version.
+ *
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * For further information about Alkacon Software GmbH, please see the
+ * company website: http://www.alkacon.com
+ *
+ * For further information about OpenCms, please see the
+ * project website: http://www.opencms.org
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ */
+
+
+package org.opencms.site;
+
+import org.opencms.test.OpenCmsTestServletRequest;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the site lookups of the site manager.<p>
+ * 
+ * @since 8.0.4
+ */
+public class TestCmsSiteManager extends TestCase {
+
+    /**
+     * Default JUnit constructor.<p>
+     * 
+     * @param arg0 JUnit parameters
+     */
+    public TestCmsSiteManager(String arg0) {
+
+        super(arg0);
+    }
+
+    /**
+     * Tests the site lookups with a large number of sites.<p>
+     * 
+     * @throws Exception if something goes wrong
+     */
+    public void testLookupManySites() throws Exception {
+
+        int count = 10000;
+        CmsSiteManagerImpl siteManager = createSiteManager(count);
+        for (int i = 0; i < count; i++) {
+            CmsSite site = siteManager.matchRequest(createRequest("http", "shop" + i + ".example.org", 8080));
+            assertEquals("/shop/site" + i, site.getSiteRoot());
+            assertSame(site, siteManager.getSiteForRootPath("/shop/site" + i + "/folder/index.html"));
+            assertEquals("/sites/site" + i, siteManager.getSiteRoot("/sites/site" + i + "/index.html"));
+        }
+        // "/shop/site10000" starts with the configured site root "/shop/site1000", but only whole path segments match
+        assertNull(siteManager.getSiteRoot("/shop/site" + count + "/index.html"));
+        assertEquals(
+            "/sites/default",
+            siteManager.matchRequest(createRequest("http", "shop" + count + ".example.org", 8080)).getSiteRoot());
+    }
+
+    /**
+     * Tests matching requests to sites.<p>
+     * 
+     * @throws Exception if something goes wrong
+     */
+    public void testMatchRequest() throws Exception {
+
+        CmsSiteManagerImpl siteManager = createSiteManager(5);
+
+        CmsSite site = siteManager.matchRequest(createRequest("http", "site3.example.org", 80));
+        assertEquals("/sites/site3", site.getSiteRoot());
+        site = siteManager.matchRequest(createRequest("http", "shop2.example.org", 8080));
+        assertEquals("/shop/site2", site.getSiteRoot());
+        // the alias is configured for the "/sites/" site, which is added first
+        site = siteManager.matchRequest(createRequest("http", "alias4.example.org", 80));
+        assertEquals("/sites/site4", site.getSiteRoot());
+        // unknown servers and ports match the default site
+        site = siteManager.matchRequest(createRequest("http", "shop2.example.org", 80));
+        assertEquals("/sites/default", site.getSiteRoot());
+        site = siteManager.matchRequest(createRequest("http", "unknown.example.org", 80));
+        assertEquals("/sites/default", site.getSiteRoot());
+
+        assertTrue(siteManager.isWorkplaceRequest(createRequest("http", "localhost", 8080)));
+        assertFalse(siteManager.isWorkplaceRequest(createRequest("http", "site1.example.org", 80)));
+    }
+
+    /**
+     * Tests looking up the site of root paths.<p>
+     * 
+     * @throws Exception if something goes wrong
+     */
+    public void testSiteForRootPath() throws Exception {
+
+        CmsSiteManagerImpl siteManager = createSiteManager(5);
+
+        assertEquals("/sites/site1", siteManager.getSiteRoot("/sites/site1/index.html"));
+        assertEquals("/shop/site1", siteManager.getSiteRoot("/shop/site1/index.html"));
+        assertEquals("/shop/site1", siteManager.getSiteRoot("/shop/site1/"));
+        assertEquals("/shop/site1", siteManager.getSiteRoot("/shop/site1"));
+        assertEquals("/shop/site4", siteManager.getSiteForRootPath("/shop/site4/a/b/c.html").getSiteRoot());
+        assertNull(siteManager.getSiteRoot("/shop/site11/index.html"));
+        assertNull(siteManager.getSiteRoot("/shop/index.html"));
+        assertNull(siteManager.getSiteRoot("/system/modules/"));
+        assertNull(siteManager.getSiteForRootPath("/sites/unknown/index.html"));
+    }
+
+    /**
+     * Tests the site root tree.<p>
+     */
+    public void testSiteRootTrie() {
+
+        CmsSiteRootTrie trie = new CmsSiteRootTrie(Arrays.asList(new String[] {
+            "/shop",
+            "/shop/de",
+            "/shared/files",
+            "/shop"}));
+        assertEquals(3, trie.size());
+        assertEquals("/shop", trie.getSiteRoot("/shop"));
+        assertEquals("/shop", trie.getSiteRoot("/shop/en/index.html"));
+        assertEquals("/shop/de", trie.getSiteRoot("/shop/de/index.html"));
+        assertEquals("/shop/de", trie.getSiteRoot("/shop/de"));
+        assertEquals("/shared/files", trie.getSiteRoot("/shared/files/a.txt"));
+        assertNull(trie.getSiteRoot("/shared/a.txt"));
+        assertNull(trie.getSiteRoot("/shopping/index.html"));
+        assertNull(trie.getSiteRoot("shop/index.html"));
+        assertNull(trie.getSiteRoot("/"));
+
+        // the empty site root matches all root paths
+        trie = new CmsSiteRootTrie(Arrays.asList(new String[] {"", "/shop"}));
+        assertEquals("", trie.getSiteRoot("/system/index.html"));
+        assertEquals("/shop", trie.getSiteRoot("/shop/index.html"));
+    }
+
+    /**
+     * Creates a request for the given server.<p>
+     * 
+     * @param scheme the scheme of the request
+     * @param serverName the server name of the request
+     * @param serverPort the server port of the request
+     * 
+     * @return a request for the given server
+     */
+    private static OpenCmsTestServletRequest createRequest(
+        final String scheme,
+        final String serverName,
+        final int serverPort) {
+
+        return new OpenCmsTestServletRequest() {
+
+            /**
+             * @see org.opencms.test.OpenCmsTestServletRequest#getScheme()
+             */
+            @Override
+            public String getScheme() {
+
+                return scheme;
+            }
+
+            /**
+             * @see org.opencms.test.OpenCmsTestServletRequest#getServerName()
+             */
+            @Override
+            public String getServerName() {
+
+                return serverName;
+            }
+
+            /**
+             * @see org.opencms.test.OpenCmsTestServletRequest#getServerPort()
+             */
+            @Override
+            public int getServerPort() {
+
+                return serverPort;
+            }
+        };
+    }
+
+    /**
+     * Creates an initialized site manager with the given number of sites below "/sites/" 
+     * and the same number of additional sites below "/shop/".<p>
+     * 
+     * @param count the number of sites to create
+     * 
+     * @return the initialized site manager
+     * 
+     * @throws Exception if something goes wrong
+     */
+    private static CmsSiteManagerImpl createSiteManager(int count) throws Exception {
+
+        CmsSiteManagerImpl siteManager = new CmsSiteManagerImpl();
+        siteManager.setDefaultUri("/sites/default/");
+        siteManager.setWorkplaceServer("http://localhost:8080");
+        for (int i = 0; i < count; i++) {
+            siteManager.addAliasToConfigSite("http://alias" + i + ".example.org", "0");
+            siteManager.addSite("http://site" + i + ".example.org", "/sites/site" + i + "/", null, null, null);
+            siteManager.addSite("http://shop" + i + ".example.org:8080", "/shop/site" + i + "/", null, null, null);
+        }
+        // the VFS checks fail without a CmsObject, this only logs warnings
+        siteManager.initialize(null);
+        return siteManager;
+    }
+}
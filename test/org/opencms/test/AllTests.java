@@ -89,6 +89,7 @@ public final class AllTests {
         suite.addTest(org.opencms.ade.publish.AllTests.suite());
         suite.addTest(org.opencms.ade.sitemap.AllTests.suite());
         suite.addTest(org.opencms.cache.AllTests.suite());
+        suite.addTest(org.opencms.cluster.AllTests.suite());
         suite.addTest(org.opencms.configuration.AllTests.suite());
         suite.addTest(org.opencms.db.AllTests.suite());
         suite.addTest(org.opencms.file.AllTests.suite());
@@ -113,6 +114,7 @@ public final class AllTests {
         suite.addTest(org.opencms.search.extractors.AllTests.suite());
         suite.addTest(org.opencms.search.gallery.AllTests.suite());
         suite.addTest(org.opencms.security.AllTests.suite());
+        suite.addTest(org.opencms.site.AllTests.suite());
         suite.addTest(org.opencms.staticexport.AllTests.suite());
         suite.addTest(org.opencms.synchronize.AllTests.suite());
         suite.addTest(org.opencms.util.AllTests.suite());
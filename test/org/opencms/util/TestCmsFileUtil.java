@@ -28,8 +28,12 @@
 package org.opencms.util;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Arrays;
 
 import junit.framework.TestCase;
@@ -39,6 +43,153 @@ import junit.framework.TestCase;
  */
 public class TestCmsFileUtil extends TestCase {
 
+    /**
+     * An output stream that only counts the bytes written to it.<p>
+     */
+    private static class CountingOutputStream extends OutputStream {
+
+        private long m_count;
+
+        /**
+         * Returns the number of bytes written.<p>
+         * 
+         * @return the number of bytes written
+         */
+        public long getCount() {
+
+            return m_count;
+        }
+
+        /**
+         * @see java.io.OutputStream#write(byte[], int, int)
+         */
+        @Override
+        public void write(byte[] b, int off, int len) {
+
+            m_count += len;
+        }
+
+        /**
+         * @see java.io.OutputStream#write(int)
+         */
+        @Override
+        public void write(int b) {
+
+            m_count++;
+        }
+    }
+
+    /**
+     * An input stream that generates the given number of bytes without keeping them in memory.<p>
+     * 
+     * The byte at position <code>n</code> has the value <code>n % 251</code>.<p>
+     */
+    private static class GeneratedInputStream extends InputStream {
+
+        private long m_length;
+        private long m_position;
+
+        /**
+         * Creates a new generated input stream.<p>
+         * 
+         * @param length the number of bytes to generate
+         */
+        GeneratedInputStream(long length) {
+
+            m_length = length;
+        }
+
+        /**
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() {
+
+            if (m_position >= m_length) {
+                return -1;
+            }
+            return (int)(m_position++ % 251);
+        }
+
+        /**
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(byte[] b, int off, int len) {
+
+            if (m_position >= m_length) {
+                return -1;
+            }
+            int count = (int)Math.min(len, m_length - m_position);
+            for (int i = 0; i < count; i++) {
+                b[off + i] = (byte)(m_position++ % 251);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * An input stream of the given size that only counts the bytes read, without generating their values.<p>
+     * 
+     * Like streams read from the database, each read and skip covers less bytes than requested.<p>
+     */
+    private static class SizedInputStream extends InputStream {
+
+        /** The maximum number of bytes returned by a single read or skip. */
+        private static final int CHUNK_SIZE = 1000;
+
+        private long m_length;
+        private long m_position;
+
+        /**
+         * Creates a new sized input stream.<p>
+         * 
+         * @param length the size of the stream
+         */
+        SizedInputStream(long length) {
+
+            m_length = length;
+        }
+
+        /**
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() {
+
+            if (m_position >= m_length) {
+                return -1;
+            }
+            m_position++;
+            return 0;
+        }
+
+        /**
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(byte[] b, int off, int len) {
+
+            if (m_position >= m_length) {
+                return -1;
+            }
+            int count = (int)Math.min(Math.min(len, CHUNK_SIZE), m_length - m_position);
+            m_position += count;
+            return count;
+        }
+
+        /**
+         * @see java.io.InputStream#skip(long)
+         */
+        @Override
+        public long skip(long n) {
+
+            long count = Math.max(0, Math.min(Math.min(n, CHUNK_SIZE), m_length - m_position));
+            m_position += count;
+            return count;
+        }
+    }
+
     /**
      * An input stream that provides 24 bytes of data in two chunks, the first of 16 bytes,
      * the second of 8 bytes.<p>
@@ -135,6 +286,106 @@ public class TestCmsFileUtil extends TestCase {
         }
     }
 
+    /**
+     * Tests copying a range of a file with {@link CmsFileUtil#copy(File, OutputStream, long, long)}.<p>
+     * 
+     * @throws IOException in case the test fails
+     */
+    public void testCopyFileRange() throws IOException {
+
+        File file = File.createTempFile("opencms-test-", ".bin");
+        try {
+            FileOutputStream fileOut = new FileOutputStream(file);
+            try {
+                CmsFileUtil.copy(new GeneratedInputStream(100000), fileOut, 0, -1);
+            } finally {
+                fileOut.close();
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            assertEquals(100000, CmsFileUtil.copy(file, out, 0, -1));
+            assertEquals(100000, out.size());
+
+            out = new ByteArrayOutputStream();
+            assertEquals(10, CmsFileUtil.copy(file, out, 50000, 10));
+            byte[] data = out.toByteArray();
+            assertEquals(10, data.length);
+            for (int i = 0; i < data.length; i++) {
+                assertEquals((byte)((50000 + i) % 251), data[i]);
+            }
+
+            // the range ends with the file
+            out = new ByteArrayOutputStream();
+            assertEquals(5, CmsFileUtil.copy(file, out, 99995, 100));
+
+            // an offset behind the end of the file copies nothing
+            out = new ByteArrayOutputStream();
+            assertEquals(0, CmsFileUtil.copy(file, out, 200000, 100));
+            assertEquals(0, out.size());
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Tests copying a stream larger than 2 GB with {@link CmsFileUtil#copy(InputStream, OutputStream, long, long)}.<p>
+     * 
+     * @throws IOException in case the test fails
+     */
+    public void testCopyLargeStream() throws IOException {
+
+        long length = (3L * 1024 * 1024 * 1024) + 7;
+        CountingOutputStream out = new CountingOutputStream();
+        long copied = CmsFileUtil.copy(new SizedInputStream(length), out, 0, -1);
+        assertEquals(length, copied);
+        assertEquals(length, out.getCount());
+
+        // copy a range, the stream skips and reads less bytes than requested 
+        out = new CountingOutputStream();
+        copied = CmsFileUtil.copy(new SizedInputStream(100000), out, 12345, 50000);
+        assertEquals(50000, copied);
+        assertEquals(50000, out.getCount());
+
+        // copy the last bytes only
+        out = new CountingOutputStream();
+        copied = CmsFileUtil.copy(new SizedInputStream(length), out, length - 100, 1000);
+        assertEquals(100, copied);
+    }
+
+    /**
+     * Tests copying a range of a stream with {@link CmsFileUtil#copy(InputStream, OutputStream, long, long)}.<p>
+     * 
+     * @throws IOException in case the test fails
+     */
+    public void testCopyRange() throws IOException {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(10, CmsFileUtil.copy(new GeneratedInputStream(1000), out, 500, 10));
+        byte[] data = out.toByteArray();
+        assertEquals(10, data.length);
+        for (int i = 0; i < data.length; i++) {
+            assertEquals((byte)((500 + i) % 251), data[i]);
+        }
+
+        // the stream can be copied to the end
+        out = new ByteArrayOutputStream();
+        assertEquals(1000, CmsFileUtil.copy(new GeneratedInputStream(1000), out, 0, -1));
+        assertEquals(1000, out.size());
+
+        // the range ends with the stream
+        out = new ByteArrayOutputStream();
+        assertEquals(5, CmsFileUtil.copy(new GeneratedInputStream(1000), out, 995, 100));
+
+        // an offset behind the end of the stream copies nothing
+        out = new ByteArrayOutputStream();
+        assertEquals(0, CmsFileUtil.copy(new GeneratedInputStream(1000), out, 2000, 100));
+        assertEquals(0, out.size());
+
+        // the test stream from above can only be read in chunks
+        out = new ByteArrayOutputStream();
+        assertEquals(20, CmsFileUtil.copy(new TestInputStream(), out, 4, -1));
+    }
+
     /**
      * Test the behavior of {@link CmsFileUtil#readFully(InputStream)}
      * when the read takes more than one iteration to complete.<p>  